@@ -0,0 +1,81 @@
+package rakib.bcs430healthcareproject;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Bridges Google {@link ApiFuture}s into {@link CompletableFuture}s without blocking a thread
+ * while the RPC is in flight.
+ */
+public final class ApiFutureSupport {
+
+    private ApiFutureSupport() {
+    }
+
+    /**
+     * Completes the returned future directly from the ApiFuture callback, so no pool thread is
+     * parked while the RPC is in flight and a saturated pool cannot stall its own completions.
+     * Cancelling the returned future cancels the RPC.
+     */
+    public static <T> CompletableFuture<T> toCompletableFuture(ApiFuture<T> apiFuture) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        ApiFutures.addCallback(apiFuture, new ApiFutureCallback<>() {
+            @Override
+            public void onFailure(Throwable t) {
+                future.completeExceptionally(t);
+            }
+
+            @Override
+            public void onSuccess(T result) {
+                future.complete(result);
+            }
+        }, Runnable::run);
+
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                apiFuture.cancel(true);
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Waits for every future and returns their results in the same order.
+     */
+    public static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> futures.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * Re-throws any failure as a RuntimeException whose message starts with the given prefix,
+     * matching the messages FirebaseService surfaces to controllers.
+     */
+    public static <T> CompletableFuture<T> withFailureMessage(CompletableFuture<T> future, String prefix) {
+        return future.handle((result, error) -> {
+            if (error == null) {
+                return result;
+            }
+
+            Throwable cause = unwrap(error);
+            throw new RuntimeException(prefix + cause.getMessage(), cause);
+        });
+    }
+
+    public static Throwable unwrap(Throwable error) {
+        Throwable current = error;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+}
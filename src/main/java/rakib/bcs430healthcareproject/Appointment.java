@@ -38,6 +38,9 @@ public class Appointment {
     private String appointmentDate;
     private String appointmentSlot;
 
+    // ID of the slot reservation this appointment holds, if any
+    private String slotReservationId;
+
     private String status;
 
     private Boolean newPatient;
@@ -201,6 +204,14 @@ public class Appointment {
         this.appointmentSlot = appointmentSlot;
     }
 
+    public String getSlotReservationId() {
+        return slotReservationId;
+    }
+
+    public void setSlotReservationId(String slotReservationId) {
+        this.slotReservationId = slotReservationId;
+    }
+
     public String getStatus() {
         return status;
     }
@@ -0,0 +1,742 @@
+package rakib.bcs430healthcareproject;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Reads and writes appointment documents.
+ */
+public class AppointmentRepository extends StoreRepository {
+
+    public static final String COLLECTION = "appointments";
+
+    /** Stored epoch that paginated listings are ordered by. */
+    public static final String ORDER_FIELD = "appointmentDateTime";
+
+    /**
+     * One document per hospital and patient that ever booked there, so the number of distinct
+     * patients can be counted with an aggregation.
+     */
+    public static final String HOSPITAL_PATIENTS_COLLECTION = "hospitalPatients";
+
+    /**
+     * One document per booked doctor slot, keyed by {@link #slotReservationId}. Creating it is
+     * what claims the slot, so two bookings of the same slot cannot both succeed.
+     */
+    public static final String SLOT_RESERVATIONS_COLLECTION = "slotReservations";
+
+    /**
+     * One {@link SlotOccupancy} document per doctor and day, changed in the same transaction
+     * as every reservation it mirrors, so availability is a single point read.
+     */
+    public static final String SLOT_OCCUPANCY_COLLECTION = "slotOccupancy";
+
+    /** Appointments scanned per bulk write by {@link #migrateHospitalUids}. */
+    public static final int MAX_MIGRATION_PAGE_SIZE = 400;
+
+    private static final DateTimeFormatter SLOT_FORMAT = new DateTimeFormatterBuilder()
+            .parseCaseInsensitive()
+            .appendPattern("h:mm a")
+            .toFormatter(Locale.ENGLISH);
+
+    public AppointmentRepository(DocumentStore store) {
+        super(store);
+    }
+
+    public String newId() {
+        return store.newDocumentId(COLLECTION);
+    }
+
+    public CompletableFuture<List<Appointment>> findByDoctor(String doctorUid) {
+        return find(StoreQuery.collection(COLLECTION)
+                .whereEqualTo("doctorUid", doctorUid));
+    }
+
+    public CompletableFuture<List<Appointment>> findByDoctorAndDate(String doctorUid, String appointmentDate) {
+        return find(StoreQuery.collection(COLLECTION)
+                .whereEqualTo("doctorUid", doctorUid)
+                .whereEqualTo("appointmentDate", appointmentDate));
+    }
+
+    public CompletableFuture<List<Appointment>> findAll() {
+        return find(StoreQuery.collection(COLLECTION));
+    }
+
+    public CompletableFuture<List<Appointment>> findByPatient(String patientUid) {
+        return find(StoreQuery.collection(COLLECTION)
+                .whereEqualTo("patientUid", patientUid));
+    }
+
+    /**
+     * Keeps the appointments whose participant field ("patientUid", "doctorUid" or
+     * "hospitalUid") equals the UID live.
+     */
+    public StoreSubscription listenByParticipant(String field, String uid, Consumer<List<Appointment>> listener) {
+        return store.listen(participantQuery(field, uid), docs -> listener.accept(toAppointments(docs)));
+    }
+
+    /**
+     * Same as above, also replacing the replica dataset with every snapshot. onError receives
+     * the failure that ends the subscription.
+     */
+    public StoreSubscription listenByParticipant(String field, String uid, LocalReplica.Dataset replica,
+                                                 Consumer<List<Appointment>> listener,
+                                                 Consumer<Throwable> onError) {
+        return store.listen(participantQuery(field, uid), docs -> {
+            if (replica != null) {
+                replica.replaceAll(docs);
+            }
+            listener.accept(toAppointments(docs));
+        }, onError);
+    }
+
+    /**
+     * The replica dataset that {@link #listenByParticipant} keeps for the user.
+     */
+    public static LocalReplica.Dataset replicaByParticipant(LocalReplica replica, String field, String uid) {
+        return replica.dataset(uid, participantQuery(field, uid), null);
+    }
+
+    static List<Appointment> toAppointments(List<StoredDocument> docs) {
+        return toModels(docs, Appointment.class, Appointment::setAppointmentId);
+    }
+
+    private static StoreQuery participantQuery(String field, String uid) {
+        return StoreQuery.collection(COLLECTION).whereEqualTo(field, uid);
+    }
+
+    public CompletableFuture<List<Appointment>> findByHospitalUid(String hospitalUid) {
+        return find(StoreQuery.collection(COLLECTION)
+                .whereEqualTo("hospitalUid", hospitalUid));
+    }
+
+    /**
+     * Older appointment documents only carry the hospital name.
+     */
+    public CompletableFuture<List<Appointment>> findByHospitalName(String hospitalName) {
+        return find(StoreQuery.collection(COLLECTION)
+                .whereEqualTo("hospitalName", hospitalName));
+    }
+
+    public CompletableFuture<Page<Appointment>> findPageByPatient(String patientUid, AppointmentWindow window,
+                                                                  int pageSize, String cursor) {
+        return findPage(StoreQuery.collection(COLLECTION).whereEqualTo("patientUid", patientUid),
+                window, pageSize, cursor);
+    }
+
+    public CompletableFuture<Page<Appointment>> findPageByPatientAndStatus(String patientUid, String status,
+                                                                           AppointmentWindow window,
+                                                                           int pageSize, String cursor) {
+        return findPage(StoreQuery.collection(COLLECTION)
+                        .whereEqualTo("patientUid", patientUid)
+                        .whereEqualTo("status", status),
+                window, pageSize, cursor);
+    }
+
+    public CompletableFuture<Page<Appointment>> findPageByDoctor(String doctorUid, AppointmentWindow window,
+                                                                 int pageSize, String cursor) {
+        return findPage(StoreQuery.collection(COLLECTION).whereEqualTo("doctorUid", doctorUid),
+                window, pageSize, cursor);
+    }
+
+    /**
+     * Pages through appointments that carry the hospitalUid or, for older documents, only the
+     * hospital name. Both queries share the same order and cursor, so their pages can be merged.
+     */
+    public CompletableFuture<Page<Appointment>> findPageByHospital(String hospitalUid, String hospitalName,
+                                                                   AppointmentWindow window,
+                                                                   int pageSize, String cursor) {
+        List<CompletableFuture<List<StoredDocument>>> queries = new ArrayList<>();
+        try {
+            queries.add(store.query(pageQuery(orderedQuery(StoreQuery.collection(COLLECTION)
+                    .whereEqualTo("hospitalUid", hospitalUid), window), pageSize, cursor)));
+            if (hospitalName != null && !hospitalName.isBlank()) {
+                queries.add(store.query(pageQuery(orderedQuery(StoreQuery.collection(COLLECTION)
+                        .whereEqualTo("hospitalName", hospitalName), window), pageSize, cursor)));
+            }
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return ApiFutureSupport.allOf(queries).thenApply(results -> {
+            Map<String, StoredDocument> merged = new LinkedHashMap<>();
+            for (List<StoredDocument> result : results) {
+                for (StoredDocument doc : result) {
+                    merged.putIfAbsent(doc.getId(), doc);
+                }
+            }
+
+            List<StoredDocument> docs = new ArrayList<>(merged.values());
+            docs.sort((left, right) -> {
+                int result = Long.compare(((Number) left.get(ORDER_FIELD)).longValue(),
+                        ((Number) right.get(ORDER_FIELD)).longValue());
+                if (result == 0) {
+                    result = left.getId().compareTo(right.getId());
+                }
+                return window.isDescending() ? -result : result;
+            });
+            return toPage(docs, pageSize, ORDER_FIELD, Appointment.class, Appointment::setAppointmentId);
+        });
+    }
+
+    /**
+     * Creates or replaces the appointment under its appointmentId. The appointmentDateTime
+     * epoch is filled in from the date and slot when missing, so the appointment shows up in
+     * paginated listings.
+     */
+    public CompletableFuture<Void> save(Appointment appointment) {
+        if (appointment.getAppointmentDateTime() == null) {
+            appointment.setAppointmentDateTime(appointment.resolveAppointmentEpochMillis());
+        }
+
+        CompletableFuture<Void> saved = store.set(COLLECTION, appointment.getAppointmentId(), appointment);
+        if (isBlank(appointment.getHospitalUid()) || isBlank(appointment.getPatientUid())) {
+            return saved;
+        }
+        return saved.thenCompose(ignored -> linkHospitalPatient(appointment.getHospitalUid(), appointment.getPatientUid()));
+    }
+
+    /**
+     * Creates the appointment, the reservation of its doctor, date and slot, and the slot's bit
+     * in the day's occupancy in one transaction. Fails with {@link DocumentAlreadyExistsException} when the slot is already taken,
+     * in which case nothing is written.
+     */
+    public CompletableFuture<Void> book(Appointment appointment) {
+        if (appointment.getAppointmentDateTime() == null) {
+            appointment.setAppointmentDateTime(appointment.resolveAppointmentEpochMillis());
+        }
+
+        String reservationId = slotReservationId(appointment.getDoctorUid(),
+                appointment.getAppointmentDate(), appointment.getAppointmentSlot());
+        appointment.setSlotReservationId(reservationId);
+
+        List<WriteOperation> writes = new ArrayList<>();
+        writes.add(WriteOperation.create(SLOT_RESERVATIONS_COLLECTION, reservationId, reservation(appointment)));
+        writes.add(WriteOperation.set(COLLECTION, appointment.getAppointmentId(), appointment));
+        if (!isBlank(appointment.getHospitalUid()) && !isBlank(appointment.getPatientUid())) {
+            writes.add(linkOperation(appointment.getHospitalUid(), appointment.getPatientUid()));
+        }
+
+        return commitWithOccupancy(writes, List.of(SlotChange.book(appointment))).whenComplete((ignored, error) -> {
+            if (error != null) {
+                appointment.setSlotReservationId(null);
+            }
+        });
+    }
+
+    /**
+     * Saves an appointment that holds a reservation. If its doctor, date or slot changed, the
+     * new slot is claimed and the old one released in the same transaction, occupancy
+     * included; a cancelled appointment just releases its slot. The old slot is only released
+     * while its reservation still belongs to this appointment, so saving a stale copy cannot
+     * free a slot someone else has booked since. Appointments without a reservation are saved
+     * as they are.
+     */
+    public CompletableFuture<Void> saveHoldingReservation(Appointment appointment) {
+        String heldId = appointment.getSlotReservationId();
+        if (heldId == null) {
+            return save(appointment);
+        }
+
+        boolean cancelled = "CANCELLED".equalsIgnoreCase(appointment.getStatus());
+        String wantedId = cancelled ? null : slotReservationId(appointment.getDoctorUid(),
+                appointment.getAppointmentDate(), appointment.getAppointmentSlot());
+        if (heldId.equals(wantedId)) {
+            return save(appointment);
+        }
+
+        if (appointment.getAppointmentDateTime() == null) {
+            appointment.setAppointmentDateTime(appointment.resolveAppointmentEpochMillis());
+        }
+        appointment.setSlotReservationId(wantedId);
+
+        List<WriteOperation> writes = new ArrayList<>();
+        List<SlotChange> changes = new ArrayList<>();
+        if (wantedId != null) {
+            writes.add(WriteOperation.create(SLOT_RESERVATIONS_COLLECTION, wantedId, reservation(appointment)));
+            changes.add(SlotChange.book(appointment));
+        }
+        writes.add(WriteOperation.set(COLLECTION, appointment.getAppointmentId(), appointment));
+
+        return commitReleasing(appointment.getAppointmentId(), heldId, false, writes, changes).whenComplete((ignored, error) -> {
+            if (error != null) {
+                appointment.setSlotReservationId(heldId);
+            }
+        });
+    }
+
+    /**
+     * Claims the slot for an appointment booked before reservations existed. Fails with
+     * {@link DocumentAlreadyExistsException} if another appointment already holds it.
+     */
+    public CompletableFuture<Void> reserveExisting(Appointment appointment) {
+        String reservationId = slotReservationId(appointment.getDoctorUid(),
+                appointment.getAppointmentDate(), appointment.getAppointmentSlot());
+
+        return commitWithOccupancy(List.of(
+                WriteOperation.create(SLOT_RESERVATIONS_COLLECTION, reservationId, reservation(appointment)),
+                WriteOperation.update(COLLECTION, appointment.getAppointmentId(),
+                        Map.of("slotReservationId", reservationId))),
+                List.of(SlotChange.book(appointment)));
+    }
+
+    /**
+     * Booked slot labels for the doctor's day ("9:30 AM"), read from its occupancy document.
+     */
+    public CompletableFuture<List<String>> findBookedSlots(String doctorUid, String appointmentDate) {
+        return store.get(SLOT_OCCUPANCY_COLLECTION, SlotOccupancy.documentId(doctorUid, appointmentDate))
+                .thenApply(doc -> SlotOccupancy.from(doc, doctorUid, appointmentDate).getBookedSlots());
+    }
+
+    /**
+     * Rewrites every occupancy document from the slot reservations, for reservations made
+     * before occupancy was kept. Run it while no bookings are being made. Returns the number
+     * of days written.
+     */
+    public CompletableFuture<Integer> rebuildSlotOccupancy() {
+        return store.query(StoreQuery.collection(SLOT_RESERVATIONS_COLLECTION)).thenCompose(reservations -> {
+            Map<String, SlotOccupancy> days = new LinkedHashMap<>();
+            for (StoredDocument reservation : reservations) {
+                SlotChange booked = SlotChange.ofReservation(reservation, true);
+                if (booked == null) {
+                    continue;
+                }
+                SlotOccupancy day = days.computeIfAbsent(booked.dayId(),
+                        ignored -> SlotOccupancy.empty(booked.doctorUid, booked.appointmentDate));
+                days.put(booked.dayId(), day.with(booked.appointmentSlot, true));
+            }
+
+            List<WriteOperation> writes = new ArrayList<>();
+            for (Map.Entry<String, SlotOccupancy> day : days.entrySet()) {
+                writes.add(WriteOperation.set(SLOT_OCCUPANCY_COLLECTION, day.getKey(), day.getValue().toMap()));
+            }
+            return store.bulkWrite(writes).thenApply(result -> {
+                if (result.hasFailures()) {
+                    throw new RuntimeException("Could not write " + result.getFailures().size() + " occupancy documents.");
+                }
+                return writes.size();
+            });
+        });
+    }
+
+    /**
+     * Whether every appointment carries its hospitalUid, so hospital listings need not also
+     * query by hospital name.
+     */
+    public CompletableFuture<Boolean> isHospitalUidMigrated() {
+        return store.get(HospitalUidMigration.COLLECTION, HospitalUidMigration.DOCUMENT_ID)
+                .thenApply(document -> HospitalUidMigration.from(document).isComplete());
+    }
+
+    /**
+     * Stamps hospitalUid on appointments that only carry a hospital name, scanning the
+     * collection in pages of document IDs with one bulk write per page. The hospital is looked
+     * up in hospitalUidsByName; names that are missing or map to null are counted as
+     * unresolved and left alone. A missing appointmentDateTime is filled in on the way.
+     *
+     * Progress is checkpointed after every page, so a run that fails resumes where it
+     * stopped. The last page marks the migration complete only if nothing was left unresolved;
+     * otherwise the unresolved IDs are returned and the next run scans again from the start.
+     * Writes are field updates and can be repeated. New appointments must be saved with their
+     * hospitalUid from the moment the migration starts. Pages are read one after another on
+     * {@link FirestoreExecutor}, so the scan runs in constant stack however large the
+     * collection is.
+     */
+    public CompletableFuture<HospitalUidMigration> migrateHospitalUids(Map<String, String> hospitalUidsByName,
+                                                                       int pageSize) {
+        if (pageSize <= 0 || pageSize > MAX_MIGRATION_PAGE_SIZE) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    "Page size must be between 1 and " + MAX_MIGRATION_PAGE_SIZE + "."));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            HospitalUidMigration progress = HospitalUidMigration.from(
+                    store.get(HospitalUidMigration.COLLECTION, HospitalUidMigration.DOCUMENT_ID).join());
+            if (progress.isPassFinished()) {
+                progress = HospitalUidMigration.from(null);
+            }
+            while (!progress.isComplete() && !progress.isPassFinished()) {
+                progress = migratePage(progress, hospitalUidsByName, pageSize);
+            }
+            return progress;
+        }, FirestoreExecutor.getInstance());
+    }
+
+    /**
+     * Migrates the page after the checkpoint and checkpoints past it.
+     */
+    private HospitalUidMigration migratePage(HospitalUidMigration progress, Map<String, String> hospitalUidsByName,
+                                             int pageSize) {
+        StoreQuery page = StoreQuery.collection(COLLECTION).limit(pageSize);
+        if (progress.getLastAppointmentId() != null) {
+            page = page.startAfterDocument(progress.getLastAppointmentId());
+        }
+
+        List<StoredDocument> docs = store.query(page).join();
+        List<WriteOperation> writes = new ArrayList<>();
+        int stamped = 0;
+        List<String> unresolved = new ArrayList<>();
+        for (StoredDocument doc : docs) {
+            Map<String, Object> fields = new LinkedHashMap<>();
+            String hospitalName = doc.getString("hospitalName");
+            if (isBlank(doc.getString("hospitalUid")) && !isBlank(hospitalName)) {
+                String hospitalUid = hospitalUidsByName.get(hospitalName.trim());
+                if (hospitalUid != null) {
+                    fields.put("hospitalUid", hospitalUid);
+                    stamped++;
+                } else {
+                    unresolved.add(doc.getId());
+                }
+            }
+            if (doc.get(ORDER_FIELD) == null) {
+                Long epoch = toModel(doc, Appointment.class, Appointment::setAppointmentId)
+                        .resolveAppointmentEpochMillis();
+                if (epoch != null) {
+                    fields.put(ORDER_FIELD, epoch);
+                }
+            }
+            if (!fields.isEmpty()) {
+                writes.add(WriteOperation.update(COLLECTION, doc.getId(), fields));
+            }
+        }
+
+        String lastId = docs.isEmpty() ? null : docs.get(docs.size() - 1).getId();
+        HospitalUidMigration next = progress.after(lastId, docs.size(), stamped, unresolved,
+                docs.size() < pageSize);
+
+        store.bulkWrite(writes).join().throwIfFailed("Some appointments were not migrated");
+        store.set(HospitalUidMigration.COLLECTION, HospitalUidMigration.DOCUMENT_ID, next.toMap()).join();
+        return next;
+    }
+
+    public CompletableFuture<Boolean> isSlotReserved(String doctorUid, String appointmentDate, String appointmentSlot) {
+        return store.get(SLOT_RESERVATIONS_COLLECTION, slotReservationId(doctorUid, appointmentDate, appointmentSlot))
+                .thenApply(StoredDocument::exists);
+    }
+
+    /**
+     * Deterministic reservation ID for a doctor's slot. Slot labels such as "9:30 AM" and
+     * "09:30 am" map to the same ID.
+     */
+    public static String slotReservationId(String doctorUid, String appointmentDate, String appointmentSlot) {
+        if (isBlank(doctorUid) || isBlank(appointmentDate) || isBlank(appointmentSlot)) {
+            throw new IllegalArgumentException("Doctor, date and slot are required to reserve a slot.");
+        }
+
+        String slot;
+        try {
+            slot = LocalTime.parse(appointmentSlot.trim(), SLOT_FORMAT).format(DateTimeFormatter.ofPattern("HHmm"));
+        } catch (DateTimeParseException e) {
+            slot = appointmentSlot.trim().toUpperCase(Locale.ENGLISH).replaceAll("[^0-9A-Z]", "");
+        }
+        return doctorUid + "_" + appointmentDate.trim() + "_" + slot;
+    }
+
+    /**
+     * Records that the patient booked with the hospital. Writing the same pair again is harmless.
+     */
+    public CompletableFuture<Void> linkHospitalPatient(String hospitalUid, String patientUid) {
+        WriteOperation link = linkOperation(hospitalUid, patientUid);
+        return store.set(link.getCollection(), link.getId(), link.getData());
+    }
+
+    /**
+     * Writes the hospital-patient link of every appointment, for appointments booked before
+     * links were kept. Scans the appointments in pages of document IDs, one page after another
+     * on {@link FirestoreExecutor}, with one bulk write per page. A pair seen on several pages
+     * is simply written again. Returns the number of link writes.
+     */
+    public CompletableFuture<Integer> linkAllHospitalPatients() {
+        return CompletableFuture.supplyAsync(() -> {
+            int written = 0;
+            String lastId = null;
+            while (true) {
+                StoreQuery page = StoreQuery.collection(COLLECTION).limit(MAX_MIGRATION_PAGE_SIZE);
+                if (lastId != null) {
+                    page = page.startAfterDocument(lastId);
+                }
+
+                List<StoredDocument> docs = store.query(page).join();
+                Map<String, WriteOperation> links = new LinkedHashMap<>();
+                for (StoredDocument doc : docs) {
+                    String hospitalUid = doc.getString("hospitalUid");
+                    String patientUid = doc.getString("patientUid");
+                    if (!isBlank(hospitalUid) && !isBlank(patientUid)) {
+                        WriteOperation link = linkOperation(hospitalUid, patientUid);
+                        links.putIfAbsent(link.getId(), link);
+                    }
+                }
+
+                store.bulkWrite(new ArrayList<>(links.values())).join()
+                        .throwIfFailed("Some hospital patient links were not written");
+                written += links.size();
+                if (docs.size() < MAX_MIGRATION_PAGE_SIZE) {
+                    return written;
+                }
+                lastId = docs.get(docs.size() - 1).getId();
+            }
+        }, FirestoreExecutor.getInstance());
+    }
+
+    public CompletableFuture<Long> countPatientsForHospital(String hospitalUid) {
+        return store.count(StoreQuery.collection(HOSPITAL_PATIENTS_COLLECTION).whereEqualTo("hospitalUid", hospitalUid));
+    }
+
+    public CompletableFuture<Long> countByHospital(String hospitalUid) {
+        return store.count(StoreQuery.collection(COLLECTION).whereEqualTo("hospitalUid", hospitalUid));
+    }
+
+    /**
+     * Counts the hospital's appointments with a stored time in [fromMillis, toMillis).
+     */
+    public CompletableFuture<Long> countByHospitalBetween(String hospitalUid, long fromMillis, long toMillis) {
+        return store.count(StoreQuery.collection(COLLECTION)
+                .whereEqualTo("hospitalUid", hospitalUid)
+                .orderBy(ORDER_FIELD, false)
+                .whereOrderFieldAtLeast(fromMillis)
+                .whereOrderFieldBelow(toMillis));
+    }
+
+    /**
+     * Counts the hospital's appointments in the status with a stored time in
+     * [fromMillis, toMillis).
+     */
+    public CompletableFuture<Long> countByHospitalAndStatusBetween(String hospitalUid, String status,
+                                                                 long fromMillis, long toMillis) {
+        return store.count(StoreQuery.collection(COLLECTION)
+                .whereEqualTo("hospitalUid", hospitalUid)
+                .whereEqualTo("status", status)
+                .orderBy(ORDER_FIELD, false)
+                .whereOrderFieldAtLeast(fromMillis)
+                .whereOrderFieldBelow(toMillis));
+    }
+
+    /**
+     * Deletes the appointment and, in the same transaction, the slot reservation it holds and
+     * its bit in the day's occupancy, as long as the reservation still belongs to it. If the
+     * appointment moves to another reservation meanwhile, the delete starts over.
+     */
+    public CompletableFuture<Void> delete(String appointmentId) {
+        return store.get(COLLECTION, appointmentId).thenCompose(document -> {
+            List<WriteOperation> writes = List.of(WriteOperation.delete(COLLECTION, appointmentId));
+
+            String reservationId = document.exists() ? document.getString("slotReservationId") : null;
+            if (reservationId == null) {
+                return store.commitAtomically(COLLECTION, List.of(appointmentId), documents -> {
+                    if (documents.get(0).exists() && documents.get(0).getString("slotReservationId") != null) {
+                        throw new ReservationMovedException();
+                    }
+                    return writes;
+                });
+            }
+            return commitReleasing(appointmentId, reservationId, true, writes, List.of());
+        }).exceptionallyCompose(error -> ApiFutureSupport.unwrap(error) instanceof ReservationMovedException
+                ? delete(appointmentId)
+                : CompletableFuture.failedFuture(error));
+    }
+
+    /**
+     * Commits the writes and the slot changes in one transaction that reads and rewrites the
+     * occupancy document of every day involved. A day with no booked slot left is deleted.
+     */
+    private CompletableFuture<Void> commitWithOccupancy(List<WriteOperation> writes, List<SlotChange> changes) {
+        Map<String, SlotChange> days = daysOf(changes, null);
+        List<String> dayIds = new ArrayList<>(days.keySet());
+
+        return store.commitAtomically(SLOT_OCCUPANCY_COLLECTION, dayIds, documents -> {
+            List<WriteOperation> all = new ArrayList<>(writes);
+            all.addAll(occupancyWrites(days, documents, changes));
+            return all;
+        });
+    }
+
+    /**
+     * Like {@link #commitWithOccupancy}, and also releases the reservation heldId, its document
+     * and its occupancy bit, but only if the transaction finds it still held by the
+     * appointment. Reservation IDs name a doctor, day and slot, so once an appointment gave a
+     * slot up, the same ID may hold someone else's booking. With checkAppointment, the
+     * transaction also fails with {@link ReservationMovedException} if the appointment now
+     * holds a different reservation.
+     */
+    private CompletableFuture<Void> commitReleasing(String appointmentId, String heldId, boolean checkAppointment,
+                                                    List<WriteOperation> writes, List<SlotChange> changes) {
+        // Read ahead only to learn the held slot's day, whose occupancy the transaction must read.
+        return store.get(SLOT_RESERVATIONS_COLLECTION, heldId).thenCompose(before -> {
+            Map<String, SlotChange> days = daysOf(changes, SlotChange.ofReservation(before, false));
+            List<String> paths = new ArrayList<>();
+            paths.add(DocumentStore.documentPath(SLOT_RESERVATIONS_COLLECTION, heldId));
+            paths.add(DocumentStore.documentPath(COLLECTION, appointmentId));
+            for (String dayId : days.keySet()) {
+                paths.add(DocumentStore.documentPath(SLOT_OCCUPANCY_COLLECTION, dayId));
+            }
+
+            return store.commitAtomically(paths, documents -> {
+                StoredDocument held = documents.get(0);
+                StoredDocument current = documents.get(1);
+                if (checkAppointment && current.exists() && !heldId.equals(current.getString("slotReservationId"))) {
+                    throw new ReservationMovedException();
+                }
+
+                List<WriteOperation> all = new ArrayList<>(writes);
+                List<SlotChange> applied = new ArrayList<>(changes);
+                if (held.exists() && appointmentId.equals(held.getString("appointmentId"))) {
+                    all.add(WriteOperation.delete(SLOT_RESERVATIONS_COLLECTION, heldId));
+                    SlotChange release = SlotChange.ofReservation(held, false);
+                    if (release != null) {
+                        if (!days.containsKey(release.dayId())) {
+                            throw new ReservationMovedException();
+                        }
+                        applied.add(release);
+                    }
+                }
+                all.addAll(occupancyWrites(days, documents.subList(2, documents.size()), applied));
+                return all;
+            });
+        });
+    }
+
+    private static Map<String, SlotChange> daysOf(List<SlotChange> changes, SlotChange extra) {
+        Map<String, SlotChange> days = new LinkedHashMap<>();
+        if (extra != null) {
+            days.put(extra.dayId(), extra);
+        }
+        for (SlotChange change : changes) {
+            days.putIfAbsent(change.dayId(), change);
+        }
+        return days;
+    }
+
+    /**
+     * Rewrites each day's occupancy document, read in the same order as the days, with the
+     * changes applied; days without a change are left alone. A day with no booked slot left is
+     * deleted.
+     */
+    private static List<WriteOperation> occupancyWrites(Map<String, SlotChange> days, List<StoredDocument> documents,
+                                                        List<SlotChange> changes) {
+        List<WriteOperation> writes = new ArrayList<>();
+        int i = 0;
+        for (Map.Entry<String, SlotChange> entry : days.entrySet()) {
+            String dayId = entry.getKey();
+            SlotChange first = entry.getValue();
+            SlotOccupancy day = SlotOccupancy.from(documents.get(i++), first.doctorUid, first.appointmentDate);
+            boolean changed = false;
+            for (SlotChange change : changes) {
+                if (change.dayId().equals(dayId)) {
+                    day = day.with(change.appointmentSlot, change.booked);
+                    changed = true;
+                }
+            }
+            if (!changed) {
+                continue;
+            }
+            writes.add(day.isEmpty()
+                    ? WriteOperation.delete(SLOT_OCCUPANCY_COLLECTION, dayId)
+                    : WriteOperation.set(SLOT_OCCUPANCY_COLLECTION, dayId, day.toMap()));
+        }
+        return writes;
+    }
+
+    /**
+     * The appointment's reservation changed after it was read; the caller starts over.
+     */
+    private static final class ReservationMovedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private ReservationMovedException() {
+            super("The appointment's slot reservation changed; try again.");
+        }
+    }
+
+    /**
+     * One slot to mark booked or free in a day's occupancy.
+     */
+    private static final class SlotChange {
+        private final String doctorUid;
+        private final String appointmentDate;
+        private final String appointmentSlot;
+        private final boolean booked;
+
+        private SlotChange(String doctorUid, String appointmentDate, String appointmentSlot, boolean booked) {
+            this.doctorUid = doctorUid;
+            this.appointmentDate = appointmentDate;
+            this.appointmentSlot = appointmentSlot;
+            this.booked = booked;
+        }
+
+        private static SlotChange book(Appointment appointment) {
+            return new SlotChange(appointment.getDoctorUid(), appointment.getAppointmentDate(),
+                    appointment.getAppointmentSlot(), true);
+        }
+
+        /**
+         * Marks the slot a reservation document holds, or returns null if there is none.
+         */
+        private static SlotChange ofReservation(StoredDocument reservation, boolean booked) {
+            if (reservation == null || !reservation.exists()) {
+                return null;
+            }
+            String doctorUid = reservation.getString("doctorUid");
+            String appointmentDate = reservation.getString("appointmentDate");
+            String appointmentSlot = reservation.getString("appointmentSlot");
+            if (isBlank(doctorUid) || isBlank(appointmentDate) || isBlank(appointmentSlot)) {
+                return null;
+            }
+            return new SlotChange(doctorUid, appointmentDate, appointmentSlot, booked);
+        }
+
+        private String dayId() {
+            return SlotOccupancy.documentId(doctorUid, appointmentDate);
+        }
+    }
+
+    static WriteOperation linkOperation(String hospitalUid, String patientUid) {
+        Map<String, Object> link = new LinkedHashMap<>();
+        link.put("hospitalUid", hospitalUid);
+        link.put("patientUid", patientUid);
+        return WriteOperation.set(HOSPITAL_PATIENTS_COLLECTION, hospitalUid + "_" + patientUid, link);
+    }
+
+    static Map<String, Object> reservation(Appointment appointment) {
+        Map<String, Object> reservation = new LinkedHashMap<>();
+        reservation.put("doctorUid", appointment.getDoctorUid());
+        reservation.put("appointmentDate", appointment.getAppointmentDate());
+        reservation.put("appointmentSlot", appointment.getAppointmentSlot());
+        reservation.put("appointmentId", appointment.getAppointmentId());
+        reservation.put("patientUid", appointment.getPatientUid());
+        reservation.put("reservedAt", System.currentTimeMillis());
+        return reservation;
+    }
+
+    private CompletableFuture<Page<Appointment>> findPage(StoreQuery query, AppointmentWindow window,
+                                                          int pageSize, String cursor) {
+        return readPage(orderedQuery(query, window), pageSize, cursor, Appointment.class, Appointment::setAppointmentId);
+    }
+
+    private static StoreQuery orderedQuery(StoreQuery query, AppointmentWindow window) {
+        StoreQuery ordered = query.orderBy(ORDER_FIELD, window.isDescending());
+        if (window.getFromMillis() != null) {
+            ordered = ordered.whereOrderFieldAtLeast(window.getFromMillis());
+        }
+        if (window.getToMillis() != null) {
+            ordered = ordered.whereOrderFieldBelow(window.getToMillis());
+        }
+        return ordered;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private CompletableFuture<List<Appointment>> find(StoreQuery query) {
+        return store.query(query)
+                .thenApply(docs -> toModels(docs, Appointment.class, Appointment::setAppointmentId));
+    }
+}
@@ -0,0 +1,68 @@
+package rakib.bcs430healthcareproject;
+
+/**
+ * Time range and direction for paginated appointment listings, based on the stored
+ * appointmentDateTime epoch.
+ */
+public final class AppointmentWindow {
+
+    private final Long fromMillis;
+    private final Long toMillis;
+    private final boolean descending;
+
+    private AppointmentWindow(Long fromMillis, Long toMillis, boolean descending) {
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+        this.descending = descending;
+    }
+
+    /**
+     * Appointments at or after now, soonest first.
+     */
+    public static AppointmentWindow upcoming(long nowMillis) {
+        return new AppointmentWindow(nowMillis, null, false);
+    }
+
+    /**
+     * Appointments before now, most recent first.
+     */
+    public static AppointmentWindow past(long nowMillis) {
+        return new AppointmentWindow(null, nowMillis, true);
+    }
+
+    /**
+     * Appointments in [fromMillis, toMillis), earliest first.
+     */
+    public static AppointmentWindow between(long fromMillis, long toMillis) {
+        return new AppointmentWindow(fromMillis, toMillis, false);
+    }
+
+    /**
+     * Every appointment that has a stored time, most recent first.
+     */
+    public static AppointmentWindow all() {
+        return new AppointmentWindow(null, null, true);
+    }
+
+    public AppointmentWindow inDirection(boolean descending) {
+        return new AppointmentWindow(fromMillis, toMillis, descending);
+    }
+
+    /**
+     * Inclusive start, or null for no lower bound.
+     */
+    public Long getFromMillis() {
+        return fromMillis;
+    }
+
+    /**
+     * Exclusive end, or null for no upper bound.
+     */
+    public Long getToMillis() {
+        return toMillis;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+}
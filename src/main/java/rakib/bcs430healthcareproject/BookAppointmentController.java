@@ -160,16 +160,7 @@ public class BookAppointmentController {
         appointment.setHospitalName(selectedDoctor.getHospitalName());
 
 
-        firebaseService.isSlotStillAvailable(
-                selectedDoctor.getUid(),
-                selectedDate.toString(),
-                selectedTime
-        ).thenCompose(isAvailable -> {
-            if (!isAvailable) {
-                throw new RuntimeException("This appointment slot has already been booked.");
-            }
-            return firebaseService.bookAppointment(appointment);
-        }).thenAccept(appointmentId -> {
+        firebaseService.bookAppointment(appointment).thenAccept(appointmentId -> {
             Platform.runLater(() -> {
                 firebaseService.notifyDoctor(
                         selectedDoctor.getUid(),
@@ -0,0 +1,54 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk write. Writes are not atomic across the whole call, so some may succeed
+ * while others fail; each failure keeps the operation and its error.
+ */
+public final class BulkWriteResult {
+
+    private final int succeeded;
+    private final Map<WriteOperation, Throwable> failures;
+
+    public BulkWriteResult(int succeeded, Map<WriteOperation, Throwable> failures) {
+        this.succeeded = succeeded;
+        this.failures = Collections.unmodifiableMap(failures);
+    }
+
+    public int getSucceededCount() {
+        return succeeded;
+    }
+
+    public int getFailedCount() {
+        return failures.size();
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    public Map<WriteOperation, Throwable> getFailures() {
+        return failures;
+    }
+
+    public List<WriteOperation> getFailedOperations() {
+        return new ArrayList<>(failures.keySet());
+    }
+
+    /**
+     * Throws a RuntimeException describing the first failure when any write failed.
+     */
+    public BulkWriteResult throwIfFailed(String action) {
+        if (hasFailures()) {
+            Map.Entry<WriteOperation, Throwable> first = failures.entrySet().iterator().next();
+            Throwable cause = ApiFutureSupport.unwrap(first.getValue());
+            throw new RuntimeException(action + ": " + failures.size() + " of " + (succeeded + failures.size())
+                    + " writes failed (first: " + first.getKey() + ": " + cause.getMessage() + ")", cause);
+        }
+        return this;
+    }
+}
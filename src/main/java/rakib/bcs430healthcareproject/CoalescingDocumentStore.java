@@ -0,0 +1,193 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Store wrapper that avoids repeating reads. Reads go through a shared {@link ReadCoalescer},
+ * so concurrent identical reads are one backend read, and completed reads are kept for a short
+ * read scope, so loading one screen reads a document or query once however many of its calls
+ * need it.
+ *
+ * A write through this store ends the scope: everything kept is dropped when the write starts
+ * and again when it completes, and later reads no longer join reads that were already in
+ * flight, even ones started by other services. Writes made elsewhere can go unseen for at
+ * most the scope length. Transactions and listeners always go to the backend. Lists are copied per caller,
+ * but the documents in them are shared snapshots.
+ */
+public final class CoalescingDocumentStore implements DocumentStore {
+
+    /** Kept reads above which expired ones are dropped. */
+    private static final int SCOPE_PRUNE_SIZE = 256;
+
+    private final DocumentStore delegate;
+    private final ReadCoalescer coalescer;
+    private final long scopeMillis;
+
+    private final Map<Object, ScopedRead> scope = new ConcurrentHashMap<>();
+
+    /** The coalescer's mark when the last write through this store completed. */
+    private final AtomicLong lastWrite = new AtomicLong();
+
+    /**
+     * A scope of 0 only joins reads in flight and keeps nothing.
+     */
+    public CoalescingDocumentStore(DocumentStore delegate, ReadCoalescer coalescer, long scopeMillis) {
+        if (scopeMillis < 0) {
+            throw new IllegalArgumentException("Read scope must not be negative.");
+        }
+        this.delegate = delegate;
+        this.coalescer = coalescer;
+        this.scopeMillis = scopeMillis;
+    }
+
+    public ReadCoalescer getCoalescer() {
+        return coalescer;
+    }
+
+    /**
+     * Drops every read kept in the scope, e.g. before a screen refreshes on request.
+     */
+    public void clearScope() {
+        scope.clear();
+    }
+
+    @Override
+    public String newDocumentId(String collection) {
+        return delegate.newDocumentId(collection);
+    }
+
+    @Override
+    public CompletableFuture<StoredDocument> get(String collection, String id) {
+        return read(List.of("get", collection, id), () -> delegate.get(collection, id));
+    }
+
+    @Override
+    public CompletableFuture<List<StoredDocument>> getAll(String collection, Collection<String> ids) {
+        List<String> idList = List.copyOf(ids);
+        return this.<List<StoredDocument>>read(List.of("getAll", collection, idList),
+                        () -> delegate.getAll(collection, idList))
+                .thenApply(ArrayList::new);
+    }
+
+    @Override
+    public CompletableFuture<List<StoredDocument>> query(StoreQuery query) {
+        return this.<List<StoredDocument>>read(List.of("query", query), () -> delegate.query(query))
+                .thenApply(ArrayList::new);
+    }
+
+    @Override
+    public CompletableFuture<Long> count(StoreQuery query) {
+        return read(List.of("count", query), () -> delegate.count(query));
+    }
+
+    @Override
+    public CompletableFuture<Void> set(String collection, String id, Object data) {
+        return write(delegate.set(collection, id, data));
+    }
+
+    @Override
+    public CompletableFuture<Void> update(String collection, String id, Map<String, Object> fields) {
+        return write(delegate.update(collection, id, fields));
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String collection, String id) {
+        return write(delegate.delete(collection, id));
+    }
+
+    @Override
+    public CompletableFuture<BulkWriteResult> bulkWrite(List<WriteOperation> operations) {
+        return write(delegate.bulkWrite(operations));
+    }
+
+    @Override
+    public CompletableFuture<Void> commit(List<WriteOperation> operations) {
+        return write(delegate.commit(operations));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> updateAtomically(String collection, String id,
+                                                                   Function<StoredDocument, Map<String, Object>> change) {
+        return write(delegate.updateAtomically(collection, id, change));
+    }
+
+    @Override
+    public CompletableFuture<Void> commitAtomically(List<String> paths,
+                                                    Function<List<StoredDocument>, List<WriteOperation>> writes) {
+        return write(delegate.commitAtomically(paths, writes));
+    }
+
+    @Override
+    public StoreSubscription listen(StoreQuery query, Consumer<List<StoredDocument>> listener,
+                                    Consumer<Throwable> onError) {
+        return delegate.listen(query, listener, onError);
+    }
+
+    @Override
+    public String getBackendName() {
+        return delegate.getBackendName();
+    }
+
+    /**
+     * The wrapped store is shared and is closed by its owner, not here.
+     */
+    @Override
+    public void close() {
+        scope.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> read(List<Object> key, Supplier<CompletableFuture<T>> read) {
+        if (scopeMillis == 0) {
+            return coalescer.read(key, lastWrite.get(), read);
+        }
+
+        long now = System.currentTimeMillis();
+        ScopedRead kept = scope.get(key);
+        if (kept != null && now - kept.startedAt <= scopeMillis && !kept.result.isCompletedExceptionally()) {
+            coalescer.recordScopeHit();
+            return (CompletableFuture<T>) kept.result;
+        }
+
+        if (scope.size() >= SCOPE_PRUNE_SIZE) {
+            scope.values().removeIf(expired -> now - expired.startedAt > scopeMillis);
+        }
+
+        CompletableFuture<T> result = coalescer.read(key, lastWrite.get(), read);
+        ScopedRead entry = new ScopedRead(result, now);
+        scope.put(key, entry);
+        result.whenComplete((value, error) -> {
+            if (error != null) {
+                scope.remove(key, entry);
+            }
+        });
+        return result;
+    }
+
+    private <T> CompletableFuture<T> write(CompletableFuture<T> write) {
+        scope.clear();
+        return write.whenComplete((result, error) -> {
+            lastWrite.accumulateAndGet(coalescer.mark(), Math::max);
+            scope.clear();
+        });
+    }
+
+    private static final class ScopedRead {
+        private final CompletableFuture<?> result;
+        private final long startedAt;
+
+        private ScopedRead(CompletableFuture<?> result, long startedAt) {
+            this.result = result;
+            this.startedAt = startedAt;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package rakib.bcs430healthcareproject;
+
+import com.google.cloud.firestore.annotation.DocumentId;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Summary of one conversation between two participants: who they are, the latest message and
+ * how many messages each participant has not read yet. Kept by {@link ConversationRepository}.
+ */
+public class Conversation {
+
+    @DocumentId
+    private String conversationId;
+
+    private String doctorUid;
+    private String doctorName;
+    private String patientUid;
+    private String patientName;
+    private String pharmacyUid;
+    private String pharmacyName;
+
+    private String lastMessageText;
+    private String lastSenderUid;
+    private String lastSenderName;
+    private Long lastMessageAt;
+
+    /** Unread message count per participant UID. */
+    private Map<String, Long> unreadCounts = new HashMap<>();
+
+    public Conversation() {
+    }
+
+    public String getConversationId() {
+        return conversationId;
+    }
+
+    public void setConversationId(String conversationId) {
+        this.conversationId = conversationId;
+    }
+
+    public String getDoctorUid() {
+        return doctorUid;
+    }
+
+    public void setDoctorUid(String doctorUid) {
+        this.doctorUid = doctorUid;
+    }
+
+    public String getDoctorName() {
+        return doctorName;
+    }
+
+    public void setDoctorName(String doctorName) {
+        this.doctorName = doctorName;
+    }
+
+    public String getPatientUid() {
+        return patientUid;
+    }
+
+    public void setPatientUid(String patientUid) {
+        this.patientUid = patientUid;
+    }
+
+    public String getPatientName() {
+        return patientName;
+    }
+
+    public void setPatientName(String patientName) {
+        this.patientName = patientName;
+    }
+
+    public String getPharmacyUid() {
+        return pharmacyUid;
+    }
+
+    public void setPharmacyUid(String pharmacyUid) {
+        this.pharmacyUid = pharmacyUid;
+    }
+
+    public String getPharmacyName() {
+        return pharmacyName;
+    }
+
+    public void setPharmacyName(String pharmacyName) {
+        this.pharmacyName = pharmacyName;
+    }
+
+    public String getLastMessageText() {
+        return lastMessageText;
+    }
+
+    public void setLastMessageText(String lastMessageText) {
+        this.lastMessageText = lastMessageText;
+    }
+
+    public String getLastSenderUid() {
+        return lastSenderUid;
+    }
+
+    public void setLastSenderUid(String lastSenderUid) {
+        this.lastSenderUid = lastSenderUid;
+    }
+
+    public String getLastSenderName() {
+        return lastSenderName;
+    }
+
+    public void setLastSenderName(String lastSenderName) {
+        this.lastSenderName = lastSenderName;
+    }
+
+    public Long getLastMessageAt() {
+        return lastMessageAt;
+    }
+
+    public void setLastMessageAt(Long lastMessageAt) {
+        this.lastMessageAt = lastMessageAt;
+    }
+
+    public Map<String, Long> getUnreadCounts() {
+        return unreadCounts;
+    }
+
+    public void setUnreadCounts(Map<String, Long> unreadCounts) {
+        this.unreadCounts = unreadCounts != null ? unreadCounts : new HashMap<>();
+    }
+
+    public long unreadCountFor(String uid) {
+        Long count = unreadCounts.get(uid);
+        return count != null ? count : 0L;
+    }
+}
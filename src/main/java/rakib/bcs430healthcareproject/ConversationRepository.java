@@ -0,0 +1,235 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads and writes {@link Conversation} summaries, one document per participant pair. Every
+ * message is saved together with its conversation's summary, and read receipts lower the
+ * reader's unread counter in the same transaction that marks the messages read, so the
+ * counters always match the messages.
+ */
+public class ConversationRepository extends StoreRepository {
+
+    public static final String COLLECTION = "conversations";
+
+    /** Inbox order: most recent activity first. */
+    public static final String ORDER_FIELD = "lastMessageAt";
+
+    private static final List<String> PARTICIPANT_FIELDS = List.of("doctorUid", "patientUid", "pharmacyUid");
+    private static final int SNIPPET_LENGTH = 120;
+
+    /** Messages marked read in one transaction; larger read receipts are split. */
+    private static final int MAX_READ_RECEIPTS_PER_COMMIT = 400;
+
+    public ConversationRepository(DocumentStore store) {
+        super(store);
+    }
+
+    /**
+     * The user's conversations, most recent first. The field is the user's participant field
+     * ("doctorUid", "patientUid" or "pharmacyUid").
+     */
+    public CompletableFuture<List<Conversation>> findForParticipant(String field, String uid) {
+        return store.query(StoreQuery.collection(COLLECTION)
+                        .whereEqualTo(field, uid)
+                        .orderBy(ORDER_FIELD, true))
+                .thenApply(docs -> toModels(docs, Conversation.class, Conversation::setConversationId));
+    }
+
+    /**
+     * Writes the message and updates its conversation's last message and the recipient's
+     * unread counter in one transaction.
+     */
+    public CompletableFuture<Void> saveWithMessage(Message message) {
+        String conversationId = conversationId(participants(message));
+
+        return store.commitAtomically(COLLECTION, List.of(conversationId), documents -> List.of(
+                WriteOperation.set(MessageRepository.COLLECTION, message.getMessageId(), message),
+                WriteOperation.set(COLLECTION, conversationId,
+                        withMessage(documents.get(0).exists() ? documents.get(0).getData() : null, message))));
+    }
+
+    /**
+     * Marks the messages read and lowers the reader's unread counter by the number that were
+     * still unread, in one transaction per batch of messages. The messages are read inside the
+     * transaction, so concurrent receipts for the same messages lower the counter only once.
+     */
+    public CompletableFuture<Void> markRead(Map<String, String> participants, String readerUid,
+                                            Collection<String> messageIds) {
+        if (messageIds.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        String conversationPath = DocumentStore.documentPath(COLLECTION, conversationId(participants));
+        List<String> ids = new ArrayList<>(messageIds);
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (int from = 0; from < ids.size(); from += MAX_READ_RECEIPTS_PER_COMMIT) {
+            List<String> paths = new ArrayList<>();
+            paths.add(conversationPath);
+            for (String id : ids.subList(from, Math.min(ids.size(), from + MAX_READ_RECEIPTS_PER_COMMIT))) {
+                paths.add(DocumentStore.documentPath(MessageRepository.COLLECTION, id));
+            }
+            chain = chain.thenCompose(ignored -> store.commitAtomically(paths,
+                    documents -> readReceipt(documents.get(0), readerUid, documents.subList(1, documents.size()))));
+        }
+        return chain;
+    }
+
+    /**
+     * Rewrites every conversation summary from the messages, for messages saved before
+     * summaries were kept. Run it while no messages are being sent. Messages are read in
+     * document ID order, a page at a time, and only the summaries are kept in memory;
+     * {@link #withMessage} keeps the newest message whatever order they arrive in. Returns the
+     * number of conversations written.
+     */
+    public CompletableFuture<Integer> rebuildFromMessages() {
+        return CompletableFuture.supplyAsync(() -> {
+            Map<String, Map<String, Object>> summaries = new LinkedHashMap<>();
+            String lastId = null;
+            while (true) {
+                StoreQuery page = StoreQuery.collection(MessageRepository.COLLECTION)
+                        .limit(MessageRepository.MAX_SCAN_PAGE_SIZE);
+                if (lastId != null) {
+                    page = page.startAfterDocument(lastId);
+                }
+
+                List<StoredDocument> docs = store.query(page).join();
+                for (Message message : toModels(docs, Message.class, Message::setMessageId)) {
+                    Map<String, String> participants = participants(message);
+                    if (participants.size() < 2) {
+                        continue;
+                    }
+                    String conversationId = conversationId(participants);
+                    summaries.put(conversationId, withMessage(summaries.get(conversationId), message));
+                }
+                if (docs.size() < MessageRepository.MAX_SCAN_PAGE_SIZE) {
+                    break;
+                }
+                lastId = docs.get(docs.size() - 1).getId();
+            }
+
+            List<WriteOperation> writes = new ArrayList<>();
+            for (Map.Entry<String, Map<String, Object>> summary : summaries.entrySet()) {
+                writes.add(WriteOperation.set(COLLECTION, summary.getKey(), summary.getValue()));
+            }
+            BulkWriteResult result = store.bulkWrite(writes).join();
+            result.throwIfFailed("Some conversations were not rebuilt");
+            return result.getSucceededCount();
+        }, FirestoreExecutor.getInstance());
+    }
+
+    /**
+     * Deterministic document ID for the participants, given as participant field to UID.
+     */
+    public static String conversationId(Map<String, String> participants) {
+        StringBuilder id = new StringBuilder();
+        for (String field : PARTICIPANT_FIELDS) {
+            String uid = participants.get(field);
+            if (uid == null || uid.isBlank()) {
+                continue;
+            }
+            if (id.length() > 0) {
+                id.append("__");
+            }
+            id.append(field, 0, field.length() - "Uid".length()).append('_').append(uid);
+        }
+        if (id.length() == 0) {
+            throw new IllegalArgumentException("Conversation participants are required.");
+        }
+        return id.toString();
+    }
+
+    private static Map<String, String> participants(Message message) {
+        Map<String, String> participants = new LinkedHashMap<>();
+        putIfPresent(participants, "doctorUid", message.getDoctorUid());
+        putIfPresent(participants, "patientUid", message.getPatientUid());
+        putIfPresent(participants, "pharmacyUid", message.getPharmacyUid());
+        return participants;
+    }
+
+    /**
+     * The summary after the message: names filled in, last message replaced unless an even
+     * newer one is already recorded, and the recipient's unread counter raised if it is unread.
+     */
+    static Map<String, Object> withMessage(Map<String, Object> current, Message message) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        if (current != null) {
+            summary.putAll(current);
+        }
+
+        putIfPresent(summary, "doctorUid", message.getDoctorUid());
+        putIfPresent(summary, "doctorName", message.getDoctorName());
+        putIfPresent(summary, "patientUid", message.getPatientUid());
+        putIfPresent(summary, "patientName", message.getPatientName());
+        putIfPresent(summary, "pharmacyUid", message.getPharmacyUid());
+        putIfPresent(summary, "pharmacyName", message.getPharmacyName());
+
+        long createdAt = message.getCreatedAt() != null ? message.getCreatedAt() : System.currentTimeMillis();
+        long lastMessageAt = summary.get(ORDER_FIELD) instanceof Number number ? number.longValue() : Long.MIN_VALUE;
+        if (createdAt >= lastMessageAt) {
+            summary.put("lastMessageText", snippet(message.getMessageText()));
+            summary.put("lastSenderUid", message.getSenderUid());
+            summary.put("lastSenderName", message.getSenderName());
+            summary.put(ORDER_FIELD, createdAt);
+        }
+
+        String recipientUid = message.getRecipientUid() != null ? message.getRecipientUid() : message.resolveRecipientUid();
+        if (recipientUid != null && !Boolean.TRUE.equals(message.getRead())) {
+            Map<String, Object> unread = unreadCounts(summary);
+            unread.put(recipientUid, count(unread.get(recipientUid)) + 1);
+            summary.put("unreadCounts", unread);
+        }
+        return summary;
+    }
+
+    private static List<WriteOperation> readReceipt(StoredDocument conversation, String readerUid,
+                                                    List<StoredDocument> messages) {
+        List<WriteOperation> writes = new ArrayList<>();
+        for (StoredDocument message : messages) {
+            if (message.exists() && !Boolean.TRUE.equals(message.get("read"))) {
+                writes.add(WriteOperation.update(MessageRepository.COLLECTION, message.getId(), Map.of("read", true)));
+            }
+        }
+        if (writes.isEmpty()) {
+            return writes;
+        }
+
+        if (conversation.exists() && readerUid != null) {
+            Map<String, Object> unread = unreadCounts(conversation.getData());
+            unread.put(readerUid, Math.max(0L, count(unread.get(readerUid)) - writes.size()));
+            writes.add(WriteOperation.update(COLLECTION, conversation.getId(), Map.of("unreadCounts", unread)));
+        }
+        return writes;
+    }
+
+    private static Map<String, Object> unreadCounts(Map<String, Object> summary) {
+        Map<String, Object> unread = new LinkedHashMap<>();
+        if (summary.get("unreadCounts") instanceof Map<?, ?> stored) {
+            stored.forEach((key, value) -> unread.put(key.toString(), value));
+        }
+        return unread;
+    }
+
+    private static long count(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+
+    private static String snippet(String text) {
+        if (text == null) {
+            return "";
+        }
+        String flattened = text.strip().replaceAll("\\s+", " ");
+        return flattened.length() <= SNIPPET_LENGTH ? flattened : flattened.substring(0, SNIPPET_LENGTH - 3) + "...";
+    }
+
+    private static void putIfPresent(Map<String, ? super String> target, String key, String value) {
+        if (value != null && !value.isBlank()) {
+            target.put(key, value);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads and writes hospital departments.
+ */
+public class DepartmentRepository extends StoreRepository {
+
+    public static final String COLLECTION = "hospitalDepartments";
+
+    public DepartmentRepository(DocumentStore store) {
+        super(store);
+    }
+
+    public String newId() {
+        return store.newDocumentId(COLLECTION);
+    }
+
+    public CompletableFuture<List<HospitalDepartment>> findByHospital(String hospitalUid) {
+        return store.query(StoreQuery.collection(COLLECTION).whereEqualTo("hospitalUid", hospitalUid))
+                .thenApply(docs -> toModels(docs, HospitalDepartment.class, HospitalDepartment::setDepartmentId));
+    }
+
+    /**
+     * Counts the departments the hospital has set up.
+     */
+    public CompletableFuture<Long> countByHospital(String hospitalUid) {
+        return store.count(StoreQuery.collection(COLLECTION).whereEqualTo("hospitalUid", hospitalUid));
+    }
+
+    /**
+     * Creates or replaces the department under its departmentId.
+     */
+    public CompletableFuture<Void> save(HospitalDepartment department) {
+        return store.set(COLLECTION, department.getDepartmentId(), department);
+    }
+
+    public CompletableFuture<Void> delete(String departmentId) {
+        return store.delete(COLLECTION, departmentId);
+    }
+}
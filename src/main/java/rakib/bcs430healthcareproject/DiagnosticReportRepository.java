@@ -0,0 +1,44 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads and writes hospital diagnostic reports.
+ */
+public class DiagnosticReportRepository extends StoreRepository {
+
+    public static final String COLLECTION = "diagnosticReports";
+
+    public DiagnosticReportRepository(DocumentStore store) {
+        super(store);
+    }
+
+    public String newId() {
+        return store.newDocumentId(COLLECTION);
+    }
+
+    public CompletableFuture<List<DiagnosticReport>> findByPatient(String patientUid) {
+        return findBy("patientUid", patientUid);
+    }
+
+    public CompletableFuture<List<DiagnosticReport>> findByDoctor(String doctorUid) {
+        return findBy("doctorUid", doctorUid);
+    }
+
+    public CompletableFuture<List<DiagnosticReport>> findByHospital(String hospitalUid) {
+        return findBy("hospitalUid", hospitalUid);
+    }
+
+    /**
+     * Creates or replaces the report under its reportId.
+     */
+    public CompletableFuture<Void> save(DiagnosticReport report) {
+        return store.set(COLLECTION, report.getReportId(), report);
+    }
+
+    private CompletableFuture<List<DiagnosticReport>> findBy(String fieldName, String uid) {
+        return store.query(StoreQuery.collection(COLLECTION).whereEqualTo(fieldName, uid))
+                .thenApply(docs -> toModels(docs, DiagnosticReport.class, DiagnosticReport::setReportId));
+    }
+}
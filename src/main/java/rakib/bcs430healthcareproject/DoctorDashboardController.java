@@ -42,15 +42,10 @@ public class DoctorDashboardController {
     @FXML private Button messageFabButton;
 
     private Timeline clockTimeline;
-    private Timeline unreadPolling;
-    private Timeline notificationPolling;
-
-    private FirebaseService firebaseService;
+    private final List<StoreSubscription> subscriptions = new ArrayList<>();
 
     @FXML
     public void initialize() {
-        firebaseService = new FirebaseService();
-
         startClock();
         setupNotificationBellAnimation();
 
@@ -72,10 +67,7 @@ public class DoctorDashboardController {
                 doctorEmailLabel.setText("Email: [Not loaded]");
             }
 
-            loadNotificationCount(uid);
-            loadTodayAppointments(uid);
-            startUnreadPolling(uid);
-            startNotificationPolling(uid);
+            subscribeToEvents(userContext.getEventStream());
 
         } else {
             welcomeLabel.setText("Welcome to Your Doctor Dashboard");
@@ -104,19 +96,32 @@ public class DoctorDashboardController {
         currentDateTimeLabel.setText("Today: " + LocalDateTime.now().format(DATE_TIME_DISPLAY_FORMAT));
     }
 
-    private void startUnreadPolling(String uid) {
-        unreadPolling = new Timeline(new KeyFrame(Duration.seconds(3), e -> checkUnreadMessages(uid)));
-        unreadPolling.setCycleCount(Timeline.INDEFINITE);
-        unreadPolling.play();
+    /**
+     * The session's event stream pushes unread messages, the notification count and the
+     * doctor's appointments whenever they change.
+     */
+    private void subscribeToEvents(UserEventStream events) {
+        subscriptions.add(events.subscribeUnreadMessages(
+                hasUnread -> Platform.runLater(() -> updateFabIndicator(hasUnread))));
+        subscriptions.add(events.subscribeUnreadNotificationCount(
+                unreadCount -> Platform.runLater(() -> updateNotificationBadge(unreadCount.intValue()))));
+        subscriptions.add(events.subscribeAppointments(
+                appointments -> Platform.runLater(() -> renderTodayAppointments(appointmentsOn(appointments, LocalDate.now()))),
+                error -> Platform.runLater(() -> {
+                    if (todayAppointmentsStatusLabel != null) {
+                        todayAppointmentsStatusLabel.setText("Unable to load today's appointments.");
+                    }
+                })));
     }
 
-    private void checkUnreadMessages(String uid) {
-        firebaseService.hasUnreadMessages(uid, "DOCTOR")
-                .thenAccept(hasUnread -> Platform.runLater(() -> updateFabIndicator(hasUnread)))
-                .exceptionally(e -> {
-                    e.printStackTrace();
-                    return null;
-                });
+    private List<Appointment> appointmentsOn(List<Appointment> appointments, LocalDate date) {
+        List<Appointment> onDate = new ArrayList<>();
+        for (Appointment appointment : appointments) {
+            if (date.toString().equals(appointment.getAppointmentDate())) {
+                onDate.add(appointment);
+            }
+        }
+        return onDate;
     }
 
     private void updateFabIndicator(boolean hasUnread) {
@@ -135,28 +140,6 @@ public class DoctorDashboardController {
         }
     }
 
-    private void startNotificationPolling(String uid) {
-        notificationPolling = new Timeline(new KeyFrame(Duration.seconds(5), e -> {
-            loadNotificationCount(uid);
-            loadTodayAppointments(uid);
-        }));
-        notificationPolling.setCycleCount(Timeline.INDEFINITE);
-        notificationPolling.play();
-    }
-
-    private void loadTodayAppointments(String doctorUid) {
-        firebaseService.getDoctorAppointmentsForDate(doctorUid, LocalDate.now())
-                .thenAccept(appointments -> Platform.runLater(() -> renderTodayAppointments(appointments)))
-                .exceptionally(error -> {
-                    Platform.runLater(() -> {
-                        if (todayAppointmentsStatusLabel != null) {
-                            todayAppointmentsStatusLabel.setText("Unable to load today's appointments.");
-                        }
-                    });
-                    return null;
-                });
-    }
-
     private void renderTodayAppointments(List<Appointment> appointments) {
         if (todayAppointmentsVBox == null) return;
 
@@ -253,15 +236,6 @@ public class DoctorDashboardController {
         return value == null || value.isBlank() ? fallback : value;
     }
 
-    private void loadNotificationCount(String uid) {
-        CompletableFutureRunner.runAsync(() -> firebaseService.getUnreadNotificationCount(uid),
-                unreadCount -> Platform.runLater(() -> updateNotificationBadge(unreadCount)),
-                error -> {
-                    error.printStackTrace();
-                    Platform.runLater(this::hideNotificationBadge);
-                });
-    }
-
     private void updateNotificationBadge(int unreadCount) {
         if (notificationCountLabel == null) return;
 
@@ -344,26 +318,7 @@ public class DoctorDashboardController {
 
     private void stopTimelines() {
         if (clockTimeline != null) clockTimeline.stop();
-        if (unreadPolling != null) unreadPolling.stop();
-        if (notificationPolling != null) notificationPolling.stop();
-    }
-
-    private static class CompletableFutureRunner {
-        public static <T> void runAsync(
-                java.util.concurrent.Callable<T> task,
-                java.util.function.Consumer<T> onSuccess,
-                java.util.function.Consumer<Throwable> onError
-        ) {
-            java.util.concurrent.CompletableFuture.supplyAsync(() -> {
-                try {
-                    return task.call();
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            }).thenAccept(onSuccess).exceptionally(error -> {
-                onError.accept(error);
-                return null;
-            });
-        }
+        subscriptions.forEach(StoreSubscription::cancel);
+        subscriptions.clear();
     }
 }
\ No newline at end of file
@@ -438,6 +438,7 @@ public class DoctorPrescriptionController {
         prescription.setDoctorName(userContext.getName());
         prescription.setPatientUid(selectedPatient.getUid());
         prescription.setPatientName(selectedPatient.getName());
+        prescription.setPatientDateOfBirth(selectedPatient.getDateOfBirth());
         prescription.setPharmacyName(pharmacyName);
         prescription.setPharmacyAddress(pharmacyAddress);
         prescription.setPharmacyAddressNormalized(AddressNormalizer.normalize(pharmacyAddress));
@@ -445,8 +445,9 @@ public class DoctorScheduleController implements Initializable {
 
         Appointment appointment = selectedAppt.getSourceAppointment();
 
-        firebaseService.getPatientPrescriptionsForDoctor(appointment.getPatientUid(), userContext.getUid())
-                .thenAccept(prescriptions -> Platform.runLater(() -> showCompletionDialog(appointment, prescriptions)))
+        firebaseService.getPatientPrescriptionsForDoctor(appointment.getPatientUid(), userContext.getUid(),
+                        FirebaseService.PATIENT_PRESCRIPTIONS_PAGE_SIZE, null)
+                .thenAccept(page -> Platform.runLater(() -> showCompletionDialog(appointment, page)))
                 .exceptionally(e -> {
                     Platform.runLater(() -> showAlert("Prescription Error", cleanErrorMessage(e)));
                     return null;
@@ -476,7 +477,7 @@ public class DoctorScheduleController implements Initializable {
                 });
     }
 
-    private void showCompletionDialog(Appointment appointment, List<Prescription> prescriptions) {
+    private void showCompletionDialog(Appointment appointment, Page<Prescription> firstPage) {
         Dialog<ButtonType> dialog = new Dialog<>();
         dialog.setTitle("Complete Appointment");
         dialog.setHeaderText("Add a visit summary for " + valueOrDefault(appointment.getPatientName(), "this patient"));
@@ -497,14 +498,27 @@ public class DoctorScheduleController implements Initializable {
         PrescriptionOption noneOption = PrescriptionOption.none();
         prescriptionComboBox.getItems().add(noneOption);
 
-        if (prescriptions != null) {
-            for (Prescription prescription : prescriptions) {
-                prescriptionComboBox.getItems().add(PrescriptionOption.fromPrescription(prescription));
-            }
-        }
-
         prescriptionComboBox.setValue(noneOption);
 
+        Button loadOlderButton = new Button("Load older prescriptions");
+        String[] nextCursor = new String[1];
+        addPrescriptionPage(prescriptionComboBox, loadOlderButton, nextCursor, firstPage);
+
+        loadOlderButton.setOnAction(event -> {
+            loadOlderButton.setDisable(true);
+            firebaseService.getPatientPrescriptionsForDoctor(appointment.getPatientUid(), userContext.getUid(),
+                            FirebaseService.PATIENT_PRESCRIPTIONS_PAGE_SIZE, nextCursor[0])
+                    .thenAccept(page -> Platform.runLater(() ->
+                            addPrescriptionPage(prescriptionComboBox, loadOlderButton, nextCursor, page)))
+                    .exceptionally(e -> {
+                        Platform.runLater(() -> {
+                            loadOlderButton.setDisable(false);
+                            showAlert("Prescription Error", cleanErrorMessage(e));
+                        });
+                        return null;
+                    });
+        });
+
         Label bookingNotesLabel = new Label("Original reason/notes: "
                 + valueOrDefault(appointment.getNotes(), "None provided"));
         bookingNotesLabel.setWrapText(true);
@@ -515,6 +529,7 @@ public class DoctorScheduleController implements Initializable {
                 summaryArea,
                 new Label("Prescription sent to pharmacy"),
                 prescriptionComboBox,
+                loadOlderButton,
                 bookingNotesLabel
         );
 
@@ -650,6 +665,22 @@ public class DoctorScheduleController implements Initializable {
         }
     }
 
+    /**
+     * Appends a page of prescriptions to the dialog's choices; the load button stays only
+     * while older prescriptions remain.
+     */
+    private void addPrescriptionPage(ComboBox<PrescriptionOption> prescriptionComboBox, Button loadOlderButton,
+                                     String[] nextCursor, Page<Prescription> page) {
+        for (Prescription prescription : page.getItems()) {
+            prescriptionComboBox.getItems().add(PrescriptionOption.fromPrescription(prescription));
+        }
+
+        nextCursor[0] = page.getNextCursor();
+        loadOlderButton.setDisable(false);
+        loadOlderButton.setVisible(page.hasMore());
+        loadOlderButton.setManaged(page.hasMore());
+    }
+
     private static class PrescriptionOption {
         private final String prescriptionId;
         private final String displayText;
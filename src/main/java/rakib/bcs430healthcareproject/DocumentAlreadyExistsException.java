@@ -0,0 +1,26 @@
+package rakib.bcs430healthcareproject;
+
+/**
+ * Thrown when a create-only write finds the document already present.
+ */
+public class DocumentAlreadyExistsException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String collection;
+    private final String documentId;
+
+    public DocumentAlreadyExistsException(String collection, String documentId, Throwable cause) {
+        super("Document already exists: " + collection + "/" + documentId, cause);
+        this.collection = collection;
+        this.documentId = documentId;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+}
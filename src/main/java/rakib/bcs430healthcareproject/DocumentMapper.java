@@ -0,0 +1,123 @@
+package rakib.bcs430healthcareproject;
+
+import com.google.cloud.firestore.annotation.DocumentId;
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.ToNumberPolicy;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Type;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Converts model objects to and from plain field maps for the stores that do not have
+ * Firestore's class mapper. Whole numbers come back as Long and fractions as Double, which
+ * matches what Firestore returns, and fields marked {@link DocumentId} are filled from the
+ * document ID instead of being stored.
+ */
+final class DocumentMapper {
+
+    private static final Gson GSON = new GsonBuilder()
+            .setObjectToNumberStrategy(ToNumberPolicy.LONG_OR_DOUBLE)
+            .addSerializationExclusionStrategy(new ExclusionStrategy() {
+                @Override
+                public boolean shouldSkipField(FieldAttributes field) {
+                    return field.getAnnotation(DocumentId.class) != null;
+                }
+
+                @Override
+                public boolean shouldSkipClass(Class<?> type) {
+                    return false;
+                }
+            })
+            .create();
+
+    private static final Type MAP_TYPE = new TypeToken<Map<String, Object>>() { }.getType();
+
+    private static final ClassValue<Field> DOCUMENT_ID_FIELDS = new ClassValue<>() {
+        @Override
+        protected Field computeValue(Class<?> type) {
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (field.isAnnotationPresent(DocumentId.class) && field.getType() == String.class) {
+                        field.setAccessible(true);
+                        return field;
+                    }
+                }
+            }
+            return null;
+        }
+    };
+
+    private DocumentMapper() {
+    }
+
+    /**
+     * Returns a detached copy of the document data with values normalized to String, Boolean,
+     * Long, Double, List and Map.
+     */
+    static Map<String, Object> toMap(Object data) {
+        if (data == null) {
+            return new LinkedHashMap<>();
+        }
+
+        Map<String, Object> map = GSON.fromJson(GSON.toJsonTree(data), MAP_TYPE);
+        return map != null ? map : new LinkedHashMap<>();
+    }
+
+    static <T> T toObject(Map<String, Object> data, String documentId, Class<T> type) {
+        T value = GSON.fromJson(GSON.toJsonTree(data), type);
+
+        Field idField = value != null ? DOCUMENT_ID_FIELDS.get(type) : null;
+        if (idField != null) {
+            try {
+                idField.set(value, documentId);
+            } catch (IllegalAccessException e) {
+                throw new RuntimeException("Could not set document ID on " + type.getSimpleName(), e);
+            }
+        }
+
+        return value;
+    }
+
+    /**
+     * Serializes normalized document data as a JSON object.
+     */
+    static String toJson(Map<String, Object> data) {
+        return GSON.toJson(data, MAP_TYPE);
+    }
+
+    /**
+     * Parses a JSON object written by {@link #toJson(Map)}.
+     */
+    static Map<String, Object> fromJson(String json) {
+        Map<String, Object> map = GSON.fromJson(json, MAP_TYPE);
+        return map != null ? map : new LinkedHashMap<>();
+    }
+
+    /**
+     * Normalizes a single field value the same way {@link #toMap(Object)} does.
+     */
+    static Object normalizeValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof String || value instanceof Boolean || value instanceof Long || value instanceof Double) {
+            return value;
+        }
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+
+        Map<String, Object> wrapper = new LinkedHashMap<>();
+        wrapper.put("value", value);
+        return toMap(wrapper).get("value");
+    }
+}
@@ -0,0 +1,133 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Storage SPI used by the repositories behind {@link FirebaseService}.
+ *
+ * Documents are grouped in named collections and addressed by ID, the same way Firestore
+ * organizes them. Every backend must accept both model objects and plain maps as document data.
+ */
+public interface DocumentStore {
+
+    /**
+     * Generates a new unique document ID for the collection without writing anything.
+     */
+    String newDocumentId(String collection);
+
+    /**
+     * Reads one document. A missing document completes with a snapshot whose
+     * {@link StoredDocument#exists()} is false.
+     */
+    CompletableFuture<StoredDocument> get(String collection, String id);
+
+    /**
+     * Reads several documents at once. Missing documents are dropped and the rest keep the
+     * order of the given IDs.
+     */
+    CompletableFuture<List<StoredDocument>> getAll(String collection, Collection<String> ids);
+
+    CompletableFuture<List<StoredDocument>> query(StoreQuery query);
+
+    /**
+     * Counts the documents the query would return without reading them.
+     */
+    CompletableFuture<Long> count(StoreQuery query);
+
+    /**
+     * Creates or fully replaces a document.
+     */
+    CompletableFuture<Void> set(String collection, String id, Object data);
+
+    /**
+     * Updates individual fields of an existing document. Fails if the document does not exist.
+     */
+    CompletableFuture<Void> update(String collection, String id, Map<String, Object> fields);
+
+    CompletableFuture<Void> delete(String collection, String id);
+
+    /**
+     * Applies many writes with as few round trips as the backend allows. The call completes
+     * normally even when some writes fail; check {@link BulkWriteResult#hasFailures()}.
+     */
+    CompletableFuture<BulkWriteResult> bulkWrite(List<WriteOperation> operations);
+
+    /**
+     * Applies all writes atomically: either every write takes effect or none does. A CREATE of
+     * an existing document fails the commit with {@link DocumentAlreadyExistsException}, and an
+     * UPDATE of a missing document fails it as well.
+     */
+    CompletableFuture<Void> commit(List<WriteOperation> operations);
+
+    /**
+     * Reads a document, lets the function compute field changes from it and writes only those
+     * fields, atomically. If another writer changes the document in between, the function runs
+     * again on the new version, so it must not have side effects beyond its own attempt. It
+     * receives a missing document as a snapshot whose {@link StoredDocument#exists()} is false,
+     * and may throw to abort. Returning an empty map writes nothing. Completes with the fields
+     * that were written.
+     */
+    CompletableFuture<Map<String, Object>> updateAtomically(String collection, String id,
+                                                            Function<StoredDocument, Map<String, Object>> change);
+
+    /**
+     * Reads the documents of one collection and commits the writes the function computes from
+     * them, to any collections, as one transaction. The function gets the documents in the
+     * order of the IDs and follows the same rules as for {@link #updateAtomically}; the writes
+     * follow the rules of {@link #commit}. Returning an empty list writes nothing.
+     */
+    default CompletableFuture<Void> commitAtomically(String collection, List<String> ids,
+                                                     Function<List<StoredDocument>, List<WriteOperation>> writes) {
+        List<String> paths = new ArrayList<>();
+        for (String id : ids) {
+            paths.add(documentPath(collection, id));
+        }
+        return commitAtomically(paths, writes);
+    }
+
+    /**
+     * Like {@link #commitAtomically(String, List, Function)}, but reads documents from any
+     * collections, each given by its {@link #documentPath}.
+     */
+    CompletableFuture<Void> commitAtomically(List<String> paths,
+                                             Function<List<StoredDocument>, List<WriteOperation>> writes);
+
+    /**
+     * The "collection/id" path of a document, as read by {@link #commitAtomically(List, Function)}.
+     */
+    static String documentPath(String collection, String id) {
+        return collection + "/" + id;
+    }
+
+    /**
+     * Keeps the query live: the listener receives the full result once the query first runs and
+     * again each time a write changes it, until the subscription is cancelled. Deliveries for one
+     * subscription never overlap and run on a background thread. If the query fails, onError is
+     * called once on that thread and the subscription ends; listen again to retry.
+     */
+    StoreSubscription listen(StoreQuery query, Consumer<List<StoredDocument>> listener,
+                             Consumer<Throwable> onError);
+
+    /**
+     * Like {@link #listen(StoreQuery, Consumer, Consumer)}, logging the error that ends the
+     * subscription.
+     */
+    default StoreSubscription listen(StoreQuery query, Consumer<List<StoredDocument>> listener) {
+        return listen(query, listener, error -> System.err.println(
+                "Live query on " + query.getCollection() + " stopped: " + error.getMessage()));
+    }
+
+    /**
+     * Short name of the backend for logs and diagnostics.
+     */
+    String getBackendName();
+
+    default void close() {
+    }
+}
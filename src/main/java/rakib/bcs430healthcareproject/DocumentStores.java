@@ -0,0 +1,211 @@
+package rakib.bcs430healthcareproject;
+
+import com.google.firebase.cloud.FirestoreClient;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chooses the process-wide {@link DocumentStore} that {@code new FirebaseService()} uses.
+ *
+ * Firestore is used by default. Start the app with {@code -Dhealthconnect.storage=memory}
+ * to run against an empty in-memory store instead, e.g. for offline demos, or with
+ * {@code -Dhealthconnect.storage=file} to keep data on this machine in
+ * {@code -Dhealthconnect.storage.dir} (default {@code ~/.healthconnect/data}).
+ */
+public final class DocumentStores {
+
+    public static final String BACKEND_PROPERTY = "healthconnect.storage";
+
+    public static final String BACKEND_FIRESTORE = "firestore";
+    public static final String BACKEND_MEMORY = "memory";
+    public static final String BACKEND_FILE = "file";
+
+    public static final String DIRECTORY_PROPERTY = "healthconnect.storage.dir";
+    public static final String SYNC_PROPERTY = "healthconnect.storage.sync";
+
+    /** Journal of undelivered notifications; default {@code ~/.healthconnect/notification-outbox-<backend>.ndjson}. */
+    public static final String OUTBOX_FILE_PROPERTY = "healthconnect.outbox.file";
+
+    /** Local copy of directories and the user's own data; default {@code ~/.healthconnect/replica-<backend>.bin}. */
+    public static final String REPLICA_FILE_PROPERTY = "healthconnect.replica.file";
+
+    private static final long OUTBOX_CLOSE_SECONDS = 10;
+
+    private static DocumentStore defaultStore;
+    private static NotificationOutbox defaultOutbox;
+    private static ProfileDirectory defaultDirectory;
+    private static LocalReplica defaultReplica;
+    private static ReadCoalescer defaultCoalescer;
+    private static boolean replicaResolved;
+
+    private DocumentStores() {
+    }
+
+    /**
+     * Returns the shared store, creating it from system properties on first use.
+     */
+    public static synchronized DocumentStore getDefault() {
+        if (defaultStore == null) {
+            defaultStore = create(getConfiguredBackend());
+            System.out.println("Using " + defaultStore.getBackendName() + " storage backend.");
+        }
+        return defaultStore;
+    }
+
+    /**
+     * Replaces the shared store. Used by benchmarks and tools that prepare their own store
+     * before any service is created.
+     */
+    public static synchronized void setDefault(DocumentStore store) {
+        if (defaultOutbox != null) {
+            defaultOutbox.close(OUTBOX_CLOSE_SECONDS, TimeUnit.SECONDS);
+            defaultOutbox = null;
+        }
+        if (defaultDirectory != null) {
+            defaultDirectory.close();
+            defaultDirectory = null;
+        }
+        if (defaultReplica != null) {
+            defaultReplica.flush();
+            defaultReplica = null;
+        }
+        replicaResolved = false;
+        defaultCoalescer = null;
+        defaultStore = store;
+    }
+
+    /**
+     * Returns the notification outbox shared by every service on the default store. It is
+     * journaled to disk except on the in-memory backend, whose data does not outlive the run.
+     */
+    public static synchronized NotificationOutbox getDefaultOutbox() {
+        if (defaultOutbox == null) {
+            DocumentStore store = getDefault();
+            Path spillFile = store instanceof FileDocumentStore || store instanceof FirestoreDocumentStore
+                    ? getConfiguredOutboxFile(store.getBackendName())
+                    : null;
+            defaultOutbox = new NotificationOutbox(new NotificationRepository(store), spillFile);
+        }
+        return defaultOutbox;
+    }
+
+    /**
+     * Returns the provider directory cache shared by every service on the default store.
+     */
+    public static synchronized ProfileDirectory getDefaultDirectory() {
+        if (defaultDirectory == null) {
+            defaultDirectory = new ProfileDirectory(getDefault(), getDefaultReplica());
+        }
+        return defaultDirectory;
+    }
+
+    /**
+     * Returns the single-flight read coalescer shared by every service on the default store.
+     */
+    public static synchronized ReadCoalescer getDefaultReadCoalescer() {
+        if (defaultCoalescer == null) {
+            defaultCoalescer = new ReadCoalescer();
+        }
+        return defaultCoalescer;
+    }
+
+    /**
+     * Returns the on-disk replica shared by the directory cache and the user's event stream,
+     * or null on the in-memory backend, which has nothing worth keeping between runs.
+     */
+    public static synchronized LocalReplica getDefaultReplica() {
+        if (!replicaResolved) {
+            DocumentStore store = getDefault();
+            if (store instanceof FileDocumentStore || store instanceof FirestoreDocumentStore) {
+                defaultReplica = new LocalReplica(store, getConfiguredReplicaFile(store.getBackendName()));
+            }
+            replicaResolved = true;
+        }
+        return defaultReplica;
+    }
+
+    /**
+     * Delivers queued notifications (for a few seconds at most), then closes the shared store,
+     * e.g. so the file backend can checkpoint on exit.
+     */
+    public static synchronized void closeDefault() {
+        if (defaultOutbox != null) {
+            defaultOutbox.close(OUTBOX_CLOSE_SECONDS, TimeUnit.SECONDS);
+            System.out.println("Notification outbox: " + defaultOutbox.describeMetrics());
+            defaultOutbox = null;
+        }
+        if (defaultDirectory != null) {
+            System.out.println("Provider directory cache:" + System.lineSeparator() + defaultDirectory.describeStats());
+            defaultDirectory.close();
+            defaultDirectory = null;
+        }
+        if (defaultReplica != null) {
+            defaultReplica.flush();
+            System.out.println("Local replica: " + defaultReplica.describeStats());
+            defaultReplica = null;
+        }
+        replicaResolved = false;
+        if (defaultCoalescer != null) {
+            System.out.println("Read coalescing: " + defaultCoalescer.describeStats());
+            defaultCoalescer = null;
+        }
+        if (defaultStore != null) {
+            defaultStore.close();
+            defaultStore = null;
+        }
+    }
+
+    public static String getConfiguredBackend() {
+        String backend = System.getProperty(BACKEND_PROPERTY, BACKEND_FIRESTORE);
+        return backend == null ? BACKEND_FIRESTORE : backend.trim().toLowerCase();
+    }
+
+    /**
+     * Account creation goes through Firebase Authentication only for the Firestore backend.
+     */
+    public static synchronized boolean usesFirebaseAuth() {
+        return getDefault() instanceof FirestoreDocumentStore;
+    }
+
+    private static Path getConfiguredDirectory() {
+        String directory = System.getProperty(DIRECTORY_PROPERTY);
+        if (directory == null || directory.isBlank()) {
+            return Paths.get(System.getProperty("user.home"), ".healthconnect", "data");
+        }
+        return Paths.get(directory.trim());
+    }
+
+    private static Path getConfiguredOutboxFile(String backend) {
+        String file = System.getProperty(OUTBOX_FILE_PROPERTY);
+        if (file == null || file.isBlank()) {
+            return Paths.get(System.getProperty("user.home"), ".healthconnect",
+                    "notification-outbox-" + backend + ".ndjson");
+        }
+        return Paths.get(file.trim());
+    }
+
+    private static Path getConfiguredReplicaFile(String backend) {
+        String file = System.getProperty(REPLICA_FILE_PROPERTY);
+        if (file == null || file.isBlank()) {
+            return Paths.get(System.getProperty("user.home"), ".healthconnect", "replica-" + backend + ".bin");
+        }
+        return Paths.get(file.trim());
+    }
+
+    private static DocumentStore create(String backend) {
+        if (BACKEND_MEMORY.equals(backend)) {
+            return new InMemoryDocumentStore();
+        }
+        if (BACKEND_FILE.equals(backend)) {
+            boolean syncWrites = Boolean.parseBoolean(System.getProperty(SYNC_PROPERTY, "true"));
+            return new FileDocumentStore(getConfiguredDirectory(), StorageIndexes.defaults(),
+                    syncWrites, FileDocumentStore.DEFAULT_CHECKPOINT_BYTES);
+        }
+        if (!BACKEND_FIRESTORE.equals(backend)) {
+            System.err.println("Unknown storage backend '" + backend + "', using Firestore.");
+        }
+        return new FirestoreDocumentStore(FirestoreClient.getFirestore());
+    }
+}
@@ -0,0 +1,562 @@
+package rakib.bcs430healthcareproject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded {@link DocumentStore} for sites without access to a hosted Firestore project
+ * ({@code -Dhealthconnect.storage=file}).
+ *
+ * Documents and their secondary indexes live in memory exactly as in
+ * {@link InMemoryDocumentStore}, so reads are answered from the indexes in
+ * {@link StorageIndexes}. Every write is appended to a write-ahead log before it is applied,
+ * as the complete new version of the document, and the log is forced to disk unless
+ * {@code -Dhealthconnect.storage.sync=false}. When the log grows past a threshold, a
+ * background checkpoint writes a snapshot of all documents and starts a new log, so restart
+ * only has to read one snapshot and a short log tail. A torn record at the end of the log
+ * (from a crash mid-write) is detected by its checksum and discarded. The writes of one
+ * {@link #commit} share a single record, so recovery applies all of them or none.
+ *
+ * Files in the data directory:
+ * snapshot.dat (last checkpoint), wal.log (writes since then), wal.old (log being
+ * checkpointed; only present if a checkpoint was interrupted) and store.lock.
+ */
+public final class FileDocumentStore extends InMemoryDocumentStore {
+
+    public static final long DEFAULT_CHECKPOINT_BYTES = 32L * 1024 * 1024;
+
+    private static final String SNAPSHOT_FILE = "snapshot.dat";
+    private static final String SNAPSHOT_TEMP_FILE = "snapshot.tmp";
+    private static final String LOG_FILE = "wal.log";
+    private static final String OLD_LOG_FILE = "wal.old";
+    private static final String LOCK_FILE = "store.lock";
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_COMMIT = 3;
+
+    /** Upper bound for a single record; anything larger is treated as a corrupt length. */
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+    private static final int READ_BUFFER_BYTES = 1024 * 1024;
+
+    private final Path directory;
+    private final boolean syncWrites;
+    private final long checkpointBytes;
+
+    /** Writers share this lock; a checkpoint takes it exclusively to rotate the log. */
+    private final ReentrantReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final Object logLock = new Object();
+    private final AtomicBoolean checkpointScheduled = new AtomicBoolean();
+    private final ExecutorService checkpointExecutor;
+
+    /** Set while a bulk write runs on this thread; the log is forced once at the end. */
+    private final ThreadLocal<Boolean> deferSync = ThreadLocal.withInitial(() -> false);
+
+    private final FileChannel lockChannel;
+    private final FileLock fileLock;
+    private FileChannel log;
+    private volatile long logSize;
+    private boolean closed;
+
+    public FileDocumentStore(Path directory) {
+        this(directory, StorageIndexes.defaults(), true, DEFAULT_CHECKPOINT_BYTES);
+    }
+
+    public FileDocumentStore(Path directory, Collection<IndexDefinition> indexes,
+                             boolean syncWrites, long checkpointBytes) {
+        super(indexes);
+        this.directory = directory;
+        this.syncWrites = syncWrites;
+        this.checkpointBytes = checkpointBytes;
+
+        try {
+            Files.createDirectories(directory);
+            lockChannel = FileChannel.open(directory.resolve(LOCK_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            fileLock = lockChannel.tryLock();
+            if (fileLock == null) {
+                lockChannel.close();
+                throw new RuntimeException("Storage directory is in use by another process: " + directory);
+            }
+
+            recover();
+            log = FileChannel.open(directory.resolve(LOG_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            logSize = log.size();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open storage at " + directory + ": " + e.getMessage(), e);
+        }
+
+        checkpointExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "healthconnect-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> set(String collection, String id, Object data) {
+        return afterWrite(write(() -> super.set(collection, id, data)));
+    }
+
+    @Override
+    public CompletableFuture<Void> update(String collection, String id, Map<String, Object> fields) {
+        return afterWrite(write(() -> super.update(collection, id, fields)));
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String collection, String id) {
+        return afterWrite(write(() -> super.delete(collection, id)));
+    }
+
+    @Override
+    public CompletableFuture<Void> commit(List<WriteOperation> operations) {
+        return afterWrite(write(() -> super.commit(operations)));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> updateAtomically(String collection, String id,
+                                                                   Function<StoredDocument, Map<String, Object>> change) {
+        return afterWrite(write(() -> super.updateAtomically(collection, id, change)));
+    }
+
+    @Override
+    public CompletableFuture<Void> commitAtomically(List<String> paths,
+                                                    Function<List<StoredDocument>, List<WriteOperation>> writes) {
+        return afterWrite(write(() -> super.commitAtomically(paths, writes)));
+    }
+
+    /**
+     * Logs every write as usual but forces the log to disk once for the whole call.
+     */
+    @Override
+    public CompletableFuture<BulkWriteResult> bulkWrite(List<WriteOperation> operations) {
+        CompletableFuture<BulkWriteResult> result;
+        deferSync.set(true);
+        try {
+            result = super.bulkWrite(operations);
+        } finally {
+            deferSync.set(false);
+        }
+
+        if (syncWrites) {
+            checkpointLock.readLock().lock();
+            try {
+                if (!closed) {
+                    synchronized (logLock) {
+                        log.force(false);
+                    }
+                }
+            } catch (IOException e) {
+                return CompletableFuture.failedFuture(
+                        new RuntimeException("Failed to sync storage log: " + e.getMessage(), e));
+            } finally {
+                checkpointLock.readLock().unlock();
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String getBackendName() {
+        return "file";
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Writes a snapshot of every document and starts a new, empty log.
+     */
+    public void checkpoint() {
+        Map<String, Map<String, Map<String, Object>>> documents;
+
+        checkpointLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            synchronized (logLock) {
+                documents = copyDocuments();
+                if (logSize == 0 && Files.exists(directory.resolve(SNAPSHOT_FILE))) {
+                    return;
+                }
+
+                log.force(true);
+                log.close();
+                retireLog();
+                log = FileChannel.open(directory.resolve(LOG_FILE),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                logSize = 0;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to rotate storage log: " + e.getMessage(), e);
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+
+        // Writers continue into the new log while the snapshot is written. Until the snapshot
+        // is in place, recovery still finds the previous snapshot plus wal.old.
+        long start = System.nanoTime();
+        int count = 0;
+        Path temp = directory.resolve(SNAPSHOT_TEMP_FILE);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), READ_BUFFER_BYTES))) {
+            for (Map.Entry<String, Map<String, Map<String, Object>>> collection : documents.entrySet()) {
+                for (Map.Entry<String, Map<String, Object>> document : collection.getValue().entrySet()) {
+                    writeRecord(out, encode(OP_PUT, collection.getKey(), document.getKey(), document.getValue()));
+                    count++;
+                }
+            }
+            out.flush();
+            channel.force(true);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write storage snapshot: " + e.getMessage(), e);
+        }
+
+        try {
+            Files.move(temp, directory.resolve(SNAPSHOT_FILE),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.deleteIfExists(directory.resolve(OLD_LOG_FILE));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to install storage snapshot: " + e.getMessage(), e);
+        }
+
+        System.out.println("Storage checkpoint wrote " + count + " documents in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    /**
+     * Checkpoints so the next start only reads the snapshot, then releases the data directory.
+     */
+    @Override
+    public void close() {
+        checkpointExecutor.shutdown();
+        try {
+            checkpointExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        try {
+            checkpoint();
+        } catch (RuntimeException e) {
+            System.err.println("Final storage checkpoint failed; the log will be replayed on next start: "
+                    + e.getMessage());
+        }
+
+        checkpointLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            synchronized (logLock) {
+                log.force(true);
+                log.close();
+            }
+            fileLock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing storage: " + e.getMessage());
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves wal.log to wal.old. If an earlier checkpoint never finished, its wal.old still
+     * holds writes the installed snapshot lacks, so the log is appended to it instead.
+     */
+    private void retireLog() throws IOException {
+        Path current = directory.resolve(LOG_FILE);
+        Path old = directory.resolve(OLD_LOG_FILE);
+
+        if (!Files.exists(old)) {
+            Files.move(current, old, StandardCopyOption.ATOMIC_MOVE);
+            return;
+        }
+
+        try (FileChannel source = FileChannel.open(current, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(old, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long position = 0;
+            long size = source.size();
+            while (position < size) {
+                position += source.transferTo(position, size - position, target);
+            }
+            target.force(true);
+        }
+        Files.delete(current);
+    }
+
+    @Override
+    protected void beforePut(String collection, String id, Map<String, Object> document) {
+        appendToLog(encode(OP_PUT, collection, id, document));
+    }
+
+    @Override
+    protected void beforeDelete(String collection, String id) {
+        appendToLog(encode(OP_DELETE, collection, id, null));
+    }
+
+    @Override
+    protected void beforeCommit(List<DocumentChange> changes) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * changes.size());
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(OP_COMMIT);
+            out.writeInt(changes.size());
+            for (DocumentChange change : changes) {
+                byte op = change.getDocument() == null ? OP_DELETE : OP_PUT;
+                byte[] payload = encode(op, change.getCollection(), change.getId(), change.getDocument());
+                out.writeInt(payload.length);
+                out.write(payload);
+            }
+            out.flush();
+            appendToLog(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode storage record: " + e.getMessage(), e);
+        }
+    }
+
+    private <T> CompletableFuture<T> write(Supplier<CompletableFuture<T>> operation) {
+        checkpointLock.readLock().lock();
+        try {
+            if (closed) {
+                return CompletableFuture.failedFuture(new RuntimeException("Storage is closed."));
+            }
+            return operation.get();
+        } finally {
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    private <T> CompletableFuture<T> afterWrite(CompletableFuture<T> result) {
+        if (logSize >= checkpointBytes && checkpointScheduled.compareAndSet(false, true)) {
+            try {
+                checkpointExecutor.execute(() -> {
+                    try {
+                        checkpoint();
+                    } catch (RuntimeException e) {
+                        System.err.println("Storage checkpoint failed: " + e.getMessage());
+                    } finally {
+                        checkpointScheduled.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                checkpointScheduled.set(false);
+            }
+        }
+        return result;
+    }
+
+    private void appendToLog(byte[] payload) {
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + Long.BYTES + payload.length);
+        record.putInt(payload.length);
+        record.putLong(checksum(payload));
+        record.put(payload);
+        record.flip();
+
+        synchronized (logLock) {
+            try {
+                while (record.hasRemaining()) {
+                    log.write(record);
+                }
+                if (syncWrites && !deferSync.get()) {
+                    log.force(false);
+                }
+                logSize += record.limit();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to write storage log: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void recover() throws IOException {
+        long start = System.nanoTime();
+        Files.deleteIfExists(directory.resolve(SNAPSHOT_TEMP_FILE));
+
+        int snapshotRecords = 0;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            snapshotRecords = replay(snapshot, false);
+        }
+
+        int logRecords = 0;
+        Path oldLog = directory.resolve(OLD_LOG_FILE);
+        if (Files.exists(oldLog)) {
+            logRecords += replay(oldLog, true);
+        }
+        Path currentLog = directory.resolve(LOG_FILE);
+        if (Files.exists(currentLog)) {
+            logRecords += replay(currentLog, true);
+        }
+
+        System.out.println("Recovered storage from " + directory + ": " + snapshotRecords + " snapshot documents, "
+                + logRecords + " log records in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    /**
+     * Applies every record in the file. In a log, a short or corrupt record marks the end of
+     * what was durably written, so the file is truncated there. A snapshot is only ever
+     * installed complete, so a bad record in it is an error.
+     */
+    private int replay(Path file, boolean isLog) throws IOException {
+        int applied = 0;
+        long validBytes = 0;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), READ_BUFFER_BYTES))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    payload = readRecord(in);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (payload == null) {
+                    break;
+                }
+
+                apply(payload);
+                applied++;
+                validBytes += Integer.BYTES + Long.BYTES + payload.length;
+            }
+        }
+
+        long size = Files.size(file);
+        if (validBytes < size) {
+            if (!isLog) {
+                throw new RuntimeException("Storage snapshot is corrupt: " + file);
+            }
+            System.err.println("Discarding " + (size - validBytes) + " bytes of incomplete log at the end of " + file);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(validBytes);
+                channel.force(true);
+            }
+        }
+
+        return applied;
+    }
+
+    private void apply(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+
+        if (op == OP_COMMIT) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] change = new byte[in.readInt()];
+                in.readFully(change);
+                apply(change);
+            }
+            return;
+        }
+
+        String collection = in.readUTF();
+        String id = in.readUTF();
+
+        if (op == OP_PUT) {
+            byte[] json = new byte[in.readInt()];
+            in.readFully(json);
+            restoreDocument(collection, id, DocumentMapper.fromJson(new String(json, StandardCharsets.UTF_8)));
+        } else if (op == OP_DELETE) {
+            restoreDocument(collection, id, null);
+        } else {
+            throw new IOException("Unknown storage record type " + op);
+        }
+    }
+
+    /**
+     * Returns null when the record is incomplete or its checksum does not match.
+     */
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length <= 0 || length > MAX_RECORD_BYTES) {
+            return null;
+        }
+
+        long expectedChecksum = in.readLong();
+        byte[] payload = new byte[length];
+        if (readFully(in, payload) < length || checksum(payload) != expectedChecksum) {
+            return null;
+        }
+        return payload;
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int total = 0;
+        while (total < buffer.length) {
+            int read = in.read(buffer, total, buffer.length - total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static void writeRecord(DataOutputStream out, byte[] payload) throws IOException {
+        out.writeInt(payload.length);
+        out.writeLong(checksum(payload));
+        out.write(payload);
+    }
+
+    private static byte[] encode(byte op, String collection, String id, Map<String, Object> document) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(op);
+            out.writeUTF(collection);
+            out.writeUTF(id);
+            if (document != null) {
+                byte[] json = DocumentMapper.toJson(document).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(json.length);
+                out.write(json);
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to encode storage record: " + e.getMessage(), e);
+        }
+    }
+
+    private static long checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+}
@@ -1,6 +1,8 @@
 package rakib.bcs430healthcareproject;
 
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreOptions;
 import com.google.firebase.FirebaseApp;
 import com.google.firebase.FirebaseOptions;
 
@@ -73,6 +75,22 @@ public class FirebaseInitializer {
         }
     }
 
+    /**
+     * Opens a Firestore client against a local emulator, e.g. "localhost:8080".
+     * Used by command-line tools and emulator tests; no service account is needed.
+     */
+    public static Firestore openEmulatorFirestore(String emulatorHost, String projectId) {
+        if (emulatorHost == null || emulatorHost.isBlank()) {
+            throw new RuntimeException("Firestore emulator host is required (set FIRESTORE_EMULATOR_HOST).");
+        }
+
+        return FirestoreOptions.newBuilder()
+                .setProjectId(projectId)
+                .setEmulatorHost(emulatorHost.trim())
+                .build()
+                .getService();
+    }
+
     /**
      * Checks if Firebase has been initialized.
      *
@@ -1,14 +1,8 @@
 package rakib.bcs430healthcareproject;
 
-import com.google.api.core.ApiFuture;
-import com.google.cloud.firestore.DocumentSnapshot;
-import com.google.cloud.firestore.Firestore;
-import com.google.cloud.firestore.Query;
-import com.google.cloud.firestore.QuerySnapshot;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseAuthException;
 import com.google.firebase.auth.UserRecord;
-import com.google.firebase.cloud.FirestoreClient;
 
 import java.net.URI;
 import java.net.http.HttpRequest;
@@ -17,41 +11,159 @@ import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
- * Service class for Firebase operations related to patient account management.
- * Handles user creation in Firebase Authentication and profile storage in Firestore.
+ * Service class for account management and the app's data operations.
+ * Handles user creation in Firebase Authentication; all documents are read and written through
+ * the repositories over the configured {@link DocumentStore}.
  */
 public class FirebaseService {
 
+    /** Largest page the paginated listings return. */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /**
+     * How long a service keeps the reads it made. Services are created per screen, so this
+     * covers one screen load; the service's own writes end it early.
+     */
+    public static final long READ_SCOPE_MILLIS = 2_000;
+
+    /** Prescriptions a doctor sees per page for one patient when completing a visit. */
+    public static final int PATIENT_PRESCRIPTIONS_PAGE_SIZE = 50;
+
     private final FirebaseAuth auth;
-    private final Firestore firestore;
-
-    private static final String PATIENTS_COLLECTION = "patients";
-    private static final String USERS_COLLECTION = "users";
-    private static final String DOCTORS_COLLECTION = "doctors";
-    private static final String PHARMACIES_COLLECTION = "pharmacies";
-    private static final String HOSPITALS_COLLECTION = "hospitals";
-    private static final String APPOINTMENTS_COLLECTION = "appointments";
-    private static final String PRESCRIPTIONS_COLLECTION = "prescriptions";
-    private static final String MESSAGES_COLLECTION = "messages";
-    private static final String NOTIFICATIONS_COLLECTION = "notifications";
-    private static final String HOSPITAL_DEPARTMENTS_COLLECTION = "hospitalDepartments";
-    private static final String DIAGNOSTIC_REPORTS_COLLECTION = "diagnosticReports";
+    private final Executor executor;
+
+    private final ProfileRepository profileRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final PrescriptionRepository prescriptionRepository;
+    private final MessageRepository messageRepository;
+    private final ConversationRepository conversationRepository;
+    private final NotificationRepository notificationRepository;
+    private final DepartmentRepository departmentRepository;
+    private final DiagnosticReportRepository diagnosticReportRepository;
+    private final PrescriptionWorkflow prescriptionWorkflow;
+    private final NotificationOutbox notificationOutbox;
+    private final ProfileDirectory profileDirectory;
+    private final CoalescingDocumentStore reads;
+
+    /** Set once the appointment hospitalUid migration is seen complete; it never reverts. */
+    private volatile boolean hospitalUidsMigrated;
 
     public FirebaseService() {
-        this.auth = FirebaseAuth.getInstance();
-        this.firestore = FirestoreClient.getFirestore();
+        this(DocumentStores.getDefault(), DocumentStores.usesFirebaseAuth() ? FirebaseAuth.getInstance() : null,
+                DocumentStores.getDefaultOutbox(), DocumentStores.getDefaultDirectory(),
+                DocumentStores.getDefaultReadCoalescer());
+    }
+
+    /**
+     * Builds a service over a specific store, e.g. an emulator or in-memory store in tools and
+     * benchmarks. With a null auth, accounts get locally generated UIDs. Notifications go
+     * through an outbox of its own that is not journaled to disk, and the provider directories
+     * are cached per service. Reads are coalesced only among this service's own calls.
+     */
+    public FirebaseService(DocumentStore store, FirebaseAuth auth) {
+        this(store, auth, null, null, new ReadCoalescer());
+    }
+
+    private FirebaseService(DocumentStore store, FirebaseAuth auth, NotificationOutbox outbox,
+                            ProfileDirectory directory, ReadCoalescer coalescer) {
+        this.auth = auth;
+        this.executor = FirestoreExecutor.getInstance();
+        this.reads = new CoalescingDocumentStore(store, coalescer, READ_SCOPE_MILLIS);
+
+        this.profileRepository = new ProfileRepository(reads);
+        this.appointmentRepository = new AppointmentRepository(reads);
+        this.prescriptionRepository = new PrescriptionRepository(reads);
+        this.messageRepository = new MessageRepository(reads);
+        this.conversationRepository = new ConversationRepository(reads);
+        this.notificationRepository = new NotificationRepository(reads);
+        this.departmentRepository = new DepartmentRepository(reads);
+        this.diagnosticReportRepository = new DiagnosticReportRepository(reads);
+        this.prescriptionWorkflow = new PrescriptionWorkflow(prescriptionRepository);
+        this.notificationOutbox = outbox != null ? outbox : new NotificationOutbox(notificationRepository, null);
+        this.profileDirectory = directory != null ? directory : new ProfileDirectory(store);
+    }
+
+    /**
+     * Prescription state transitions and their latency and retry statistics.
+     */
+    public PrescriptionWorkflow getPrescriptionWorkflow() {
+        return prescriptionWorkflow;
+    }
+
+    /**
+     * Cached doctor, pharmacy and hospital directories with their hit and miss statistics.
+     */
+    public ProfileDirectory getProfileDirectory() {
+        return profileDirectory;
+    }
+
+    /**
+     * Queue that delivers this service's notifications, with its depth and lag metrics.
+     */
+    public NotificationOutbox getNotificationOutbox() {
+        return notificationOutbox;
+    }
+
+    /**
+     * Read coalescing statistics: backend reads issued and reads saved.
+     */
+    public ReadCoalescer getReadCoalescer() {
+        return reads.getCoalescer();
+    }
+
+    /**
+     * Forgets the reads this service has kept, so the next calls read fresh data. Screens call
+     * it before a refresh the user asked for.
+     */
+    public void clearReadScope() {
+        reads.clearScope();
+    }
+
+    /**
+     * Executor used for every async call made by this service.
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Creates the sign-in account and returns its UID. Without Firebase Authentication the UID
+     * is generated locally and duplicate emails are rejected here instead.
+     */
+    private String createAccount(String email, String password, String displayName)
+            throws FirebaseAuthException, ExecutionException, InterruptedException {
+        if (auth != null) {
+            UserRecord.CreateRequest request = new UserRecord.CreateRequest()
+                    .setEmail(email)
+                    .setPassword(password)
+                    .setDisplayName(displayName);
+
+            return auth.createUser(request).getUid();
+        }
+
+        if (password == null || password.length() < 6) {
+            throw new RuntimeException("Password must be at least 6 characters.");
+        }
+        if (profileRepository.isEmailRegistered(email).get()) {
+            throw new RuntimeException("Email is already registered.");
+        }
+        return profileRepository.newAccountId();
     }
 
     /**
@@ -60,13 +172,7 @@ public class FirebaseService {
     public CompletableFuture<String> createPatient(String email, String password, String name, String zip) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                UserRecord.CreateRequest request = new UserRecord.CreateRequest()
-                        .setEmail(email)
-                        .setPassword(password)
-                        .setDisplayName(name);
-
-                UserRecord userRecord = auth.createUser(request);
-                String uid = userRecord.getUid();
+                String uid = createAccount(email, password, name);
 
                 PatientProfile profile = new PatientProfile(uid, name, email, zip);
 
@@ -75,8 +181,7 @@ public class FirebaseService {
                 profile.setPasswordHash(passwordHash);
                 profile.setPasswordSalt(passwordSalt);
 
-                ApiFuture<?> future = firestore.collection(PATIENTS_COLLECTION).document(uid).set(profile);
-                future.get();
+                profileRepository.savePatient(uid, profile).get();
 
                 System.out.println("Patient created successfully with UID: " + uid);
                 return uid;
@@ -87,7 +192,7 @@ public class FirebaseService {
             } catch (ExecutionException | InterruptedException e) {
                 throw new RuntimeException("Failed to save patient profile: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<String> createDoctor(
@@ -105,13 +210,7 @@ public class FirebaseService {
     ) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                UserRecord.CreateRequest request = new UserRecord.CreateRequest()
-                        .setEmail(email)
-                        .setPassword(password)
-                        .setDisplayName(name);
-
-                UserRecord userRecord = auth.createUser(request);
-                String uid = userRecord.getUid();
+                String uid = createAccount(email, password, name);
 
                 DoctorProfile profile = new DoctorProfile(
                         uid,
@@ -136,16 +235,8 @@ public class FirebaseService {
                 profile.setRole("DOCTOR");
                 profile.setAvailability(availability);
 
-                firestore.collection(DOCTORS_COLLECTION).document(uid).set(profile).get();
-
-                Map<String, Object> userDoc = new HashMap<>();
-                userDoc.put("uid", uid);
-                userDoc.put("name", name);
-                userDoc.put("email", email);
-                userDoc.put("role", "DOCTOR");
-                userDoc.put("createdAt", System.currentTimeMillis());
-
-                firestore.collection(USERS_COLLECTION).document(uid).set(userDoc).get();
+                profileRepository.saveDoctor(uid, profile).get();
+                profileRepository.saveUserAccount(uid, name, email, "DOCTOR").get();
 
                 System.out.println("Doctor created successfully with UID: " + uid);
                 return uid;
@@ -158,7 +249,7 @@ public class FirebaseService {
             } catch (ExecutionException e) {
                 throw new RuntimeException("Failed to save doctor profile: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<String> createPharmacy(
@@ -177,22 +268,11 @@ public class FirebaseService {
                 String fullAddress = PharmacyProfile.buildFullAddress(addressLine, city, state, zip);
                 String normalizedAddress = AddressNormalizer.normalize(fullAddress);
 
-                QuerySnapshot existingLocation = firestore.collection(PHARMACIES_COLLECTION)
-                        .whereEqualTo("addressNormalized", normalizedAddress)
-                        .get()
-                        .get();
-
-                if (!existingLocation.isEmpty()) {
+                if (profileRepository.isPharmacyAddressClaimed(normalizedAddress).get()) {
                     throw new RuntimeException("That pharmacy location has already been claimed.");
                 }
 
-                UserRecord.CreateRequest request = new UserRecord.CreateRequest()
-                        .setEmail(normalizedEmail)
-                        .setPassword(password)
-                        .setDisplayName(pharmacyName);
-
-                UserRecord userRecord = auth.createUser(request);
-                String uid = userRecord.getUid();
+                String uid = createAccount(normalizedEmail, password, pharmacyName);
 
                 PharmacyProfile profile = new PharmacyProfile(
                         uid,
@@ -213,16 +293,8 @@ public class FirebaseService {
                 profile.setCreatedAt(System.currentTimeMillis());
                 profile.setUpdatedAt(System.currentTimeMillis());
 
-                firestore.collection(PHARMACIES_COLLECTION).document(uid).set(profile).get();
-
-                Map<String, Object> userDoc = new HashMap<>();
-                userDoc.put("uid", uid);
-                userDoc.put("name", pharmacyName);
-                userDoc.put("email", normalizedEmail);
-                userDoc.put("role", "PHARMACY");
-                userDoc.put("createdAt", System.currentTimeMillis());
-
-                firestore.collection(USERS_COLLECTION).document(uid).set(userDoc).get();
+                profileRepository.savePharmacy(uid, profile).get();
+                profileRepository.saveUserAccount(uid, pharmacyName, normalizedEmail, "PHARMACY").get();
 
                 return uid;
             } catch (FirebaseAuthException e) {
@@ -233,7 +305,7 @@ public class FirebaseService {
             } catch (ExecutionException e) {
                 throw new RuntimeException("Failed to save pharmacy profile: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<String> createHospital(
@@ -252,22 +324,11 @@ public class FirebaseService {
                 String fullAddress = HospitalProfile.buildFullAddress(addressLine, city, state, zip);
                 String normalizedAddress = AddressNormalizer.normalize(fullAddress);
 
-                QuerySnapshot existingLocation = firestore.collection(HOSPITALS_COLLECTION)
-                        .whereEqualTo("addressNormalized", normalizedAddress)
-                        .get()
-                        .get();
-
-                if (!existingLocation.isEmpty()) {
+                if (profileRepository.isHospitalAddressClaimed(normalizedAddress).get()) {
                     throw new RuntimeException("That hospital location has already been claimed.");
                 }
 
-                UserRecord.CreateRequest request = new UserRecord.CreateRequest()
-                        .setEmail(normalizedEmail)
-                        .setPassword(password)
-                        .setDisplayName(hospitalName);
-
-                UserRecord userRecord = auth.createUser(request);
-                String uid = userRecord.getUid();
+                String uid = createAccount(normalizedEmail, password, hospitalName);
 
                 HospitalProfile profile = new HospitalProfile(
                         uid,
@@ -288,16 +349,8 @@ public class FirebaseService {
                 profile.setCreatedAt(System.currentTimeMillis());
                 profile.setUpdatedAt(System.currentTimeMillis());
 
-                firestore.collection(HOSPITALS_COLLECTION).document(uid).set(profile).get();
-
-                Map<String, Object> userDoc = new HashMap<>();
-                userDoc.put("uid", uid);
-                userDoc.put("name", hospitalName);
-                userDoc.put("email", normalizedEmail);
-                userDoc.put("role", "HOSPITAL");
-                userDoc.put("createdAt", System.currentTimeMillis());
-
-                firestore.collection(USERS_COLLECTION).document(uid).set(userDoc).get();
+                profileRepository.saveHospital(uid, profile).get();
+                profileRepository.saveUserAccount(uid, hospitalName, normalizedEmail, "HOSPITAL").get();
 
                 return uid;
             } catch (FirebaseAuthException e) {
@@ -308,7 +361,7 @@ public class FirebaseService {
             } catch (ExecutionException e) {
                 throw new RuntimeException("Failed to save hospital profile: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<String> authenticateDoctor(String email, String password) {
@@ -316,20 +369,13 @@ public class FirebaseService {
             try {
                 System.out.println("Authenticating doctor with email: " + email);
 
-                ApiFuture<QuerySnapshot> query = firestore.collection(DOCTORS_COLLECTION)
-                        .whereEqualTo("email", email)
-                        .get();
+                List<DoctorProfile> matches = profileRepository.findDoctorProfilesByEmail(email).get();
 
-                QuerySnapshot querySnapshot = query.get();
-
-                if (querySnapshot.isEmpty()) {
+                if (matches.isEmpty()) {
                     throw new RuntimeException("No account found with this email address.");
                 }
 
-                DocumentSnapshot document = querySnapshot.getDocuments().get(0);
-                System.out.println("Doctor raw data: " + document.getData());
-
-                DoctorProfile profile = document.toObject(DoctorProfile.class);
+                DoctorProfile profile = matches.get(0);
 
                 if (profile == null) {
                     throw new RuntimeException("Failed to load doctor profile.");
@@ -348,24 +394,19 @@ public class FirebaseService {
             } catch (ExecutionException | InterruptedException e) {
                 throw new RuntimeException("Authentication failed: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<String> authenticatePharmacy(String email, String password) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                ApiFuture<QuerySnapshot> query = firestore.collection(PHARMACIES_COLLECTION)
-                        .whereEqualTo("email", email)
-                        .get();
-
-                QuerySnapshot querySnapshot = query.get();
+                List<PharmacyProfile> matches = profileRepository.findPharmaciesByEmail(email).get();
 
-                if (querySnapshot.isEmpty()) {
+                if (matches.isEmpty()) {
                     throw new RuntimeException("No account found with this email address.");
                 }
 
-                DocumentSnapshot document = querySnapshot.getDocuments().get(0);
-                PharmacyProfile profile = document.toObject(PharmacyProfile.class);
+                PharmacyProfile profile = matches.get(0);
 
                 if (profile == null) {
                     throw new RuntimeException("Failed to load pharmacy profile.");
@@ -383,24 +424,19 @@ public class FirebaseService {
             } catch (ExecutionException | InterruptedException e) {
                 throw new RuntimeException("Authentication failed: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<String> authenticateHospital(String email, String password) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                ApiFuture<QuerySnapshot> query = firestore.collection(HOSPITALS_COLLECTION)
-                        .whereEqualTo("email", email)
-                        .get();
-
-                QuerySnapshot querySnapshot = query.get();
+                List<HospitalProfile> matches = profileRepository.findHospitalsByEmail(email).get();
 
-                if (querySnapshot.isEmpty()) {
+                if (matches.isEmpty()) {
                     throw new RuntimeException("No account found with this email address.");
                 }
 
-                DocumentSnapshot document = querySnapshot.getDocuments().get(0);
-                HospitalProfile profile = document.toObject(HospitalProfile.class);
+                HospitalProfile profile = matches.get(0);
 
                 if (profile == null) {
                     throw new RuntimeException("Failed to load hospital profile.");
@@ -418,51 +454,71 @@ public class FirebaseService {
             } catch (ExecutionException | InterruptedException e) {
                 throw new RuntimeException("Authentication failed: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
+    /**
+     * Signs in with any account type. The email index resolves the account with one point read,
+     * then only that account's profile is read and its password hashed once.
+     */
     public CompletableFuture<LoginResult> authenticateAnyUser(String email, String password) {
-        String normalizedEmail = email == null ? "" : email.trim().toLowerCase();
-
-        return authenticateUser(normalizedEmail, password)
-                .thenApply(uid -> new LoginResult(uid, "PATIENT"))
-                .handle((result, ex) -> result)
-                .thenCompose(result -> {
-                    if (result != null) {
-                        return CompletableFuture.completedFuture(result);
-                    }
+        return authenticationRead(profileRepository.findAccountByEmail(email)).thenCompose(account -> {
+            if (account == null) {
+                throw new RuntimeException("No account found with this email address.");
+            }
+
+            String uid = account.getUid();
+            CompletableFuture<Void> verified = switch (account.getRole()) {
+                case "PATIENT" -> authenticationRead(profileRepository.findPatient(uid)).thenAccept(profile ->
+                        verifyPassword(password, requireProfile(profile).getPasswordHash(), profile.getPasswordSalt()));
+                case "DOCTOR" -> authenticationRead(profileRepository.findDoctorProfile(uid)).thenAccept(profile ->
+                        verifyPassword(password, requireProfile(profile).getPasswordHash(), profile.getPasswordSalt()));
+                case "PHARMACY" -> authenticationRead(profileRepository.findPharmacy(uid)).thenAccept(profile ->
+                        verifyPassword(password, requireProfile(profile).getPasswordHash(), profile.getPasswordSalt()));
+                case "HOSPITAL" -> authenticationRead(profileRepository.findHospital(uid)).thenAccept(profile ->
+                        verifyPassword(password, requireProfile(profile).getPasswordHash(), profile.getPasswordSalt()));
+                default -> CompletableFuture.failedFuture(
+                        new RuntimeException("Unsupported account role: " + account.getRole()));
+            };
+            return verified.thenApply(ignored -> account);
+        });
+    }
 
-                    return authenticateDoctor(normalizedEmail, password)
-                            .thenApply(uid -> new LoginResult(uid, "DOCTOR"))
-                            .handle((doctorResult, doctorEx) -> doctorResult)
-                            .thenCompose(doctorResult -> {
-                                if (doctorResult != null) {
-                                    return CompletableFuture.completedFuture(doctorResult);
-                                }
-
-                                return authenticatePharmacy(normalizedEmail, password)
-                                        .thenApply(uid -> new LoginResult(uid, "PHARMACY"))
-                                        .handle((pharmacyResult, pharmacyEx) -> pharmacyResult)
-                                        .thenCompose(pharmacyResult -> {
-                                            if (pharmacyResult != null) {
-                                                return CompletableFuture.completedFuture(pharmacyResult);
-                                            }
-
-                                            return authenticateHospital(normalizedEmail, password)
-                                                    .thenApply(uid -> new LoginResult(uid, "HOSPITAL"));
-                                        });
-                            });
-                });
+    private static <T> CompletableFuture<T> authenticationRead(CompletableFuture<T> read) {
+        return ApiFutureSupport.withFailureMessage(read, "Authentication failed: ");
+    }
+
+    private static void verifyPassword(String password, String passwordHash, String passwordSalt) {
+        if (passwordHash == null || passwordSalt == null) {
+            throw new RuntimeException("Account security data not found.");
+        }
+        if (!PasswordHasher.verifyPassword(password, passwordHash, passwordSalt)) {
+            throw new RuntimeException("Invalid email or password.");
+        }
+    }
+
+    /**
+     * Rewrites the email index from every profile, for accounts created before it was kept.
+     * Returns the number of entries written.
+     */
+    public CompletableFuture<Integer> rebuildEmailIndex() {
+        return ApiFutureSupport.withFailureMessage(profileRepository.rebuildEmailIndex(),
+                "Failed to rebuild the email index: ");
+    }
+
+    private static <T> T requireProfile(T profile) {
+        if (profile == null) {
+            throw new RuntimeException("No account found with this email address.");
+        }
+        return profile;
     }
 
     public CompletableFuture<DoctorProfile> getDoctorProfile(String uid) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                ApiFuture<DocumentSnapshot> future = firestore.collection(DOCTORS_COLLECTION).document(uid).get();
-                DocumentSnapshot document = future.get();
+                DoctorProfile profile = profileRepository.findDoctorProfile(uid).get();
 
-                if (document.exists()) {
-                    DoctorProfile profile = document.toObject(DoctorProfile.class);
+                if (profile != null) {
                     System.out.println("Doctor profile loaded for UID: " + uid);
                     return profile;
                 } else {
@@ -471,18 +527,16 @@ public class FirebaseService {
             } catch (ExecutionException | InterruptedException e) {
                 throw new RuntimeException("Failed to retrieve doctor profile: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<PharmacyProfile> getPharmacyProfile(String uid) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                ApiFuture<DocumentSnapshot> future = firestore.collection(PHARMACIES_COLLECTION).document(uid).get();
-                DocumentSnapshot document = future.get();
+                PharmacyProfile profile = profileRepository.findPharmacy(uid).get();
 
-                if (document.exists()) {
-                    PharmacyProfile profile = document.toObject(PharmacyProfile.class);
-                    if (profile != null && (profile.getAddressNormalized() == null || profile.getAddressNormalized().isBlank())) {
+                if (profile != null) {
+                    if (profile.getAddressNormalized() == null || profile.getAddressNormalized().isBlank()) {
                         profile.setAddressNormalized(AddressNormalizer.normalize(profile.getFullAddress()));
                     }
                     return profile;
@@ -492,108 +546,43 @@ public class FirebaseService {
             } catch (ExecutionException | InterruptedException e) {
                 throw new RuntimeException("Failed to retrieve pharmacy profile: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<HospitalProfile> getHospitalProfile(String uid) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                ApiFuture<DocumentSnapshot> future = firestore.collection(HOSPITALS_COLLECTION).document(uid).get();
-                DocumentSnapshot document = future.get();
-
-                if (document.exists()) {
-                    HospitalProfile profile = document.toObject(HospitalProfile.class);
-                    if (profile != null && (profile.getAddressNormalized() == null || profile.getAddressNormalized().isBlank())) {
-                        profile.setAddressNormalized(AddressNormalizer.normalize(profile.getFullAddress()));
+        return profileRepository.findHospital(uid)
+                .handle((profile, error) -> {
+                    if (error != null) {
+                        Throwable cause = ApiFutureSupport.unwrap(error);
+                        throw new RuntimeException("Failed to retrieve hospital profile: " + cause.getMessage(), cause);
                     }
-                    return profile;
-                } else {
-                    throw new RuntimeException("Hospital profile not found");
-                }
-            } catch (ExecutionException | InterruptedException e) {
-                throw new RuntimeException("Failed to retrieve hospital profile: " + e.getMessage(), e);
-            }
-        });
-    }
-
-    public CompletableFuture<List<PharmacyProfile>> getAllPharmacies() {
-        return CompletableFuture.supplyAsync(() -> {
-            List<PharmacyProfile> pharmacies = new ArrayList<>();
-            try {
-                QuerySnapshot snapshot = firestore.collection(PHARMACIES_COLLECTION).get().get();
-
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    PharmacyProfile profile = doc.toObject(PharmacyProfile.class);
                     if (profile == null) {
-                        continue;
-                    }
-                    if (profile.getUid() == null || profile.getUid().isBlank()) {
-                        profile.setUid(doc.getId());
-                    }
-                    if (profile.getFullAddress() == null || profile.getFullAddress().isBlank()) {
-                        profile.setFullAddress(PharmacyProfile.buildFullAddress(
-                                profile.getAddressLine(),
-                                profile.getCity(),
-                                profile.getState(),
-                                profile.getZip()
-                        ));
+                        throw new RuntimeException("Hospital profile not found");
                     }
+
                     if (profile.getAddressNormalized() == null || profile.getAddressNormalized().isBlank()) {
                         profile.setAddressNormalized(AddressNormalizer.normalize(profile.getFullAddress()));
                     }
-                    pharmacies.add(profile);
-                }
-
-                pharmacies.sort((left, right) -> {
-                    String leftName = left.getPharmacyName() != null ? left.getPharmacyName() : "";
-                    String rightName = right.getPharmacyName() != null ? right.getPharmacyName() : "";
-                    return leftName.compareToIgnoreCase(rightName);
+                    return profile;
                 });
-                return pharmacies;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to retrieve pharmacies: " + e.getMessage(), e);
-            }
-        });
     }
 
-    public CompletableFuture<List<HospitalProfile>> getAllHospitals() {
-        return CompletableFuture.supplyAsync(() -> {
-            List<HospitalProfile> hospitals = new ArrayList<>();
-            try {
-                QuerySnapshot snapshot = firestore.collection(HOSPITALS_COLLECTION).get().get();
-
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    HospitalProfile profile = doc.toObject(HospitalProfile.class);
-                    if (profile == null) {
-                        continue;
-                    }
-                    if (profile.getUid() == null || profile.getUid().isBlank()) {
-                        profile.setUid(doc.getId());
-                    }
-                    if (profile.getFullAddress() == null || profile.getFullAddress().isBlank()) {
-                        profile.setFullAddress(HospitalProfile.buildFullAddress(
-                                profile.getAddressLine(),
-                                profile.getCity(),
-                                profile.getState(),
-                                profile.getZip()
-                        ));
-                    }
-                    if (profile.getAddressNormalized() == null || profile.getAddressNormalized().isBlank()) {
-                        profile.setAddressNormalized(AddressNormalizer.normalize(profile.getFullAddress()));
-                    }
-                    hospitals.add(profile);
-                }
+    /**
+     * All pharmacies ordered by name, served from the cached directory. The profiles are shared
+     * with other callers and must not be modified.
+     */
+    public CompletableFuture<List<PharmacyProfile>> getAllPharmacies() {
+        return ApiFutureSupport.withFailureMessage(profileDirectory.getPharmacies().getAll(),
+                "Failed to retrieve pharmacies: ");
+    }
 
-                hospitals.sort((left, right) -> {
-                    String leftName = left.getHospitalName() != null ? left.getHospitalName() : "";
-                    String rightName = right.getHospitalName() != null ? right.getHospitalName() : "";
-                    return leftName.compareToIgnoreCase(rightName);
-                });
-                return hospitals;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to retrieve hospitals: " + e.getMessage(), e);
-            }
-        });
+    /**
+     * All hospitals ordered by name, served from the cached directory. The profiles are shared
+     * with other callers and must not be modified.
+     */
+    public CompletableFuture<List<HospitalProfile>> getAllHospitals() {
+        return ApiFutureSupport.withFailureMessage(profileDirectory.getHospitals().getAll(),
+                "Failed to retrieve hospitals: ");
     }
 
     /**
@@ -604,22 +593,17 @@ public class FirebaseService {
             try {
                 System.out.println("Authenticating user with email: " + email);
 
-                ApiFuture<QuerySnapshot> query = firestore.collection(PATIENTS_COLLECTION)
-                        .whereEqualTo("email", email)
-                        .get();
-
-                QuerySnapshot querySnapshot = query.get();
+                List<PatientProfile> matches = profileRepository.findPatientsByEmail(email).get();
 
-                if (querySnapshot.isEmpty()) {
+                if (matches.isEmpty()) {
                     throw new RuntimeException("No account found with this email address.");
                 }
 
-                if (querySnapshot.size() > 1) {
+                if (matches.size() > 1) {
                     throw new RuntimeException("Multiple accounts found with this email. Please contact support.");
                 }
 
-                DocumentSnapshot document = querySnapshot.getDocuments().get(0);
-                PatientProfile profile = document.toObject(PatientProfile.class);
+                PatientProfile profile = matches.get(0);
 
                 if (profile == null) {
                     throw new RuntimeException("Failed to load patient profile.");
@@ -653,7 +637,7 @@ public class FirebaseService {
                 System.err.println("Unexpected authentication error: " + e.getMessage());
                 throw new RuntimeException("Authentication error: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     /**
@@ -662,11 +646,9 @@ public class FirebaseService {
     public CompletableFuture<PatientProfile> getPatientProfile(String uid) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                ApiFuture<DocumentSnapshot> future = firestore.collection(PATIENTS_COLLECTION).document(uid).get();
-                DocumentSnapshot document = future.get();
+                PatientProfile profile = profileRepository.findPatient(uid).get();
 
-                if (document.exists()) {
-                    PatientProfile profile = document.toObject(PatientProfile.class);
+                if (profile != null) {
                     System.out.println("Patient profile loaded for UID: " + uid);
                     return profile;
                 } else {
@@ -675,7 +657,7 @@ public class FirebaseService {
             } catch (ExecutionException | InterruptedException e) {
                 throw new RuntimeException("Failed to retrieve patient profile: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     /**
@@ -685,14 +667,13 @@ public class FirebaseService {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 profile.setUpdatedAt(System.currentTimeMillis());
-                ApiFuture<?> future = firestore.collection(PATIENTS_COLLECTION).document(uid).set(profile);
-                future.get();
+                profileRepository.savePatient(uid, profile).get();
                 System.out.println("Patient profile updated for UID: " + uid);
                 return null;
             } catch (ExecutionException | InterruptedException e) {
                 throw new RuntimeException("Failed to update patient profile: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     /**
@@ -702,77 +683,88 @@ public class FirebaseService {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 profile.setUpdatedAt(System.currentTimeMillis());
-                ApiFuture<?> future = firestore.collection(DOCTORS_COLLECTION).document(uid).set(profile);
-                future.get();
+                profileRepository.saveDoctor(uid, profile).get();
                 System.out.println("Doctor profile updated for UID: " + uid);
                 return null;
             } catch (ExecutionException | InterruptedException e) {
                 throw new RuntimeException("Failed to update doctor profile: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<Void> updatePharmacyProfile(String uid, PharmacyProfile profile) {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 profile.setUpdatedAt(System.currentTimeMillis());
-                ApiFuture<?> future = firestore.collection(PHARMACIES_COLLECTION).document(uid).set(profile);
-                future.get();
+                profileRepository.savePharmacy(uid, profile).get();
                 System.out.println("Pharmacy profile updated for UID: " + uid);
                 return null;
             } catch (ExecutionException | InterruptedException e) {
                 throw new RuntimeException("Failed to update pharmacy profile: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<Void> updateHospitalProfile(String uid, HospitalProfile profile) {
         return CompletableFuture.supplyAsync(() -> {
             try {
                 profile.setUpdatedAt(System.currentTimeMillis());
-                ApiFuture<?> future = firestore.collection(HOSPITALS_COLLECTION).document(uid).set(profile);
-                future.get();
+                profileRepository.saveHospital(uid, profile).get();
                 System.out.println("Hospital profile updated for UID: " + uid);
                 return null;
             } catch (ExecutionException | InterruptedException e) {
                 throw new RuntimeException("Failed to update hospital profile: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     /**
-     * Retrieves all doctors from the database.
+     * The doctors assigned to the hospital, read with one query instead of from the whole
+     * directory.
      */
-    public CompletableFuture<List<Doctor>> getAllDoctors() {
-        return CompletableFuture.supplyAsync(() -> {
-            List<Doctor> doctors = new ArrayList<>();
-            try {
-                QuerySnapshot snapshot = firestore.collection(DOCTORS_COLLECTION).get().get();
+    public CompletableFuture<List<Doctor>> getDoctorsForHospital(String hospitalUid) {
+        return getDoctorsForHospital(hospitalUid, null);
+    }
 
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    doctors.add(mapDoctorDocument(doc));
-                }
+    /**
+     * The hospital's doctors in one department, or all of them when the department is null.
+     * The department must match the doctors' department field exactly.
+     */
+    public CompletableFuture<List<Doctor>> getDoctorsForHospital(String hospitalUid, String department) {
+        if (hospitalUid == null || hospitalUid.isBlank()) {
+            return CompletableFuture.failedFuture(new RuntimeException("Hospital identifier is required."));
+        }
 
-                if (doctors.isEmpty()) {
-                    Doctor testDoctor = new Doctor();
-                    testDoctor.setHospitalUid("");
-                    testDoctor.setHospitalName("");
-                    testDoctor.setDepartment("General Medicine");
-                    testDoctor.setZip("10001");
-                    testDoctor.setClinicName("Test Clinic");
-                    testDoctor.setCity("New York");
-                    testDoctor.setState("NY");
-                    testDoctor.setAddress("123 Test St");
-                    testDoctor.setAcceptingNewPatients(true);
-                    testDoctor.setAvailability(new HashMap<>());
-                    doctors.add(testDoctor);
-                }
+        return ApiFutureSupport.withFailureMessage(profileRepository.findDoctorsByHospital(hospitalUid, department),
+                "Failed to retrieve hospital doctors: ");
+    }
 
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to retrieve doctors: " + e.getMessage(), e);
-            }
-            return doctors;
-        });
+    /**
+     * Retrieves all doctors, served from the cached directory. The doctors are shared with
+     * other callers and must not be modified.
+     */
+    public CompletableFuture<List<Doctor>> getAllDoctors() {
+        CompletableFuture<List<Doctor>> pipeline = profileDirectory.getDoctors().getAll()
+                .thenApply(doctors -> {
+                    if (doctors.isEmpty()) {
+                        Doctor testDoctor = new Doctor();
+                        testDoctor.setHospitalUid("");
+                        testDoctor.setHospitalName("");
+                        testDoctor.setDepartment("General Medicine");
+                        testDoctor.setZip("10001");
+                        testDoctor.setClinicName("Test Clinic");
+                        testDoctor.setCity("New York");
+                        testDoctor.setState("NY");
+                        testDoctor.setAddress("123 Test St");
+                        testDoctor.setAcceptingNewPatients(true);
+                        testDoctor.setAvailability(new HashMap<>());
+                        doctors.add(testDoctor);
+                    }
+
+                    return doctors;
+                });
+
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to retrieve doctors: ");
     }
 
     /**
@@ -781,166 +773,48 @@ public class FirebaseService {
     public CompletableFuture<Doctor> getDoctorByUid(String doctorUid) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                DocumentSnapshot doc = firestore.collection(DOCTORS_COLLECTION)
-                        .document(doctorUid)
-                        .get()
-                        .get();
+                Doctor doctor = profileDirectory.getDoctors().get(doctorUid).get();
 
-                if (!doc.exists()) {
+                if (doctor == null) {
                     throw new RuntimeException("Doctor not found.");
                 }
 
-                return mapDoctorDocument(doc);
+                return doctor;
             } catch (Exception e) {
                 throw new RuntimeException("Failed to retrieve doctor: " + e.getMessage(), e);
             }
-        });
-    }
-
-    private Doctor mapDoctorDocument(DocumentSnapshot doc) {
-        Doctor doctor = new Doctor();
-
-        doctor.setUid(doc.getId());
-        doctor.setName(doc.getString("name"));
-        doctor.setEmail(doc.getString("email"));
-        doctor.setSpecialty(doc.getString("specialty"));
-        doctor.setZip(doc.getString("zip"));
-        doctor.setClinicName(doc.getString("clinicName"));
-
-        doctor.setHospitalUid(doc.getString("hospitalUid"));
-        doctor.setHospitalName(doc.getString("hospitalName"));
-        doctor.setDepartment(doc.getString("department"));
-
-        doctor.setCity(doc.getString("city"));
-        doctor.setState(doc.getString("state"));
-        doctor.setAddress(doc.getString("address"));
-        doctor.setPhone(doc.getString("phone"));
-        doctor.setAcceptingNewPatients(doc.getBoolean("acceptingNewPatients"));
-
-        doctor.setHours(doc.getString("hours"));
-        doctor.setInsuranceInfo(doc.getString("insuranceInfo"));
-        doctor.setBio(doc.getString("bio"));
-        doctor.setLicenseNumber(doc.getString("licenseNumber"));
-        doctor.setVisitType(doc.getString("visitType"));
-        doctor.setNotes(doc.getString("notes"));
-
-        Object availabilityObj = doc.get("availability");
-        if (availabilityObj instanceof Map<?, ?> rawMap) {
-            Map<String, String> availability = new HashMap<>();
-
-            for (Map.Entry<?, ?> entry : rawMap.entrySet()) {
-                if (entry.getKey() != null && entry.getValue() != null) {
-                    availability.put(entry.getKey().toString(), entry.getValue().toString());
-                }
-            }
-
-            doctor.setAvailability(availability);
-        }
-
-        return doctor;
+        }, executor);
     }
 
     /**
      * Returns all appointments for a doctor on a specific date.
      */
     public CompletableFuture<List<Appointment>> getDoctorAppointmentsForDate(String doctorUid, LocalDate date) {
-        return CompletableFuture.supplyAsync(() -> {
-            List<Appointment> appointments = new ArrayList<>();
-
-            try {
-                QuerySnapshot snapshot = firestore.collection(APPOINTMENTS_COLLECTION)
-                        .whereEqualTo("doctorUid", doctorUid)
-                        .whereEqualTo("appointmentDate", date.toString())
-                        .get()
-                        .get();
-
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    Appointment appointment = doc.toObject(Appointment.class);
-                    if (appointment != null) {
-                        appointment.setAppointmentId(doc.getId());
-                        appointments.add(appointment);
-                    }
-                }
-
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to retrieve doctor appointments: " + e.getMessage(), e);
-            }
+        CompletableFuture<List<Appointment>> pipeline = appointmentRepository.findByDoctorAndDate(doctorUid, date.toString());
 
-            return appointments;
-        });
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to retrieve doctor appointments: ");
     }
 
     /**
-     * Returns all booked slot strings like "09:30 AM" for a doctor on a given date.
+     * Returns all booked slot strings like "9:30 AM" for a doctor on a given date, read from
+     * the day's slot occupancy document.
      */
     public CompletableFuture<List<String>> getBookedTimesForDoctorAndDate(String doctorUid, String appointmentDate) {
-        return CompletableFuture.supplyAsync(() -> {
-            List<String> bookedTimes = new ArrayList<>();
-
-            try {
-                QuerySnapshot snapshot = firestore.collection(APPOINTMENTS_COLLECTION)
-                        .whereEqualTo("doctorUid", doctorUid)
-                        .whereEqualTo("appointmentDate", appointmentDate)
-                        .get()
-                        .get();
-
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    Appointment appointment = doc.toObject(Appointment.class);
-                    if (appointment == null) {
-                        continue;
-                    }
-
-                    String status = appointment.getStatus();
-                    if (status != null && status.equalsIgnoreCase("CANCELLED")) {
-                        continue;
-                    }
-
-                    String slot = appointment.getAppointmentSlot();
-                    if (slot != null && !slot.isBlank()) {
-                        bookedTimes.add(slot);
-                    }
-                }
-
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to retrieve booked times: " + e.getMessage(), e);
-            }
+        CompletableFuture<List<String>> pipeline = appointmentRepository.findBookedSlots(doctorUid, appointmentDate);
 
-            return bookedTimes;
-        });
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to retrieve booked times: ");
     }
 
     /**
-     * Checks whether a specific doctor date/slot is still available.
+     * Checks whether a specific doctor date/slot is still available by reading its reservation
+     * document. Booking does not need this check; it claims the reservation atomically.
      */
     public CompletableFuture<Boolean> isSlotStillAvailable(String doctorUid, String appointmentDate, String appointmentSlot) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                QuerySnapshot snapshot = firestore.collection(APPOINTMENTS_COLLECTION)
-                        .whereEqualTo("doctorUid", doctorUid)
-                        .whereEqualTo("appointmentDate", appointmentDate)
-                        .whereEqualTo("appointmentSlot", appointmentSlot)
-                        .get()
-                        .get();
-
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    Appointment appointment = doc.toObject(Appointment.class);
-                    if (appointment == null) {
-                        continue;
-                    }
+        CompletableFuture<Boolean> pipeline = appointmentRepository
+                .isSlotReserved(doctorUid, appointmentDate, appointmentSlot)
+                .thenApply(reserved -> !reserved);
 
-                    String status = appointment.getStatus();
-                    if (status != null && status.equalsIgnoreCase("CANCELLED")) {
-                        continue;
-                    }
-
-                    return false;
-                }
-
-                return true;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to check slot availability: " + e.getMessage(), e);
-            }
-        });
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to check slot availability: ");
     }
 
     /**
@@ -948,28 +822,25 @@ public class FirebaseService {
      * Legacy timestamp-based check kept for compatibility.
      */
     public CompletableFuture<Boolean> isTimeSlotAvailable(String doctorUid, long appointmentDateTime) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                LocalDate selectedDate = Instant.ofEpochMilli(appointmentDateTime)
-                        .atZone(ZoneId.systemDefault())
-                        .toLocalDate();
-
-                List<Appointment> appointments = getDoctorAppointmentsForDate(doctorUid, selectedDate).get();
-
-                for (Appointment appointment : appointments) {
-                    if (appointment.getAppointmentDateTime() != null
-                            && appointment.getAppointmentDateTime().longValue() == appointmentDateTime
-                            && (appointment.getStatus() == null
-                            || !appointment.getStatus().equalsIgnoreCase("CANCELLED"))) {
-                        return false;
+        LocalDate selectedDate = Instant.ofEpochMilli(appointmentDateTime)
+                .atZone(ZoneId.systemDefault())
+                .toLocalDate();
+
+        CompletableFuture<Boolean> pipeline = getDoctorAppointmentsForDate(doctorUid, selectedDate)
+                .thenApply(appointments -> {
+                    for (Appointment appointment : appointments) {
+                        if (appointment.getAppointmentDateTime() != null
+                                && appointment.getAppointmentDateTime().longValue() == appointmentDateTime
+                                && (appointment.getStatus() == null
+                                || !appointment.getStatus().equalsIgnoreCase("CANCELLED"))) {
+                            return false;
+                        }
                     }
-                }
 
-                return true;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to check appointment availability: " + e.getMessage(), e);
-            }
-        });
+                    return true;
+                });
+
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to check appointment availability: ");
     }
 
     /**
@@ -978,12 +849,12 @@ public class FirebaseService {
     public CompletableFuture<Boolean> saveAppointment(Appointment appointment) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                String appointmentId = internalSaveAppointment(appointment);
+                String appointmentId = internalSaveAppointment(appointment, true);
                 return appointmentId != null && !appointmentId.isBlank();
             } catch (Exception e) {
                 throw new RuntimeException("Failed to save appointment: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     /**
@@ -992,11 +863,11 @@ public class FirebaseService {
     public CompletableFuture<String> bookAppointment(Appointment appointment) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                return internalSaveAppointment(appointment);
+                return internalSaveAppointment(appointment, true);
             } catch (Exception e) {
                 throw new RuntimeException("Failed to book appointment: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<String> createHospitalReferralAppointment(Appointment appointment) {
@@ -1017,14 +888,19 @@ public class FirebaseService {
 
                 appointment.setReferralAuthorizedByDoctorUid(appointment.getDoctorUid());
                 appointment.setReferralAuthorizedByDoctorName(appointment.getDoctorName());
-                return internalSaveAppointment(appointment);
+                return internalSaveAppointment(appointment, false);
             } catch (Exception e) {
                 throw new RuntimeException("Failed to create hospital referral: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
-    private String internalSaveAppointment(Appointment appointment) throws Exception {
+    /**
+     * Validates and writes a new appointment. With reserveSlot, the doctor's slot is claimed in
+     * the same atomic commit, so a slot taken by a concurrent booking fails here instead of
+     * being double booked. Hospital referrals use hospital time and do not claim the slot.
+     */
+    private String internalSaveAppointment(Appointment appointment, boolean reserveSlot) throws Exception {
         if (appointment == null) {
             throw new RuntimeException("Appointment cannot be null.");
         }
@@ -1061,20 +937,16 @@ public class FirebaseService {
             throw new RuntimeException("Appointment time slot is required.");
         }
 
-        boolean hospitalReferral = appointment.getHospitalUid() != null && !appointment.getHospitalUid().isBlank();
-        if (!hospitalReferral) {
-            boolean available = isSlotStillAvailable(
-                    appointment.getDoctorUid(),
-                    appointment.getAppointmentDate(),
-                    appointment.getAppointmentSlot()
-            ).get();
-
-            if (!available) {
-                throw new RuntimeException("This slot has already been booked.");
+        if ((appointment.getHospitalUid() == null || appointment.getHospitalUid().isBlank())
+                && appointment.getHospitalName() != null && !appointment.getHospitalName().isBlank()) {
+            String hospitalUid = hospitalUidsByName(profileDirectory.getHospitals().getAll().get())
+                    .get(appointment.getHospitalName().trim());
+            if (hospitalUid != null) {
+                appointment.setHospitalUid(hospitalUid);
             }
         }
 
-        String appointmentId = firestore.collection(APPOINTMENTS_COLLECTION).document().getId();
+        String appointmentId = appointmentRepository.newId();
         appointment.setAppointmentId(appointmentId);
 
         if (appointment.getStatus() == null || appointment.getStatus().isBlank()) {
@@ -1084,10 +956,15 @@ public class FirebaseService {
             appointment.setCreatedAt(System.currentTimeMillis());
         }
 
-        firestore.collection(APPOINTMENTS_COLLECTION)
-                .document(appointmentId)
-                .set(appointment)
-                .get();
+        if (!reserveSlot) {
+            appointmentRepository.save(appointment).get();
+        } else {
+            try {
+                appointmentRepository.book(appointment).get();
+            } catch (ExecutionException e) {
+                throw slotTakenOr(e);
+            }
+        }
 
         System.out.println("Appointment saved: " + appointmentId);
         return appointmentId;
@@ -1100,18 +977,7 @@ public class FirebaseService {
         return CompletableFuture.supplyAsync(() -> {
             List<Appointment> appointments = new ArrayList<>();
             try {
-                QuerySnapshot snapshot = firestore.collection(APPOINTMENTS_COLLECTION)
-                        .whereEqualTo("patientUid", patientUid)
-                        .get()
-                        .get();
-
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    Appointment appointment = doc.toObject(Appointment.class);
-                    if (appointment != null) {
-                        appointment.setAppointmentId(doc.getId());
-                        appointments.add(appointment);
-                    }
-                }
+                appointments.addAll(appointmentRepository.findByPatient(patientUid).get());
                 appointments.sort(Comparator.comparing(
                         Appointment::resolveAppointmentEpochMillis,
                         Comparator.nullsLast(Long::compareTo)
@@ -1120,7 +986,7 @@ public class FirebaseService {
                 throw new RuntimeException("Failed to retrieve appointments: " + e.getMessage(), e);
             }
             return appointments;
-        });
+        }, executor);
     }
 
     /**
@@ -1130,18 +996,7 @@ public class FirebaseService {
         return CompletableFuture.supplyAsync(() -> {
             List<Appointment> appointments = new ArrayList<>();
             try {
-                QuerySnapshot snapshot = firestore.collection(APPOINTMENTS_COLLECTION)
-                        .whereEqualTo("doctorUid", doctorUid)
-                        .get()
-                        .get();
-
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    Appointment appointment = doc.toObject(Appointment.class);
-                    if (appointment != null) {
-                        appointment.setAppointmentId(doc.getId());
-                        appointments.add(appointment);
-                    }
-                }
+                appointments.addAll(appointmentRepository.findByDoctor(doctorUid).get());
                 appointments.sort(Comparator.comparing(
                         Appointment::resolveAppointmentEpochMillis,
                         Comparator.nullsLast(Long::compareTo)
@@ -1150,194 +1005,178 @@ public class FirebaseService {
                 throw new RuntimeException("Failed to retrieve doctor appointments: " + e.getMessage(), e);
             }
             return appointments;
-        });
+        }, executor);
     }
 
     /**
-     * Retrieves unique patients who have appointments with a doctor.
+     * Loads one page of a patient's appointments in the window, ordered by appointment time.
+     * Pass null as the cursor for the first page and {@link Page#getNextCursor()} after that.
      */
-    public CompletableFuture<List<PatientProfile>> getDoctorPatients(String doctorUid) {
-        return CompletableFuture.supplyAsync(() -> {
-            Map<String, PatientProfile> uniquePatients = new HashMap<>();
-            try {
-                QuerySnapshot snapshot = firestore.collection(APPOINTMENTS_COLLECTION)
-                        .whereEqualTo("doctorUid", doctorUid)
-                        .get()
-                        .get();
-
-                for (DocumentSnapshot appointmentDoc : snapshot.getDocuments()) {
-                    String patientUid = appointmentDoc.getString("patientUid");
-                    if (patientUid == null || patientUid.isBlank() || uniquePatients.containsKey(patientUid)) {
-                        continue;
-                    }
-
-                    DocumentSnapshot patientDoc = firestore.collection(PATIENTS_COLLECTION)
-                            .document(patientUid)
-                            .get()
-                            .get();
+    public CompletableFuture<Page<Appointment>> getPatientAppointmentsPage(String patientUid,
+                                                                          AppointmentWindow window,
+                                                                          int pageSize,
+                                                                          String cursor) {
+        if (patientUid == null || patientUid.isBlank()) {
+            return CompletableFuture.failedFuture(new RuntimeException("Patient identifier is required."));
+        }
+        if (!isValidPageSize(pageSize)) {
+            return invalidPageSize();
+        }
 
-                    if (!patientDoc.exists()) {
-                        continue;
-                    }
+        return ApiFutureSupport.withFailureMessage(
+                appointmentRepository.findPageByPatient(patientUid, window, pageSize, cursor),
+                "Failed to retrieve appointments: ");
+    }
 
-                    PatientProfile profile = patientDoc.toObject(PatientProfile.class);
-                    if (profile != null) {
-                        uniquePatients.put(patientUid, profile);
-                    }
-                }
+    /**
+     * Loads one page of a patient's appointments in the window that have the given status,
+     * ordered by appointment time.
+     */
+    public CompletableFuture<Page<Appointment>> getPatientAppointmentsPageByStatus(String patientUid,
+                                                                                  String status,
+                                                                                  AppointmentWindow window,
+                                                                                  int pageSize,
+                                                                                  String cursor) {
+        if (patientUid == null || patientUid.isBlank()) {
+            return CompletableFuture.failedFuture(new RuntimeException("Patient identifier is required."));
+        }
+        if (!isValidPageSize(pageSize)) {
+            return invalidPageSize();
+        }
 
-                List<PatientProfile> patients = new ArrayList<>(uniquePatients.values());
-                patients.sort((left, right) -> {
-                    String leftName = left.getName() != null ? left.getName() : "";
-                    String rightName = right.getName() != null ? right.getName() : "";
-                    return leftName.compareToIgnoreCase(rightName);
-                });
-                return patients;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to retrieve doctor patients: " + e.getMessage(), e);
-            }
-        });
+        return ApiFutureSupport.withFailureMessage(
+                appointmentRepository.findPageByPatientAndStatus(patientUid, status, window, pageSize, cursor),
+                "Failed to retrieve appointments: ");
     }
 
     /**
-     * Retrieves unique patients who have appointments with a hospital.
-     * Tries hospitalUid first. If older appointment docs don't have hospitalUid,
-     * it falls back to matching the appointment hospitalName against the current hospital profile.
+     * Loads one page of a doctor's appointments in the window, ordered by appointment time.
      */
-    public CompletableFuture<List<PatientProfile>> getPatientsForHospital(String hospitalUid) {
-        return CompletableFuture.supplyAsync(() -> {
-            Map<String, PatientProfile> uniquePatients = new HashMap<>();
+    public CompletableFuture<Page<Appointment>> getDoctorAppointmentsPage(String doctorUid,
+                                                                         AppointmentWindow window,
+                                                                         int pageSize,
+                                                                         String cursor) {
+        if (doctorUid == null || doctorUid.isBlank()) {
+            return CompletableFuture.failedFuture(new RuntimeException("Doctor identifier is required."));
+        }
+        if (!isValidPageSize(pageSize)) {
+            return invalidPageSize();
+        }
 
-            try {
-                HospitalProfile hospitalProfile = getHospitalProfile(hospitalUid).get();
-                collectHospitalPatients(uniquePatients, hospitalUid, null);
+        return ApiFutureSupport.withFailureMessage(
+                appointmentRepository.findPageByDoctor(doctorUid, window, pageSize, cursor),
+                "Failed to retrieve doctor appointments: ");
+    }
 
-                if (hospitalProfile != null) {
-                    String hospitalName = hospitalProfile.getHospitalName();
-                    if (hospitalName != null && !hospitalName.isBlank()) {
-                        collectHospitalPatients(uniquePatients, null, hospitalName);
-                    }
-                }
+    /**
+     * Retrieves unique patients who have appointments with a doctor.
+     */
+    public CompletableFuture<List<PatientProfile>> getDoctorPatients(String doctorUid) {
+        CompletableFuture<List<PatientProfile>> pipeline = appointmentRepository.findByDoctor(doctorUid)
+                .thenCompose(appointments -> profileRepository.findPatientsByIds(
+                        collectFieldValues(List.of(appointments), Appointment::getPatientUid)))
+                .thenApply(patients -> {
+                    patients.sort((left, right) -> {
+                        String leftName = left.getName() != null ? left.getName() : "";
+                        String rightName = right.getName() != null ? right.getName() : "";
+                        return leftName.compareToIgnoreCase(rightName);
+                    });
+                    return patients;
+                });
 
-                List<PatientProfile> patients = new ArrayList<>(uniquePatients.values());
-                patients.sort((left, right) -> {
-                    String leftName = left.getName() != null ? left.getName() : "";
-                    String rightName = right.getName() != null ? right.getName() : "";
-                    return leftName.compareToIgnoreCase(rightName);
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to retrieve doctor patients: ");
+    }
+
+    /**
+     * Retrieves unique patients who have appointments with a hospital.
+     * Tries hospitalUid first. Until older appointment docs have been given their hospitalUid
+     * (see {@link #migrateAppointmentHospitalUids()}), it also matches the appointment
+     * hospitalName against the current hospital profile.
+     */
+    public CompletableFuture<List<PatientProfile>> getPatientsForHospital(String hospitalUid) {
+        CompletableFuture<List<PatientProfile>> pipeline = getHospitalAppointmentLists(hospitalUid)
+                .thenCompose(this::collectHospitalPatients)
+                .thenApply(uniquePatients -> {
+                    List<PatientProfile> patients = new ArrayList<>(uniquePatients.values());
+                    patients.sort((left, right) -> {
+                        String leftName = left.getName() != null ? left.getName() : "";
+                        String rightName = right.getName() != null ? right.getName() : "";
+                        return leftName.compareToIgnoreCase(rightName);
+                    });
+                    return patients;
                 });
 
-                return patients;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to retrieve hospital patients: " + e.getMessage(), e);
-            }
-        });
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to retrieve hospital patients: ");
     }
 
     /**
      * Retrieves appointments for a hospital.
-     * Tries hospitalUid first. If older appointment docs don't have hospitalUid,
-     * it falls back to hospitalName.
+     * Tries hospitalUid first. Until older appointment docs have been given their hospitalUid,
+     * it also queries by hospitalName.
      */
     public CompletableFuture<List<Appointment>> getAppointmentsForHospital(String hospitalUid) {
-        return CompletableFuture.supplyAsync(() -> {
-            Map<String, Appointment> appointmentsById = new LinkedHashMap<>();
-
-            try {
-                HospitalProfile hospitalProfile = getHospitalProfile(hospitalUid).get();
-                collectHospitalAppointments(appointmentsById, hospitalUid, null);
-
-                if (hospitalProfile != null) {
-                    String hospitalName = hospitalProfile.getHospitalName();
-                    if (hospitalName != null && !hospitalName.isBlank()) {
-                        collectHospitalAppointments(appointmentsById, null, hospitalName);
+        CompletableFuture<List<Appointment>> pipeline = getHospitalAppointmentLists(hospitalUid)
+                .thenApply(appointmentLists -> {
+                    Map<String, Appointment> appointmentsById = new LinkedHashMap<>();
+                    for (List<Appointment> appointmentList : appointmentLists) {
+                        for (Appointment appointment : appointmentList) {
+                            appointmentsById.put(appointment.getAppointmentId(), appointment);
+                        }
                     }
-                }
 
-                List<Appointment> appointments = new ArrayList<>(appointmentsById.values());
-                appointments.sort((left, right) -> {
-                    Long leftEpoch = left.resolveAppointmentEpochMillis();
-                    Long rightEpoch = right.resolveAppointmentEpochMillis();
+                    List<Appointment> appointments = new ArrayList<>(appointmentsById.values());
+                    appointments.sort((left, right) -> {
+                        Long leftEpoch = left.resolveAppointmentEpochMillis();
+                        Long rightEpoch = right.resolveAppointmentEpochMillis();
 
-                    if (leftEpoch != null && rightEpoch != null) {
-                        return leftEpoch.compareTo(rightEpoch);
-                    }
-                    if (leftEpoch != null) {
-                        return -1;
-                    }
-                    if (rightEpoch != null) {
-                        return 1;
-                    }
+                        if (leftEpoch != null && rightEpoch != null) {
+                            return leftEpoch.compareTo(rightEpoch);
+                        }
+                        if (leftEpoch != null) {
+                            return -1;
+                        }
+                        if (rightEpoch != null) {
+                            return 1;
+                        }
 
-                    Long leftCreated = left.getCreatedAt();
-                    Long rightCreated = right.getCreatedAt();
-                    if (leftCreated != null && rightCreated != null) {
-                        return leftCreated.compareTo(rightCreated);
-                    }
-                    if (leftCreated != null) {
-                        return -1;
-                    }
-                    if (rightCreated != null) {
-                        return 1;
-                    }
-                    return 0;
+                        Long leftCreated = left.getCreatedAt();
+                        Long rightCreated = right.getCreatedAt();
+                        if (leftCreated != null && rightCreated != null) {
+                            return leftCreated.compareTo(rightCreated);
+                        }
+                        if (leftCreated != null) {
+                            return -1;
+                        }
+                        if (rightCreated != null) {
+                            return 1;
+                        }
+                        return 0;
+                    });
+
+                    return appointments;
                 });
 
-                return appointments;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to retrieve hospital appointments: " + e.getMessage(), e);
-            }
-        });
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to retrieve hospital appointments: ");
     }
 
     /**
      * Retrieves unique doctors a patient has appointments with.
      */
     public CompletableFuture<List<Doctor>> getDoctorsForPatient(String patientUid) {
-        return CompletableFuture.supplyAsync(() -> {
-            Map<String, Doctor> uniqueDoctors = new HashMap<>();
-
-            try {
-                QuerySnapshot snapshot = firestore.collection(APPOINTMENTS_COLLECTION)
-                        .whereEqualTo("patientUid", patientUid)
-                        .get()
-                        .get();
-
-                for (DocumentSnapshot appointmentDoc : snapshot.getDocuments()) {
-                    String doctorUid = appointmentDoc.getString("doctorUid");
-
-                    if (doctorUid == null || doctorUid.isBlank() || uniqueDoctors.containsKey(doctorUid)) {
-                        continue;
-                    }
-
-                    DocumentSnapshot doctorDoc = firestore.collection(DOCTORS_COLLECTION)
-                            .document(doctorUid)
-                            .get()
-                            .get();
-
-                    if (!doctorDoc.exists()) {
-                        continue;
-                    }
-
-                    Doctor doctor = mapDoctorDocument(doctorDoc);
-                    if (doctor != null) {
-                        uniqueDoctors.put(doctorUid, doctor);
-                    }
-                }
-
-                List<Doctor> doctors = new ArrayList<>(uniqueDoctors.values());
-
-                doctors.sort((left, right) -> {
-                    String leftName = left.getName() != null ? left.getName() : "";
-                    String rightName = right.getName() != null ? right.getName() : "";
-                    return leftName.compareToIgnoreCase(rightName);
+        CompletableFuture<List<Doctor>> pipeline = appointmentRepository.findByPatient(patientUid)
+                .thenCompose(appointments -> profileRepository.findDoctorsByIds(
+                        collectFieldValues(List.of(appointments), Appointment::getDoctorUid)))
+                .thenApply(doctors -> {
+                    doctors.sort((left, right) -> {
+                        String leftName = left.getName() != null ? left.getName() : "";
+                        String rightName = right.getName() != null ? right.getName() : "";
+                        return leftName.compareToIgnoreCase(rightName);
+                    });
+
+                    return doctors;
                 });
 
-                return doctors;
-
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to retrieve patient doctors: " + e.getMessage(), e);
-            }
-        });
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to retrieve patient doctors: ");
     }
 
     /**
@@ -1346,54 +1185,9 @@ public class FirebaseService {
     public CompletableFuture<String> savePrescription(Prescription prescription) {
         return CompletableFuture.supplyAsync(() -> {
             try {
-                if (prescription == null) {
-                    throw new RuntimeException("Prescription cannot be null.");
-                }
-                boolean hasDoctorIssuer = prescription.getDoctorUid() != null && !prescription.getDoctorUid().isBlank();
-                boolean hasHospitalIssuer = prescription.getHospitalUid() != null && !prescription.getHospitalUid().isBlank();
-                if (!hasDoctorIssuer && !hasHospitalIssuer) {
-                    throw new RuntimeException("A doctor or hospital ID is required.");
-                }
-                if (prescription.getPatientUid() == null || prescription.getPatientUid().isBlank()) {
-                    throw new RuntimeException("Patient ID is required.");
-                }
-                if (prescription.getPharmacyAddress() == null || prescription.getPharmacyAddress().isBlank()) {
-                    throw new RuntimeException("Pharmacy address is required.");
-                }
-                if (prescription.getPharmacyPhoneNumber() == null || prescription.getPharmacyPhoneNumber().isBlank()) {
-                    throw new RuntimeException("Pharmacy phone number is required.");
-                }
-                if (prescription.getMedicationInformation() == null || prescription.getMedicationInformation().isBlank()) {
-                    throw new RuntimeException("Medication information is required.");
-                }
-                if (prescription.getMedicationName() == null || prescription.getMedicationName().isBlank()) {
-                    throw new RuntimeException("Medication name is required.");
-                }
-                if (prescription.getDosage() == null || prescription.getDosage().isBlank()) {
-                    throw new RuntimeException("Dosage is required.");
-                }
-                if (prescription.getQuantity() == null || prescription.getQuantity().isBlank()) {
-                    throw new RuntimeException("Quantity is required.");
-                }
-                if (prescription.getRefillDetails() == null || prescription.getRefillDetails().isBlank()) {
-                    throw new RuntimeException("Refill details are required.");
-                }
-                if (prescription.getRemainingRefills() == null) {
-                    Integer parsedRemainingRefills = PrescriptionRefillSupport.parseRemainingRefills(prescription.getRefillDetails());
-                    if (parsedRemainingRefills == null) {
-                        throw new RuntimeException("Refill details must include a valid refill count.");
-                    }
-                    prescription.setRemainingRefills(parsedRemainingRefills);
-                    prescription.setRefillDetails(PrescriptionRefillSupport.formatRemainingRefills(parsedRemainingRefills));
-                }
-                if (!PrescriptionRefillSupport.hasValidRefillInterval(prescription)) {
-                    throw new RuntimeException("Refill interval must be provided in days.");
-                }
-                if (prescription.getInstructions() == null || prescription.getInstructions().isBlank()) {
-                    throw new RuntimeException("Prescription instructions are required.");
-                }
+                validatePrescription(prescription);
 
-                String prescriptionId = firestore.collection(PRESCRIPTIONS_COLLECTION).document().getId();
+                String prescriptionId = prescriptionRepository.newId();
                 prescription.setPrescriptionId(prescriptionId);
 
                 if (prescription.getStatus() == null || prescription.getStatus().isBlank()) {
@@ -1408,140 +1202,275 @@ public class FirebaseService {
                 if (prescription.getPharmacyAddressNormalized() == null || prescription.getPharmacyAddressNormalized().isBlank()) {
                     prescription.setPharmacyAddressNormalized(AddressNormalizer.normalize(prescription.getPharmacyAddress()));
                 }
+                if (prescription.getPatientDateOfBirth() == null || prescription.getPatientDateOfBirth().isBlank()) {
+                    PatientProfile patientProfile = profileRepository.findPatient(prescription.getPatientUid()).get();
+                    if (patientProfile != null) {
+                        prescription.setPatientDateOfBirth(patientProfile.getDateOfBirth());
+                    }
+                }
 
-                firestore.collection(PRESCRIPTIONS_COLLECTION)
-                        .document(prescriptionId)
-                        .set(prescription)
-                        .get();
+                prescriptionRepository.save(prescription).get();
 
                 return prescriptionId;
             } catch (Exception e) {
                 throw new RuntimeException("Failed to save prescription: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
-    private void collectHospitalPatients(Map<String, PatientProfile> uniquePatients,
-                                         String hospitalUid,
-                                         String hospitalName) throws Exception {
-        QuerySnapshot snapshot = getHospitalAppointmentsSnapshot(hospitalUid, hospitalName);
-
-        for (DocumentSnapshot appointmentDoc : snapshot.getDocuments()) {
-            String patientUid = appointmentDoc.getString("patientUid");
-            if (patientUid == null || patientUid.isBlank() || uniquePatients.containsKey(patientUid)) {
-                continue;
+    /**
+     * The checks {@link #savePrescription(Prescription)} applies before writing. A missing
+     * remaining refill count is parsed from the refill details.
+     */
+    static void validatePrescription(Prescription prescription) {
+        if (prescription == null) {
+            throw new RuntimeException("Prescription cannot be null.");
+        }
+        boolean hasDoctorIssuer = prescription.getDoctorUid() != null && !prescription.getDoctorUid().isBlank();
+        boolean hasHospitalIssuer = prescription.getHospitalUid() != null && !prescription.getHospitalUid().isBlank();
+        if (!hasDoctorIssuer && !hasHospitalIssuer) {
+            throw new RuntimeException("A doctor or hospital ID is required.");
+        }
+        if (prescription.getPatientUid() == null || prescription.getPatientUid().isBlank()) {
+            throw new RuntimeException("Patient ID is required.");
+        }
+        if (prescription.getPharmacyAddress() == null || prescription.getPharmacyAddress().isBlank()) {
+            throw new RuntimeException("Pharmacy address is required.");
+        }
+        if (prescription.getPharmacyPhoneNumber() == null || prescription.getPharmacyPhoneNumber().isBlank()) {
+            throw new RuntimeException("Pharmacy phone number is required.");
+        }
+        if (prescription.getMedicationInformation() == null || prescription.getMedicationInformation().isBlank()) {
+            throw new RuntimeException("Medication information is required.");
+        }
+        if (prescription.getMedicationName() == null || prescription.getMedicationName().isBlank()) {
+            throw new RuntimeException("Medication name is required.");
+        }
+        if (prescription.getDosage() == null || prescription.getDosage().isBlank()) {
+            throw new RuntimeException("Dosage is required.");
+        }
+        if (prescription.getQuantity() == null || prescription.getQuantity().isBlank()) {
+            throw new RuntimeException("Quantity is required.");
+        }
+        if (prescription.getRefillDetails() == null || prescription.getRefillDetails().isBlank()) {
+            throw new RuntimeException("Refill details are required.");
+        }
+        if (prescription.getRemainingRefills() == null) {
+            Integer parsedRemainingRefills = PrescriptionRefillSupport.parseRemainingRefills(prescription.getRefillDetails());
+            if (parsedRemainingRefills == null) {
+                throw new RuntimeException("Refill details must include a valid refill count.");
             }
+            prescription.setRemainingRefills(parsedRemainingRefills);
+            prescription.setRefillDetails(PrescriptionRefillSupport.formatRemainingRefills(parsedRemainingRefills));
+        }
+        if (!PrescriptionRefillSupport.hasValidRefillInterval(prescription)) {
+            throw new RuntimeException("Refill interval must be provided in days.");
+        }
+        if (prescription.getInstructions() == null || prescription.getInstructions().isBlank()) {
+            throw new RuntimeException("Prescription instructions are required.");
+        }
+    }
 
-            DocumentSnapshot patientDoc = firestore.collection(PATIENTS_COLLECTION)
-                    .document(patientUid)
-                    .get()
-                    .get();
+    private CompletableFuture<Map<String, PatientProfile>> collectHospitalPatients(List<List<Appointment>> appointmentLists) {
+        Set<String> patientUids = collectFieldValues(appointmentLists, Appointment::getPatientUid);
 
-            if (!patientDoc.exists()) {
-                continue;
+        return profileRepository.findPatientsByIds(patientUids).thenApply(patients -> {
+            Map<String, PatientProfile> uniquePatients = new LinkedHashMap<>();
+            for (PatientProfile profile : patients) {
+                uniquePatients.put(profile.getUid(), profile);
             }
+            return uniquePatients;
+        });
+    }
 
-            PatientProfile profile = patientDoc.toObject(PatientProfile.class);
-            if (profile != null) {
-                if (profile.getUid() == null || profile.getUid().isBlank()) {
-                    profile.setUid(patientDoc.getId());
+    /**
+     * Collects the distinct non-blank values of a field across appointment lists.
+     */
+    private Set<String> collectFieldValues(List<List<Appointment>> appointmentLists, Function<Appointment, String> field) {
+        Set<String> values = new LinkedHashSet<>();
+        for (List<Appointment> appointmentList : appointmentLists) {
+            for (Appointment appointment : appointmentList) {
+                String value = field.apply(appointment);
+                if (value != null && !value.isBlank()) {
+                    values.add(value);
                 }
-                uniquePatients.put(patientUid, profile);
             }
         }
+        return values;
     }
 
-    private void collectHospitalAppointments(Map<String, Appointment> appointmentsById,
-                                             String hospitalUid,
-                                             String hospitalName) throws Exception {
-        QuerySnapshot snapshot = getHospitalAppointmentsSnapshot(hospitalUid, hospitalName);
+    /**
+     * Loads one page of a hospital's appointments in the window, ordered by appointment time.
+     * Like {@link #getAppointmentsForHospital(String)}, older appointments that only carry the
+     * hospital name are included until they have been migrated.
+     */
+    public CompletableFuture<Page<Appointment>> getAppointmentsForHospitalPage(String hospitalUid,
+                                                                              AppointmentWindow window,
+                                                                              int pageSize,
+                                                                              String cursor) {
+        if (hospitalUid == null || hospitalUid.isBlank()) {
+            return CompletableFuture.failedFuture(new RuntimeException("Hospital identifier is required."));
+        }
+        if (!isValidPageSize(pageSize)) {
+            return invalidPageSize();
+        }
 
-        for (DocumentSnapshot doc : snapshot.getDocuments()) {
-            Appointment appointment = doc.toObject(Appointment.class);
-            if (appointment == null) {
-                continue;
-            }
+        CompletableFuture<Page<Appointment>> pipeline = getLegacyHospitalName(hospitalUid)
+                .thenCompose(hospitalName -> appointmentRepository.findPageByHospital(
+                        hospitalUid,
+                        hospitalName,
+                        window,
+                        pageSize,
+                        cursor));
 
-            appointment.setAppointmentId(doc.getId());
-            appointmentsById.put(doc.getId(), appointment);
-        }
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to retrieve hospital appointments: ");
+    }
+
+    private static boolean isValidPageSize(int pageSize) {
+        return pageSize > 0 && pageSize <= MAX_PAGE_SIZE;
+    }
+
+    private static <T> CompletableFuture<T> invalidPageSize() {
+        return CompletableFuture.failedFuture(
+                new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE + "."));
     }
 
-    private QuerySnapshot getHospitalAppointmentsSnapshot(String hospitalUid, String hospitalName) throws Exception {
-        if (hospitalUid != null && !hospitalUid.isBlank()) {
-            return firestore.collection(APPOINTMENTS_COLLECTION)
-                    .whereEqualTo("hospitalUid", hospitalUid)
-                    .get()
-                    .get();
+    /**
+     * Runs the hospitalUid query and, until the hospitalUid migration is complete, the
+     * hospitalName query for older appointment docs without hospitalUid, concurrently.
+     */
+    private CompletableFuture<List<List<Appointment>>> getHospitalAppointmentLists(String hospitalUid) {
+        if (hospitalUid == null || hospitalUid.isBlank()) {
+            return CompletableFuture.failedFuture(new RuntimeException("Hospital identifier is required."));
         }
 
-        if (hospitalName != null && !hospitalName.isBlank()) {
-            return firestore.collection(APPOINTMENTS_COLLECTION)
-                    .whereEqualTo("hospitalName", hospitalName)
-                    .get()
-                    .get();
+        return getLegacyHospitalName(hospitalUid).thenCompose(hospitalName -> {
+            List<CompletableFuture<List<Appointment>>> queries = new ArrayList<>();
+            queries.add(appointmentRepository.findByHospitalUid(hospitalUid));
+            if (hospitalName != null && !hospitalName.isBlank()) {
+                queries.add(appointmentRepository.findByHospitalName(hospitalName));
+            }
+            return ApiFutureSupport.allOf(queries);
+        });
+    }
+
+    /**
+     * The hospital name older appointments may be stored under, or null once every appointment
+     * carries its hospitalUid and the name no longer needs to be queried.
+     */
+    private CompletableFuture<String> getLegacyHospitalName(String hospitalUid) {
+        return isHospitalUidMigrated().thenCompose(migrated -> migrated
+                ? CompletableFuture.completedFuture(null)
+                : getHospitalProfile(hospitalUid).thenApply(hospitalProfile ->
+                        hospitalProfile != null ? hospitalProfile.getHospitalName() : null));
+    }
+
+    /**
+     * Whether the appointment hospitalUid migration is complete. Checked once per service until
+     * it is; if the check fails, the name query is kept.
+     */
+    private CompletableFuture<Boolean> isHospitalUidMigrated() {
+        if (hospitalUidsMigrated) {
+            return CompletableFuture.completedFuture(true);
         }
+        return appointmentRepository.isHospitalUidMigrated()
+                .thenApply(migrated -> {
+                    hospitalUidsMigrated = migrated;
+                    return migrated;
+                })
+                .exceptionally(error -> false);
+    }
 
-        throw new RuntimeException("Hospital identifier is required.");
+    /**
+     * Hospital UID by trimmed hospital name. A name shared by several hospitals maps to null,
+     * since appointments carrying it cannot be attributed.
+     */
+    private static Map<String, String> hospitalUidsByName(List<HospitalProfile> hospitals) {
+        Map<String, String> uidsByName = new HashMap<>();
+        for (HospitalProfile hospital : hospitals) {
+            if (hospital.getHospitalName() == null || hospital.getHospitalName().isBlank() || hospital.getUid() == null) {
+                continue;
+            }
+            String name = hospital.getHospitalName().trim();
+            uidsByName.put(name, uidsByName.containsKey(name) ? null : hospital.getUid());
+        }
+        return uidsByName;
     }
 
     /**
-     * Saves a doctor-patient message.
+     * Saves a message together with its conversation summary.
      */
     public CompletableFuture<String> saveMessage(Message message) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                if (message == null) {
-                    throw new RuntimeException("Message cannot be null.");
-                }
+        CompletableFuture<String> pipeline = CompletableFuture.supplyAsync(() -> {
+            if (message == null) {
+                throw new RuntimeException("Message cannot be null.");
+            }
 
-                int participantCount = 0;
+            int participantCount = 0;
 
-                if (message.getDoctorUid() != null && !message.getDoctorUid().isBlank()) {
-                    participantCount++;
-                }
+            if (message.getDoctorUid() != null && !message.getDoctorUid().isBlank()) {
+                participantCount++;
+            }
 
-                if (message.getPharmacyUid() != null && !message.getPharmacyUid().isBlank()) {
-                    participantCount++;
-                }
+            if (message.getPharmacyUid() != null && !message.getPharmacyUid().isBlank()) {
+                participantCount++;
+            }
 
-                if (message.getPatientUid() != null && !message.getPatientUid().isBlank()) {
-                    participantCount++;
-                }
+            if (message.getPatientUid() != null && !message.getPatientUid().isBlank()) {
+                participantCount++;
+            }
 
-                if (participantCount < 2) {
-                    throw new RuntimeException("At least two conversation participants are required.");
-                }
+            if (participantCount < 2) {
+                throw new RuntimeException("At least two conversation participants are required.");
+            }
 
-                if (message.getMessageText() == null || message.getMessageText().isBlank()) {
-                    throw new RuntimeException("Message text is required.");
-                }
+            if (message.getMessageText() == null || message.getMessageText().isBlank()) {
+                throw new RuntimeException("Message text is required.");
+            }
 
-                String cleanText = MessageCensor.censor(message.getMessageText());
-                message.setMessageText(cleanText);
+            String cleanText = MessageCensor.censor(message.getMessageText());
+            message.setMessageText(cleanText);
 
-                String messageId = firestore.collection(MESSAGES_COLLECTION).document().getId();
-                message.setMessageId(messageId);
+            String messageId = messageRepository.newId();
+            message.setMessageId(messageId);
 
-                if (message.getCreatedAt() == null) {
-                    message.setCreatedAt(System.currentTimeMillis());
-                }
+            if (message.getCreatedAt() == null) {
+                message.setCreatedAt(System.currentTimeMillis());
+            }
 
-                if (message.getRead() == null) {
-                    message.setRead(false);
-                }
+            if (message.getRead() == null) {
+                message.setRead(false);
+            }
 
-                firestore.collection(MESSAGES_COLLECTION)
-                        .document(messageId)
-                        .set(message)
-                        .get();
+            message.setRecipientUid(message.resolveRecipientUid());
 
-                return messageId;
+            return messageId;
+        }, executor).thenCompose(messageId -> conversationRepository.saveWithMessage(message)
+                .thenApply(ignored -> messageId));
 
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to save message: " + e.getMessage(), e);
-            }
-        });
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to save message: ");
+    }
+
+    /**
+     * The user's conversations with their last message and unread counts, most recent first.
+     */
+    public CompletableFuture<List<Conversation>> getConversations(String uid, String role) {
+        String field = messageParticipantField(role);
+        if (field == null || uid == null || uid.isBlank()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        return ApiFutureSupport.withFailureMessage(conversationRepository.findForParticipant(field, uid),
+                "Failed to load conversations: ");
+    }
+
+    /**
+     * Rebuilds the conversation summaries from the stored messages. Returns the number of
+     * conversations written.
+     */
+    public CompletableFuture<Integer> rebuildConversations() {
+        return ApiFutureSupport.withFailureMessage(conversationRepository.rebuildFromMessages(),
+                "Failed to rebuild conversations: ");
     }
 
     /**
@@ -1568,19 +1497,7 @@ public class FirebaseService {
                     return messages;
                 }
 
-                QuerySnapshot snapshot = firestore.collection(MESSAGES_COLLECTION)
-                        .whereEqualTo(firstField, firstUid)
-                        .whereEqualTo(secondField, secondUid)
-                        .get()
-                        .get();
-
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    Message message = doc.toObject(Message.class);
-                    if (message != null) {
-                        message.setMessageId(doc.getId());
-                        messages.add(message);
-                    }
-                }
+                messages.addAll(messageRepository.findByParticipants(firstField, firstUid, secondField, secondUid).get());
 
                 messages.sort((a, b) -> Long.compare(
                         a.getCreatedAt() != null ? a.getCreatedAt() : 0L,
@@ -1591,105 +1508,151 @@ public class FirebaseService {
             } catch (Exception e) {
                 throw new RuntimeException("Failed to retrieve messages: " + e.getMessage(), e);
             }
-        });
+        }, executor);
+    }
+
+    /**
+     * Loads the most recent messages of a conversation, pageSize at a time. The messages of a
+     * page are oldest first so they can be shown as they are; pass {@link Page#getNextCursor()}
+     * to load the messages before them.
+     */
+    public CompletableFuture<Page<Message>> getRecentMessagesBetweenParticipants(String firstRole,
+                                                                              String firstUid,
+                                                                              String secondRole,
+                                                                              String secondUid,
+                                                                              int pageSize,
+                                                                              String cursor) {
+        String firstField = messageParticipantField(firstRole);
+        String secondField = messageParticipantField(secondRole);
+        if (firstField == null || secondField == null) {
+            return CompletableFuture.failedFuture(new RuntimeException("Unsupported conversation role."));
+        }
+        if (!isValidPageSize(pageSize)) {
+            return invalidPageSize();
+        }
+        if (firstUid == null || firstUid.isBlank() || secondUid == null || secondUid.isBlank()) {
+            return CompletableFuture.completedFuture(new Page<>(List.of(), null));
+        }
+
+        return ApiFutureSupport.withFailureMessage(
+                messageRepository.findPageByParticipants(firstField, firstUid, secondField, secondUid,
+                                pageSize, cursor)
+                        .thenApply(page -> {
+                            List<Message> chronological = new ArrayList<>(page.getItems());
+                            Collections.reverse(chronological);
+                            return new Page<>(chronological, page.getNextCursor());
+                        }),
+                "Failed to retrieve messages: ");
     }
 
     public CompletableFuture<String> savePharmacyPatientMessage(Prescription prescription,
                                                                 PharmacyProfile pharmacyProfile,
                                                                 String messageText) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                if (prescription == null) {
-                    throw new RuntimeException("Prescription is required.");
-                }
-                if (pharmacyProfile == null || pharmacyProfile.getUid() == null || pharmacyProfile.getUid().isBlank()) {
-                    throw new RuntimeException("Pharmacy account is required.");
-                }
-                if (prescription.getPatientUid() == null || prescription.getPatientUid().isBlank()) {
-                    throw new RuntimeException("Patient is required.");
-                }
-                if (messageText == null || messageText.isBlank()) {
-                    throw new RuntimeException("Message text is required.");
-                }
-
-                Message message = new Message();
-                message.setPharmacyUid(pharmacyProfile.getUid());
-                message.setPharmacyName(pharmacyProfile.getPharmacyName());
-                message.setPatientUid(prescription.getPatientUid());
-                message.setPatientName(prescription.getPatientName());
-                message.setSenderUid(pharmacyProfile.getUid());
-                message.setSenderName(valueOrDefault(pharmacyProfile.getPharmacyName(), "Your pharmacy"));
-                message.setSenderRole("PHARMACY");
-                message.setMessageText(messageText.trim());
-                message.setCreatedAt(System.currentTimeMillis());
-                message.setRead(false);
+        try {
+            if (prescription == null) {
+                throw new RuntimeException("Prescription is required.");
+            }
+            if (pharmacyProfile == null || pharmacyProfile.getUid() == null || pharmacyProfile.getUid().isBlank()) {
+                throw new RuntimeException("Pharmacy account is required.");
+            }
+            if (prescription.getPatientUid() == null || prescription.getPatientUid().isBlank()) {
+                throw new RuntimeException("Patient is required.");
+            }
+            if (messageText == null || messageText.isBlank()) {
+                throw new RuntimeException("Message text is required.");
+            }
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Failed to send pharmacy message: " + e.getMessage(), e));
+        }
 
-                String messageId = saveMessage(message).get();
-                notifyPatient(
+        Message message = new Message();
+        message.setPharmacyUid(pharmacyProfile.getUid());
+        message.setPharmacyName(pharmacyProfile.getPharmacyName());
+        message.setPatientUid(prescription.getPatientUid());
+        message.setPatientName(prescription.getPatientName());
+        message.setSenderUid(pharmacyProfile.getUid());
+        message.setSenderName(valueOrDefault(pharmacyProfile.getPharmacyName(), "Your pharmacy"));
+        message.setSenderRole("PHARMACY");
+        message.setMessageText(messageText.trim());
+        message.setCreatedAt(System.currentTimeMillis());
+        message.setRead(false);
+
+        CompletableFuture<String> pipeline = saveMessage(message)
+                .thenCompose(messageId -> notifyPatientAsync(
                         prescription.getPatientUid(),
                         "Message from " + valueOrDefault(pharmacyProfile.getPharmacyName(), "your pharmacy"),
                         messageText.trim(),
                         "PHARMACY_MESSAGE",
                         prescription.getPrescriptionId()
-                );
-                return messageId;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to send pharmacy message: " + e.getMessage(), e);
-            }
-        });
+                ).thenApply(ignored -> messageId));
+
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to send pharmacy message: ");
     }
 
     /**
-     * Checks whether the current user has any unread messages.
+     * Checks whether the current user has any unread messages, with a single-document probe
+     * on the recipientUid and read fields stamped by {@link #saveMessage(Message)}. The role is
+     * no longer needed since every message names its recipient.
      */
     public CompletableFuture<Boolean> hasUnreadMessages(String currentUid, String role) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                QuerySnapshot snapshot = firestore.collection(MESSAGES_COLLECTION)
-                        .get()
-                        .get();
-
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    Message msg = doc.toObject(Message.class);
-                    if (msg == null) {
-                        continue;
-                    }
+        if (currentUid == null || currentUid.isBlank()) {
+            return CompletableFuture.completedFuture(false);
+        }
 
-                    boolean unread = msg.getRead() == null || !msg.getRead();
-                    if (!unread) {
-                        continue;
+        return ApiFutureSupport.withFailureMessage(
+                messageRepository.hasUnreadForRecipient(currentUid),
+                "Failed to check unread messages: ");
+    }
+
+    /**
+     * Stamps recipientUid on messages saved before it existed, and read=false where the flag
+     * is missing, so {@link #hasUnreadMessages(String, String)} finds them. Safe to run again.
+     * Messages are read and updated a page at a time in document ID order.
+     * Returns the number of messages updated.
+     */
+    public CompletableFuture<Integer> backfillMessageRecipients() {
+        CompletableFuture<Integer> pipeline = CompletableFuture.supplyAsync(() -> {
+            int updated = 0;
+            String lastId = null;
+            while (true) {
+                List<Message> messages = messageRepository
+                        .findPageAfter(lastId, MessageRepository.MAX_SCAN_PAGE_SIZE).join();
+                List<WriteOperation> updates = new ArrayList<>();
+
+                for (Message message : messages) {
+                    String recipientUid = message.resolveRecipientUid();
+                    Map<String, Object> fields = new HashMap<>();
+
+                    if (message.getRecipientUid() == null && recipientUid != null) {
+                        fields.put("recipientUid", recipientUid);
+                    }
+                    if (message.getRead() == null) {
+                        fields.put("read", false);
                     }
 
-                    if ("PATIENT".equalsIgnoreCase(role)) {
-                        if (currentUid.equals(msg.getPatientUid())
-                                && msg.getSenderRole() != null
-                                && !"PATIENT".equalsIgnoreCase(msg.getSenderRole())) {
-                            return true;
-                        }
-                    } else if ("DOCTOR".equalsIgnoreCase(role)) {
-                        if (currentUid.equals(msg.getDoctorUid())
-                                && msg.getSenderRole() != null
-                                && !"DOCTOR".equalsIgnoreCase(msg.getSenderRole())) {
-                            return true;
-                        }
-                    } else if ("PHARMACY".equalsIgnoreCase(role)) {
-                        if (currentUid.equals(msg.getPharmacyUid())
-                                && msg.getSenderRole() != null
-                                && !"PHARMACY".equalsIgnoreCase(msg.getSenderRole())) {
-                            return true;
-                        }
+                    if (!fields.isEmpty()) {
+                        updates.add(messageRepository.updateOperation(message.getMessageId(), fields));
                     }
                 }
 
-                return false;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to check unread messages: " + e.getMessage(), e);
+                BulkWriteResult result = messageRepository.bulkWrite(updates).join();
+                result.throwIfFailed("Some messages were not backfilled");
+                updated += result.getSucceededCount();
+                if (messages.size() < MessageRepository.MAX_SCAN_PAGE_SIZE) {
+                    return updated;
+                }
+                lastId = messages.get(messages.size() - 1).getMessageId();
             }
-        });
+        }, FirestoreExecutor.getInstance());
+
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to backfill message recipients: ");
     }
 
     /**
-     * Marks incoming messages as read for the current viewer.
+     * Marks incoming messages as read for the current viewer. Only the unread messages
+     * addressed to the viewer are read, through the recipientUid and read fields stamped by
+     * {@link #saveMessage(Message)} and {@link #backfillMessageRecipients()}.
      */
     public CompletableFuture<Void> markMessagesAsRead(String doctorUid, String patientUid, String viewerRole) {
         return markMessagesAsReadBetweenParticipants("DOCTOR", doctorUid, "PATIENT", patientUid, viewerRole);
@@ -1700,50 +1663,34 @@ public class FirebaseService {
                                                                          String secondRole,
                                                                          String secondUid,
                                                                          String viewerRole) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                String firstField = messageParticipantField(firstRole);
-                String secondField = messageParticipantField(secondRole);
-                if (firstField == null || secondField == null) {
-                    throw new RuntimeException("Unsupported conversation role.");
-                }
-
-                QuerySnapshot snapshot = firestore.collection(MESSAGES_COLLECTION)
-                        .whereEqualTo(firstField, firstUid)
-                        .whereEqualTo(secondField, secondUid)
-                        .get()
-                        .get();
-
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    Message message = doc.toObject(Message.class);
-                    if (message == null) {
-                        continue;
-                    }
-
-                    boolean unread = message.getRead() == null || !message.getRead();
-                    if (!unread) {
-                        continue;
-                    }
-
-                    String senderRole = message.getSenderRole();
-                    if (senderRole == null) {
-                        continue;
-                    }
+        String firstField = messageParticipantField(firstRole);
+        String secondField = messageParticipantField(secondRole);
+        if (firstField == null || secondField == null) {
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Failed to mark messages as read: Unsupported conversation role."));
+        }
 
-                    boolean shouldMarkRead = false;
+        Map<String, String> participants = new HashMap<>();
+        participants.put(firstField, firstUid);
+        participants.put(secondField, secondUid);
+        String viewerUid = viewerRole.equalsIgnoreCase(firstRole) ? firstUid
+                : viewerRole.equalsIgnoreCase(secondRole) ? secondUid : null;
+        if (viewerUid == null) {
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Failed to mark messages as read: Viewer is not in the conversation."));
+        }
 
-                    if (!viewerRole.equalsIgnoreCase(senderRole)) {
-                        shouldMarkRead = true;
+        CompletableFuture<Void> pipeline = messageRepository
+                .findUnreadByParticipants(firstField, firstUid, secondField, secondUid, viewerUid)
+                .thenCompose(messages -> {
+                    List<String> unreadIds = new ArrayList<>();
+                    for (Message message : messages) {
+                        unreadIds.add(message.getMessageId());
                     }
+                    return conversationRepository.markRead(participants, viewerUid, unreadIds);
+                });
 
-                    if (shouldMarkRead) {
-                        doc.getReference().update("read", true).get();
-                    }
-                }
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to mark messages as read: " + e.getMessage(), e);
-            }
-        });
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to mark messages as read: ");
     }
 
     private String messageParticipantField(String role) {
@@ -1763,18 +1710,7 @@ public class FirebaseService {
         return CompletableFuture.supplyAsync(() -> {
             List<Prescription> prescriptions = new ArrayList<>();
             try {
-                QuerySnapshot snapshot = firestore.collection(PRESCRIPTIONS_COLLECTION)
-                        .whereEqualTo("patientUid", patientUid)
-                        .get()
-                        .get();
-
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    Prescription prescription = doc.toObject(Prescription.class);
-                    if (prescription != null) {
-                        prescription.setPrescriptionId(doc.getId());
-                        prescriptions.add(prescription);
-                    }
-                }
+                prescriptions.addAll(prescriptionRepository.findByPatient(patientUid).get());
 
                 prescriptions.sort((left, right) -> Long.compare(
                         right.getCreatedAt() != null ? right.getCreatedAt() : 0L,
@@ -1784,73 +1720,82 @@ public class FirebaseService {
             } catch (Exception e) {
                 throw new RuntimeException("Failed to retrieve patient prescriptions: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
-    public CompletableFuture<List<Prescription>> getPatientPrescriptionsForDoctor(String patientUid, String doctorUid) {
-        return getPatientPrescriptions(patientUid)
-                .thenApply(prescriptions -> {
-                    List<Prescription> filtered = new ArrayList<>();
-                    if (prescriptions == null) {
-                        return filtered;
-                    }
+    /**
+     * One page of the patient's prescriptions written by the doctor, newest first. Pass null as
+     * the cursor for the first page and {@link Page#getNextCursor()} after that. Without a
+     * doctor, all of the patient's prescriptions on a single page.
+     */
+    public CompletableFuture<Page<Prescription>> getPatientPrescriptionsForDoctor(String patientUid, String doctorUid,
+                                                                                 int pageSize, String cursor) {
+        if (doctorUid == null || doctorUid.isBlank()) {
+            return getPatientPrescriptions(patientUid).thenApply(prescriptions -> new Page<>(prescriptions, null));
+        }
+        if (patientUid == null || patientUid.isBlank()) {
+            return CompletableFuture.failedFuture(new RuntimeException("Patient and filter value are required."));
+        }
+        if (!isValidPageSize(pageSize)) {
+            return invalidPageSize();
+        }
 
-                    for (Prescription prescription : prescriptions) {
-                        if (prescription == null) {
-                            continue;
-                        }
-                        if (doctorUid == null || doctorUid.isBlank()
-                                || doctorUid.equals(prescription.getDoctorUid())) {
-                            filtered.add(prescription);
-                        }
-                    }
-                    return filtered;
-                });
+        return ApiFutureSupport.withFailureMessage(
+                prescriptionRepository.findPageByPatientAnd(patientUid, "doctorUid", doctorUid, pageSize, cursor),
+                "Failed to retrieve patient prescriptions: ");
     }
 
-    public CompletableFuture<List<Prescription>> getAllPrescriptions() {
-        return CompletableFuture.supplyAsync(() -> {
-            List<Prescription> prescriptions = new ArrayList<>();
-            try {
-                QuerySnapshot snapshot = firestore.collection(PRESCRIPTIONS_COLLECTION)
-                        .get()
-                        .get();
-
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    Prescription prescription = doc.toObject(Prescription.class);
-                    if (prescription != null) {
-                        prescription.setPrescriptionId(doc.getId());
-                        prescriptions.add(prescription);
-                    }
-                }
+    /**
+     * The patient's prescriptions issued through the hospital, newest first, at most limit.
+     */
+    public CompletableFuture<List<Prescription>> getPatientPrescriptionsForHospital(String patientUid,
+                                                                                   String hospitalUid,
+                                                                                   int limit) {
+        return getRecentPatientPrescriptions(patientUid, "hospitalUid", hospitalUid, limit);
+    }
+
+    /**
+     * The patient's prescriptions in the status, newest first, at most limit.
+     */
+    public CompletableFuture<List<Prescription>> getPatientPrescriptionsByStatus(String patientUid,
+                                                                                String status,
+                                                                                int limit) {
+        return getRecentPatientPrescriptions(patientUid, "status", status, limit);
+    }
+
+    /**
+     * One page of every prescription, newest first. Pass null as the cursor for the first page
+     * and {@link Page#getNextCursor()} after that.
+     */
+    public CompletableFuture<Page<Prescription>> getPrescriptionsPage(int pageSize, String cursor) {
+        if (!isValidPageSize(pageSize)) {
+            return invalidPageSize();
+        }
+
+        return ApiFutureSupport.withFailureMessage(
+                prescriptionRepository.findPage(pageSize, cursor),
+                "Failed to retrieve prescriptions: ");
+    }
+
+    private CompletableFuture<List<Prescription>> getRecentPatientPrescriptions(String patientUid, String field,
+                                                                                String value, int limit) {
+        if (patientUid == null || patientUid.isBlank() || value == null || value.isBlank()) {
+            return CompletableFuture.failedFuture(new RuntimeException("Patient and filter value are required."));
+        }
+        if (!isValidPageSize(limit)) {
+            return invalidPageSize();
+        }
 
-                prescriptions.sort((left, right) -> Long.compare(
-                        right.getCreatedAt() != null ? right.getCreatedAt() : 0L,
-                        left.getCreatedAt() != null ? left.getCreatedAt() : 0L
-                ));
-                return prescriptions;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to retrieve prescriptions: " + e.getMessage(), e);
-            }
-        });
+        return ApiFutureSupport.withFailureMessage(
+                prescriptionRepository.findRecentByPatientAnd(patientUid, field, value, limit),
+                "Failed to retrieve patient prescriptions: ");
     }
 
     public CompletableFuture<List<Prescription>> getPrescriptionsForPharmacy(String pharmacyAddressNormalized) {
         return CompletableFuture.supplyAsync(() -> {
             List<Prescription> prescriptions = new ArrayList<>();
             try {
-                QuerySnapshot snapshot = firestore.collection(PRESCRIPTIONS_COLLECTION)
-                        .whereEqualTo("pharmacyAddressNormalized", pharmacyAddressNormalized)
-                        .get()
-                        .get();
-
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    Prescription prescription = doc.toObject(Prescription.class);
-                    if (prescription != null) {
-                        prescription.setPrescriptionId(doc.getId());
-                        prescriptions.add(prescription);
-                    }
-                }
+                prescriptions.addAll(prescriptionRepository.findByPharmacyAddress(pharmacyAddressNormalized).get());
 
                 prescriptions.sort((left, right) -> Long.compare(
                         right.getCreatedAt() != null ? right.getCreatedAt() : 0L,
@@ -1860,7 +1805,7 @@ public class FirebaseService {
             } catch (Exception e) {
                 throw new RuntimeException("Failed to retrieve pharmacy prescriptions: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<Void> updatePrescription(Prescription prescription) {
@@ -1870,70 +1815,16 @@ public class FirebaseService {
                     throw new RuntimeException("Prescription ID is required for update.");
                 }
 
-                firestore.collection(PRESCRIPTIONS_COLLECTION)
-                        .document(prescription.getPrescriptionId())
-                        .set(prescription)
-                        .get();
+                prescriptionRepository.save(prescription).get();
             } catch (Exception e) {
                 throw new RuntimeException("Failed to update prescription: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<Void> markPrescriptionFilled(String prescriptionId, PharmacyProfile pharmacyProfile) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                if (prescriptionId == null || prescriptionId.isBlank()) {
-                    throw new RuntimeException("Prescription ID is required.");
-                }
-                if (pharmacyProfile == null || pharmacyProfile.getAddressNormalized() == null || pharmacyProfile.getAddressNormalized().isBlank()) {
-                    throw new RuntimeException("Pharmacy account is required.");
-                }
-
-                DocumentSnapshot document = firestore.collection(PRESCRIPTIONS_COLLECTION)
-                        .document(prescriptionId)
-                        .get()
-                        .get();
-
-                if (!document.exists()) {
-                    throw new RuntimeException("Prescription not found.");
-                }
-
-                Prescription prescription = document.toObject(Prescription.class);
-                if (prescription == null) {
-                    throw new RuntimeException("Prescription could not be loaded.");
-                }
-
-                String prescriptionAddress = prescription.getPharmacyAddressNormalized();
-                if (prescriptionAddress == null || prescriptionAddress.isBlank()) {
-                    prescriptionAddress = AddressNormalizer.normalize(prescription.getPharmacyAddress());
-                    prescription.setPharmacyAddressNormalized(prescriptionAddress);
-                }
-
-                if (!pharmacyProfile.getAddressNormalized().equals(prescriptionAddress)) {
-                    throw new RuntimeException("This prescription is not assigned to your pharmacy.");
-                }
-                if (Prescription.STATUS_PICKED_UP.equalsIgnoreCase(prescription.getStatus())) {
-                    throw new RuntimeException("This prescription has already been picked up and cannot be marked filled again.");
-                }
-
-                prescription.setStatus(Prescription.STATUS_FILLED);
-                long filledAt = System.currentTimeMillis();
-                prescription.setFilledAt(filledAt);
-                prescription.setFilledBy(pharmacyProfile.getPharmacyName());
-                prescription.setNextRefillEligibleAt(
-                        PrescriptionRefillSupport.calculateNextRefillEligibleAt(
-                                filledAt,
-                                PrescriptionRefillSupport.getRefillIntervalDays(prescription)
-                        )
-                );
-
-                firestore.collection(PRESCRIPTIONS_COLLECTION)
-                        .document(prescriptionId)
-                        .set(prescription)
-                        .get();
-
-                notifyPatient(
+        CompletableFuture<Void> pipeline = prescriptionWorkflow.fill(prescriptionId, pharmacyProfile)
+                .thenAccept(prescription -> notifyPatient(
                         prescription.getPatientUid(),
                         "Prescription Ready for Pickup",
                         valueOrDefault(prescription.getMedicationName(), "Your prescription")
@@ -1941,84 +1832,45 @@ public class FirebaseService {
                                 + valueOrDefault(pharmacyProfile.getPharmacyName(), "your pharmacy") + ".",
                         "PRESCRIPTION_READY",
                         prescriptionId
-                );
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to fill prescription: " + e.getMessage(), e);
-            }
-        });
+                ));
+
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to fill prescription: ");
     }
 
+    /**
+     * Records the pickup in one transaction that checks the pharmacy and status first and the
+     * patient's name and date of birth last. Prescriptions written before the date of birth was
+     * stored on them are checked against the patient profile, read only once the other checks
+     * have passed.
+     */
     public CompletableFuture<Void> confirmPrescriptionPickup(String prescriptionId,
                                                              PharmacyProfile pharmacyProfile,
                                                              String patientName,
                                                              String patientDateOfBirth) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                if (prescriptionId == null || prescriptionId.isBlank()) {
-                    throw new RuntimeException("Prescription ID is required.");
-                }
-                if (pharmacyProfile == null || pharmacyProfile.getAddressNormalized() == null || pharmacyProfile.getAddressNormalized().isBlank()) {
-                    throw new RuntimeException("Pharmacy account is required.");
-                }
-                if (patientName == null || patientName.isBlank()) {
-                    throw new RuntimeException("Patient name is required.");
-                }
-                if (patientDateOfBirth == null || patientDateOfBirth.isBlank()) {
-                    throw new RuntimeException("Patient date of birth is required.");
-                }
-
-                DocumentSnapshot document = firestore.collection(PRESCRIPTIONS_COLLECTION)
-                        .document(prescriptionId)
-                        .get()
-                        .get();
-
-                if (!document.exists()) {
-                    throw new RuntimeException("Prescription not found.");
-                }
-
-                Prescription prescription = document.toObject(Prescription.class);
-                if (prescription == null) {
-                    throw new RuntimeException("Prescription could not be loaded.");
-                }
-                prescription.setPrescriptionId(document.getId());
-
-                String prescriptionAddress = prescription.getPharmacyAddressNormalized();
-                if (prescriptionAddress == null || prescriptionAddress.isBlank()) {
-                    prescriptionAddress = AddressNormalizer.normalize(prescription.getPharmacyAddress());
-                    prescription.setPharmacyAddressNormalized(prescriptionAddress);
-                }
-
-                if (!pharmacyProfile.getAddressNormalized().equals(prescriptionAddress)) {
-                    throw new RuntimeException("This prescription is not assigned to your pharmacy.");
-                }
-                if (!Prescription.STATUS_FILLED.equalsIgnoreCase(prescription.getStatus())) {
-                    throw new RuntimeException("Only filled prescriptions can be confirmed for pickup.");
-                }
-
-                PatientProfile patientProfile = getPatientProfile(prescription.getPatientUid()).get();
-                String storedName = patientProfile != null ? patientProfile.getName() : prescription.getPatientName();
-                String storedDob = patientProfile != null ? patientProfile.getDateOfBirth() : null;
-
-                if (!normalizePersonName(storedName).equals(normalizePersonName(patientName))) {
-                    throw new RuntimeException("Patient name does not match the prescription profile.");
-                }
-                if (storedDob == null || storedDob.isBlank() || !storedDob.trim().equals(patientDateOfBirth.trim())) {
-                    throw new RuntimeException("Patient date of birth does not match the prescription profile.");
-                }
-
-                long pickedUpAt = System.currentTimeMillis();
-                prescription.setStatus(Prescription.STATUS_PICKED_UP);
-                prescription.setPickedUpAt(pickedUpAt);
-                prescription.setPickedUpByPatientName(patientName.trim());
-                prescription.setPickedUpPatientDateOfBirth(patientDateOfBirth.trim());
-                prescription.setPickupConfirmedBy(pharmacyProfile.getPharmacyName());
-
-                firestore.collection(PRESCRIPTIONS_COLLECTION)
-                        .document(prescriptionId)
-                        .set(prescription)
-                        .get();
+        if (patientName == null || patientName.isBlank()) {
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Failed to confirm pickup: Patient name is required."));
+        }
+        if (patientDateOfBirth == null || patientDateOfBirth.isBlank()) {
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Failed to confirm pickup: Patient date of birth is required."));
+        }
+        if (prescriptionId == null || prescriptionId.isBlank()) {
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Failed to confirm pickup: Prescription ID is required."));
+        }
 
-                notifyPatient(
+        CompletableFuture<Void> pipeline = prescriptionWorkflow
+                .confirmPickup(prescriptionId, pharmacyProfile, patientName, patientDateOfBirth, null)
+                .exceptionallyCompose(error -> {
+                    if (!(ApiFutureSupport.unwrap(error) instanceof PrescriptionWorkflow.PatientProfileRequiredException required)) {
+                        return CompletableFuture.failedFuture(error);
+                    }
+                    return profileRepository.findPatient(required.getPatientUid()).thenCompose(patientProfile ->
+                            prescriptionWorkflow.confirmPickup(
+                                    prescriptionId, pharmacyProfile, patientName, patientDateOfBirth, patientProfile));
+                })
+                .thenAccept(prescription -> notifyPatient(
                         prescription.getPatientUid(),
                         "Prescription Picked Up",
                         valueOrDefault(prescription.getMedicationName(), "Your prescription")
@@ -2026,207 +1878,175 @@ public class FirebaseService {
                                 + valueOrDefault(pharmacyProfile.getPharmacyName(), "your pharmacy") + ".",
                         "PRESCRIPTION_PICKED_UP",
                         prescriptionId
-                );
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to confirm pickup: " + e.getMessage(), e);
-            }
-        });
+                ));
+
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to confirm pickup: ");
     }
 
+    /**
+     * A pharmacy dispenses the refill; any other role requests one from the pharmacy.
+     */
     public CompletableFuture<Prescription> refillPrescription(String prescriptionId,
                                                               String actorRole,
                                                               String actorName,
                                                               PharmacyProfile pharmacyProfile) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                if (prescriptionId == null || prescriptionId.isBlank()) {
-                    throw new RuntimeException("Prescription ID is required.");
-                }
-
-                DocumentSnapshot document = firestore.collection(PRESCRIPTIONS_COLLECTION)
-                        .document(prescriptionId)
-                        .get()
-                        .get();
-
-                if (!document.exists()) {
-                    throw new RuntimeException("Prescription not found.");
-                }
-
-                Prescription sourcePrescription = document.toObject(Prescription.class);
-                if (sourcePrescription == null) {
-                    throw new RuntimeException("Prescription could not be loaded.");
-                }
-                sourcePrescription.setPrescriptionId(document.getId());
-
-                Integer remainingRefills = PrescriptionRefillSupport.getRemainingRefills(sourcePrescription);
-                if (remainingRefills == null) {
-                    throw new RuntimeException("This prescription does not have a usable refill count.");
-                }
-                if (remainingRefills <= 0) {
-                    throw new RuntimeException("No refills are available for this prescription.");
-                }
-
-                if ("PHARMACY".equalsIgnoreCase(actorRole)) {
-                    if (pharmacyProfile == null || pharmacyProfile.getAddressNormalized() == null || pharmacyProfile.getAddressNormalized().isBlank()) {
-                        throw new RuntimeException("Pharmacy account is required.");
-                    }
-
-                    String prescriptionAddress = sourcePrescription.getPharmacyAddressNormalized();
-                    if (prescriptionAddress == null || prescriptionAddress.isBlank()) {
-                        prescriptionAddress = AddressNormalizer.normalize(sourcePrescription.getPharmacyAddress());
-                        sourcePrescription.setPharmacyAddressNormalized(prescriptionAddress);
-                    }
-
-                    if (!pharmacyProfile.getAddressNormalized().equals(prescriptionAddress)) {
-                        throw new RuntimeException("This prescription is not assigned to your pharmacy.");
-                    }
-                }
-
-                if ("PHARMACY".equalsIgnoreCase(actorRole)) {
-                    String status = sourcePrescription.getStatus();
-                    if (!Prescription.STATUS_FILLED.equalsIgnoreCase(status)
-                            && !Prescription.STATUS_PICKED_UP.equalsIgnoreCase(status)
-                            && !Prescription.STATUS_REFILL_REQUESTED.equalsIgnoreCase(status)) {
-                        throw new RuntimeException("Only filled or picked up prescriptions can be refilled.");
-                    }
-
-                    Integer refillIntervalDays = PrescriptionRefillSupport.getRefillIntervalDays(sourcePrescription);
-                    if (refillIntervalDays == null) {
-                        throw new RuntimeException("This prescription is missing a refill interval.");
-                    }
+        CompletableFuture<Prescription> pipeline = "PHARMACY".equalsIgnoreCase(actorRole)
+                ? prescriptionWorkflow.refill(prescriptionId, actorName, pharmacyProfile)
+                : prescriptionWorkflow.requestRefill(prescriptionId, actorName);
 
-                    Long nextRefillEligibleAt = PrescriptionRefillSupport.getNextRefillEligibleAt(sourcePrescription);
-                    if (nextRefillEligibleAt == null) {
-                        throw new RuntimeException("This prescription is missing its next refill date.");
-                    }
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to refill prescription: ");
+    }
 
-                    long now = System.currentTimeMillis();
-                    if (now < nextRefillEligibleAt) {
-                        throw new RuntimeException("This prescription cannot be refilled until "
-                                + java.time.Instant.ofEpochMilli(nextRefillEligibleAt)
-                                .atZone(java.time.ZoneId.systemDefault())
-                                .format(java.time.format.DateTimeFormatter.ofPattern("MMM d, yyyy h:mm a")) + ".");
-                    }
+    /**
+     * Update an existing appointment.
+     */
+    public CompletableFuture<Void> updateAppointment(Appointment appointment) {
+        if (appointment == null || appointment.getAppointmentId() == null || appointment.getAppointmentId().isEmpty()) {
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Failed to update appointment: Appointment ID is required for update"));
+        }
 
-                    int updatedRemainingRefills = remainingRefills - 1;
-                    sourcePrescription.setRemainingRefills(updatedRemainingRefills);
-                    sourcePrescription.setRefillDetails(PrescriptionRefillSupport.formatRemainingRefills(updatedRemainingRefills));
-                    sourcePrescription.setStatus(Prescription.STATUS_FILLED);
-                    sourcePrescription.setFilledAt(now);
-                    sourcePrescription.setFilledBy(actorName != null && !actorName.isBlank() ? actorName : sourcePrescription.getPharmacyName());
-                    sourcePrescription.setNextRefillEligibleAt(
-                            PrescriptionRefillSupport.calculateNextRefillEligibleAt(now, refillIntervalDays)
-                    );
-                    sourcePrescription.setRefillRequested(false);
-                    sourcePrescription.setRefillRequestedBy(null);
-                    sourcePrescription.setRefillRequestedAt(null);
-                } else {
-                    if (Boolean.TRUE.equals(sourcePrescription.getRefillRequested())) {
-                        throw new RuntimeException("A refill request has already been sent for this prescription.");
-                    }
+        CompletableFuture<Void> pipeline = appointmentRepository.saveHoldingReservation(appointment)
+                .exceptionallyCompose(error -> CompletableFuture.failedFuture(slotTakenOr(error)));
 
-                    sourcePrescription.setStatus(Prescription.STATUS_REFILL_REQUESTED);
-                    sourcePrescription.setRefillRequested(true);
-                    sourcePrescription.setRefillRequestedBy(actorName);
-                    sourcePrescription.setRefillRequestedAt(System.currentTimeMillis());
-                }
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to update appointment: ");
+    }
 
-                firestore.collection(PRESCRIPTIONS_COLLECTION)
-                        .document(sourcePrescription.getPrescriptionId())
-                        .set(sourcePrescription)
-                        .get();
+    /**
+     * Replaces a slot reservation conflict with a message the booking screens can show.
+     */
+    private static RuntimeException slotTakenOr(Throwable error) {
+        Throwable cause = ApiFutureSupport.unwrap(error);
+        if (cause instanceof DocumentAlreadyExistsException) {
+            return new RuntimeException("This slot has already been booked.", cause);
+        }
+        return cause instanceof RuntimeException runtime ? runtime : new RuntimeException(cause.getMessage(), cause);
+    }
 
-                return sourcePrescription;
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to refill prescription: " + e.getMessage(), e);
-            }
+    /**
+     * Claims slot reservations for upcoming appointments booked before reservations existed.
+     * Hospital referrals and cancelled appointments are skipped. Returns the number claimed;
+     * slots already held by another appointment are reported and left alone.
+     */
+    public CompletableFuture<Integer> backfillSlotReservations() {
+        long now = System.currentTimeMillis();
+
+        CompletableFuture<Integer> pipeline = appointmentRepository.findAll().thenCompose(appointments -> {
+            List<CompletableFuture<Boolean>> claims = new ArrayList<>();
+
+            for (Appointment appointment : appointments) {
+                boolean eligible = appointment.getSlotReservationId() == null
+                        && appointment.getReferralType() == null
+                        && !"CANCELLED".equalsIgnoreCase(appointment.getStatus())
+                        && !appointment.hasPassed(now)
+                        && appointment.getDoctorUid() != null
+                        && appointment.getAppointmentDate() != null
+                        && appointment.getAppointmentSlot() != null;
+                if (!eligible) {
+                    continue;
+                }
+
+                claims.add(appointmentRepository.reserveExisting(appointment)
+                        .thenApply(ignored -> true)
+                        .exceptionally(error -> {
+                            System.err.println("Could not reserve slot for appointment "
+                                    + appointment.getAppointmentId() + ": " + ApiFutureSupport.unwrap(error).getMessage());
+                            return false;
+                        }));
+            }
+
+            return ApiFutureSupport.allOf(claims).thenApply(results ->
+                    (int) results.stream().filter(Boolean::booleanValue).count());
         });
-    }
 
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to backfill slot reservations: ");
+    }
     /**
-     * Update an existing appointment.
+     * Stamps hospitalUid on older appointments that only carry a hospital name, resuming from
+     * the last checkpoint. Once no appointment is left unresolved the migration is marked
+     * complete and hospital listings stop querying by name; until then the unresolved
+     * appointments are listed in the result and the name query stays.
      */
-    public CompletableFuture<Void> updateAppointment(Appointment appointment) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                if (appointment.getAppointmentId() == null || appointment.getAppointmentId().isEmpty()) {
-                    throw new RuntimeException("Appointment ID is required for update");
-                }
+    public CompletableFuture<HospitalUidMigration> migrateAppointmentHospitalUids() {
+        CompletableFuture<HospitalUidMigration> pipeline = profileRepository.findAllHospitals()
+                .thenCompose(hospitals -> appointmentRepository.migrateHospitalUids(
+                        hospitalUidsByName(hospitals), AppointmentRepository.MAX_MIGRATION_PAGE_SIZE))
+                .thenApply(progress -> {
+                    hospitalUidsMigrated = progress.isComplete();
+                    return progress;
+                });
 
-                firestore.collection(APPOINTMENTS_COLLECTION)
-                        .document(appointment.getAppointmentId())
-                        .set(appointment)
-                        .get();
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to migrate appointment hospitals: ");
+    }
 
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to update appointment: " + e.getMessage(), e);
-            }
-        });
+    /**
+     * Rebuilds the per-day slot occupancy documents from the slot reservations. Returns the
+     * number of doctor days written.
+     */
+    public CompletableFuture<Integer> rebuildSlotOccupancy() {
+        return ApiFutureSupport.withFailureMessage(appointmentRepository.rebuildSlotOccupancy(),
+                "Failed to rebuild slot occupancy: ");
     }
-    public CompletableFuture<String> saveDiagnosticReport(DiagnosticReport report) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                if (report == null) {
-                    throw new RuntimeException("Diagnostic report cannot be null.");
-                }
-                if (report.getPatientUid() == null || report.getPatientUid().isBlank()) {
-                    throw new RuntimeException("Patient ID is required.");
-                }
-                if (report.getDoctorUid() == null || report.getDoctorUid().isBlank()) {
-                    throw new RuntimeException("Doctor ID is required.");
-                }
-                if (report.getHospitalUid() == null || report.getHospitalUid().isBlank()) {
-                    throw new RuntimeException("Hospital ID is required.");
-                }
-                if (report.getDiagnosticResults() == null || report.getDiagnosticResults().isBlank()) {
-                    throw new RuntimeException("Diagnostic results are required.");
-                }
 
-                String reportId = firestore.collection(DIAGNOSTIC_REPORTS_COLLECTION).document().getId();
-                report.setReportId(reportId);
+    public CompletableFuture<String> saveDiagnosticReport(DiagnosticReport report) {
+        CompletableFuture<String> pipeline = CompletableFuture.supplyAsync(() -> {
+            if (report == null) {
+                throw new RuntimeException("Diagnostic report cannot be null.");
+            }
+            if (report.getPatientUid() == null || report.getPatientUid().isBlank()) {
+                throw new RuntimeException("Patient ID is required.");
+            }
+            if (report.getDoctorUid() == null || report.getDoctorUid().isBlank()) {
+                throw new RuntimeException("Doctor ID is required.");
+            }
+            if (report.getHospitalUid() == null || report.getHospitalUid().isBlank()) {
+                throw new RuntimeException("Hospital ID is required.");
+            }
+            if (report.getDiagnosticResults() == null || report.getDiagnosticResults().isBlank()) {
+                throw new RuntimeException("Diagnostic results are required.");
+            }
 
-                if (report.getUploadedAt() == null) {
-                    report.setUploadedAt(System.currentTimeMillis());
-                }
+            String reportId = diagnosticReportRepository.newId();
+            report.setReportId(reportId);
 
-                if (report.getStatus() == null || report.getStatus().isBlank()) {
-                    report.setStatus("NEW");
-                }
+            if (report.getUploadedAt() == null) {
+                report.setUploadedAt(System.currentTimeMillis());
+            }
 
-                if (report.getReportTitle() == null || report.getReportTitle().isBlank()) {
-                    report.setReportTitle("Hospital Diagnostic Report");
-                }
+            if (report.getStatus() == null || report.getStatus().isBlank()) {
+                report.setStatus("NEW");
+            }
 
-                if (report.getReportType() == null || report.getReportType().isBlank()) {
-                    report.setReportType("Diagnostic Result");
-                }
+            if (report.getReportTitle() == null || report.getReportTitle().isBlank()) {
+                report.setReportTitle("Hospital Diagnostic Report");
+            }
 
-                firestore.collection(DIAGNOSTIC_REPORTS_COLLECTION)
-                        .document(reportId)
-                        .set(report)
-                        .get();
+            if (report.getReportType() == null || report.getReportType().isBlank()) {
+                report.setReportType("Diagnostic Result");
+            }
 
-                return reportId;
+            return reportId;
+        }, executor).thenCompose(reportId -> diagnosticReportRepository.save(report)
+                .thenApply(ignored -> reportId));
 
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to save diagnostic report: " + e.getMessage(), e);
-            }
-        });
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to save diagnostic report: ");
     }
 
     public CompletableFuture<List<DiagnosticReport>> getDiagnosticReportsForPatient(String patientUid) {
-        return getDiagnosticReportsByField("patientUid", patientUid);
+        return getDiagnosticReports(patientUid, diagnosticReportRepository::findByPatient);
     }
 
     public CompletableFuture<List<DiagnosticReport>> getDiagnosticReportsForDoctor(String doctorUid) {
-        return getDiagnosticReportsByField("doctorUid", doctorUid);
+        return getDiagnosticReports(doctorUid, diagnosticReportRepository::findByDoctor);
     }
 
     public CompletableFuture<List<DiagnosticReport>> getDiagnosticReportsForHospital(String hospitalUid) {
-        return getDiagnosticReportsByField("hospitalUid", hospitalUid);
+        return getDiagnosticReports(hospitalUid, diagnosticReportRepository::findByHospital);
     }
 
-    private CompletableFuture<List<DiagnosticReport>> getDiagnosticReportsByField(String fieldName, String uid) {
+    private CompletableFuture<List<DiagnosticReport>> getDiagnosticReports(
+            String uid,
+            Function<String, CompletableFuture<List<DiagnosticReport>>> lookup) {
         return CompletableFuture.supplyAsync(() -> {
             List<DiagnosticReport> reports = new ArrayList<>();
 
@@ -2235,19 +2055,7 @@ public class FirebaseService {
                     return reports;
                 }
 
-                QuerySnapshot snapshot = firestore.collection(DIAGNOSTIC_REPORTS_COLLECTION)
-                        .whereEqualTo(fieldName, uid)
-                        .get()
-                        .get();
-
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    DiagnosticReport report = doc.toObject(DiagnosticReport.class);
-
-                    if (report != null) {
-                        report.setReportId(doc.getId());
-                        reports.add(report);
-                    }
-                }
+                reports.addAll(lookup.apply(uid).get());
 
                 reports.sort((left, right) -> Long.compare(
                         right.getUploadedAt() != null ? right.getUploadedAt() : 0L,
@@ -2259,88 +2067,87 @@ public class FirebaseService {
             } catch (Exception e) {
                 throw new RuntimeException("Failed to retrieve diagnostic reports: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<Void> publishHospitalDiagnosticResults(Appointment appointment) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                if (appointment == null || appointment.getAppointmentId() == null || appointment.getAppointmentId().isBlank()) {
-                    throw new RuntimeException("Appointment is required to upload diagnostic results.");
-                }
-                if (appointment.getPatientUid() == null || appointment.getPatientUid().isBlank()) {
-                    throw new RuntimeException("Patient is required to upload diagnostic results.");
-                }
-                if (appointment.getDoctorUid() == null || appointment.getDoctorUid().isBlank()) {
-                    throw new RuntimeException("Doctor is required to upload diagnostic results.");
-                }
-                if (appointment.getHospitalUid() == null || appointment.getHospitalUid().isBlank()) {
-                    throw new RuntimeException("Hospital is required to upload diagnostic results.");
-                }
-
-                updateAppointment(appointment).get();
-
-                String hospitalName = valueOrDefault(appointment.getHospitalName(), "the hospital");
-                String serviceType = valueOrDefault(appointment.getReferralType(), "Diagnostic Report");
-
-                DiagnosticReport report = new DiagnosticReport();
-                report.setAppointmentId(appointment.getAppointmentId());
-
-                report.setPatientUid(appointment.getPatientUid());
-                report.setPatientName(appointment.getPatientName());
-
-                report.setDoctorUid(appointment.getDoctorUid());
-                report.setDoctorName(appointment.getDoctorName());
-
-                report.setHospitalUid(appointment.getHospitalUid());
-                report.setHospitalName(appointment.getHospitalName());
-
-                report.setReportTitle(serviceType);
-                report.setReportType(serviceType);
-
-                report.setHospitalFindings(appointment.getHospitalFindings());
-                report.setDiagnosticResults(appointment.getDiagnosticResults());
-
-                report.setUploadedByUid(appointment.getHospitalUid());
-                report.setUploadedByRole("HOSPITAL");
-                report.setUploadedAt(System.currentTimeMillis());
-                report.setStatus("NEW");
-
-                String reportId = saveDiagnosticReport(report).get();
-
-                notifyPatient(
-                        appointment.getPatientUid(),
-                        "Diagnostic Results Available",
-                        hospitalName + " uploaded your " + serviceType + " results.",
-                        "DIAGNOSTIC_RESULT",
-                        reportId
-                );
-
-                notifyDoctor(
-                        appointment.getDoctorUid(),
-                        "Hospital Results Uploaded",
-                        hospitalName + " uploaded results for " + valueOrDefault(appointment.getPatientName(), "your patient") + ".",
-                        "DIAGNOSTIC_RESULT",
-                        reportId
-                );
+        try {
+            if (appointment == null || appointment.getAppointmentId() == null || appointment.getAppointmentId().isBlank()) {
+                throw new RuntimeException("Appointment is required to upload diagnostic results.");
+            }
+            if (appointment.getPatientUid() == null || appointment.getPatientUid().isBlank()) {
+                throw new RuntimeException("Patient is required to upload diagnostic results.");
+            }
+            if (appointment.getDoctorUid() == null || appointment.getDoctorUid().isBlank()) {
+                throw new RuntimeException("Doctor is required to upload diagnostic results.");
+            }
+            if (appointment.getHospitalUid() == null || appointment.getHospitalUid().isBlank()) {
+                throw new RuntimeException("Hospital is required to upload diagnostic results.");
+            }
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(
+                    new RuntimeException("Failed to publish hospital diagnostic results: " + e.getMessage(), e));
+        }
 
-                Message message = new Message();
-                message.setDoctorUid(appointment.getDoctorUid());
-                message.setDoctorName(appointment.getDoctorName());
-                message.setPatientUid(appointment.getPatientUid());
-                message.setPatientName(appointment.getPatientName());
-                message.setSenderUid(appointment.getHospitalUid());
-                message.setSenderName(hospitalName);
-                message.setSenderRole("SYSTEM");
-                message.setMessageText(buildDiagnosticMessage(appointment, hospitalName, serviceType));
-                message.setCreatedAt(System.currentTimeMillis());
-                message.setRead(false);
-                saveMessage(message).get();
+        String hospitalName = valueOrDefault(appointment.getHospitalName(), "the hospital");
+        String serviceType = valueOrDefault(appointment.getReferralType(), "Diagnostic Report");
+
+        DiagnosticReport report = new DiagnosticReport();
+        report.setAppointmentId(appointment.getAppointmentId());
+
+        report.setPatientUid(appointment.getPatientUid());
+        report.setPatientName(appointment.getPatientName());
+
+        report.setDoctorUid(appointment.getDoctorUid());
+        report.setDoctorName(appointment.getDoctorName());
+
+        report.setHospitalUid(appointment.getHospitalUid());
+        report.setHospitalName(appointment.getHospitalName());
+
+        report.setReportTitle(serviceType);
+        report.setReportType(serviceType);
+
+        report.setHospitalFindings(appointment.getHospitalFindings());
+        report.setDiagnosticResults(appointment.getDiagnosticResults());
+
+        report.setUploadedByUid(appointment.getHospitalUid());
+        report.setUploadedByRole("HOSPITAL");
+        report.setUploadedAt(System.currentTimeMillis());
+        report.setStatus("NEW");
+
+        Message message = new Message();
+        message.setDoctorUid(appointment.getDoctorUid());
+        message.setDoctorName(appointment.getDoctorName());
+        message.setPatientUid(appointment.getPatientUid());
+        message.setPatientName(appointment.getPatientName());
+        message.setSenderUid(appointment.getHospitalUid());
+        message.setSenderName(hospitalName);
+        message.setSenderRole("SYSTEM");
+        message.setMessageText(buildDiagnosticMessage(appointment, hospitalName, serviceType));
+        message.setCreatedAt(System.currentTimeMillis());
+        message.setRead(false);
+
+        CompletableFuture<Void> pipeline = updateAppointment(appointment)
+                .thenCompose(ignored -> saveDiagnosticReport(report))
+                .thenCompose(reportId -> CompletableFuture.allOf(
+                        notifyPatientAsync(
+                                appointment.getPatientUid(),
+                                "Diagnostic Results Available",
+                                hospitalName + " uploaded your " + serviceType + " results.",
+                                "DIAGNOSTIC_RESULT",
+                                reportId
+                        ),
+                        notifyDoctorAsync(
+                                appointment.getDoctorUid(),
+                                "Hospital Results Uploaded",
+                                hospitalName + " uploaded results for " + valueOrDefault(appointment.getPatientName(), "your patient") + ".",
+                                "DIAGNOSTIC_RESULT",
+                                reportId
+                        ),
+                        saveMessage(message)
+                ));
 
-            } catch (Exception e) {
-                throw new RuntimeException("Failed to publish hospital diagnostic results: " + e.getMessage(), e);
-            }
-        });
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to publish hospital diagnostic results: ");
     }
 
     public CompletableFuture<Void> deleteAppointment(String appointmentId) {
@@ -2350,41 +2157,23 @@ public class FirebaseService {
                     throw new RuntimeException("Appointment ID is required for deletion");
                 }
 
-                firestore.collection(APPOINTMENTS_COLLECTION)
-                        .document(appointmentId)
-                        .delete()
-                        .get();
+                appointmentRepository.delete(appointmentId).get();
 
             } catch (Exception e) {
                 throw new RuntimeException("Failed to delete appointment: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     /**
-     * Creates a notification document.
+     * Queues a notification document for delivery. Returns without waiting for the write;
+     * the outbox retries failed writes in the background.
      */
     public boolean createNotification(AppNotification notification) {
         try {
-            Firestore db = FirestoreClient.getFirestore();
-
-            if (notification.getCreatedAt() == 0) {
-                notification.setCreatedAt(System.currentTimeMillis());
-            }
-
-            String id = notification.getNotificationId();
-            if (id == null || id.isEmpty()) {
-                id = db.collection(NOTIFICATIONS_COLLECTION).document().getId();
-                notification.setNotificationId(id);
-            }
-
-            db.collection(NOTIFICATIONS_COLLECTION)
-                    .document(id)
-                    .set(notification)
-                    .get();
-
+            notificationOutbox.enqueue(notification);
             return true;
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
             e.printStackTrace();
             return false;
         }
@@ -2397,18 +2186,7 @@ public class FirebaseService {
         List<AppNotification> notifications = new ArrayList<>();
 
         try {
-            QuerySnapshot snapshot = firestore.collection(NOTIFICATIONS_COLLECTION)
-                    .whereEqualTo("userUid", userUid)
-                    .get()
-                    .get();
-
-            for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                AppNotification notification = doc.toObject(AppNotification.class);
-                if (notification != null) {
-                    notification.setNotificationId(doc.getId());
-                    notifications.add(notification);
-                }
-            }
+            notifications.addAll(notificationRepository.findByUser(userUid).get());
 
             notifications.sort((a, b) -> Long.compare(b.getCreatedAt(), a.getCreatedAt()));
         } catch (Exception e) {
@@ -2423,28 +2201,76 @@ public class FirebaseService {
      */
     public int getUnreadNotificationCount(String userUid) {
         try {
-            QuerySnapshot snapshot = firestore.collection(NOTIFICATIONS_COLLECTION)
-                    .whereEqualTo("userUid", userUid)
-                    .whereEqualTo("read", false)
-                    .get()
-                    .get();
-
-            return snapshot.size();
+            return countUnreadNotifications(userUid).get().intValue();
         } catch (Exception e) {
             e.printStackTrace();
             return 0;
         }
     }
 
+    /**
+     * Counts unread notifications with an aggregation query; no documents are downloaded.
+     */
+    public CompletableFuture<Long> countUnreadNotifications(String userUid) {
+        if (userUid == null || userUid.isBlank()) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        return ApiFutureSupport.withFailureMessage(
+                notificationRepository.countUnreadByUser(userUid),
+                "Failed to count notifications: ");
+    }
+
+    /**
+     * Loads the hospital dashboard numbers with count aggregations. Appointments are counted
+     * by hospitalUid, so older documents that only carry the hospital name are not included.
+     * Patients are counted from the hospital-patient links; see {@link #linkHospitalPatients()}
+     * for appointments booked before links were kept. Appointments today leave out cancelled
+     * ones, and departments are the hospital's department documents.
+     */
+    public CompletableFuture<HospitalDashboardStats> getHospitalDashboardStats(String hospitalUid) {
+        if (hospitalUid == null || hospitalUid.isBlank()) {
+            return CompletableFuture.failedFuture(new RuntimeException("Hospital identifier is required."));
+        }
+
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate today = LocalDate.now(zone);
+        long startOfDay = today.atStartOfDay(zone).toInstant().toEpochMilli();
+        long startOfTomorrow = today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+
+        CompletableFuture<Long> totalAppointments = appointmentRepository.countByHospital(hospitalUid);
+        CompletableFuture<Long> appointmentsToday =
+                appointmentRepository.countByHospitalBetween(hospitalUid, startOfDay, startOfTomorrow);
+        CompletableFuture<Long> cancelledToday = appointmentRepository.countByHospitalAndStatusBetween(
+                hospitalUid, "CANCELLED", startOfDay, startOfTomorrow);
+        CompletableFuture<Long> departments = departmentRepository.countByHospital(hospitalUid);
+        CompletableFuture<Long> patients = appointmentRepository.countPatientsForHospital(hospitalUid);
+
+        CompletableFuture<HospitalDashboardStats> pipeline = CompletableFuture
+                .allOf(totalAppointments, appointmentsToday, cancelledToday, departments, patients)
+                .thenApply(ignored -> new HospitalDashboardStats(
+                        patients.join(),
+                        totalAppointments.join(),
+                        appointmentsToday.join() - cancelledToday.join(),
+                        departments.join()));
+
+        return ApiFutureSupport.withFailureMessage(pipeline, "Failed to load hospital stats: ");
+    }
+
+    /**
+     * Writes the hospital-patient links for appointments booked before links were kept, so
+     * the dashboard's patient count includes them. Returns the number of link writes.
+     */
+    public CompletableFuture<Integer> linkHospitalPatients() {
+        return ApiFutureSupport.withFailureMessage(appointmentRepository.linkAllHospitalPatients(),
+                "Failed to link hospital patients: ");
+    }
+
     /**
      * Marks one notification as read.
      */
     public boolean markNotificationAsRead(String notificationId) {
         try {
-            firestore.collection(NOTIFICATIONS_COLLECTION)
-                    .document(notificationId)
-                    .update("read", true)
-                    .get();
+            notificationRepository.markRead(notificationId).get();
 
             return true;
         } catch (Exception e) {
@@ -2458,19 +2284,13 @@ public class FirebaseService {
      */
     public boolean markAllNotificationsAsRead(String userUid) {
         try {
-            QuerySnapshot snapshot = firestore.collection(NOTIFICATIONS_COLLECTION)
-                    .whereEqualTo("userUid", userUid)
-                    .whereEqualTo("read", false)
-                    .get()
-                    .get();
-
-            for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                firestore.collection(NOTIFICATIONS_COLLECTION)
-                        .document(doc.getId())
-                        .update("read", true)
-                        .get();
+            List<String> unreadIds = new ArrayList<>();
+            for (AppNotification notification : notificationRepository.findUnreadByUser(userUid).get()) {
+                unreadIds.add(notification.getNotificationId());
             }
 
+            notificationRepository.markAllRead(unreadIds).get()
+                    .throwIfFailed("Some notifications were not marked read");
             return true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -2479,37 +2299,49 @@ public class FirebaseService {
     }
 
     /**
-     * Helper: notify a patient.
+     * Helper: notify a patient. Safe to call from the JavaFX thread; nothing blocks.
      */
     public void notifyPatient(String patientUid, String title, String message, String type, String relatedId) {
-        AppNotification notification = new AppNotification();
-        notification.setUserUid(patientUid);
-        notification.setUserRole("PATIENT");
-        notification.setTitle(title);
-        notification.setMessage(message);
-        notification.setType(type);
-        notification.setRelatedId(relatedId);
-        notification.setRead(false);
-        notification.setCreatedAt(System.currentTimeMillis());
-
-        createNotification(notification);
+        createNotification(buildNotification(patientUid, "PATIENT", title, message, type, relatedId));
     }
 
     /**
-     * Helper: notify a doctor.
+     * Helper: notify a doctor. Safe to call from the JavaFX thread; nothing blocks.
      */
     public void notifyDoctor(String doctorUid, String title, String message, String type, String relatedId) {
+        createNotification(buildNotification(doctorUid, "DOCTOR", title, message, type, relatedId));
+    }
+
+    /**
+     * Variants for async pipelines. The notification is queued and the returned future is
+     * already complete, so delivery never holds up or fails the caller.
+     */
+    private CompletableFuture<Void> notifyPatientAsync(String patientUid, String title, String message, String type, String relatedId) {
+        notifyPatient(patientUid, title, message, type, relatedId);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private CompletableFuture<Void> notifyDoctorAsync(String doctorUid, String title, String message, String type, String relatedId) {
+        notifyDoctor(doctorUid, title, message, type, relatedId);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    private AppNotification buildNotification(String userUid,
+                                              String userRole,
+                                              String title,
+                                              String message,
+                                              String type,
+                                              String relatedId) {
         AppNotification notification = new AppNotification();
-        notification.setUserUid(doctorUid);
-        notification.setUserRole("DOCTOR");
+        notification.setUserUid(userUid);
+        notification.setUserRole(userRole);
         notification.setTitle(title);
         notification.setMessage(message);
         notification.setType(type);
         notification.setRelatedId(relatedId);
         notification.setRead(false);
         notification.setCreatedAt(System.currentTimeMillis());
-
-        createNotification(notification);
+        return notification;
     }
 
     private String buildDiagnosticMessage(Appointment appointment, String hospitalName, String serviceType) {
@@ -2538,10 +2370,6 @@ public class FirebaseService {
         return value == null || value.isBlank() ? fallback : value;
     }
 
-    private String normalizePersonName(String value) {
-        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase();
-    }
-
     public CompletableFuture<String> addHospitalDepartment(HospitalDepartment department) {
         return CompletableFuture.supplyAsync(() -> {
             try {
@@ -2557,23 +2385,18 @@ public class FirebaseService {
                     throw new RuntimeException("Department name is required.");
                 }
 
-                String departmentId = firestore.collection(HOSPITAL_DEPARTMENTS_COLLECTION)
-                        .document()
-                        .getId();
+                String departmentId = departmentRepository.newId();
 
                 department.setDepartmentId(departmentId);
 
-                firestore.collection(HOSPITAL_DEPARTMENTS_COLLECTION)
-                        .document(departmentId)
-                        .set(department)
-                        .get();
+                departmentRepository.save(department).get();
 
                 return departmentId;
 
             } catch (Exception e) {
                 throw new RuntimeException("Failed to add hospital department: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<List<HospitalDepartment>> getDepartmentsForHospital(String hospitalUid) {
@@ -2585,19 +2408,7 @@ public class FirebaseService {
                     return departments;
                 }
 
-                QuerySnapshot snapshot = firestore.collection(HOSPITAL_DEPARTMENTS_COLLECTION)
-                        .whereEqualTo("hospitalUid", hospitalUid)
-                        .get()
-                        .get();
-
-                for (DocumentSnapshot doc : snapshot.getDocuments()) {
-                    HospitalDepartment department = doc.toObject(HospitalDepartment.class);
-
-                    if (department != null) {
-                        department.setDepartmentId(doc.getId());
-                        departments.add(department);
-                    }
-                }
+                departments.addAll(departmentRepository.findByHospital(hospitalUid).get());
 
                 departments.sort((left, right) -> {
                     String leftName = left.getName() != null ? left.getName() : "";
@@ -2610,7 +2421,7 @@ public class FirebaseService {
             } catch (Exception e) {
                 throw new RuntimeException("Failed to retrieve hospital departments: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
 
     public CompletableFuture<Void> deleteHospitalDepartment(String departmentId) {
@@ -2620,15 +2431,12 @@ public class FirebaseService {
                     throw new RuntimeException("Department ID is required.");
                 }
 
-                firestore.collection(HOSPITAL_DEPARTMENTS_COLLECTION)
-                        .document(departmentId)
-                        .delete()
-                        .get();
+                departmentRepository.delete(departmentId).get();
 
             } catch (Exception e) {
                 throw new RuntimeException("Failed to delete hospital department: " + e.getMessage(), e);
             }
-        });
+        }, executor);
     }
     /**
      * Handles Firebase Authentication exceptions and returns user-friendly error messages.
@@ -0,0 +1,412 @@
+package rakib.bcs430healthcareproject;
+
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import com.google.cloud.firestore.DocumentReference;
+import com.google.cloud.firestore.DocumentSnapshot;
+import com.google.cloud.firestore.FieldPath;
+import com.google.cloud.firestore.Firestore;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.Query;
+import com.google.cloud.firestore.WriteBatch;
+import io.grpc.Status;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * {@link DocumentStore} backed by Cloud Firestore. Model objects are written and read with
+ * Firestore's own class mapping, so documents look exactly as they did before the SPI existed.
+ */
+public class FirestoreDocumentStore implements DocumentStore {
+
+    // Documents requested per Firestore getAll call.
+    private static final int BATCH_GET_SIZE = 100;
+
+    // Firestore rejects write batches with more than 500 writes.
+    private static final int WRITE_BATCH_LIMIT = 500;
+
+    private final Firestore firestore;
+
+    // One thread for every snapshot listener, so each listener sees its snapshots in order.
+    private final ExecutorService listenerExecutor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "firestore-listeners");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public FirestoreDocumentStore(Firestore firestore) {
+        this.firestore = firestore;
+    }
+
+    public Firestore getFirestore() {
+        return firestore;
+    }
+
+    @Override
+    public String newDocumentId(String collection) {
+        return firestore.collection(collection).document().getId();
+    }
+
+    @Override
+    public CompletableFuture<StoredDocument> get(String collection, String id) {
+        return ApiFutureSupport.toCompletableFuture(firestore.collection(collection).document(id).get())
+                .thenApply(FirestoreDocument::new);
+    }
+
+    /**
+     * IDs are split into chunks of {@link #BATCH_GET_SIZE} and the chunks are fetched concurrently.
+     */
+    @Override
+    public CompletableFuture<List<StoredDocument>> getAll(String collection, Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        List<DocumentReference> references = new ArrayList<>();
+        for (String id : ids) {
+            references.add(firestore.collection(collection).document(id));
+        }
+
+        List<CompletableFuture<List<DocumentSnapshot>>> chunks = new ArrayList<>();
+        for (int start = 0; start < references.size(); start += BATCH_GET_SIZE) {
+            List<DocumentReference> chunk = references.subList(start, Math.min(start + BATCH_GET_SIZE, references.size()));
+            chunks.add(ApiFutureSupport.toCompletableFuture(firestore.getAll(chunk.toArray(new DocumentReference[0]))));
+        }
+
+        return ApiFutureSupport.allOf(chunks).thenApply(results -> {
+            List<StoredDocument> documents = new ArrayList<>();
+            for (List<DocumentSnapshot> chunk : results) {
+                for (DocumentSnapshot doc : chunk) {
+                    if (doc.exists()) {
+                        documents.add(new FirestoreDocument(doc));
+                    }
+                }
+            }
+            return documents;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<StoredDocument>> query(StoreQuery query) {
+        return ApiFutureSupport.toCompletableFuture(toFirestoreQuery(query).get())
+                .thenApply(snapshot -> {
+                    List<StoredDocument> documents = new ArrayList<>();
+                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                        documents.add(new FirestoreDocument(doc));
+                    }
+                    return documents;
+                });
+    }
+
+    /**
+     * Registers a Firestore snapshot listener, so after the first result only changed documents
+     * are transferred from the server.
+     */
+    @Override
+    public StoreSubscription listen(StoreQuery query, Consumer<List<StoredDocument>> listener,
+                                    Consumer<Throwable> onError) {
+        ListenerRegistration registration = toFirestoreQuery(query).addSnapshotListener(listenerExecutor,
+                (snapshot, error) -> {
+                    if (error != null) {
+                        // Firestore has already removed the listener; it sends nothing after an error.
+                        onError.accept(error);
+                        return;
+                    }
+                    if (snapshot == null) {
+                        return;
+                    }
+
+                    List<StoredDocument> documents = new ArrayList<>();
+                    for (DocumentSnapshot doc : snapshot.getDocuments()) {
+                        documents.add(new FirestoreDocument(doc));
+                    }
+                    listener.accept(documents);
+                });
+        return registration::remove;
+    }
+
+    /**
+     * Runs a Firestore count() aggregation, billed per 1000 index entries instead of per document.
+     */
+    @Override
+    public CompletableFuture<Long> count(StoreQuery query) {
+        return ApiFutureSupport.toCompletableFuture(toFirestoreQuery(query).count().get())
+                .thenApply(snapshot -> snapshot.getCount());
+    }
+
+    @Override
+    public CompletableFuture<Void> set(String collection, String id, Object data) {
+        return ApiFutureSupport.toCompletableFuture(firestore.collection(collection).document(id).set(data))
+                .thenApply(writeResult -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> update(String collection, String id, Map<String, Object> fields) {
+        return ApiFutureSupport.toCompletableFuture(firestore.collection(collection).document(id).update(fields))
+                .thenApply(writeResult -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String collection, String id) {
+        return ApiFutureSupport.toCompletableFuture(firestore.collection(collection).document(id).delete())
+                .thenApply(writeResult -> null);
+    }
+
+    /**
+     * Splits the writes into batches of {@link #WRITE_BATCH_LIMIT} and commits the batches
+     * concurrently. A batch is atomic, so when it fails every write in it is reported as failed.
+     */
+    @Override
+    public CompletableFuture<BulkWriteResult> bulkWrite(List<WriteOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            return CompletableFuture.completedFuture(new BulkWriteResult(0, new LinkedHashMap<>()));
+        }
+
+        List<List<WriteOperation>> chunks = new ArrayList<>();
+        List<CompletableFuture<Throwable>> commits = new ArrayList<>();
+
+        for (int start = 0; start < operations.size(); start += WRITE_BATCH_LIMIT) {
+            List<WriteOperation> chunk = operations.subList(start, Math.min(start + WRITE_BATCH_LIMIT, operations.size()));
+            chunks.add(chunk);
+
+            commits.add(ApiFutureSupport.toCompletableFuture(toBatch(chunk).commit())
+                    .handle((results, error) -> error));
+        }
+
+        return ApiFutureSupport.allOf(commits).thenApply(errors -> {
+            int succeeded = 0;
+            Map<WriteOperation, Throwable> failures = new LinkedHashMap<>();
+            for (int i = 0; i < chunks.size(); i++) {
+                if (errors.get(i) == null) {
+                    succeeded += chunks.get(i).size();
+                } else {
+                    for (WriteOperation operation : chunks.get(i)) {
+                        failures.put(operation, errors.get(i));
+                    }
+                }
+            }
+            return new BulkWriteResult(succeeded, failures);
+        });
+    }
+
+    /**
+     * Sends the writes as one batch, which Firestore commits atomically in a single round trip.
+     * A create-only write that finds its document fails the whole batch with ALREADY_EXISTS.
+     */
+    @Override
+    public CompletableFuture<Void> commit(List<WriteOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (operations.size() > WRITE_BATCH_LIMIT) {
+            return CompletableFuture.failedFuture(new RuntimeException(
+                    "A commit can hold at most " + WRITE_BATCH_LIMIT + " writes."));
+        }
+
+        CompletableFuture<Void> committed = ApiFutureSupport.toCompletableFuture(toBatch(operations).commit())
+                .thenApply(results -> null);
+
+        return committed.exceptionallyCompose(error -> CompletableFuture.failedFuture(
+                translateCommitFailure(ApiFutureSupport.unwrap(error), operations)));
+    }
+
+    /**
+     * Runs a Firestore transaction. Firestore retries the function itself when the transaction
+     * is aborted by a concurrent write.
+     */
+    @Override
+    public CompletableFuture<Map<String, Object>> updateAtomically(String collection, String id,
+                                                                   Function<StoredDocument, Map<String, Object>> change) {
+        DocumentReference reference = firestore.collection(collection).document(id);
+
+        return ApiFutureSupport.toCompletableFuture(firestore.runTransaction(transaction -> {
+            DocumentSnapshot snapshot = transaction.get(reference).get();
+            Map<String, Object> fields = change.apply(new FirestoreDocument(snapshot));
+            if (fields == null || fields.isEmpty()) {
+                return Map.<String, Object>of();
+            }
+
+            transaction.update(reference, fields);
+            return fields;
+        }));
+    }
+
+    /**
+     * Runs a Firestore transaction that reads the documents and stages the computed writes.
+     */
+    @Override
+    public CompletableFuture<Void> commitAtomically(List<String> paths,
+                                                    Function<List<StoredDocument>, List<WriteOperation>> writes) {
+        DocumentReference[] references = new DocumentReference[paths.size()];
+        for (int i = 0; i < references.length; i++) {
+            references[i] = firestore.document(paths.get(i));
+        }
+        AtomicReference<List<WriteOperation>> attempted = new AtomicReference<>(List.of());
+
+        CompletableFuture<Void> committed = ApiFutureSupport.toCompletableFuture(firestore.runTransaction(transaction -> {
+            Map<String, DocumentSnapshot> snapshots = new LinkedHashMap<>();
+            if (references.length > 0) {
+                for (DocumentSnapshot snapshot : transaction.getAll(references).get()) {
+                    snapshots.put(snapshot.getReference().getPath(), snapshot);
+                }
+            }
+
+            List<StoredDocument> documents = new ArrayList<>();
+            for (DocumentReference reference : references) {
+                documents.add(new FirestoreDocument(snapshots.get(reference.getPath())));
+            }
+
+            List<WriteOperation> operations = writes.apply(documents);
+            attempted.set(operations == null ? List.of() : operations);
+            for (WriteOperation operation : attempted.get()) {
+                DocumentReference reference = firestore.collection(operation.getCollection()).document(operation.getId());
+                switch (operation.getType()) {
+                    case CREATE -> transaction.create(reference, operation.getData());
+                    case SET -> transaction.set(reference, operation.getData());
+                    case UPDATE -> transaction.update(reference, operation.getFields());
+                    case DELETE -> transaction.delete(reference);
+                }
+            }
+            return null;
+        }));
+
+        return committed.exceptionallyCompose(error -> CompletableFuture.failedFuture(
+                translateCommitFailure(ApiFutureSupport.unwrap(error), attempted.get())));
+    }
+
+    @Override
+    public String getBackendName() {
+        return "firestore";
+    }
+
+    private WriteBatch toBatch(List<WriteOperation> operations) {
+        WriteBatch batch = firestore.batch();
+        for (WriteOperation operation : operations) {
+            DocumentReference reference = firestore.collection(operation.getCollection()).document(operation.getId());
+            switch (operation.getType()) {
+                case CREATE -> batch.create(reference, operation.getData());
+                case SET -> batch.set(reference, operation.getData());
+                case UPDATE -> batch.update(reference, operation.getFields());
+                case DELETE -> batch.delete(reference);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * A rejected CREATE surfaces as {@link DocumentAlreadyExistsException} for the commit's
+     * first CREATE; other failures pass through.
+     */
+    private static Throwable translateCommitFailure(Throwable cause, List<WriteOperation> operations) {
+        if (isAlreadyExists(cause)) {
+            for (WriteOperation operation : operations) {
+                if (operation.getType() == WriteOperation.Type.CREATE) {
+                    return new DocumentAlreadyExistsException(operation.getCollection(), operation.getId(), cause);
+                }
+            }
+        }
+        return cause;
+    }
+
+    private static boolean isAlreadyExists(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof FirestoreException firestoreError
+                    && firestoreError.getStatus() != null
+                    && firestoreError.getStatus().getCode() == Status.Code.ALREADY_EXISTS) {
+                return true;
+            }
+            if (current instanceof ApiException apiError
+                    && apiError.getStatusCode().getCode() == StatusCode.Code.ALREADY_EXISTS) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        listenerExecutor.shutdownNow();
+        try {
+            firestore.close();
+        } catch (Exception e) {
+            System.err.println("Failed to close Firestore client: " + e.getMessage());
+        }
+    }
+
+    private Query toFirestoreQuery(StoreQuery query) {
+        Query firestoreQuery = firestore.collection(query.getCollection());
+        for (Map.Entry<String, Object> filter : query.getEqualityFilters().entrySet()) {
+            firestoreQuery = firestoreQuery.whereEqualTo(filter.getKey(), filter.getValue());
+        }
+
+        if (query.getOrderField() != null) {
+            String field = query.getOrderField();
+            Query.Direction direction = query.isDescending() ? Query.Direction.DESCENDING : Query.Direction.ASCENDING;
+
+            if (query.getLowerBound() != null) {
+                firestoreQuery = firestoreQuery.whereGreaterThanOrEqualTo(field, query.getLowerBound());
+            }
+            if (query.getUpperBound() != null) {
+                firestoreQuery = firestoreQuery.whereLessThan(field, query.getUpperBound());
+            }
+
+            // Equality filters combined with an order need a composite index (firestore.indexes.json).
+            firestoreQuery = firestoreQuery.orderBy(field, direction).orderBy(FieldPath.documentId(), direction);
+            if (query.hasCursor()) {
+                firestoreQuery = firestoreQuery.startAfter(query.getStartAfterValue(), query.getStartAfterId());
+            }
+        } else if (query.hasCursor()) {
+            firestoreQuery = firestoreQuery.orderBy(FieldPath.documentId()).startAfter(query.getStartAfterId());
+        }
+
+        if (query.getLimit() > 0) {
+            firestoreQuery = firestoreQuery.limit(query.getLimit());
+        }
+        return firestoreQuery;
+    }
+
+    private static final class FirestoreDocument implements StoredDocument {
+        private final DocumentSnapshot snapshot;
+
+        private FirestoreDocument(DocumentSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public String getId() {
+            return snapshot.getId();
+        }
+
+        @Override
+        public boolean exists() {
+            return snapshot.exists();
+        }
+
+        @Override
+        public Map<String, Object> getData() {
+            Map<String, Object> data = snapshot.getData();
+            return data != null ? data : Map.of();
+        }
+
+        @Override
+        public <T> T toObject(Class<T> type) {
+            return snapshot.toObject(type);
+        }
+
+        @Override
+        public Object get(String field) {
+            return snapshot.get(field);
+        }
+    }
+}
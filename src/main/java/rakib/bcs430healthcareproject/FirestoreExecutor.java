@@ -0,0 +1,241 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared executor for the blocking Firestore work started by {@link FirebaseService}.
+ *
+ * Virtual threads are used by default. Start the app with
+ * {@code -Dhealthconnect.executor=platform} to fall back to a bounded platform pool,
+ * sized with {@code -Dhealthconnect.executor.threads} and {@code -Dhealthconnect.executor.queue}.
+ */
+public final class FirestoreExecutor implements Executor {
+
+    public static final String MODE_PROPERTY = "healthconnect.executor";
+    public static final String THREADS_PROPERTY = "healthconnect.executor.threads";
+    public static final String QUEUE_PROPERTY = "healthconnect.executor.queue";
+
+    public static final String MODE_VIRTUAL = "virtual";
+    public static final String MODE_PLATFORM = "platform";
+
+    private static final String THREAD_NAME_PREFIX = "firestore-io-";
+    private static final int DEFAULT_PLATFORM_THREADS = 16;
+    private static final int DEFAULT_PLATFORM_QUEUE = 1000;
+
+    private static FirestoreExecutor instance;
+
+    private final String mode;
+    private final ExecutorService delegate;
+    private final ThreadPoolExecutor platformPool;
+    private final int maxThreads;
+
+    private final AtomicInteger activeTasks = new AtomicInteger();
+    private final AtomicInteger peakActiveTasks = new AtomicInteger();
+    private final AtomicLong submittedTasks = new AtomicLong();
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong failedTasks = new AtomicLong();
+    private final AtomicLong rejectedTasks = new AtomicLong();
+    private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+
+    private FirestoreExecutor(String mode, int platformThreads, int platformQueue) {
+        if (MODE_PLATFORM.equalsIgnoreCase(mode)) {
+            this.mode = MODE_PLATFORM;
+            this.maxThreads = platformThreads;
+            this.platformPool = new ThreadPoolExecutor(
+                    platformThreads,
+                    platformThreads,
+                    60L,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(platformQueue),
+                    namedPlatformThreads()
+            );
+            this.platformPool.allowCoreThreadTimeOut(true);
+            this.delegate = platformPool;
+        } else {
+            this.mode = MODE_VIRTUAL;
+            this.maxThreads = -1;
+            this.platformPool = null;
+            this.delegate = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name(THREAD_NAME_PREFIX, 0).factory()
+            );
+        }
+
+        System.out.println("Firestore executor started in " + this.mode + " mode"
+                + (maxThreads > 0 ? " with " + maxThreads + " threads" : "") + ".");
+    }
+
+    /**
+     * Returns the process-wide executor, creating it from system properties on first use.
+     */
+    public static synchronized FirestoreExecutor getInstance() {
+        if (instance == null) {
+            instance = new FirestoreExecutor(
+                    System.getProperty(MODE_PROPERTY, MODE_VIRTUAL),
+                    readPositiveInt(THREADS_PROPERTY, DEFAULT_PLATFORM_THREADS),
+                    readPositiveInt(QUEUE_PROPERTY, DEFAULT_PLATFORM_QUEUE)
+            );
+        }
+        return instance;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        long enqueuedAt = System.nanoTime();
+        submittedTasks.incrementAndGet();
+
+        try {
+            delegate.execute(() -> {
+                totalQueueWaitNanos.addAndGet(System.nanoTime() - enqueuedAt);
+                int running = activeTasks.incrementAndGet();
+                peakActiveTasks.accumulateAndGet(running, Math::max);
+
+                try {
+                    task.run();
+                    completedTasks.incrementAndGet();
+                } catch (RuntimeException | Error e) {
+                    failedTasks.incrementAndGet();
+                    throw e;
+                } finally {
+                    activeTasks.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedTasks.incrementAndGet();
+            throw new RejectedExecutionException("Firestore executor is saturated; request rejected.", e);
+        }
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * Returns a point-in-time view of pool usage for diagnostics screens and logs.
+     */
+    public Stats getStats() {
+        int queued = platformPool != null ? platformPool.getQueue().size() : 0;
+        long started = completedTasks.get() + failedTasks.get() + activeTasks.get();
+
+        return new Stats(
+                mode,
+                maxThreads,
+                activeTasks.get(),
+                peakActiveTasks.get(),
+                queued,
+                submittedTasks.get(),
+                completedTasks.get(),
+                failedTasks.get(),
+                rejectedTasks.get(),
+                started == 0 ? 0L : TimeUnit.NANOSECONDS.toMillis(totalQueueWaitNanos.get() / started)
+        );
+    }
+
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    private static ThreadFactory namedPlatformThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, THREAD_NAME_PREFIX + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * The system property as a positive int, or the fallback when it is unset or invalid.
+     */
+    static int readPositiveInt(String property, int fallback) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            return parsed > 0 ? parsed : fallback;
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring invalid value for " + property + ": " + value);
+            return fallback;
+        }
+    }
+
+    /**
+     * Snapshot of executor metrics. For the platform pool, {@link #isSaturated()} reports
+     * when every thread is busy and work is waiting in the queue.
+     */
+    public static final class Stats {
+        private final String mode;
+        private final int maxThreads;
+        private final int activeTasks;
+        private final int peakActiveTasks;
+        private final int queuedTasks;
+        private final long submittedTasks;
+        private final long completedTasks;
+        private final long failedTasks;
+        private final long rejectedTasks;
+        private final long averageQueueWaitMillis;
+
+        private Stats(String mode,
+                      int maxThreads,
+                      int activeTasks,
+                      int peakActiveTasks,
+                      int queuedTasks,
+                      long submittedTasks,
+                      long completedTasks,
+                      long failedTasks,
+                      long rejectedTasks,
+                      long averageQueueWaitMillis) {
+            this.mode = mode;
+            this.maxThreads = maxThreads;
+            this.activeTasks = activeTasks;
+            this.peakActiveTasks = peakActiveTasks;
+            this.queuedTasks = queuedTasks;
+            this.submittedTasks = submittedTasks;
+            this.completedTasks = completedTasks;
+            this.failedTasks = failedTasks;
+            this.rejectedTasks = rejectedTasks;
+            this.averageQueueWaitMillis = averageQueueWaitMillis;
+        }
+
+        public String getMode() { return mode; }
+        public int getMaxThreads() { return maxThreads; }
+        public int getActiveTasks() { return activeTasks; }
+        public int getPeakActiveTasks() { return peakActiveTasks; }
+        public int getQueuedTasks() { return queuedTasks; }
+        public long getSubmittedTasks() { return submittedTasks; }
+        public long getCompletedTasks() { return completedTasks; }
+        public long getFailedTasks() { return failedTasks; }
+        public long getRejectedTasks() { return rejectedTasks; }
+        public long getAverageQueueWaitMillis() { return averageQueueWaitMillis; }
+
+        public boolean isSaturated() {
+            return maxThreads > 0 && activeTasks >= maxThreads && queuedTasks > 0;
+        }
+
+        @Override
+        public String toString() {
+            return "FirestoreExecutor[" + mode
+                    + ", active=" + activeTasks
+                    + (maxThreads > 0 ? "/" + maxThreads : "")
+                    + ", peak=" + peakActiveTasks
+                    + ", queued=" + queuedTasks
+                    + ", submitted=" + submittedTasks
+                    + ", completed=" + completedTasks
+                    + ", failed=" + failedTasks
+                    + ", rejected=" + rejectedTasks
+                    + ", avgQueueWaitMs=" + averageQueueWaitMillis
+                    + "]";
+        }
+    }
+}
@@ -3,6 +3,8 @@ package rakib.bcs430healthcareproject;
 import javafx.application.Application;
 import javafx.stage.Stage;
 
+import java.util.concurrent.CompletableFuture;
+
 public class HelloApplication extends Application {
 
     static {
@@ -20,6 +22,8 @@ public class HelloApplication extends Application {
             e.printStackTrace();
         }
 
+        warmUpDirectories();
+
         SceneRouter.init(stage);
         SceneRouter.go("login-view.fxml", "Healthcare Project");
         stage.show();
@@ -30,6 +34,27 @@ public class HelloApplication extends Application {
         });
     }
 
+    /**
+     * Loads the provider directories from the local replica and syncs them in the background
+     * while the login screen is up, so the first search after login does not wait on the store.
+     */
+    private void warmUpDirectories() {
+        CompletableFuture.runAsync(() -> {
+            ProfileDirectory directory = DocumentStores.getDefaultDirectory();
+            directory.getDoctors().getAll();
+            directory.getPharmacies().getAll();
+            directory.getHospitals().getAll();
+        }, FirestoreExecutor.getInstance()).exceptionally(error -> {
+            System.err.println("Could not warm up the provider directories: " + error.getMessage());
+            return null;
+        });
+    }
+
+    @Override
+    public void stop() {
+        DocumentStores.closeDefault();
+    }
+
     public static void main(String[] args) {
         launch();
     }
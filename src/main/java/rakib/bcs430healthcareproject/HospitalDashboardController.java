@@ -7,7 +7,6 @@ import javafx.scene.control.Label;
 import javafx.scene.layout.VBox;
 
 import java.time.Instant;
-import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -31,6 +30,9 @@ public class HospitalDashboardController {
     private static final DateTimeFormatter TIME_FORMAT =
             DateTimeFormatter.ofPattern("MMM d, yyyy • h:mm a");
 
+    // Enough appointments to find five distinct patients or upcoming visits in most cases.
+    private static final int PREVIEW_PAGE_SIZE = 25;
+
     @FXML
     public void initialize() {
         userContext = UserContext.getInstance();
@@ -50,97 +52,34 @@ public class HospitalDashboardController {
     }
 
     private void loadDashboardData(String hospitalUid) {
-        firebaseService.getAppointmentsForHospital(hospitalUid)
-                .thenCombine(firebaseService.getPatientsForHospital(hospitalUid), (appointments, patients) -> {
-                    List<Doctor> hospitalDoctors;
-
-                    try {
-                        hospitalDoctors = getDoctorsForHospital(hospitalUid);
-                    } catch (Exception e) {
-                        hospitalDoctors = new ArrayList<>();
-                    }
-
-                    return new DashboardData(
-                            appointments == null ? new ArrayList<>() : appointments,
-                            patients == null ? new ArrayList<>() : patients,
-                            hospitalDoctors
-                    );
-                })
-                .thenAccept(data -> Platform.runLater(() -> {
-                    updateStats(data.patients, data.appointments, data.doctors);
-                    loadPatientsPreview(data.appointments);
-                    loadSchedulePreview(data.appointments);
-                }))
+        firebaseService.getHospitalDashboardStats(hospitalUid)
+                .thenAccept(stats -> Platform.runLater(() -> updateStats(stats)))
                 .exceptionally(e -> {
                     Platform.runLater(this::loadEmptyState);
                     return null;
                 });
-    }
-
-    private List<Doctor> getDoctorsForHospital(String hospitalUid) throws Exception {
-        List<Doctor> allDoctors = firebaseService.getAllDoctors().get();
-        List<Doctor> hospitalDoctors = new ArrayList<>();
 
-        if (allDoctors == null) {
-            return hospitalDoctors;
-        }
-
-        for (Doctor doctor : allDoctors) {
-            if (doctor != null
-                    && doctor.getHospitalUid() != null
-                    && doctor.getHospitalUid().equals(hospitalUid)) {
-                hospitalDoctors.add(doctor);
-            }
-        }
+        // The previews only need the first few rows, so they load a single page each.
+        firebaseService.getAppointmentsForHospitalPage(hospitalUid, AppointmentWindow.all(), PREVIEW_PAGE_SIZE, null)
+                .thenAccept(page -> Platform.runLater(() -> loadPatientsPreview(page.getItems())))
+                .exceptionally(e -> {
+                    Platform.runLater(() -> loadPatientsPreview(new ArrayList<>()));
+                    return null;
+                });
 
-        return hospitalDoctors;
+        firebaseService.getAppointmentsForHospitalPage(hospitalUid,
+                        AppointmentWindow.upcoming(System.currentTimeMillis()), PREVIEW_PAGE_SIZE, null)
+                .thenAccept(page -> Platform.runLater(() -> loadSchedulePreview(page.getItems())))
+                .exceptionally(e -> {
+                    Platform.runLater(() -> loadSchedulePreview(new ArrayList<>()));
+                    return null;
+                });
     }
 
-    private void updateStats(List<PatientProfile> patients,
-                             List<Appointment> appointments,
-                             List<Doctor> hospitalDoctors) {
-        Set<String> uniquePatientIds = new HashSet<>();
-        Set<String> uniqueDepartments = new HashSet<>();
-
-        int todayCount = 0;
-
-        if (appointments != null) {
-            for (Appointment appointment : appointments) {
-                if (appointment == null) {
-                    continue;
-                }
-
-                if (appointment.getPatientUid() != null && !appointment.getPatientUid().isBlank()) {
-                    uniquePatientIds.add(appointment.getPatientUid());
-                }
-
-                String department = valueOrDefault(appointment.getDepartmentName(), appointment.getHospitalDepartment());
-                if (department != null && !department.isBlank()) {
-                    uniqueDepartments.add(department.trim().toLowerCase());
-                }
-
-                if (isToday(appointment) && !isCancelled(appointment)) {
-                    todayCount++;
-                }
-            }
-        }
-
-        if (hospitalDoctors != null) {
-            for (Doctor doctor : hospitalDoctors) {
-                if (doctor == null) {
-                    continue;
-                }
-
-                String department = doctor.getDepartment();
-                if (department != null && !department.isBlank()) {
-                    uniqueDepartments.add(department.trim().toLowerCase());
-                }
-            }
-        }
-
-        setLabelText(totalPatientsLabel, String.valueOf(uniquePatientIds.size()));
-        setLabelText(appointmentsTodayLabel, String.valueOf(todayCount));
-        setLabelText(departmentsLabel, String.valueOf(uniqueDepartments.size()));
+    private void updateStats(HospitalDashboardStats stats) {
+        setLabelText(totalPatientsLabel, String.valueOf(stats.getTotalPatients()));
+        setLabelText(appointmentsTodayLabel, String.valueOf(stats.getAppointmentsToday()));
+        setLabelText(departmentsLabel, String.valueOf(stats.getDepartments()));
     }
 
     private void loadPatientsPreview(List<Appointment> appointments) {
@@ -320,24 +259,6 @@ public class HospitalDashboardController {
         }
     }
 
-    private boolean isToday(Appointment appointment) {
-        try {
-            Long millis = appointment.resolveAppointmentEpochMillis();
-
-            if (millis == null) {
-                return false;
-            }
-
-            LocalDate appointmentDate = Instant.ofEpochMilli(millis)
-                    .atZone(ZoneId.systemDefault())
-                    .toLocalDate();
-
-            return appointmentDate.equals(LocalDate.now());
-        } catch (Exception e) {
-            return false;
-        }
-    }
-
     private boolean isCancelled(Appointment appointment) {
         return appointment.getStatus() != null
                 && appointment.getStatus().equalsIgnoreCase("CANCELLED");
@@ -409,18 +330,4 @@ public class HospitalDashboardController {
     private String valueOrDefault(String value, String fallback) {
         return value == null || value.isBlank() ? fallback : value;
     }
-
-    private static class DashboardData {
-        private final List<Appointment> appointments;
-        private final List<PatientProfile> patients;
-        private final List<Doctor> doctors;
-
-        private DashboardData(List<Appointment> appointments,
-                              List<PatientProfile> patients,
-                              List<Doctor> doctors) {
-            this.appointments = appointments;
-            this.patients = patients;
-            this.doctors = doctors;
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package rakib.bcs430healthcareproject;
+
+/**
+ * Numbers shown on the hospital dashboard, computed with count aggregations.
+ */
+public class HospitalDashboardStats {
+
+    private final long totalPatients;
+    private final long totalAppointments;
+    private final long appointmentsToday;
+    private final long departments;
+
+    public HospitalDashboardStats(long totalPatients, long totalAppointments, long appointmentsToday, long departments) {
+        this.totalPatients = totalPatients;
+        this.totalAppointments = totalAppointments;
+        this.appointmentsToday = appointmentsToday;
+        this.departments = departments;
+    }
+
+    public long getTotalPatients() {
+        return totalPatients;
+    }
+
+    public long getTotalAppointments() {
+        return totalAppointments;
+    }
+
+    public long getAppointmentsToday() {
+        return appointmentsToday;
+    }
+
+    public long getDepartments() {
+        return departments;
+    }
+}
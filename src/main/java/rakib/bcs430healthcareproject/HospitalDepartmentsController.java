@@ -52,7 +52,7 @@ public class HospitalDepartmentsController {
             return;
         }
 
-        firebaseService.getAllDoctors()
+        firebaseService.getDoctorsForHospital(currentHospitalUid)
                 .thenAccept(doctors -> Platform.runLater(() -> buildDepartmentCards(doctors, currentHospitalUid)))
                 .exceptionally(ex -> {
                     Platform.runLater(() -> {
@@ -307,6 +307,7 @@ public class HospitalDiagnosticController {
 
     @FXML
     private void onRefresh() {
+        firebaseService.clearReadScope();
         loadHospitalAppointments();
     }
 
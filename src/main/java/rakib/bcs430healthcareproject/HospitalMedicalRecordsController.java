@@ -132,6 +132,7 @@ public class HospitalMedicalRecordsController implements Initializable {
 
     @FXML
     private void onRefresh() {
+        firebaseService.clearReadScope();
         loadReports();
     }
 
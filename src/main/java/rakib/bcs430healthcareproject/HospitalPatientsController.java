@@ -15,6 +15,9 @@ import java.util.stream.Collectors;
 
 public class HospitalPatientsController {
 
+    // Appointments fetched per page, most recent first.
+    private static final int PAGE_SIZE = 100;
+
     @FXML private TextField searchField;
     @FXML private Label resultsLabel;
     @FXML private VBox patientsListVBox;
@@ -26,6 +29,8 @@ public class HospitalPatientsController {
     private final UserContext userContext = UserContext.getInstance();
 
     private List<Appointment> allHospitalAppointments = new ArrayList<>();
+    private String nextCursor;
+    private boolean loadingPage;
 
     @FXML
     public void initialize() {
@@ -40,14 +45,30 @@ public class HospitalPatientsController {
             return;
         }
 
-        firebaseService.getAppointmentsForHospital(hospital.getUid())
-                .thenAccept(appointments -> Platform.runLater(() -> {
-                    allHospitalAppointments = appointments == null ? new ArrayList<>() : appointments;
+        allHospitalAppointments = new ArrayList<>();
+        nextCursor = null;
+        loadNextPage(hospital.getUid());
+    }
+
+    private void loadNextPage(String hospitalUid) {
+        if (loadingPage) {
+            return;
+        }
+        loadingPage = true;
+
+        firebaseService.getAppointmentsForHospitalPage(hospitalUid, AppointmentWindow.all(), PAGE_SIZE, nextCursor)
+                .thenAccept(page -> Platform.runLater(() -> {
+                    loadingPage = false;
+                    nextCursor = page.getNextCursor();
+                    allHospitalAppointments.addAll(page.getItems());
                     populateDepartmentFilter();
-                    renderAppointments(allHospitalAppointments);
+                    applyFilters();
                 }))
                 .exceptionally(e -> {
-                    Platform.runLater(() -> showEmpty("Unable to load patients."));
+                    Platform.runLater(() -> {
+                        loadingPage = false;
+                        showEmpty("Unable to load patients.");
+                    });
                     return null;
                 });
     }
@@ -67,8 +88,9 @@ public class HospitalPatientsController {
             }
         }
 
+        String selected = departmentFilterComboBox.getValue();
         departmentFilterComboBox.getItems().setAll(departments);
-        departmentFilterComboBox.setValue("All Departments");
+        departmentFilterComboBox.setValue(selected != null && departments.contains(selected) ? selected : "All Departments");
 
         departmentFilterComboBox.setOnAction(e -> applyFilters());
     }
@@ -101,7 +123,7 @@ public class HospitalPatientsController {
     private void renderAppointments(List<Appointment> appointments) {
         patientsListVBox.getChildren().clear();
 
-        if (appointments == null || appointments.isEmpty()) {
+        if ((appointments == null || appointments.isEmpty()) && nextCursor == null) {
             showEmpty("No patients booked with this hospital yet.");
             return;
         }
@@ -130,6 +152,18 @@ public class HospitalPatientsController {
         for (Appointment appointment : uniquePatients.values()) {
             patientsListVBox.getChildren().add(buildPatientCard(appointment));
         }
+
+        if (nextCursor != null) {
+            Button loadMoreButton = new Button("Load more");
+            loadMoreButton.setStyle("-fx-background-color: #0F766E; -fx-text-fill: white; -fx-font-size: 12; -fx-font-weight: bold; -fx-background-radius: 8;");
+            loadMoreButton.setOnAction(event -> {
+                HospitalProfile hospital = userContext.getHospitalProfile();
+                if (hospital != null) {
+                    loadNextPage(hospital.getUid());
+                }
+            });
+            patientsListVBox.getChildren().add(loadMoreButton);
+        }
     }
 
     private VBox buildPatientCard(Appointment appointment) {
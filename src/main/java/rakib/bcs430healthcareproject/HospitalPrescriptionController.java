@@ -445,6 +445,7 @@ public class HospitalPrescriptionController {
         prescription.setHospitalName(hospitalName);
         prescription.setPatientUid(selectedPatient.getUid());
         prescription.setPatientName(selectedPatient.getName());
+        prescription.setPatientDateOfBirth(selectedPatient.getDateOfBirth());
         prescription.setPharmacyName(pharmacyName);
         prescription.setPharmacyAddress(pharmacyAddress);
         prescription.setPharmacyAddressNormalized(AddressNormalizer.normalize(pharmacyAddress));
@@ -16,6 +16,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.concurrent.CompletableFuture;
 
 public class HospitalScheduleController implements Initializable {
 
@@ -25,6 +26,9 @@ public class HospitalScheduleController implements Initializable {
     private static final DateTimeFormatter WEEK_TIME_FORMAT =
             DateTimeFormatter.ofPattern("EEE MM/dd hh:mm a", Locale.ENGLISH);
 
+    // Appointments fetched per request while loading the visible week.
+    private static final int PAGE_SIZE = 200;
+
     @FXML private TableView<Schedule> appointmentTable;
     @FXML private TableColumn<Schedule, String> colTime;
     @FXML private TableColumn<Schedule, String> colPatient;
@@ -48,6 +52,7 @@ public class HospitalScheduleController implements Initializable {
     private FirebaseService firebaseService;
     private UserContext userContext;
     private List<Appointment> allAppointments = new ArrayList<>();
+    private LocalDate loadedWeekStart;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -91,13 +96,19 @@ public class HospitalScheduleController implements Initializable {
             return;
         }
 
-        firebaseService.getAppointmentsForHospital(hospital.getUid())
+        // Only the week around the selected date is loaded; moving to another week loads it.
+        LocalDate selectedDate = scheduleDatePicker.getValue() != null ? scheduleDatePicker.getValue() : LocalDate.now();
+        LocalDate weekStart = selectedDate.with(DayOfWeek.MONDAY);
+        ZoneId zone = ZoneId.systemDefault();
+        AppointmentWindow window = AppointmentWindow.between(
+                weekStart.atStartOfDay(zone).toInstant().toEpochMilli(),
+                weekStart.plusDays(7).atStartOfDay(zone).toInstant().toEpochMilli());
+
+        scheduleSummaryLabel.setText("Loading schedule...");
+        loadWeekPage(hospital.getUid(), window, null, new ArrayList<>())
                 .thenAccept(appointments -> Platform.runLater(() -> {
-                    allAppointments = appointments == null ? new ArrayList<>() : new ArrayList<>(appointments);
-                    allAppointments.sort(Comparator.comparing(
-                            Appointment::resolveAppointmentEpochMillis,
-                            Comparator.nullsLast(Long::compareTo)
-                    ));
+                    allAppointments = appointments;
+                    loadedWeekStart = weekStart;
                     refreshTable();
                 }))
                 .exceptionally(e -> {
@@ -110,9 +121,31 @@ public class HospitalScheduleController implements Initializable {
                 });
     }
 
+    private CompletableFuture<List<Appointment>> loadWeekPage(String hospitalUid,
+                                                              AppointmentWindow window,
+                                                              String cursor,
+                                                              List<Appointment> loaded) {
+        return firebaseService.getAppointmentsForHospitalPage(hospitalUid, window, PAGE_SIZE, cursor)
+                .thenCompose(page -> {
+                    loaded.addAll(page.getItems());
+                    return page.hasMore()
+                            ? loadWeekPage(hospitalUid, window, page.getNextCursor(), loaded)
+                            : CompletableFuture.completedFuture(loaded);
+                });
+    }
+
+    private void refreshOrLoadWeek() {
+        LocalDate selectedDate = scheduleDatePicker.getValue();
+        if (selectedDate != null && !selectedDate.with(DayOfWeek.MONDAY).equals(loadedWeekStart)) {
+            loadAppointments();
+        } else {
+            refreshTable();
+        }
+    }
+
     @FXML
     private void handleDateChange() {
-        refreshTable();
+        refreshOrLoadWeek();
     }
 
     @FXML
@@ -123,7 +156,7 @@ public class HospitalScheduleController implements Initializable {
     @FXML
     private void onToday() {
         scheduleDatePicker.setValue(LocalDate.now());
-        refreshTable();
+        refreshOrLoadWeek();
     }
 
     private void refreshTable() {
@@ -0,0 +1,172 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progress of stamping hospitalUid on appointments saved before it was required, kept as a
+ * single checkpoint document so an interrupted run resumes after the last page it finished.
+ *
+ * Once every appointment has been scanned and each one carries its hospitalUid, the document
+ * records schema version {@link #SCHEMA_VERSION}, which tells readers that appointments no
+ * longer need to be looked up by hospital name. A pass that leaves appointments unresolved
+ * keeps the name lookup and lists them, and the next run scans again from the start. See
+ * {@link AppointmentRepository#migrateHospitalUids}.
+ */
+public final class HospitalUidMigration {
+
+    public static final String COLLECTION = "schemaMigrations";
+    public static final String DOCUMENT_ID = "appointments-hospital-uid";
+
+    /** Appointment schema version in which every appointment carries its hospitalUid. */
+    public static final int SCHEMA_VERSION = 2;
+
+    /** Unresolved appointment IDs kept in the checkpoint; the count beyond it stays exact. */
+    static final int MAX_LISTED_UNRESOLVED = 1000;
+
+    private final String lastAppointmentId;
+    private final long scanned;
+    private final long stamped;
+    private final long unresolved;
+    private final List<String> unresolvedAppointmentIds;
+    private final Long completedAt;
+    private final Long passFinishedAt;
+
+    private HospitalUidMigration(String lastAppointmentId, long scanned, long stamped, long unresolved,
+                                 List<String> unresolvedAppointmentIds, Long completedAt, Long passFinishedAt) {
+        this.lastAppointmentId = lastAppointmentId;
+        this.scanned = scanned;
+        this.stamped = stamped;
+        this.unresolved = unresolved;
+        this.unresolvedAppointmentIds = List.copyOf(unresolvedAppointmentIds);
+        this.completedAt = completedAt;
+        this.passFinishedAt = passFinishedAt;
+    }
+
+    /**
+     * Reads a checkpoint document; a missing document is a migration that has not started.
+     */
+    public static HospitalUidMigration from(StoredDocument document) {
+        if (document == null || !document.exists()) {
+            return new HospitalUidMigration(null, 0, 0, 0, List.of(), null, null);
+        }
+
+        Long completedAt = number(document.get("schemaVersion")) >= SCHEMA_VERSION
+                ? number(document.get("completedAt"))
+                : null;
+        Long passFinishedAt = document.get("passFinishedAt") != null
+                ? number(document.get("passFinishedAt"))
+                : null;
+        List<String> unresolvedIds = new ArrayList<>();
+        if (document.get("unresolvedAppointmentIds") instanceof List<?> ids) {
+            for (Object id : ids) {
+                if (id instanceof String appointmentId) {
+                    unresolvedIds.add(appointmentId);
+                }
+            }
+        }
+        return new HospitalUidMigration(document.getString("lastAppointmentId"),
+                number(document.get("scanned")),
+                number(document.get("stamped")),
+                number(document.get("unresolved")),
+                unresolvedIds,
+                completedAt,
+                passFinishedAt);
+    }
+
+    /**
+     * The progress after one more page. After the last page the migration is complete if no
+     * appointment was left unresolved, and otherwise only the pass is finished.
+     */
+    HospitalUidMigration after(String lastAppointmentId, int scanned, int stamped,
+                               List<String> unresolvedIds, boolean lastPage) {
+        List<String> listed = new ArrayList<>(unresolvedAppointmentIds);
+        for (String id : unresolvedIds) {
+            if (listed.size() >= MAX_LISTED_UNRESOLVED) {
+                break;
+            }
+            listed.add(id);
+        }
+        long totalUnresolved = this.unresolved + unresolvedIds.size();
+        Long now = lastPage ? System.currentTimeMillis() : null;
+        return new HospitalUidMigration(
+                lastAppointmentId != null ? lastAppointmentId : this.lastAppointmentId,
+                this.scanned + scanned,
+                this.stamped + stamped,
+                totalUnresolved,
+                listed,
+                totalUnresolved == 0 ? now : null,
+                totalUnresolved == 0 ? null : now);
+    }
+
+    /**
+     * Whether every appointment carries its hospitalUid, so the hospital name lookup can stop.
+     */
+    public boolean isComplete() {
+        return completedAt != null;
+    }
+
+    /**
+     * Whether a pass scanned every appointment but left some unresolved. The next run starts
+     * a new pass from the first appointment.
+     */
+    public boolean isPassFinished() {
+        return passFinishedAt != null;
+    }
+
+    public String getLastAppointmentId() {
+        return lastAppointmentId;
+    }
+
+    public long getScanned() {
+        return scanned;
+    }
+
+    public long getStamped() {
+        return stamped;
+    }
+
+    /**
+     * Appointments whose hospital name matched no hospital, or more than one.
+     */
+    public long getUnresolved() {
+        return unresolved;
+    }
+
+    /**
+     * IDs of the unresolved appointments, at most {@link #MAX_LISTED_UNRESOLVED} of them.
+     */
+    public List<String> getUnresolvedAppointmentIds() {
+        return unresolvedAppointmentIds;
+    }
+
+    public Long getCompletedAt() {
+        return completedAt;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("schemaVersion", isComplete() ? SCHEMA_VERSION : SCHEMA_VERSION - 1);
+        if (lastAppointmentId != null) {
+            document.put("lastAppointmentId", lastAppointmentId);
+        }
+        document.put("scanned", scanned);
+        document.put("stamped", stamped);
+        document.put("unresolved", unresolved);
+        document.put("unresolvedAppointmentIds", unresolvedAppointmentIds);
+        if (completedAt != null) {
+            document.put("completedAt", completedAt);
+        }
+        if (passFinishedAt != null) {
+            document.put("passFinishedAt", passFinishedAt);
+        }
+        document.put("updatedAt", System.currentTimeMillis());
+        return document;
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+}
@@ -0,0 +1,865 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Thread-safe {@link DocumentStore} that keeps every document in memory.
+ *
+ * Each collection keeps hash indexes for the {@link IndexDefinition}s it was created with.
+ * A query uses the declared index that covers the most of its equality filters and only
+ * checks the remaining filters on the matching documents. Queries with no covering index fall
+ * back to a scan. Unordered results come back ordered by document ID, like an unordered
+ * Firestore query; ordered queries sort the matches by the order field and document ID, then
+ * apply the range, cursor and limit.
+ *
+ * Live queries from {@link #listen} are re-run on {@link FirestoreExecutor} after a write to a
+ * document that matches their equality filters before or after the change, and the listener
+ * is only called when the result is different.
+ *
+ * Operations finish before they return, so the futures are already complete. Use it for
+ * deterministic throughput runs and offline demos ({@code -Dhealthconnect.storage=memory}).
+ * Subclasses that persist writes override {@link #beforePut} and {@link #beforeDelete}.
+ */
+public class InMemoryDocumentStore implements DocumentStore {
+
+    private static final String ID_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final int ID_LENGTH = 20;
+
+    /** Attempts before an atomic update gives up on a contended document, as in Firestore. */
+    private static final int MAX_UPDATE_ATTEMPTS = 5;
+
+    private final Map<String, List<IndexDefinition>> indexesByCollection = new HashMap<>();
+    private final ConcurrentHashMap<String, CollectionData> collections = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, List<LiveQuery>> liveQueries = new ConcurrentHashMap<>();
+
+    private final AtomicLong indexedQueries = new AtomicLong();
+    private final AtomicLong scannedQueries = new AtomicLong();
+
+    public InMemoryDocumentStore() {
+        this(StorageIndexes.defaults());
+    }
+
+    public InMemoryDocumentStore(Collection<IndexDefinition> indexes) {
+        for (IndexDefinition index : indexes) {
+            indexesByCollection.computeIfAbsent(index.getCollection(), ignored -> new ArrayList<>()).add(index);
+        }
+    }
+
+    @Override
+    public String newDocumentId(String collection) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder id = new StringBuilder(ID_LENGTH);
+        for (int i = 0; i < ID_LENGTH; i++) {
+            id.append(ID_ALPHABET.charAt(random.nextInt(ID_ALPHABET.length())));
+        }
+        return id.toString();
+    }
+
+    @Override
+    public CompletableFuture<StoredDocument> get(String collection, String id) {
+        return CompletableFuture.completedFuture(readDocument(collection, id));
+    }
+
+    @Override
+    public CompletableFuture<List<StoredDocument>> getAll(String collection, Collection<String> ids) {
+        List<StoredDocument> documents = new ArrayList<>();
+        if (ids != null) {
+            for (String id : ids) {
+                StoredDocument document = readDocument(collection, id);
+                if (document.exists()) {
+                    documents.add(document);
+                }
+            }
+        }
+        return CompletableFuture.completedFuture(documents);
+    }
+
+    @Override
+    public CompletableFuture<List<StoredDocument>> query(StoreQuery query) {
+        CollectionData data = collections.get(query.getCollection());
+        if (data == null) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        Map<String, Object> filters = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> filter : query.getEqualityFilters().entrySet()) {
+            filters.put(filter.getKey(), DocumentMapper.normalizeValue(filter.getValue()));
+        }
+
+        String orderField = query.getOrderField();
+        List<StoredDocument> results = new ArrayList<>();
+        data.lock.readLock().lock();
+        try {
+            for (String id : data.candidateIds(filters)) {
+                Map<String, Object> document = data.documents.get(id);
+                if (document != null && matches(document, filters)
+                        && (orderField == null || inRange(document.get(orderField), query))) {
+                    results.add(new MemoryDocument(id, document));
+                }
+            }
+        } finally {
+            data.lock.readLock().unlock();
+        }
+
+        if (orderField == null) {
+            results.sort((left, right) -> left.getId().compareTo(right.getId()));
+        } else {
+            results.sort((left, right) -> compareOrdered(left.get(orderField), left.getId(),
+                    right.get(orderField), right.getId(), query.isDescending()));
+        }
+
+        return CompletableFuture.completedFuture(applyCursorAndLimit(results, query));
+    }
+
+    /**
+     * Nothing is transferred locally, so this is the size of the query result.
+     */
+    @Override
+    public CompletableFuture<Long> count(StoreQuery query) {
+        return query(query).thenApply(documents -> (long) documents.size());
+    }
+
+    @Override
+    public CompletableFuture<Void> set(String collection, String id, Object data) {
+        Map<String, Object> document = Collections.unmodifiableMap(DocumentMapper.toMap(data));
+        try {
+            collectionData(collection).put(id, document, true);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> update(String collection, String id, Map<String, Object> fields) {
+        CollectionData data = collectionData(collection);
+
+        data.lock.writeLock().lock();
+        try {
+            Map<String, Object> existing = data.documents.get(id);
+            if (existing == null) {
+                return CompletableFuture.failedFuture(
+                        new RuntimeException("No document to update: " + collection + "/" + id));
+            }
+
+            Map<String, Object> updated = new LinkedHashMap<>(existing);
+            for (Map.Entry<String, Object> field : fields.entrySet()) {
+                updated.put(field.getKey(), DocumentMapper.normalizeValue(field.getValue()));
+            }
+            data.put(id, Collections.unmodifiableMap(updated), true);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        } finally {
+            data.lock.writeLock().unlock();
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String collection, String id) {
+        CollectionData data = collections.get(collection);
+        if (data != null) {
+            try {
+                data.remove(id, true);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Applies the writes one after another; each one is checked on its own.
+     */
+    @Override
+    public CompletableFuture<BulkWriteResult> bulkWrite(List<WriteOperation> operations) {
+        int succeeded = 0;
+        Map<WriteOperation, Throwable> failures = new LinkedHashMap<>();
+
+        if (operations != null) {
+            for (WriteOperation operation : operations) {
+                CompletableFuture<Void> write = switch (operation.getType()) {
+                    case CREATE -> commit(List.of(operation));
+                    case SET -> set(operation.getCollection(), operation.getId(), operation.getData());
+                    case UPDATE -> update(operation.getCollection(), operation.getId(), operation.getFields());
+                    case DELETE -> delete(operation.getCollection(), operation.getId());
+                };
+
+                try {
+                    write.join();
+                    succeeded++;
+                } catch (RuntimeException e) {
+                    failures.put(operation, ApiFutureSupport.unwrap(e));
+                }
+            }
+        }
+
+        return CompletableFuture.completedFuture(new BulkWriteResult(succeeded, failures));
+    }
+
+    /**
+     * Locks every collection the writes touch (in name order, so concurrent commits cannot
+     * deadlock), checks all preconditions against the current and already staged documents,
+     * then applies the writes. Nothing is applied if a check or {@link #beforeCommit} fails.
+     */
+    @Override
+    public CompletableFuture<Void> commit(List<WriteOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        try {
+            commitIfUnchanged(operations, List.of(), List.of(), List.of());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Optimistic, like {@link #updateAtomically}: the writes are computed without a lock and
+     * committed only if none of the read documents changed in between.
+     */
+    @Override
+    public CompletableFuture<Void> commitAtomically(List<String> paths,
+                                                    Function<List<StoredDocument>, List<WriteOperation>> writes) {
+        List<String> collections = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        for (String path : paths) {
+            int separator = path.indexOf('/');
+            if (separator <= 0 || separator == path.length() - 1 || path.indexOf('/', separator + 1) >= 0) {
+                return CompletableFuture.failedFuture(new IllegalArgumentException("Not a document path: " + path));
+            }
+            collections.add(path.substring(0, separator));
+            ids.add(path.substring(separator + 1));
+        }
+
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            List<Map<String, Object>> seen = new ArrayList<>();
+            List<StoredDocument> documents = new ArrayList<>();
+            for (int i = 0; i < ids.size(); i++) {
+                Map<String, Object> document = collectionData(collections.get(i)).documents.get(ids.get(i));
+                seen.add(document);
+                documents.add(new MemoryDocument(ids.get(i), document));
+            }
+
+            try {
+                List<WriteOperation> operations = writes.apply(documents);
+                if (operations == null || operations.isEmpty()) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (commitIfUnchanged(operations, collections, ids, seen)) {
+                    return CompletableFuture.completedFuture(null);
+                }
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        return CompletableFuture.failedFuture(new RuntimeException("Too much contention on " + paths
+                + "; gave up after " + MAX_UPDATE_ATTEMPTS + " attempts."));
+    }
+
+    /**
+     * Applies the writes unless one of the read documents is no longer the version in seen, in
+     * which case nothing is written and false is returned. Throws if a precondition fails.
+     */
+    private boolean commitIfUnchanged(List<WriteOperation> operations, List<String> readCollections,
+                                      List<String> readIds, List<Map<String, Object>> seen) {
+        Map<String, CollectionData> locked = new TreeMap<>();
+        for (WriteOperation operation : operations) {
+            locked.computeIfAbsent(operation.getCollection(), this::collectionData);
+        }
+        for (String readCollection : readCollections) {
+            locked.computeIfAbsent(readCollection, this::collectionData);
+        }
+
+        List<CollectionData> acquired = new ArrayList<>();
+        try {
+            for (CollectionData data : locked.values()) {
+                data.lock.writeLock().lock();
+                acquired.add(data);
+            }
+
+            for (int i = 0; i < readIds.size(); i++) {
+                if (locked.get(readCollections.get(i)).documents.get(readIds.get(i)) != seen.get(i)) {
+                    return false;
+                }
+            }
+
+            Map<List<String>, DocumentChange> staged = new LinkedHashMap<>();
+            for (WriteOperation operation : operations) {
+                List<String> key = List.of(operation.getCollection(), operation.getId());
+                DocumentChange previous = staged.get(key);
+                Map<String, Object> current = previous != null
+                        ? previous.getDocument()
+                        : locked.get(operation.getCollection()).documents.get(operation.getId());
+
+                Map<String, Object> next = switch (operation.getType()) {
+                    case CREATE -> {
+                        if (current != null) {
+                            throw new DocumentAlreadyExistsException(operation.getCollection(), operation.getId(), null);
+                        }
+                        yield Collections.unmodifiableMap(DocumentMapper.toMap(operation.getData()));
+                    }
+                    case SET -> Collections.unmodifiableMap(DocumentMapper.toMap(operation.getData()));
+                    case UPDATE -> {
+                        if (current == null) {
+                            throw new RuntimeException("No document to update: "
+                                    + operation.getCollection() + "/" + operation.getId());
+                        }
+                        Map<String, Object> updated = new LinkedHashMap<>(current);
+                        for (Map.Entry<String, Object> field : operation.getFields().entrySet()) {
+                            updated.put(field.getKey(), DocumentMapper.normalizeValue(field.getValue()));
+                        }
+                        yield Collections.unmodifiableMap(updated);
+                    }
+                    case DELETE -> null;
+                };
+
+                staged.remove(key);
+                staged.put(key, new DocumentChange(operation.getCollection(), operation.getId(), next));
+            }
+
+            List<DocumentChange> changes = new ArrayList<>(staged.values());
+            beforeCommit(changes);
+
+            for (DocumentChange change : changes) {
+                CollectionData data = locked.get(change.getCollection());
+                if (change.getDocument() == null) {
+                    data.remove(change.getId(), false);
+                } else {
+                    data.put(change.getId(), change.getDocument(), false);
+                }
+            }
+            return true;
+        } finally {
+            for (int i = acquired.size() - 1; i >= 0; i--) {
+                acquired.get(i).lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Optimistic: the change is computed without holding a lock and only applied if the
+     * document is still the version it was computed from. Stored documents are never mutated
+     * in place, so an identity check detects any write in between.
+     */
+    @Override
+    public CompletableFuture<Map<String, Object>> updateAtomically(String collection, String id,
+                                                                   Function<StoredDocument, Map<String, Object>> change) {
+        CollectionData data = collectionData(collection);
+
+        for (int attempt = 0; attempt < MAX_UPDATE_ATTEMPTS; attempt++) {
+            Map<String, Object> seen = data.documents.get(id);
+            Map<String, Object> fields;
+            try {
+                fields = change.apply(new MemoryDocument(id, seen));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            if (fields == null || fields.isEmpty()) {
+                return CompletableFuture.completedFuture(Map.of());
+            }
+
+            data.lock.writeLock().lock();
+            try {
+                if (data.documents.get(id) != seen) {
+                    continue;
+                }
+                if (seen == null) {
+                    return CompletableFuture.failedFuture(
+                            new RuntimeException("No document to update: " + collection + "/" + id));
+                }
+
+                Map<String, Object> updated = new LinkedHashMap<>(seen);
+                for (Map.Entry<String, Object> field : fields.entrySet()) {
+                    updated.put(field.getKey(), DocumentMapper.normalizeValue(field.getValue()));
+                }
+                data.put(id, Collections.unmodifiableMap(updated), true);
+                return CompletableFuture.completedFuture(fields);
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            } finally {
+                data.lock.writeLock().unlock();
+            }
+        }
+
+        return CompletableFuture.failedFuture(new RuntimeException("Too much contention on " + collection + "/" + id
+                + "; gave up after " + MAX_UPDATE_ATTEMPTS + " attempts."));
+    }
+
+    @Override
+    public StoreSubscription listen(StoreQuery query, Consumer<List<StoredDocument>> listener,
+                                    Consumer<Throwable> onError) {
+        LiveQuery live = new LiveQuery(query, listener, onError);
+        liveQueries.computeIfAbsent(query.getCollection(), ignored -> new CopyOnWriteArrayList<>()).add(live);
+        live.schedule();
+        return live::cancel;
+    }
+
+    @Override
+    public String getBackendName() {
+        return "memory";
+    }
+
+    public int getDocumentCount(String collection) {
+        CollectionData data = collections.get(collection);
+        return data == null ? 0 : data.documents.size();
+    }
+
+    /**
+     * Queries answered from an index since the store was created.
+     */
+    public long getIndexedQueryCount() {
+        return indexedQueries.get();
+    }
+
+    /**
+     * Queries that had to scan a whole collection because no declared index covered them.
+     */
+    public long getScannedQueryCount() {
+        return scannedQueries.get();
+    }
+
+    /**
+     * Called with the collection's write lock held, before a document is stored. The document
+     * is the complete new version, also for field updates. Throwing aborts the write.
+     */
+    protected void beforePut(String collection, String id, Map<String, Object> document) {
+    }
+
+    /**
+     * Called with the collection's write lock held, before an existing document is removed.
+     * Throwing aborts the delete.
+     */
+    protected void beforeDelete(String collection, String id) {
+    }
+
+    /**
+     * Called with the write locks of every affected collection held, before the changes of a
+     * {@link #commit} are applied. The default calls {@link #beforePut} and
+     * {@link #beforeDelete} for each change. Throwing aborts the whole commit.
+     */
+    protected void beforeCommit(List<DocumentChange> changes) {
+        for (DocumentChange change : changes) {
+            if (change.getDocument() == null) {
+                beforeDelete(change.getCollection(), change.getId());
+            } else {
+                beforePut(change.getCollection(), change.getId(), change.getDocument());
+            }
+        }
+    }
+
+    /**
+     * Applies a document without calling the write hooks. A null document removes it. Used to
+     * load persisted state.
+     */
+    protected void restoreDocument(String collection, String id, Map<String, Object> document) {
+        if (document == null) {
+            CollectionData data = collections.get(collection);
+            if (data != null) {
+                data.remove(id, false);
+            }
+        } else {
+            collectionData(collection).put(id, Collections.unmodifiableMap(document), false);
+        }
+    }
+
+    /**
+     * Copies the current documents of every collection. Each collection is copied under its
+     * read lock; callers that need a store-wide consistent copy must block writers themselves.
+     */
+    protected Map<String, Map<String, Map<String, Object>>> copyDocuments() {
+        Map<String, Map<String, Map<String, Object>>> copy = new LinkedHashMap<>();
+        for (Map.Entry<String, CollectionData> entry : collections.entrySet()) {
+            CollectionData data = entry.getValue();
+            data.lock.readLock().lock();
+            try {
+                copy.put(entry.getKey(), new LinkedHashMap<>(data.documents));
+            } finally {
+                data.lock.readLock().unlock();
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Schedules every live query on the collection that the document matched before or after.
+     */
+    private void documentChanged(String collection, Map<String, Object> before, Map<String, Object> after) {
+        List<LiveQuery> listeners = liveQueries.get(collection);
+        if (listeners == null) {
+            return;
+        }
+
+        for (LiveQuery live : listeners) {
+            if ((before != null && matches(before, live.filters)) || (after != null && matches(after, live.filters))) {
+                live.schedule();
+            }
+        }
+    }
+
+    private static boolean sameResult(List<StoredDocument> previous, List<StoredDocument> current) {
+        if (previous.size() != current.size()) {
+            return false;
+        }
+        for (int i = 0; i < previous.size(); i++) {
+            MemoryDocument left = (MemoryDocument) previous.get(i);
+            MemoryDocument right = (MemoryDocument) current.get(i);
+            if (!left.id.equals(right.id) || left.data != right.data) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private StoredDocument readDocument(String collection, String id) {
+        CollectionData data = collections.get(collection);
+        Map<String, Object> document = data == null || id == null ? null : data.documents.get(id);
+        return new MemoryDocument(id, document);
+    }
+
+    private CollectionData collectionData(String collection) {
+        return collections.computeIfAbsent(collection,
+                name -> new CollectionData(name, indexesByCollection.getOrDefault(name, List.of())));
+    }
+
+    private static boolean inRange(Object value, StoreQuery query) {
+        if (value == null) {
+            return false;
+        }
+        Object lowerBound = DocumentMapper.normalizeValue(query.getLowerBound());
+        Object upperBound = DocumentMapper.normalizeValue(query.getUpperBound());
+        return (lowerBound == null || compareValues(value, lowerBound) >= 0)
+                && (upperBound == null || compareValues(value, upperBound) < 0);
+    }
+
+    private static List<StoredDocument> applyCursorAndLimit(List<StoredDocument> sorted, StoreQuery query) {
+        int start = 0;
+        if (query.hasCursor()) {
+            Object cursorValue = DocumentMapper.normalizeValue(query.getStartAfterValue());
+            while (start < sorted.size()) {
+                StoredDocument document = sorted.get(start);
+                int position = query.getOrderField() == null
+                        ? document.getId().compareTo(query.getStartAfterId())
+                        : compareOrdered(document.get(query.getOrderField()), document.getId(),
+                                cursorValue, query.getStartAfterId(), query.isDescending());
+                if (position > 0) {
+                    break;
+                }
+                start++;
+            }
+        }
+
+        int end = query.getLimit() > 0 ? Math.min(sorted.size(), start + query.getLimit()) : sorted.size();
+        return start == 0 && end == sorted.size() ? sorted : new ArrayList<>(sorted.subList(start, end));
+    }
+
+    private static int compareOrdered(Object leftValue, String leftId, Object rightValue, String rightId,
+                                      boolean descending) {
+        int result = compareValues(leftValue, rightValue);
+        if (result == 0) {
+            result = leftId.compareTo(rightId);
+        }
+        return descending ? -result : result;
+    }
+
+    /**
+     * Orders booleans before numbers before strings, the way Firestore orders mixed types.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compareValues(Object left, Object right) {
+        if (left instanceof Number leftNumber && right instanceof Number rightNumber) {
+            if (left instanceof Long && right instanceof Long) {
+                return Long.compare(leftNumber.longValue(), rightNumber.longValue());
+            }
+            return Double.compare(leftNumber.doubleValue(), rightNumber.doubleValue());
+        }
+
+        int leftRank = typeRank(left);
+        int rightRank = typeRank(right);
+        if (leftRank != rightRank || leftRank == 3) {
+            return Integer.compare(leftRank, rightRank);
+        }
+        return ((Comparable) left).compareTo(right);
+    }
+
+    private static int typeRank(Object value) {
+        if (value instanceof Boolean) {
+            return 0;
+        }
+        if (value instanceof Number) {
+            return 1;
+        }
+        if (value instanceof String) {
+            return 2;
+        }
+        return 3;
+    }
+
+    private static boolean matches(Map<String, Object> document, Map<String, Object> filters) {
+        for (Map.Entry<String, Object> filter : filters.entrySet()) {
+            if (!document.containsKey(filter.getKey())
+                    || !Objects.equals(document.get(filter.getKey()), filter.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<Object> indexKey(IndexDefinition index, Map<String, Object> values) {
+        List<Object> key = new ArrayList<>(index.getFields().size());
+        for (String field : index.getFields()) {
+            Object value = values.get(field);
+            if (value == null) {
+                return null;
+            }
+            key.add(value);
+        }
+        return key;
+    }
+
+    private final class CollectionData {
+        private final String name;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final ConcurrentHashMap<String, Map<String, Object>> documents = new ConcurrentHashMap<>();
+        private final Map<IndexDefinition, Map<List<Object>, Set<String>>> indexes = new HashMap<>();
+
+        private CollectionData(String name, List<IndexDefinition> definitions) {
+            this.name = name;
+            for (IndexDefinition definition : definitions) {
+                indexes.put(definition, new HashMap<>());
+            }
+        }
+
+        private void put(String id, Map<String, Object> document, boolean notify) {
+            lock.writeLock().lock();
+            try {
+                if (notify) {
+                    beforePut(name, id, document);
+                }
+                Map<String, Object> previous = documents.put(id, document);
+                if (previous != null) {
+                    unindex(id, previous);
+                }
+                index(id, document);
+                documentChanged(name, previous, document);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void remove(String id, boolean notify) {
+            lock.writeLock().lock();
+            try {
+                if (notify && documents.containsKey(id)) {
+                    beforeDelete(name, id);
+                }
+                Map<String, Object> previous = documents.remove(id);
+                if (previous != null) {
+                    unindex(id, previous);
+                    documentChanged(name, previous, null);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Must be called while holding the read lock.
+         */
+        private Collection<String> candidateIds(Map<String, Object> filters) {
+            IndexDefinition best = null;
+            for (IndexDefinition definition : indexes.keySet()) {
+                if (definition.covers(filters.keySet())
+                        && (best == null || definition.getFields().size() > best.getFields().size())) {
+                    best = definition;
+                }
+            }
+
+            if (best == null) {
+                scannedQueries.incrementAndGet();
+                return new ArrayList<>(documents.keySet());
+            }
+
+            indexedQueries.incrementAndGet();
+            List<Object> key = indexKey(best, filters);
+            Set<String> ids = key == null ? null : indexes.get(best).get(key);
+            return ids == null ? List.of() : new ArrayList<>(ids);
+        }
+
+        private void index(String id, Map<String, Object> document) {
+            for (Map.Entry<IndexDefinition, Map<List<Object>, Set<String>>> entry : indexes.entrySet()) {
+                List<Object> key = indexKey(entry.getKey(), document);
+                if (key != null) {
+                    entry.getValue().computeIfAbsent(key, ignored -> new HashSet<>()).add(id);
+                }
+            }
+        }
+
+        private void unindex(String id, Map<String, Object> document) {
+            for (Map.Entry<IndexDefinition, Map<List<Object>, Set<String>>> entry : indexes.entrySet()) {
+                List<Object> key = indexKey(entry.getKey(), document);
+                if (key == null) {
+                    continue;
+                }
+
+                Set<String> ids = entry.getValue().get(key);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        entry.getValue().remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * A registered {@link #listen} query. Writes only mark it for another run; runs are
+     * serialized, and a write that lands during a run schedules one more.
+     */
+    private final class LiveQuery {
+        private final StoreQuery query;
+        private final Map<String, Object> filters = new LinkedHashMap<>();
+        private final Consumer<List<StoredDocument>> listener;
+        private final Consumer<Throwable> onError;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean active = true;
+        private List<StoredDocument> lastResult;
+
+        private LiveQuery(StoreQuery query, Consumer<List<StoredDocument>> listener, Consumer<Throwable> onError) {
+            this.query = query;
+            this.listener = listener;
+            this.onError = onError;
+            for (Map.Entry<String, Object> filter : query.getEqualityFilters().entrySet()) {
+                filters.put(filter.getKey(), DocumentMapper.normalizeValue(filter.getValue()));
+            }
+        }
+
+        private void schedule() {
+            if (!active || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                FirestoreExecutor.getInstance().execute(this::deliver);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                System.err.println("Live query on " + query.getCollection() + " skipped an update: " + e.getMessage());
+            }
+        }
+
+        private synchronized void deliver() {
+            scheduled.set(false);
+            if (!active) {
+                return;
+            }
+
+            List<StoredDocument> result;
+            try {
+                result = query(query).join();
+            } catch (RuntimeException e) {
+                cancel();
+                onError.accept(ApiFutureSupport.unwrap(e));
+                return;
+            }
+            if (lastResult != null && sameResult(lastResult, result)) {
+                return;
+            }
+            lastResult = result;
+
+            try {
+                listener.accept(result);
+            } catch (RuntimeException e) {
+                System.err.println("Live query listener on " + query.getCollection() + " failed: " + e.getMessage());
+            }
+        }
+
+        private void cancel() {
+            active = false;
+            List<LiveQuery> listeners = liveQueries.get(query.getCollection());
+            if (listeners != null) {
+                listeners.remove(this);
+            }
+        }
+    }
+
+    /**
+     * The final state of one document in a commit; a null document means it is deleted.
+     */
+    protected static final class DocumentChange {
+        private final String collection;
+        private final String id;
+        private final Map<String, Object> document;
+
+        private DocumentChange(String collection, String id, Map<String, Object> document) {
+            this.collection = collection;
+            this.id = id;
+            this.document = document;
+        }
+
+        public String getCollection() {
+            return collection;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public Map<String, Object> getDocument() {
+            return document;
+        }
+    }
+
+    private static final class MemoryDocument implements StoredDocument {
+        private final String id;
+        private final Map<String, Object> data;
+
+        private MemoryDocument(String id, Map<String, Object> data) {
+            this.id = id;
+            this.data = data;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public boolean exists() {
+            return data != null;
+        }
+
+        @Override
+        public Map<String, Object> getData() {
+            return data != null ? data : Map.of();
+        }
+
+        @Override
+        public <T> T toObject(Class<T> type) {
+            return data == null ? null : DocumentMapper.toObject(data, id, type);
+        }
+    }
+}
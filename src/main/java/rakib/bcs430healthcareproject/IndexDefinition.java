@@ -0,0 +1,71 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Equality index over one or more fields of a collection, used by the local stores to answer
+ * queries without scanning. Field order does not matter; fields are kept sorted by name.
+ */
+public final class IndexDefinition {
+
+    private final String collection;
+    private final List<String> fields;
+
+    private IndexDefinition(String collection, List<String> fields) {
+        this.collection = collection;
+        this.fields = Collections.unmodifiableList(fields);
+    }
+
+    public static IndexDefinition of(String collection, String... fields) {
+        if (collection == null || collection.isBlank()) {
+            throw new IllegalArgumentException("Index collection is required.");
+        }
+        if (fields == null || fields.length == 0) {
+            throw new IllegalArgumentException("At least one index field is required.");
+        }
+
+        List<String> sorted = new ArrayList<>(List.of(fields));
+        Collections.sort(sorted);
+        return new IndexDefinition(collection, sorted);
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public List<String> getFields() {
+        return fields;
+    }
+
+    /**
+     * True when every indexed field is constrained by the given equality filters.
+     */
+    public boolean covers(Collection<String> filterFields) {
+        return filterFields.containsAll(fields);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof IndexDefinition that)) {
+            return false;
+        }
+        return collection.equals(that.collection) && fields.equals(that.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(collection, fields);
+    }
+
+    @Override
+    public String toString() {
+        return collection + fields;
+    }
+}
@@ -0,0 +1,558 @@
+package rakib.bcs430healthcareproject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-disk copy of a few query results, so screens can show the data from the last run the
+ * moment they open and then reconcile with the store in the background.
+ *
+ * Each {@link Dataset} is one equality-filtered query. Directories are kept current with
+ * {@link Dataset#sync()}: it asks only for documents whose watermark field (such as updatedAt)
+ * is at or after the newest value already held, then compares a count aggregation with the
+ * local size and falls back to a full read only when they differ, which is how deletions and
+ * documents without the field are picked up. Datasets fed by a live query are simply replaced
+ * with each snapshot.
+ *
+ * The file is a compact binary encoding (varint lengths and a one-byte type tag per value),
+ * written to a temporary file and moved into place, and rewritten in the background shortly
+ * after a dataset changes. A missing or unreadable file just means starting empty.
+ */
+public final class LocalReplica {
+
+    private static final int MAGIC = 0x48435231; // "HCR1"
+    private static final int VERSION = 1;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_FALSE = 1;
+    private static final int TAG_TRUE = 2;
+    private static final int TAG_LONG = 3;
+    private static final int TAG_DOUBLE = 4;
+    private static final int TAG_STRING = 5;
+    private static final int TAG_LIST = 6;
+    private static final int TAG_MAP = 7;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final DocumentStore store;
+    private final Path file;
+    private final Map<String, Dataset> datasets = new LinkedHashMap<>();
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+
+    private final AtomicLong deltaDocuments = new AtomicLong();
+    private final AtomicLong fullReads = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private long loadedDocuments;
+    private long loadMillis;
+
+    /**
+     * Opens the replica and reads the file right away. A null file keeps the replica in memory.
+     */
+    public LocalReplica(DocumentStore store, Path file) {
+        this.store = store;
+        this.file = file;
+        if (file != null) {
+            load();
+        }
+    }
+
+    /**
+     * Returns the dataset for the owner and query, with whatever the file held for it. Use an
+     * empty owner for data every user shares. The watermark field may be null when the
+     * dataset is only ever replaced from live snapshots.
+     */
+    public synchronized Dataset dataset(String owner, StoreQuery query, String watermarkField) {
+        if (query.getOrderField() != null || query.getLimit() > 0) {
+            throw new IllegalArgumentException("Replicated queries may only filter by equality.");
+        }
+
+        String normalizedOwner = owner == null ? "" : owner;
+        Map<String, Object> filters = normalizedFilters(query);
+        String key = key(normalizedOwner, query.getCollection(), filters);
+        Dataset dataset = datasets.get(key);
+        if (dataset == null) {
+            dataset = new Dataset(normalizedOwner, query.getCollection(), filters);
+            datasets.put(key, dataset);
+        }
+        dataset.attach(query, watermarkField);
+        return dataset;
+    }
+
+    /**
+     * Forgets every dataset that belongs to a user other than this one, so a shared machine
+     * does not keep the previous user's records.
+     */
+    public synchronized void retainOwner(String owner) {
+        boolean removed = false;
+        Iterator<Dataset> iterator = datasets.values().iterator();
+        while (iterator.hasNext()) {
+            Dataset dataset = iterator.next();
+            if (!dataset.owner.isEmpty() && !dataset.owner.equals(owner)) {
+                iterator.remove();
+                removed = true;
+            }
+        }
+        if (removed) {
+            scheduleSave();
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public String describeStats() {
+        int documents = 0;
+        int count;
+        synchronized (this) {
+            count = datasets.size();
+            for (Dataset dataset : datasets.values()) {
+                documents += dataset.size();
+            }
+        }
+        return String.format("%d datasets, %d documents (%d read from disk in %d ms), %d syncs, "
+                        + "%d delta documents fetched, %d full reads",
+                count, documents, loadedDocuments, loadMillis, syncs.get(), deltaDocuments.get(), fullReads.get());
+    }
+
+    /**
+     * Writes the file now if anything changed since it was last written.
+     */
+    public void flush() {
+        if (saveScheduled.getAndSet(false)) {
+            save();
+        }
+    }
+
+    private void scheduleSave() {
+        if (file == null || !saveScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            FirestoreExecutor.getInstance().execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            // The executor is shutting down; flush() on close writes the file instead.
+        }
+    }
+
+    private synchronized void save() {
+        if (file == null) {
+            return;
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_BYTES))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeVarint(out, datasets.size());
+                for (Dataset dataset : datasets.values()) {
+                    dataset.write(out);
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to write local replica " + file + ": " + e.getMessage());
+        }
+    }
+
+    private synchronized void load() {
+        long start = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), BUFFER_BYTES))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println("Ignoring local replica " + file + " written by another version.");
+                return;
+            }
+
+            int count = readVarint(in);
+            for (int i = 0; i < count; i++) {
+                Dataset dataset = readDataset(in);
+                datasets.put(dataset.key, dataset);
+                loadedDocuments += dataset.size();
+            }
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException | RuntimeException e) {
+            datasets.clear();
+            loadedDocuments = 0;
+            System.err.println("Ignoring unreadable local replica " + file + ": " + e.getMessage());
+            return;
+        }
+
+        loadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println("Local replica loaded " + loadedDocuments + " documents in " + loadMillis + " ms");
+    }
+
+    private static String key(String owner, String collection, Map<String, Object> filters) {
+        StringBuilder key = new StringBuilder(owner).append('|').append(collection);
+        for (Map.Entry<String, Object> filter : new TreeMap<>(filters).entrySet()) {
+            key.append('|').append(filter.getKey()).append('=').append(DocumentMapper.normalizeValue(filter.getValue()));
+        }
+        return key.toString();
+    }
+
+    private static Map<String, Object> normalizedFilters(StoreQuery query) {
+        Map<String, Object> filters = new TreeMap<>();
+        for (Map.Entry<String, Object> filter : query.getEqualityFilters().entrySet()) {
+            filters.put(filter.getKey(), DocumentMapper.normalizeValue(filter.getValue()));
+        }
+        return filters;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Dataset readDataset(DataInputStream in) throws IOException {
+        String owner = readString(in);
+        String collection = readString(in);
+        Map<String, Object> filters = (Map<String, Object>) readValue(in);
+        Dataset dataset = new Dataset(owner, collection, filters);
+
+        int count = readVarint(in);
+        for (int i = 0; i < count; i++) {
+            String id = readString(in);
+            dataset.documents.put(id, Collections.unmodifiableMap((Map<String, Object>) readValue(in)));
+        }
+        return dataset;
+    }
+
+    private static long watermarkOf(Map<String, Object> document, String field) {
+        Object value = field == null ? null : document.get(field);
+        return value instanceof Number number ? number.longValue() : Long.MIN_VALUE;
+    }
+
+    /**
+     * The replicated result of one query.
+     */
+    public final class Dataset {
+        private final String owner;
+        private final String collection;
+        private final Map<String, Object> filters;
+        private final String key;
+
+        private StoreQuery query;
+        private String watermarkField;
+        private final TreeMap<String, Map<String, Object>> documents = new TreeMap<>();
+        private long watermark = Long.MIN_VALUE;
+        private CompletableFuture<List<StoredDocument>> syncing;
+
+        private Dataset(String owner, String collection, Map<String, Object> filters) {
+            this.owner = owner;
+            this.collection = collection;
+            this.filters = filters;
+            this.key = key(owner, collection, filters);
+        }
+
+        public synchronized boolean isEmpty() {
+            return documents.isEmpty();
+        }
+
+        public synchronized int size() {
+            return documents.size();
+        }
+
+        /**
+         * Newest watermark value held, or {@link Long#MIN_VALUE} before the first sync.
+         */
+        public synchronized long getWatermark() {
+            return watermark;
+        }
+
+        public String getWatermarkField() {
+            return watermarkField;
+        }
+
+        /**
+         * The held documents ordered by ID.
+         */
+        public synchronized List<StoredDocument> getDocuments() {
+            List<StoredDocument> copy = new ArrayList<>(documents.size());
+            for (Map.Entry<String, Map<String, Object>> document : documents.entrySet()) {
+                copy.add(new ReplicaDocument(document.getKey(), document.getValue()));
+            }
+            return copy;
+        }
+
+        /**
+         * Brings the dataset up to date and completes with every document. The first sync of
+         * an empty dataset is one full read; later ones fetch the delta and a count. Concurrent
+         * calls share one sync.
+         */
+        public synchronized CompletableFuture<List<StoredDocument>> sync() {
+            if (syncing != null) {
+                return syncing;
+            }
+            if (watermarkField == null) {
+                throw new IllegalStateException("Dataset " + key + " has no watermark field.");
+            }
+
+            syncs.incrementAndGet();
+            CompletableFuture<List<StoredDocument>> run;
+            if (documents.isEmpty()) {
+                run = fullRead();
+            } else {
+                long from = watermark;
+                run = store.query(query.orderBy(watermarkField, false).whereOrderFieldAtLeast(from))
+                        .thenCompose(delta -> {
+                            deltaDocuments.addAndGet(delta.size());
+                            merge(delta);
+                            return store.count(query);
+                        })
+                        .thenCompose(count -> count == size() ? CompletableFuture.completedFuture(getDocuments())
+                                : fullRead());
+            }
+
+            CompletableFuture<List<StoredDocument>> current = run;
+            syncing = current;
+            current.whenComplete((documents, error) -> finishSync(current));
+            return current;
+        }
+
+        /**
+         * Adds or replaces the documents, e.g. from a live query over recently changed ones.
+         */
+        public void merge(List<StoredDocument> changed) {
+            if (changed.isEmpty()) {
+                return;
+            }
+            synchronized (this) {
+                for (StoredDocument doc : changed) {
+                    if (doc.exists()) {
+                        put(doc);
+                    }
+                }
+            }
+            scheduleSave();
+        }
+
+        /**
+         * Replaces the whole dataset with a complete result, e.g. a live query snapshot.
+         */
+        public void replaceAll(List<StoredDocument> complete) {
+            synchronized (this) {
+                documents.clear();
+                watermark = Long.MIN_VALUE;
+                for (StoredDocument doc : complete) {
+                    if (doc.exists()) {
+                        put(doc);
+                    }
+                }
+            }
+            scheduleSave();
+        }
+
+        private CompletableFuture<List<StoredDocument>> fullRead() {
+            fullReads.incrementAndGet();
+            return store.query(query).thenApply(all -> {
+                replaceAll(all);
+                return getDocuments();
+            });
+        }
+
+        private synchronized void finishSync(CompletableFuture<List<StoredDocument>> run) {
+            if (syncing == run) {
+                syncing = null;
+            }
+        }
+
+        private void put(StoredDocument doc) {
+            Map<String, Object> data = DocumentMapper.toMap(doc.getData());
+            documents.put(doc.getId(), Collections.unmodifiableMap(data));
+            watermark = Math.max(watermark, watermarkOf(data, watermarkField));
+        }
+
+        private synchronized void attach(StoreQuery query, String watermarkField) {
+            if (this.query != null) {
+                return;
+            }
+            this.query = query;
+            this.watermarkField = watermarkField;
+            if (!documents.isEmpty()) {
+                watermark = Long.MIN_VALUE;
+                for (Map<String, Object> document : documents.values()) {
+                    watermark = Math.max(watermark, watermarkOf(document, watermarkField));
+                }
+            }
+        }
+
+        private synchronized void write(DataOutputStream out) throws IOException {
+            writeString(out, owner);
+            writeString(out, collection);
+            writeValue(out, filters);
+            writeVarint(out, documents.size());
+            for (Map.Entry<String, Map<String, Object>> document : documents.entrySet()) {
+                writeString(out, document.getKey());
+                writeValue(out, document.getValue());
+            }
+        }
+    }
+
+    private static final class ReplicaDocument implements StoredDocument {
+        private final String id;
+        private final Map<String, Object> data;
+
+        private ReplicaDocument(String id, Map<String, Object> data) {
+            this.id = id;
+            this.data = data;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public Map<String, Object> getData() {
+            return data;
+        }
+
+        @Override
+        public <T> T toObject(Class<T> type) {
+            return DocumentMapper.toObject(data, id, type);
+        }
+    }
+
+    // ---- Encoding ----
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof Boolean flag) {
+            out.writeByte(flag ? TAG_TRUE : TAG_FALSE);
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TAG_LONG);
+            long number = ((Number) value).longValue();
+            writeVarlong(out, (number << 1) ^ (number >> 63));
+        } else if (value instanceof Number number) {
+            out.writeByte(TAG_DOUBLE);
+            out.writeDouble(number.doubleValue());
+        } else if (value instanceof String text) {
+            out.writeByte(TAG_STRING);
+            writeString(out, text);
+        } else if (value instanceof List<?> list) {
+            out.writeByte(TAG_LIST);
+            writeVarint(out, list.size());
+            for (Object item : list) {
+                writeValue(out, item);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(TAG_MAP);
+            writeVarint(out, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeString(out, String.valueOf(entry.getKey()));
+                writeValue(out, entry.getValue());
+            }
+        } else {
+            writeValue(out, DocumentMapper.normalizeValue(value));
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        int tag = in.readUnsignedByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_FALSE:
+                return false;
+            case TAG_TRUE:
+                return true;
+            case TAG_LONG: {
+                long encoded = readVarlong(in);
+                return (encoded >>> 1) ^ -(encoded & 1);
+            }
+            case TAG_DOUBLE:
+                return in.readDouble();
+            case TAG_STRING:
+                return readString(in);
+            case TAG_LIST: {
+                int size = readVarint(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case TAG_MAP: {
+                int size = readVarint(in);
+                Map<String, Object> map = new LinkedHashMap<>();
+                for (int i = 0; i < size; i++) {
+                    String field = readString(in);
+                    map.put(field, readValue(in));
+                }
+                return map;
+            }
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarint(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        writeVarlong(out, value & 0xFFFFFFFFL);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        long value = readVarlong(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Length out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    private static void writeVarlong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarlong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
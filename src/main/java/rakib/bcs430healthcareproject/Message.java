@@ -22,6 +22,9 @@ public class Message {
     private String senderName;
     private String senderRole;
 
+    // Participant the message was sent to; lets unread checks query one indexed field pair.
+    private String recipientUid;
+
     private String messageText;
     private Long createdAt;
 
@@ -110,6 +113,14 @@ public class Message {
         this.senderRole = senderRole;
     }
 
+    public String getRecipientUid() {
+        return recipientUid;
+    }
+
+    public void setRecipientUid(String recipientUid) {
+        this.recipientUid = recipientUid;
+    }
+
     public String getMessageText() {
         return messageText;
     }
@@ -133,4 +144,24 @@ public class Message {
     public void setRead(Boolean read) {
         this.read = read;
     }
+
+    /**
+     * The participant that did not send the message, or null when the sender role is unknown.
+     */
+    public String resolveRecipientUid() {
+        if (senderRole == null || senderRole.isBlank()) {
+            return null;
+        }
+
+        if (!"PATIENT".equalsIgnoreCase(senderRole) && patientUid != null && !patientUid.isBlank()) {
+            return patientUid;
+        }
+        if (!"DOCTOR".equalsIgnoreCase(senderRole) && doctorUid != null && !doctorUid.isBlank()) {
+            return doctorUid;
+        }
+        if (!"PHARMACY".equalsIgnoreCase(senderRole) && pharmacyUid != null && !pharmacyUid.isBlank()) {
+            return pharmacyUid;
+        }
+        return null;
+    }
 }
@@ -0,0 +1,149 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Reads and writes conversation messages. A conversation is identified by two participant
+ * fields ("doctorUid", "patientUid" or "pharmacyUid").
+ */
+public class MessageRepository extends StoreRepository {
+
+    public static final String COLLECTION = "messages";
+
+    /** Message history is paged newest first by this epoch. */
+    public static final String ORDER_FIELD = "createdAt";
+
+    /** Messages read per page by passes over the whole collection. */
+    public static final int MAX_SCAN_PAGE_SIZE = 400;
+
+    public MessageRepository(DocumentStore store) {
+        super(store);
+    }
+
+    public String newId() {
+        return store.newDocumentId(COLLECTION);
+    }
+
+    public CompletableFuture<List<Message>> findByParticipants(String firstField,
+                                                               String firstUid,
+                                                               String secondField,
+                                                               String secondUid) {
+        return find(StoreQuery.collection(COLLECTION)
+                .whereEqualTo(firstField, firstUid)
+                .whereEqualTo(secondField, secondUid));
+    }
+
+    /**
+     * One page of a conversation, newest message first, continuing after the cursor of the
+     * previous page. Only messages with a createdAt time are included.
+     */
+    public CompletableFuture<Page<Message>> findPageByParticipants(String firstField,
+                                                                   String firstUid,
+                                                                   String secondField,
+                                                                   String secondUid,
+                                                                   int pageSize,
+                                                                   String cursor) {
+        return readPage(StoreQuery.collection(COLLECTION)
+                        .whereEqualTo(firstField, firstUid)
+                        .whereEqualTo(secondField, secondUid)
+                        .orderBy(ORDER_FIELD, true),
+                pageSize, cursor, Message.class, Message::setMessageId);
+    }
+
+    /**
+     * True when at least one unread message is addressed to the user. Reads at most one document.
+     */
+    public CompletableFuture<Boolean> hasUnreadForRecipient(String recipientUid) {
+        return store.query(StoreQuery.collection(COLLECTION)
+                        .whereEqualTo("recipientUid", recipientUid)
+                        .whereEqualTo("read", false)
+                        .limit(1))
+                .thenApply(docs -> !docs.isEmpty());
+    }
+
+    /**
+     * The unread messages in one conversation that are addressed to the recipient, without
+     * reading the rest of the thread.
+     */
+    public CompletableFuture<List<Message>> findUnreadByParticipants(String firstField,
+                                                                     String firstUid,
+                                                                     String secondField,
+                                                                     String secondUid,
+                                                                     String recipientUid) {
+        return find(StoreQuery.collection(COLLECTION)
+                .whereEqualTo(firstField, firstUid)
+                .whereEqualTo(secondField, secondUid)
+                .whereEqualTo("recipientUid", recipientUid)
+                .whereEqualTo("read", false));
+    }
+
+    /**
+     * Live version of {@link #hasUnreadForRecipient}: reports the flag now and whenever it may
+     * have changed. onError receives the failure that ends the subscription.
+     */
+    public StoreSubscription listenUnreadForRecipient(String recipientUid, Consumer<Boolean> listener,
+                                                      Consumer<Throwable> onError) {
+        return store.listen(StoreQuery.collection(COLLECTION)
+                        .whereEqualTo("recipientUid", recipientUid)
+                        .whereEqualTo("read", false)
+                        .limit(1),
+                docs -> listener.accept(!docs.isEmpty()),
+                onError);
+    }
+
+    /**
+     * One page of all messages in document ID order, after the message with afterId (null for
+     * the first page). A page shorter than the limit is the last one.
+     */
+    public CompletableFuture<List<Message>> findPageAfter(String afterId, int limit) {
+        StoreQuery query = StoreQuery.collection(COLLECTION).limit(limit);
+        if (afterId != null) {
+            query = query.startAfterDocument(afterId);
+        }
+        return find(query);
+    }
+
+    /**
+     * Creates or replaces the message under its messageId.
+     */
+    public CompletableFuture<Void> save(Message message) {
+        return store.set(COLLECTION, message.getMessageId(), message);
+    }
+
+    public CompletableFuture<Void> update(String messageId, Map<String, Object> fields) {
+        return store.update(COLLECTION, messageId, fields);
+    }
+
+    public CompletableFuture<Void> markRead(String messageId) {
+        return store.update(COLLECTION, messageId, Map.of("read", true));
+    }
+
+    public WriteOperation updateOperation(String messageId, Map<String, Object> fields) {
+        return WriteOperation.update(COLLECTION, messageId, fields);
+    }
+
+    public CompletableFuture<BulkWriteResult> bulkWrite(List<WriteOperation> operations) {
+        return store.bulkWrite(operations);
+    }
+
+    /**
+     * Marks many documents read through one bulk write.
+     */
+    public CompletableFuture<BulkWriteResult> markAllRead(Collection<String> messageIds) {
+        List<WriteOperation> operations = new ArrayList<>();
+        for (String id : messageIds) {
+            operations.add(WriteOperation.update(COLLECTION, id, Map.of("read", true)));
+        }
+        return store.bulkWrite(operations);
+    }
+
+    private CompletableFuture<List<Message>> find(StoreQuery query) {
+        return store.query(query)
+                .thenApply(docs -> toModels(docs, Message.class, Message::setMessageId));
+    }
+}
@@ -0,0 +1,422 @@
+package rakib.bcs430healthcareproject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process outbox for notification writes.
+ *
+ * {@link #enqueue} assigns the notification its ID and returns at once, so callers on the
+ * JavaFX thread never wait on the network. A background drainer collects whatever is queued
+ * (waiting briefly so bursts share a batch) and writes it with one
+ * {@link DocumentStore#bulkWrite} call. Failed writes are retried with exponential backoff.
+ * Writes are idempotent because the ID is fixed at enqueue time.
+ *
+ * With a spill file, every queued notification is also appended there as one JSON line, and
+ * the file is compacted once the queue drains. Notifications still pending when the app
+ * stops or crashes are loaded from it and delivered on the next start.
+ */
+public class NotificationOutbox {
+
+    private static final int BATCH_SIZE = 500;
+    private static final long LINGER_MILLIS = 25;
+    private static final long INITIAL_BACKOFF_MILLIS = 250;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final int MAX_ATTEMPTS = 10;
+    private static final long SPILL_COMPACT_BYTES = 1024 * 1024;
+
+    private final NotificationRepository repository;
+    private final Path spillFile;
+
+    private final BlockingDeque<Entry> queue = new LinkedBlockingDeque<>();
+    private final List<Entry> inFlight = new ArrayList<>();
+    private final Object stateLock = new Object();
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong totalLagMillis = new AtomicLong();
+
+    private BufferedWriter spill;
+    private Thread drainer;
+    private volatile boolean closed;
+
+    /**
+     * @param spillFile where pending notifications are journaled, or null to keep them in memory only
+     */
+    public NotificationOutbox(NotificationRepository repository, Path spillFile) {
+        this.repository = repository;
+        this.spillFile = spillFile;
+
+        if (spillFile != null) {
+            recoverSpill();
+        }
+    }
+
+    /**
+     * Queues the notification for delivery and returns immediately. After {@link #close} the
+     * notification is only journaled, for delivery on the next start.
+     */
+    public void enqueue(AppNotification notification) {
+        if (notification.getCreatedAt() == 0) {
+            notification.setCreatedAt(System.currentTimeMillis());
+        }
+        if (notification.getNotificationId() == null || notification.getNotificationId().isEmpty()) {
+            notification.setNotificationId(repository.newId());
+        }
+
+        Entry entry = new Entry(notification, System.currentTimeMillis());
+        synchronized (stateLock) {
+            appendToSpill(entry);
+            if (closed) {
+                return;
+            }
+            queue.addLast(entry);
+            startDrainer();
+        }
+        enqueued.incrementAndGet();
+    }
+
+    /**
+     * Notifications queued or being written.
+     */
+    public int getQueueDepth() {
+        synchronized (stateLock) {
+            return queue.size() + inFlight.size();
+        }
+    }
+
+    /**
+     * Age of the oldest notification not yet delivered, or 0 when the outbox is empty.
+     */
+    public long getDeliveryLagMillis() {
+        long oldest = Long.MAX_VALUE;
+        synchronized (stateLock) {
+            for (Entry entry : inFlight) {
+                oldest = Math.min(oldest, entry.enqueuedAtMillis);
+            }
+            Entry head = queue.peekFirst();
+            if (head != null) {
+                oldest = Math.min(oldest, head.enqueuedAtMillis);
+            }
+        }
+        return oldest == Long.MAX_VALUE ? 0 : Math.max(0, System.currentTimeMillis() - oldest);
+    }
+
+    /**
+     * Mean time from enqueue to a confirmed write, over everything delivered so far.
+     */
+    public double getAverageDeliveryLagMillis() {
+        long count = delivered.get();
+        return count == 0 ? 0 : (double) totalLagMillis.get() / count;
+    }
+
+    public long getEnqueuedCount() {
+        return enqueued.get();
+    }
+
+    public long getDeliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * Individual write attempts that failed and were retried or dropped.
+     */
+    public long getFailedWriteCount() {
+        return failedWrites.get();
+    }
+
+    /**
+     * Notifications given up on after {@value #MAX_ATTEMPTS} attempts.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public long getBatchCount() {
+        return batches.get();
+    }
+
+    public String describeMetrics() {
+        return String.format("depth %d, lag %d ms, delivered %d in %d batches (avg lag %.1f ms), %d failed writes, %d dropped",
+                getQueueDepth(), getDeliveryLagMillis(), getDeliveredCount(), getBatchCount(),
+                getAverageDeliveryLagMillis(), getFailedWriteCount(), getDroppedCount());
+    }
+
+    /**
+     * Stops accepting notifications and waits up to the timeout for the queue to drain.
+     * Anything still pending stays in the spill file for the next start.
+     */
+    public void close(long timeout, TimeUnit unit) {
+        Thread thread;
+        synchronized (stateLock) {
+            closed = true;
+            thread = drainer;
+        }
+
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(unit.toMillis(timeout));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (stateLock) {
+            int pending = queue.size() + inFlight.size();
+            if (pending > 0) {
+                System.err.println("Notification outbox closed with " + pending + " notifications pending"
+                        + (spillFile != null ? "; they will be delivered on next start." : "."));
+            }
+            closeSpill();
+        }
+    }
+
+    private void startDrainer() {
+        if (drainer == null) {
+            drainer = new Thread(this::drain, "notification-outbox");
+            drainer.setDaemon(true);
+            drainer.start();
+        }
+    }
+
+    private void drain() {
+        long backoffMillis = 0;
+
+        while (true) {
+            List<Entry> batch = new ArrayList<>();
+            try {
+                if (backoffMillis > 0 && !closed) {
+                    Thread.sleep(backoffMillis);
+                }
+
+                Entry first = closed ? queue.pollFirst() : queue.pollFirst(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    if (closed) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                if (!closed) {
+                    Thread.sleep(LINGER_MILLIS);
+                }
+            } catch (InterruptedException e) {
+                // close() interrupts to cut the waits short; keep draining what is queued.
+                if (!closed) {
+                    return;
+                }
+            }
+
+            synchronized (stateLock) {
+                queue.drainTo(batch, BATCH_SIZE - batch.size());
+                inFlight.addAll(batch);
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+
+            boolean anyFailed = deliver(batch);
+            backoffMillis = anyFailed
+                    ? Math.min(MAX_BACKOFF_MILLIS, Math.max(INITIAL_BACKOFF_MILLIS, backoffMillis * 2))
+                    : 0;
+
+            if (closed && anyFailed) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes one batch; returns true if anything has to be retried.
+     */
+    private boolean deliver(List<Entry> batch) {
+        List<WriteOperation> writes = new ArrayList<>(batch.size());
+        Map<WriteOperation, Entry> entries = new LinkedHashMap<>();
+        for (Entry entry : batch) {
+            WriteOperation write = repository.saveOperation(entry.notification);
+            writes.add(write);
+            entries.put(write, entry);
+        }
+
+        Map<WriteOperation, Throwable> failures;
+        try {
+            failures = repository.getStore().bulkWrite(writes).join().getFailures();
+        } catch (RuntimeException e) {
+            Throwable cause = ApiFutureSupport.unwrap(e);
+            failures = new LinkedHashMap<>();
+            for (WriteOperation write : writes) {
+                failures.put(write, cause);
+            }
+        }
+        batches.incrementAndGet();
+
+        long now = System.currentTimeMillis();
+        List<Entry> retry = new ArrayList<>();
+        for (Map.Entry<WriteOperation, Entry> item : entries.entrySet()) {
+            Entry entry = item.getValue();
+            Throwable failure = failures.get(item.getKey());
+            if (failure == null) {
+                delivered.incrementAndGet();
+                totalLagMillis.addAndGet(now - entry.enqueuedAtMillis);
+                continue;
+            }
+
+            failedWrites.incrementAndGet();
+            entry.attempts++;
+            if (entry.attempts >= MAX_ATTEMPTS) {
+                dropped.incrementAndGet();
+                System.err.println("Dropping notification " + entry.notification.getNotificationId()
+                        + " after " + entry.attempts + " attempts: " + failure.getMessage());
+            } else {
+                retry.add(entry);
+            }
+        }
+
+        synchronized (stateLock) {
+            inFlight.clear();
+            for (int i = retry.size() - 1; i >= 0; i--) {
+                queue.addFirst(retry.get(i));
+            }
+            compactSpill();
+        }
+
+        if (!retry.isEmpty()) {
+            System.err.println("Failed to deliver " + retry.size() + " notifications; retrying.");
+        }
+        return !retry.isEmpty();
+    }
+
+    /**
+     * Must be called while holding stateLock.
+     */
+    private void appendToSpill(Entry entry) {
+        if (spillFile == null) {
+            return;
+        }
+
+        try {
+            if (spill == null) {
+                Files.createDirectories(spillFile.toAbsolutePath().getParent());
+                spill = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            spill.write(DocumentMapper.toJson(DocumentMapper.toMap(entry.notification)));
+            spill.newLine();
+            spill.flush();
+        } catch (IOException e) {
+            System.err.println("Could not write notification outbox file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Empties the spill file once nothing is pending, or rewrites it with only the pending
+     * notifications when it has grown large. Must be called while holding stateLock.
+     */
+    private void compactSpill() {
+        if (spillFile == null) {
+            return;
+        }
+
+        try {
+            long size = Files.exists(spillFile) ? Files.size(spillFile) : 0;
+            boolean empty = queue.isEmpty() && inFlight.isEmpty();
+            if (size == 0 || (!empty && size < SPILL_COMPACT_BYTES)) {
+                return;
+            }
+
+            closeSpill();
+            Path temp = spillFile.resolveSibling(spillFile.getFileName() + ".tmp");
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (Entry entry : inFlight) {
+                    writer.write(DocumentMapper.toJson(DocumentMapper.toMap(entry.notification)));
+                    writer.newLine();
+                }
+                for (Entry entry : queue) {
+                    writer.write(DocumentMapper.toJson(DocumentMapper.toMap(entry.notification)));
+                    writer.newLine();
+                }
+            }
+            Files.move(temp, spillFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Could not compact notification outbox file: " + e.getMessage());
+        }
+    }
+
+    private void closeSpill() {
+        if (spill != null) {
+            try {
+                spill.close();
+            } catch (IOException e) {
+                System.err.println("Error closing notification outbox file: " + e.getMessage());
+            }
+            spill = null;
+        }
+    }
+
+    /**
+     * Requeues notifications left in the spill file by an earlier run. A torn last line from
+     * a crash is skipped.
+     */
+    private void recoverSpill() {
+        if (!Files.exists(spillFile)) {
+            return;
+        }
+
+        int recovered = 0;
+        try {
+            for (String line : Files.readAllLines(spillFile, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    Map<String, Object> data = DocumentMapper.fromJson(line);
+                    AppNotification notification = DocumentMapper.toObject(data, null, AppNotification.class);
+                    if (notification != null && notification.getNotificationId() != null) {
+                        queue.addLast(new Entry(notification, notification.getCreatedAt()));
+                        recovered++;
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("Skipping unreadable notification outbox entry: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read notification outbox file: " + e.getMessage());
+            return;
+        }
+
+        if (recovered > 0) {
+            System.out.println("Requeued " + recovered + " undelivered notifications from " + spillFile);
+            synchronized (stateLock) {
+                startDrainer();
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final AppNotification notification;
+        private final long enqueuedAtMillis;
+        private int attempts;
+
+        private Entry(AppNotification notification, long enqueuedAtMillis) {
+            this.notification = notification;
+            this.enqueuedAtMillis = enqueuedAtMillis;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Reads and writes in-app notifications.
+ */
+public class NotificationRepository extends StoreRepository {
+
+    public static final String COLLECTION = "notifications";
+
+    public NotificationRepository(DocumentStore store) {
+        super(store);
+    }
+
+    public String newId() {
+        return store.newDocumentId(COLLECTION);
+    }
+
+    public CompletableFuture<List<AppNotification>> findByUser(String userUid) {
+        return find(StoreQuery.collection(COLLECTION)
+                .whereEqualTo("userUid", userUid));
+    }
+
+    public CompletableFuture<List<AppNotification>> findUnreadByUser(String userUid) {
+        return find(StoreQuery.collection(COLLECTION)
+                .whereEqualTo("userUid", userUid)
+                .whereEqualTo("read", false));
+    }
+
+    public CompletableFuture<Long> countUnreadByUser(String userUid) {
+        return store.count(StoreQuery.collection(COLLECTION)
+                .whereEqualTo("userUid", userUid)
+                .whereEqualTo("read", false));
+    }
+
+    /**
+     * Live version of {@link #findUnreadByUser}. onError receives the failure that ends the
+     * subscription.
+     */
+    public StoreSubscription listenUnreadByUser(String userUid, Consumer<List<AppNotification>> listener,
+                                                Consumer<Throwable> onError) {
+        return store.listen(StoreQuery.collection(COLLECTION)
+                        .whereEqualTo("userUid", userUid)
+                        .whereEqualTo("read", false),
+                docs -> listener.accept(toModels(docs, AppNotification.class, AppNotification::setNotificationId)),
+                onError);
+    }
+
+    /**
+     * Creates or replaces the notification under its notificationId.
+     */
+    public CompletableFuture<Void> save(AppNotification notification) {
+        return store.set(COLLECTION, notification.getNotificationId(), notification);
+    }
+
+    public CompletableFuture<Void> markRead(String notificationId) {
+        return store.update(COLLECTION, notificationId, Map.of("read", true));
+    }
+
+    /**
+     * The write that creates or replaces the notification under its notificationId.
+     */
+    public WriteOperation saveOperation(AppNotification notification) {
+        return WriteOperation.set(COLLECTION, notification.getNotificationId(), notification);
+    }
+
+    /**
+     * Marks many documents read through one bulk write.
+     */
+    public CompletableFuture<BulkWriteResult> markAllRead(Collection<String> notificationIds) {
+        List<WriteOperation> operations = new ArrayList<>();
+        for (String id : notificationIds) {
+            operations.add(WriteOperation.update(COLLECTION, id, Map.of("read", true)));
+        }
+        return store.bulkWrite(operations);
+    }
+
+    private CompletableFuture<List<AppNotification>> find(StoreQuery query) {
+        return store.query(query)
+                .thenApply(docs -> toModels(docs, AppNotification.class, AppNotification::setNotificationId));
+    }
+}
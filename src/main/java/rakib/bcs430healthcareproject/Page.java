@@ -0,0 +1,33 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of results plus the opaque cursor that loads the next page.
+ */
+public final class Page<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items == null ? List.of() : Collections.unmodifiableList(items);
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * Pass this back to load the next page. Null on the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
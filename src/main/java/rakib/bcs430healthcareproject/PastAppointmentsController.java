@@ -17,15 +17,17 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 
 public class PastAppointmentsController {
 
     private static final DateTimeFormatter DISPLAY_DATE_FORMAT =
             DateTimeFormatter.ofPattern("MMM dd, yyyy 'at' hh:mm a", Locale.ENGLISH);
 
+    private static final int PAGE_SIZE = 20;
+
     @FXML private Button backButton;
     @FXML private Label titleLabel;
     @FXML private Label statusLabel;
@@ -36,15 +38,26 @@ public class PastAppointmentsController {
     private final FirebaseService firebaseService = new FirebaseService();
     private final UserContext userContext = UserContext.getInstance();
     private List<Appointment> pastAppointments = new ArrayList<>();
+    private AppointmentWindow pastWindow;
+    private AppointmentWindow completedAheadWindow;
+    private boolean readingCompletedAhead;
+    private boolean onLastWindow;
+    private boolean exhausted;
+    private String nextCursor;
+    private boolean loadingPage;
+    private int loadGeneration;
 
     @FXML
     public void initialize() {
         sortComboBox.getItems().addAll("Newest to Oldest", "Oldest to Newest");
         sortComboBox.setValue("Newest to Oldest");
-        sortComboBox.setOnAction(event -> renderPastAppointments());
+        sortComboBox.setOnAction(event -> loadAppointments());
         loadAppointments();
     }
 
+    /**
+     * Starts over from the first page in the selected order.
+     */
     private void loadAppointments() {
         String patientUid = resolveTargetPatientUid();
         if (patientUid == null || patientUid.isBlank()) {
@@ -54,49 +67,80 @@ public class PastAppointmentsController {
         }
 
         titleLabel.setText(resolveTitle());
+        pastAppointments = new ArrayList<>();
+        nextCursor = null;
+        loadingPage = false;
+        loadGeneration++;
+        long now = System.currentTimeMillis();
+        boolean newestFirst = "Newest to Oldest".equals(sortComboBox.getValue());
+        pastWindow = AppointmentWindow.past(now).inDirection(newestFirst);
+        // Visits marked completed before their booked time are history too. They sort after
+        // every past appointment, so they are read first when newest first and last otherwise.
+        completedAheadWindow = AppointmentWindow.upcoming(now).inDirection(newestFirst);
+        readingCompletedAhead = newestFirst;
+        onLastWindow = false;
+        exhausted = false;
+        loadNextPage(patientUid);
+    }
+
+    private void loadNextPage(String patientUid) {
+        if (loadingPage) {
+            return;
+        }
+        loadingPage = true;
+        int generation = loadGeneration;
         showStatus("Loading past appointments...", false);
 
-        firebaseService.getPatientAppointments(patientUid)
-                .thenAccept(appointments -> Platform.runLater(() -> {
-                    long now = System.currentTimeMillis();
-                    pastAppointments = new ArrayList<>();
+        CompletableFuture<Page<Appointment>> request = readingCompletedAhead
+                ? firebaseService.getPatientAppointmentsPageByStatus(
+                        patientUid, "COMPLETED", completedAheadWindow, PAGE_SIZE, nextCursor)
+                : firebaseService.getPatientAppointmentsPage(patientUid, pastWindow, PAGE_SIZE, nextCursor);
+        request
+                .thenAccept(page -> Platform.runLater(() -> {
+                    if (generation != loadGeneration) {
+                        return;
+                    }
+                    loadingPage = false;
+                    nextCursor = page.getNextCursor();
 
-                    if (appointments != null) {
-                        for (Appointment appointment : appointments) {
-                            if (appointment == null) {
-                                continue;
-                            }
-                            String status = normalizedStatus(appointment);
-                            if ("CANCELLED".equals(status)) {
-                                continue;
-                            }
-                            if ("COMPLETED".equals(status) || appointment.hasPassed(now)) {
-                                pastAppointments.add(appointment);
+                    int before = pastAppointments.size();
+                    for (Appointment appointment : page.getItems()) {
+                        if (appointment != null && !"CANCELLED".equals(normalizedStatus(appointment))) {
+                            pastAppointments.add(appointment);
+                        }
+                    }
+
+                    if (nextCursor == null) {
+                        if (onLastWindow) {
+                            exhausted = true;
+                        } else {
+                            onLastWindow = true;
+                            readingCompletedAhead = !readingCompletedAhead;
+                            if (pastAppointments.size() == before) {
+                                loadNextPage(patientUid);
+                                return;
                             }
                         }
                     }
 
-                    renderPastAppointments();
+                    renderPastAppointments(patientUid);
                 }))
                 .exceptionally(ex -> {
-                    Platform.runLater(() -> showStatus("Failed to load past appointments: " + cleanErrorMessage(ex), true));
+                    Platform.runLater(() -> {
+                        if (generation != loadGeneration) {
+                            return;
+                        }
+                        loadingPage = false;
+                        showStatus("Failed to load past appointments: " + cleanErrorMessage(ex), true);
+                    });
                     return null;
                 });
     }
 
-    private void renderPastAppointments() {
+    private void renderPastAppointments(String patientUid) {
         appointmentsListVBox.getChildren().clear();
 
-        Comparator<Appointment> comparator = Comparator.comparing(
-                Appointment::resolveAppointmentEpochMillis,
-                Comparator.nullsLast(Long::compareTo)
-        );
-        if ("Newest to Oldest".equals(sortComboBox.getValue())) {
-            comparator = comparator.reversed();
-        }
-        pastAppointments.sort(comparator);
-
-        if (pastAppointments.isEmpty()) {
+        if (pastAppointments.isEmpty() && exhausted) {
             Label empty = new Label("No past appointments found.");
             empty.setStyle("-fx-text-fill: #64748B; -fx-font-size: 13;");
             appointmentsListVBox.getChildren().add(empty);
@@ -104,10 +148,19 @@ public class PastAppointmentsController {
             return;
         }
 
-        showStatus("Found " + pastAppointments.size() + " past appointment(s).", false);
+        showStatus(exhausted
+                ? "Found " + pastAppointments.size() + " past appointment(s)."
+                : "Showing " + pastAppointments.size() + " past appointment(s).", false);
         for (Appointment appointment : pastAppointments) {
             appointmentsListVBox.getChildren().add(buildAppointmentCard(appointment));
         }
+
+        if (!exhausted) {
+            Button loadMoreButton = new Button("Load more");
+            loadMoreButton.setStyle("-fx-background-color: #0F766E; -fx-text-fill: white; -fx-font-size: 12; -fx-font-weight: bold; -fx-background-radius: 8;");
+            loadMoreButton.setOnAction(event -> loadNextPage(patientUid));
+            appointmentsListVBox.getChildren().add(loadMoreButton);
+        }
     }
 
     private VBox buildAppointmentCard(Appointment appointment) {
@@ -44,6 +44,7 @@ public class PatientAppointmentsController {
     private UserContext userContext;
     private List<Appointment> allAppointments = new ArrayList<>();
     private Timeline refreshTimeline;
+    private StoreSubscription appointmentsSubscription;
 
     @FXML
     public void initialize() {
@@ -60,20 +61,30 @@ public class PatientAppointmentsController {
         startRealtimeRefresh();
     }
 
+    /**
+     * Appointments arrive from the session's event stream whenever they change. The timer only
+     * re-renders, so appointments that have started drop out of the upcoming list; it does not
+     * query anything.
+     */
     private void startRealtimeRefresh() {
         refreshTimeline = new Timeline(new KeyFrame(Duration.seconds(30), e -> displayAppointments(filterComboBox.getValue())));
         refreshTimeline.setCycleCount(Timeline.INDEFINITE);
         refreshTimeline.play();
 
         appointmentsListVBox.sceneProperty().addListener((obs, oldScene, newScene) -> {
-            if (newScene == null && refreshTimeline != null) {
-                refreshTimeline.stop();
+            if (newScene == null) {
+                if (refreshTimeline != null) {
+                    refreshTimeline.stop();
+                }
+                if (appointmentsSubscription != null) {
+                    appointmentsSubscription.cancel();
+                }
             }
         });
     }
 
     /**
-     * Load patient's appointments from Firebase
+     * Subscribe to the patient's appointments
      */
     private void loadAppointments() {
         if (!userContext.isLoggedIn()) {
@@ -82,27 +93,21 @@ public class PatientAppointmentsController {
         }
 
         showStatus("Loading appointments...", false);
-        String patientUid = userContext.getUid();
+        appointmentsSubscription = userContext.getEventStream().subscribeAppointments(
+                appointments -> Platform.runLater(() -> showAppointments(appointments)),
+                error -> Platform.runLater(() ->
+                        showStatus("Error loading appointments: " + cleanErrorMessage(error), true)));
+    }
 
-        firebaseService.getPatientAppointments(patientUid)
-                .thenAccept(appointments -> {
-                    Platform.runLater(() -> {
-                        allAppointments = appointments == null ? new ArrayList<>() : appointments;
-                        if (allAppointments.isEmpty()) {
-                            showStatus("No appointments found. Book one from the Find a Doctor section.", false);
-                            appointmentsListVBox.getChildren().clear();
-                        } else {
-                            showStatus("Found " + allAppointments.size() + " appointment(s)", false);
-                            displayAppointments(filterComboBox.getValue());
-                        }
-                    });
-                })
-                .exceptionally(e -> {
-                    Platform.runLater(() ->
-                            showStatus("Error loading appointments: " + e.getMessage(), true)
-                    );
-                    return null;
-                });
+    private void showAppointments(List<Appointment> appointments) {
+        allAppointments = appointments == null ? new ArrayList<>() : appointments;
+        if (allAppointments.isEmpty()) {
+            showStatus("No appointments found. Book one from the Find a Doctor section.", false);
+            appointmentsListVBox.getChildren().clear();
+        } else {
+            showStatus("Found " + allAppointments.size() + " appointment(s)", false);
+            displayAppointments(filterComboBox.getValue());
+        }
     }
 
     /**
@@ -464,33 +469,36 @@ public class PatientAppointmentsController {
 
         showStatus("Rescheduling appointment...", false);
 
-        firebaseService.isSlotStillAvailable(apt.getDoctorUid(), newDate.toString(), newSlot)
-                .thenCompose(isAvailable -> {
-                    if (!isAvailable) {
-                        throw new RuntimeException("That time was just booked. Please choose another slot.");
-                    }
-
-                    LocalTime localTime = parseTime(newSlot);
-                    LocalDateTime localDateTime = LocalDateTime.of(newDate, localTime);
-                    long newTimestamp = ZonedDateTime.of(localDateTime, ZoneId.systemDefault())
-                            .toInstant()
-                            .toEpochMilli();
-
-                    apt.setAppointmentDate(newDate.toString());
-                    apt.setAppointmentSlot(newSlot);
-                    apt.setAppointmentTime(newDate + " " + newSlot);
-                    apt.setAppointmentDateTime(newTimestamp);
-
-                    return firebaseService.updateAppointment(apt);
-                })
-                .thenAccept(v -> Platform.runLater(() -> {
-                    showStatus("Appointment rescheduled successfully", false);
-                    loadAppointments();
-                }))
+        LocalTime localTime = parseTime(newSlot);
+        LocalDateTime localDateTime = LocalDateTime.of(newDate, localTime);
+        long newTimestamp = ZonedDateTime.of(localDateTime, ZoneId.systemDefault())
+                .toInstant()
+                .toEpochMilli();
+
+        String previousDate = apt.getAppointmentDate();
+        String previousSlot = apt.getAppointmentSlot();
+        String previousTime = apt.getAppointmentTime();
+        Long previousTimestamp = apt.getAppointmentDateTime();
+
+        apt.setAppointmentDate(newDate.toString());
+        apt.setAppointmentSlot(newSlot);
+        apt.setAppointmentTime(newDate + " " + newSlot);
+        apt.setAppointmentDateTime(newTimestamp);
+
+        // The update claims the new slot atomically and fails if it was just booked. The event
+        // stream delivers the rescheduled appointment; on failure the old values are put back.
+        firebaseService.updateAppointment(apt)
+                .thenAccept(v -> Platform.runLater(() ->
+                        showStatus("Appointment rescheduled successfully", false)))
                 .exceptionally(e -> {
-                    Platform.runLater(() ->
-                            showStatus("Failed to reschedule appointment: " + cleanErrorMessage(e), true)
-                    );
+                    Platform.runLater(() -> {
+                        apt.setAppointmentDate(previousDate);
+                        apt.setAppointmentSlot(previousSlot);
+                        apt.setAppointmentTime(previousTime);
+                        apt.setAppointmentDateTime(previousTimestamp);
+                        showStatus("Failed to reschedule appointment: " + cleanErrorMessage(e), true);
+                        displayAppointments(filterComboBox.getValue());
+                    });
                     return null;
                 });
     }
@@ -598,10 +606,7 @@ public class PatientAppointmentsController {
         if (confirm.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK) {
             firebaseService.deleteAppointment(apt.getAppointmentId())
                     .thenAccept(v -> {
-                        Platform.runLater(() -> {
-                            showStatus("Appointment cancelled", false);
-                            loadAppointments();
-                        });
+                        Platform.runLater(() -> showStatus("Appointment cancelled", false));
                     })
                     .exceptionally(e -> {
                         Platform.runLater(() ->
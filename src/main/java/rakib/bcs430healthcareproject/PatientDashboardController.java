@@ -46,20 +46,16 @@ public class PatientDashboardController {
     @FXML private Label notificationCountLabel;
 
     private Timeline clockTimeline;
-    private Timeline unreadCheckTimeline;
-    private Timeline notificationPolling;
+    private final List<StoreSubscription> subscriptions = new ArrayList<>();
 
-    private FirebaseService firebaseService;
     private UserContext userContext;
 
     @FXML
     public void initialize() {
-        firebaseService = new FirebaseService();
         userContext = UserContext.getInstance();
 
         startClock();
         setupNotificationBellAnimation();
-        startUnreadMessageChecker();
 
         if (userContext.isLoggedIn()) {
             PatientProfile profile = userContext.getProfile();
@@ -72,12 +68,18 @@ public class PatientDashboardController {
                 patientEmailLabel.setText("Email: " + profile.getEmail());
             }
 
-            loadNotificationCount(uid);
-            loadUpcomingAppointments(uid);
-            startNotificationPolling(uid);
+            subscribeToEvents(userContext.getEventStream());
         } else {
             hideNotificationBadge();
         }
+
+        if (currentDateTimeLabel != null) {
+            currentDateTimeLabel.sceneProperty().addListener((obs, oldScene, newScene) -> {
+                if (newScene == null) {
+                    stopUpdates();
+                }
+            });
+        }
     }
 
     private void startClock() {
@@ -91,59 +93,38 @@ public class PatientDashboardController {
         currentDateTimeLabel.setText("Today: " + LocalDateTime.now().format(DATE_TIME_DISPLAY_FORMAT));
     }
 
-    private void startUnreadMessageChecker() {
-        unreadCheckTimeline = new Timeline(
-                new KeyFrame(Duration.seconds(5), e -> checkUnreadMessages())
-        );
-        unreadCheckTimeline.setCycleCount(Timeline.INDEFINITE);
-        unreadCheckTimeline.play();
-    }
-
-    private void checkUnreadMessages() {
-        String uid = userContext.getUid();
-
-        firebaseService.hasUnreadMessages(uid, "PATIENT")
-                .thenAccept(hasUnread -> Platform.runLater(() -> {
-                    if (hasUnread) {
-                        messageFabButton.getStyleClass().remove("fab-message");
-                        if (!messageFabButton.getStyleClass().contains("fab-message-unread")) {
-                            messageFabButton.getStyleClass().add("fab-message-unread");
-                        }
-                    } else {
-                        messageFabButton.getStyleClass().remove("fab-message-unread");
-                        if (!messageFabButton.getStyleClass().contains("fab-message")) {
-                            messageFabButton.getStyleClass().add("fab-message");
-                        }
+    /**
+     * The session's event stream pushes unread messages, the notification count and the
+     * patient's appointments whenever they change.
+     */
+    private void subscribeToEvents(UserEventStream events) {
+        subscriptions.add(events.subscribeUnreadMessages(
+                hasUnread -> Platform.runLater(() -> updateFabIndicator(hasUnread))));
+        subscriptions.add(events.subscribeUnreadNotificationCount(
+                unread -> Platform.runLater(() -> updateNotificationBadge(unread.intValue()))));
+        subscriptions.add(events.subscribeAppointments(
+                appointments -> Platform.runLater(() -> renderUpcomingAppointments(appointments)),
+                error -> Platform.runLater(() -> {
+                    if (upcomingAppointmentsStatusLabel != null) {
+                        upcomingAppointmentsStatusLabel.setText("Unable to load upcoming appointments.");
                     }
-                }))
-                .exceptionally(ex -> {
-                    ex.printStackTrace();
-                    return null;
-                });
+                })));
     }
 
-    private void startNotificationPolling(String uid) {
-        notificationPolling = new Timeline(
-                new KeyFrame(Duration.seconds(5), e -> {
-                    loadNotificationCount(uid);
-                    loadUpcomingAppointments(uid);
-                })
-        );
-        notificationPolling.setCycleCount(Timeline.INDEFINITE);
-        notificationPolling.play();
-    }
+    private void updateFabIndicator(boolean hasUnread) {
+        if (messageFabButton == null) return;
 
-    private void loadUpcomingAppointments(String uid) {
-        firebaseService.getPatientAppointments(uid)
-                .thenAccept(appointments -> Platform.runLater(() -> renderUpcomingAppointments(appointments)))
-                .exceptionally(ex -> {
-                    Platform.runLater(() -> {
-                        if (upcomingAppointmentsStatusLabel != null) {
-                            upcomingAppointmentsStatusLabel.setText("Unable to load upcoming appointments.");
-                        }
-                    });
-                    return null;
-                });
+        if (hasUnread) {
+            messageFabButton.getStyleClass().remove("fab-message");
+            if (!messageFabButton.getStyleClass().contains("fab-message-unread")) {
+                messageFabButton.getStyleClass().add("fab-message-unread");
+            }
+        } else {
+            messageFabButton.getStyleClass().remove("fab-message-unread");
+            if (!messageFabButton.getStyleClass().contains("fab-message")) {
+                messageFabButton.getStyleClass().add("fab-message");
+            }
+        }
     }
 
     private void renderUpcomingAppointments(List<Appointment> appointments) {
@@ -242,18 +223,6 @@ public class PatientDashboardController {
         return value == null || value.isBlank() ? fallback : value;
     }
 
-    private void loadNotificationCount(String uid) {
-        new Thread(() -> {
-            try {
-                int unread = firebaseService.getUnreadNotificationCount(uid);
-                Platform.runLater(() -> updateNotificationBadge(unread));
-            } catch (Exception e) {
-                e.printStackTrace();
-                Platform.runLater(this::hideNotificationBadge);
-            }
-        }).start();
-    }
-
     private void updateNotificationBadge(int count) {
         if (notificationCountLabel == null) return;
 
@@ -316,10 +285,17 @@ public class PatientDashboardController {
 
     @FXML
     private void onLogout() {
+        stopUpdates();
         userContext.clearUserData();
         SceneRouter.go("login-view.fxml", "Login");
     }
 
+    private void stopUpdates() {
+        if (clockTimeline != null) clockTimeline.stop();
+        subscriptions.forEach(StoreSubscription::cancel);
+        subscriptions.clear();
+    }
+
     private void setupNotificationBellAnimation() {
         if (notificationButton != null) {
             ScaleTransition pulse = new ScaleTransition(Duration.millis(800), notificationButton);
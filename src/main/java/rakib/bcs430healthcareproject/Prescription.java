@@ -17,6 +17,7 @@ public class Prescription {
     private String hospitalName;
     private String patientUid;
     private String patientName;
+    private String patientDateOfBirth;
     private String pharmacyName;
     private String pharmacyAddress;
     private String pharmacyAddressNormalized;
@@ -101,6 +102,17 @@ public class Prescription {
         this.patientName = patientName;
     }
 
+    /**
+     * The patient's date of birth when the prescription was written, checked at pickup.
+     */
+    public String getPatientDateOfBirth() {
+        return patientDateOfBirth;
+    }
+
+    public void setPatientDateOfBirth(String patientDateOfBirth) {
+        this.patientDateOfBirth = patientDateOfBirth;
+    }
+
     public String getPharmacyName() {
         return pharmacyName;
     }
@@ -0,0 +1,137 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Reads and writes prescription documents.
+ */
+public class PrescriptionRepository extends StoreRepository {
+
+    public static final String COLLECTION = "prescriptions";
+
+    /** Prescription lists are ordered newest first by this epoch. */
+    public static final String ORDER_FIELD = "createdAt";
+
+    public PrescriptionRepository(DocumentStore store) {
+        super(store);
+    }
+
+    public String newId() {
+        return store.newDocumentId(COLLECTION);
+    }
+
+    /**
+     * Completes with null when the prescription does not exist.
+     */
+    public CompletableFuture<Prescription> findById(String prescriptionId) {
+        return store.get(COLLECTION, prescriptionId)
+                .thenApply(doc -> toModel(doc, Prescription.class, Prescription::setPrescriptionId));
+    }
+
+    public CompletableFuture<List<Prescription>> findByPatient(String patientUid) {
+        return find(StoreQuery.collection(COLLECTION)
+                .whereEqualTo("patientUid", patientUid));
+    }
+
+    /**
+     * The patient's most recent prescriptions whose field ("doctorUid", "hospitalUid" or
+     * "status") equals the value, newest first, at most limit of them.
+     */
+    public CompletableFuture<List<Prescription>> findRecentByPatientAnd(String patientUid, String field,
+                                                                        String value, int limit) {
+        return find(StoreQuery.collection(COLLECTION)
+                .whereEqualTo("patientUid", patientUid)
+                .whereEqualTo(field, value)
+                .orderBy(ORDER_FIELD, true)
+                .limit(limit));
+    }
+
+    /**
+     * One page of the patient's prescriptions whose field equals the value, newest first.
+     */
+    public CompletableFuture<Page<Prescription>> findPageByPatientAnd(String patientUid, String field, String value,
+                                                                      int pageSize, String cursor) {
+        return readPage(StoreQuery.collection(COLLECTION)
+                        .whereEqualTo("patientUid", patientUid)
+                        .whereEqualTo(field, value)
+                        .orderBy(ORDER_FIELD, true),
+                pageSize, cursor, Prescription.class, Prescription::setPrescriptionId);
+    }
+
+    public CompletableFuture<List<Prescription>> findByPharmacyAddress(String pharmacyAddressNormalized) {
+        return find(StoreQuery.collection(COLLECTION)
+                .whereEqualTo("pharmacyAddressNormalized", pharmacyAddressNormalized));
+    }
+
+    /**
+     * Keeps the prescriptions whose field ("patientUid", "doctorUid" or
+     * "pharmacyAddressNormalized") equals the value live.
+     */
+    public StoreSubscription listenBy(String field, String value, Consumer<List<Prescription>> listener) {
+        return store.listen(fieldQuery(field, value), docs -> listener.accept(toPrescriptions(docs)));
+    }
+
+    /**
+     * Same as above, also replacing the replica dataset with every snapshot. onError receives
+     * the failure that ends the subscription.
+     */
+    public StoreSubscription listenBy(String field, String value, LocalReplica.Dataset replica,
+                                      Consumer<List<Prescription>> listener, Consumer<Throwable> onError) {
+        return store.listen(fieldQuery(field, value), docs -> {
+            if (replica != null) {
+                replica.replaceAll(docs);
+            }
+            listener.accept(toPrescriptions(docs));
+        }, onError);
+    }
+
+    /**
+     * The replica dataset that {@link #listenBy} keeps for the owning user.
+     */
+    public static LocalReplica.Dataset replicaBy(LocalReplica replica, String owner, String field, String value) {
+        return replica.dataset(owner, fieldQuery(field, value), null);
+    }
+
+    static List<Prescription> toPrescriptions(List<StoredDocument> docs) {
+        return toModels(docs, Prescription.class, Prescription::setPrescriptionId);
+    }
+
+    private static StoreQuery fieldQuery(String field, String value) {
+        return StoreQuery.collection(COLLECTION).whereEqualTo(field, value);
+    }
+
+    /**
+     * One page of every prescription, newest first, continuing after the cursor of the
+     * previous page.
+     */
+    public CompletableFuture<Page<Prescription>> findPage(int pageSize, String cursor) {
+        return readPage(StoreQuery.collection(COLLECTION).orderBy(ORDER_FIELD, true),
+                pageSize, cursor, Prescription.class, Prescription::setPrescriptionId);
+    }
+
+    /**
+     * Creates or replaces the prescription under its prescriptionId.
+     */
+    public CompletableFuture<Void> save(Prescription prescription) {
+        return store.set(COLLECTION, prescription.getPrescriptionId(), prescription);
+    }
+
+    /**
+     * Atomically applies the fields the change computes from the current prescription. The
+     * change receives null when the prescription does not exist and may run more than once.
+     */
+    public CompletableFuture<Map<String, Object>> updateFields(String prescriptionId,
+                                                               Function<Prescription, Map<String, Object>> change) {
+        return store.updateAtomically(COLLECTION, prescriptionId,
+                doc -> change.apply(toModel(doc, Prescription.class, Prescription::setPrescriptionId)));
+    }
+
+    private CompletableFuture<List<Prescription>> find(StoreQuery query) {
+        return store.query(query)
+                .thenApply(docs -> toModels(docs, Prescription.class, Prescription::setPrescriptionId));
+    }
+}
@@ -0,0 +1,410 @@
+package rakib.bcs430healthcareproject;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Prescription state machine used by the pharmacy and patient screens.
+ *
+ * Each transition reads the prescription and writes only the fields it changes in one atomic
+ * update (a Firestore transaction), so two pharmacists acting on the same prescription cannot
+ * overwrite each other's work. Which statuses a transition may start from is listed in
+ * {@link Transition}; a prescription without a status is treated as {@link Prescription#STATUS_SENT}.
+ *
+ * Latency, conflict retries and rejections are recorded per transition; see {@link #getStats}.
+ */
+public class PrescriptionWorkflow {
+
+    private static final DateTimeFormatter REFILL_DATE_FORMAT = DateTimeFormatter.ofPattern("MMM d, yyyy h:mm a");
+
+    /**
+     * Transition table: the status each transition moves to and the statuses it may start from.
+     */
+    public enum Transition {
+        FILL(Prescription.STATUS_FILLED,
+                "This prescription has already been picked up and cannot be marked filled again.",
+                Prescription.STATUS_SENT, Prescription.STATUS_FILLED, Prescription.STATUS_REFILL_REQUESTED),
+        CONFIRM_PICKUP(Prescription.STATUS_PICKED_UP,
+                "Only filled prescriptions can be confirmed for pickup.",
+                Prescription.STATUS_FILLED),
+        REFILL(Prescription.STATUS_FILLED,
+                "Only filled or picked up prescriptions can be refilled.",
+                Prescription.STATUS_FILLED, Prescription.STATUS_PICKED_UP, Prescription.STATUS_REFILL_REQUESTED),
+        REQUEST_REFILL(Prescription.STATUS_REFILL_REQUESTED,
+                "A refill request has already been sent for this prescription.",
+                Prescription.STATUS_SENT, Prescription.STATUS_FILLED, Prescription.STATUS_PICKED_UP);
+
+        private final String targetStatus;
+        private final String rejectionMessage;
+        private final Set<String> fromStatuses;
+
+        Transition(String targetStatus, String rejectionMessage, String... fromStatuses) {
+            this.targetStatus = targetStatus;
+            this.rejectionMessage = rejectionMessage;
+            this.fromStatuses = Set.of(fromStatuses);
+        }
+
+        public String getTargetStatus() {
+            return targetStatus;
+        }
+
+        public Set<String> getFromStatuses() {
+            return fromStatuses;
+        }
+
+        public boolean allowsFrom(String status) {
+            String current = status == null || status.isBlank() ? Prescription.STATUS_SENT : status.trim().toUpperCase();
+            return fromStatuses.contains(current);
+        }
+    }
+
+    private final PrescriptionRepository prescriptionRepository;
+    private final Map<Transition, TransitionStats> stats = new EnumMap<>(Transition.class);
+
+    public PrescriptionWorkflow(PrescriptionRepository prescriptionRepository) {
+        this.prescriptionRepository = prescriptionRepository;
+        for (Transition transition : Transition.values()) {
+            stats.put(transition, new TransitionStats());
+        }
+    }
+
+    /**
+     * Marks the prescription filled by the pharmacy and starts its refill interval.
+     */
+    public CompletableFuture<Prescription> fill(String prescriptionId, PharmacyProfile pharmacy) {
+        return run(Transition.FILL, prescriptionId, (prescription, fields) -> {
+            requireAssignedPharmacy(prescription, pharmacy, fields);
+
+            long filledAt = System.currentTimeMillis();
+            fields.put("filledAt", filledAt);
+            fields.put("filledBy", pharmacy.getPharmacyName());
+            fields.put("nextRefillEligibleAt", PrescriptionRefillSupport.calculateNextRefillEligibleAt(
+                    filledAt, PrescriptionRefillSupport.getRefillIntervalDays(prescription)));
+        });
+    }
+
+    /**
+     * Records the pickup once the patient's name and date of birth match the prescription,
+     * checked after the pharmacy and status so a wrong pharmacy learns nothing about the
+     * patient. A prescription without a stored date of birth is checked against the patient
+     * profile, which is then stored on it; without a profile the call fails with
+     * {@link PatientProfileRequiredException}.
+     */
+    public CompletableFuture<Prescription> confirmPickup(String prescriptionId, PharmacyProfile pharmacy,
+                                                        String patientName, String patientDateOfBirth,
+                                                        PatientProfile patientProfile) {
+        return run(Transition.CONFIRM_PICKUP, prescriptionId, (prescription, fields) -> {
+            requireAssignedPharmacy(prescription, pharmacy, fields);
+
+            String storedName = prescription.getPatientName();
+            String storedDob = prescription.getPatientDateOfBirth();
+            if (storedDob == null || storedDob.isBlank()) {
+                if (patientProfile == null) {
+                    throw new PatientProfileRequiredException(prescription.getPatientUid());
+                }
+                if (patientProfile.getName() != null) {
+                    storedName = patientProfile.getName();
+                }
+                storedDob = patientProfile.getDateOfBirth();
+                if (storedDob != null && !storedDob.isBlank()) {
+                    fields.put("patientDateOfBirth", storedDob);
+                }
+            }
+            if (!normalizePersonName(storedName).equals(normalizePersonName(patientName))) {
+                throw new TransitionRejectedException("Patient name does not match the prescription profile.");
+            }
+            if (storedDob == null || storedDob.isBlank() || !storedDob.trim().equals(patientDateOfBirth.trim())) {
+                throw new TransitionRejectedException("Patient date of birth does not match the prescription profile.");
+            }
+
+            fields.put("pickedUpAt", System.currentTimeMillis());
+            fields.put("pickedUpByPatientName", patientName.trim());
+            fields.put("pickedUpPatientDateOfBirth", patientDateOfBirth.trim());
+            fields.put("pickupConfirmedBy", pharmacy.getPharmacyName());
+        });
+    }
+
+    /**
+     * Dispenses a refill at the pharmacy: uses up one refill and restarts the refill interval.
+     */
+    public CompletableFuture<Prescription> refill(String prescriptionId, String actorName, PharmacyProfile pharmacy) {
+        return run(Transition.REFILL, prescriptionId, (prescription, fields) -> {
+            int remainingRefills = requireRemainingRefills(prescription);
+            requireAssignedPharmacy(prescription, pharmacy, fields);
+
+            Integer refillIntervalDays = PrescriptionRefillSupport.getRefillIntervalDays(prescription);
+            if (refillIntervalDays == null) {
+                throw new TransitionRejectedException("This prescription is missing a refill interval.");
+            }
+
+            Long nextRefillEligibleAt = PrescriptionRefillSupport.getNextRefillEligibleAt(prescription);
+            if (nextRefillEligibleAt == null) {
+                throw new TransitionRejectedException("This prescription is missing its next refill date.");
+            }
+
+            long now = System.currentTimeMillis();
+            if (now < nextRefillEligibleAt) {
+                throw new TransitionRejectedException("This prescription cannot be refilled until "
+                        + Instant.ofEpochMilli(nextRefillEligibleAt).atZone(ZoneId.systemDefault())
+                        .format(REFILL_DATE_FORMAT) + ".");
+            }
+
+            int updatedRemainingRefills = remainingRefills - 1;
+            fields.put("remainingRefills", updatedRemainingRefills);
+            fields.put("refillDetails", PrescriptionRefillSupport.formatRemainingRefills(updatedRemainingRefills));
+            fields.put("filledAt", now);
+            fields.put("filledBy", actorName != null && !actorName.isBlank() ? actorName : prescription.getPharmacyName());
+            fields.put("nextRefillEligibleAt", PrescriptionRefillSupport.calculateNextRefillEligibleAt(now, refillIntervalDays));
+            fields.put("refillRequested", false);
+            fields.put("refillRequestedBy", null);
+            fields.put("refillRequestedAt", null);
+        });
+    }
+
+    /**
+     * Asks the pharmacy for a refill on the patient's or doctor's behalf.
+     */
+    public CompletableFuture<Prescription> requestRefill(String prescriptionId, String actorName) {
+        return run(Transition.REQUEST_REFILL, prescriptionId, (prescription, fields) -> {
+            requireRemainingRefills(prescription);
+            if (Boolean.TRUE.equals(prescription.getRefillRequested())) {
+                throw new TransitionRejectedException(Transition.REQUEST_REFILL.rejectionMessage);
+            }
+
+            fields.put("refillRequested", true);
+            fields.put("refillRequestedBy", actorName);
+            fields.put("refillRequestedAt", System.currentTimeMillis());
+        });
+    }
+
+    public TransitionStats getStats(Transition transition) {
+        return stats.get(transition);
+    }
+
+    /**
+     * One line per transition that has run, for logs.
+     */
+    public String describeStats() {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<Transition, TransitionStats> entry : stats.entrySet()) {
+            if (entry.getValue().getCalls() > 0) {
+                text.append(entry.getKey()).append(": ").append(entry.getValue()).append(System.lineSeparator());
+            }
+        }
+        return text.toString();
+    }
+
+    private CompletableFuture<Prescription> run(Transition transition, String prescriptionId, Change change) {
+        if (prescriptionId == null || prescriptionId.isBlank()) {
+            return CompletableFuture.failedFuture(new RuntimeException("Prescription ID is required."));
+        }
+
+        long start = System.nanoTime();
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicReference<Prescription> result = new AtomicReference<>();
+
+        CompletableFuture<Map<String, Object>> update = prescriptionRepository.updateFields(prescriptionId, prescription -> {
+            attempts.incrementAndGet();
+            if (prescription == null) {
+                throw new TransitionRejectedException("Prescription not found.");
+            }
+            if (!transition.allowsFrom(prescription.getStatus())) {
+                throw new TransitionRejectedException(transition.rejectionMessage);
+            }
+
+            Map<String, Object> fields = new LinkedHashMap<>();
+            change.apply(prescription, fields);
+            fields.put("status", transition.targetStatus);
+
+            applyToModel(prescription, fields);
+            result.set(prescription);
+            return fields;
+        });
+
+        return update.handle((fields, error) -> {
+            TransitionStats transitionStats = stats.get(transition);
+            Throwable cause = error == null ? null : ApiFutureSupport.unwrap(error);
+            transitionStats.record(System.nanoTime() - start, Math.max(0, attempts.get() - 1),
+                    cause == null, cause instanceof TransitionRejectedException);
+
+            if (cause != null) {
+                throw cause instanceof RuntimeException runtime ? runtime : new RuntimeException(cause.getMessage(), cause);
+            }
+            return result.get();
+        });
+    }
+
+    private static int requireRemainingRefills(Prescription prescription) {
+        Integer remainingRefills = PrescriptionRefillSupport.getRemainingRefills(prescription);
+        if (remainingRefills == null) {
+            throw new TransitionRejectedException("This prescription does not have a usable refill count.");
+        }
+        if (remainingRefills <= 0) {
+            throw new TransitionRejectedException("No refills are available for this prescription.");
+        }
+        return remainingRefills;
+    }
+
+    /**
+     * Also stores the normalized pharmacy address on older prescriptions that lack it.
+     */
+    private static void requireAssignedPharmacy(Prescription prescription, PharmacyProfile pharmacy,
+                                                Map<String, Object> fields) {
+        if (pharmacy == null || pharmacy.getAddressNormalized() == null || pharmacy.getAddressNormalized().isBlank()) {
+            throw new TransitionRejectedException("Pharmacy account is required.");
+        }
+
+        String prescriptionAddress = prescription.getPharmacyAddressNormalized();
+        if (prescriptionAddress == null || prescriptionAddress.isBlank()) {
+            prescriptionAddress = AddressNormalizer.normalize(prescription.getPharmacyAddress());
+            fields.put("pharmacyAddressNormalized", prescriptionAddress);
+        }
+
+        if (!pharmacy.getAddressNormalized().equals(prescriptionAddress)) {
+            throw new TransitionRejectedException("This prescription is not assigned to your pharmacy.");
+        }
+    }
+
+    private static String normalizePersonName(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase();
+    }
+
+    /**
+     * Mirrors the written fields onto the model returned to the caller.
+     */
+    private static void applyToModel(Prescription prescription, Map<String, Object> fields) {
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            Object value = field.getValue();
+            switch (field.getKey()) {
+                case "status" -> prescription.setStatus((String) value);
+                case "pharmacyAddressNormalized" -> prescription.setPharmacyAddressNormalized((String) value);
+                case "patientDateOfBirth" -> prescription.setPatientDateOfBirth((String) value);
+                case "filledAt" -> prescription.setFilledAt((Long) value);
+                case "filledBy" -> prescription.setFilledBy((String) value);
+                case "nextRefillEligibleAt" -> prescription.setNextRefillEligibleAt((Long) value);
+                case "pickedUpAt" -> prescription.setPickedUpAt((Long) value);
+                case "pickedUpByPatientName" -> prescription.setPickedUpByPatientName((String) value);
+                case "pickedUpPatientDateOfBirth" -> prescription.setPickedUpPatientDateOfBirth((String) value);
+                case "pickupConfirmedBy" -> prescription.setPickupConfirmedBy((String) value);
+                case "remainingRefills" -> prescription.setRemainingRefills((Integer) value);
+                case "refillDetails" -> prescription.setRefillDetails((String) value);
+                case "refillRequested" -> prescription.setRefillRequested((Boolean) value);
+                case "refillRequestedBy" -> prescription.setRefillRequestedBy((String) value);
+                case "refillRequestedAt" -> prescription.setRefillRequestedAt((Long) value);
+                default -> throw new IllegalStateException("Unmapped prescription field: " + field.getKey());
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Change {
+        void apply(Prescription prescription, Map<String, Object> fields);
+    }
+
+    /**
+     * The prescription's current state does not allow the transition. Not retried.
+     */
+    private static class TransitionRejectedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private TransitionRejectedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * The prescription predates the stored date of birth, so the pickup must be retried with
+     * the patient's profile.
+     */
+    public static final class PatientProfileRequiredException extends TransitionRejectedException {
+        private static final long serialVersionUID = 1L;
+
+        private final String patientUid;
+
+        private PatientProfileRequiredException(String patientUid) {
+            super("The patient profile is required to check this pickup.");
+            this.patientUid = patientUid;
+        }
+
+        public String getPatientUid() {
+            return patientUid;
+        }
+    }
+
+    /**
+     * Running totals for one transition.
+     */
+    public static final class TransitionStats {
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong committed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos, int retryCount, boolean success, boolean rejection) {
+            calls.incrementAndGet();
+            retries.addAndGet(retryCount);
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            if (success) {
+                committed.incrementAndGet();
+            } else if (rejection) {
+                rejected.incrementAndGet();
+            }
+        }
+
+        public long getCalls() {
+            return calls.get();
+        }
+
+        public long getCommitted() {
+            return committed.get();
+        }
+
+        /**
+         * Calls refused by the transition table or a business rule.
+         */
+        public long getRejected() {
+            return rejected.get();
+        }
+
+        /**
+         * Extra attempts caused by concurrent writes to the same prescription.
+         */
+        public long getRetries() {
+            return retries.get();
+        }
+
+        public double getRetriesPerCall() {
+            long count = calls.get();
+            return count == 0 ? 0 : (double) retries.get() / count;
+        }
+
+        public double getAverageMillis() {
+            long count = calls.get();
+            return count == 0 ? 0 : totalNanos.get() / 1_000_000.0 / count;
+        }
+
+        public long getMaxMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d calls, %d committed, %d rejected, %d failed, %.3f retries/call, avg %.3f ms, max %d ms",
+                    getCalls(), getCommitted(), getRejected(), getCalls() - getCommitted() - getRejected(),
+                    getRetriesPerCall(), getAverageMillis(), getMaxMillis());
+        }
+    }
+}
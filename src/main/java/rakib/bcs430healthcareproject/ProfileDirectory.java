@@ -0,0 +1,91 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cached doctor, pharmacy and hospital directories. Search screens, contact lists and
+ * pharmacy pickers read these collections over and over while they change only when a
+ * provider signs up or edits a profile, so each is a {@link ReferenceDataCache} kept current
+ * by a live query. Given a {@link LocalReplica}, each directory is also saved to disk and
+ * synced by its updatedAt watermark, so a restart shows the last known list at once.
+ *
+ * The TTL and size bound come from {@value #TTL_PROPERTY} (seconds) and
+ * {@value #MAX_ENTRIES_PROPERTY}.
+ */
+public final class ProfileDirectory {
+
+    public static final String TTL_PROPERTY = "healthconnect.directory.ttlSeconds";
+    public static final String MAX_ENTRIES_PROPERTY = "healthconnect.directory.maxEntries";
+
+    private static final String WATERMARK_FIELD = "updatedAt";
+
+    private static final int DEFAULT_TTL_SECONDS = 600;
+    private static final int DEFAULT_MAX_ENTRIES = 5_000;
+
+    private final ReferenceDataCache<Doctor> doctors;
+    private final ReferenceDataCache<PharmacyProfile> pharmacies;
+    private final ReferenceDataCache<HospitalProfile> hospitals;
+
+    public ProfileDirectory(DocumentStore store) {
+        this(store, null);
+    }
+
+    public ProfileDirectory(DocumentStore store, LocalReplica replica) {
+        this(store, TimeUnit.SECONDS.toMillis(FirestoreExecutor.readPositiveInt(TTL_PROPERTY, DEFAULT_TTL_SECONDS)),
+                FirestoreExecutor.readPositiveInt(MAX_ENTRIES_PROPERTY, DEFAULT_MAX_ENTRIES), replica);
+    }
+
+    public ProfileDirectory(DocumentStore store, long ttlMillis, int maxEntries) {
+        this(store, ttlMillis, maxEntries, null);
+    }
+
+    public ProfileDirectory(DocumentStore store, long ttlMillis, int maxEntries, LocalReplica replica) {
+        doctors = new ReferenceDataCache<>("doctors", store, ProfileRepository.DOCTORS_COLLECTION,
+                ProfileRepository::toDoctor, null, ttlMillis, maxEntries,
+                dataset(replica, ProfileRepository.DOCTORS_COLLECTION));
+        pharmacies = new ReferenceDataCache<>("pharmacies", store, ProfileRepository.PHARMACIES_COLLECTION,
+                ProfileRepository::toPharmacy,
+                Comparator.comparing(profile -> nameOrEmpty(profile.getPharmacyName()), String.CASE_INSENSITIVE_ORDER),
+                ttlMillis, maxEntries, dataset(replica, ProfileRepository.PHARMACIES_COLLECTION));
+        hospitals = new ReferenceDataCache<>("hospitals", store, ProfileRepository.HOSPITALS_COLLECTION,
+                ProfileRepository::toHospital,
+                Comparator.comparing(profile -> nameOrEmpty(profile.getHospitalName()), String.CASE_INSENSITIVE_ORDER),
+                ttlMillis, maxEntries, dataset(replica, ProfileRepository.HOSPITALS_COLLECTION));
+    }
+
+    public ReferenceDataCache<Doctor> getDoctors() {
+        return doctors;
+    }
+
+    public ReferenceDataCache<PharmacyProfile> getPharmacies() {
+        return pharmacies;
+    }
+
+    public ReferenceDataCache<HospitalProfile> getHospitals() {
+        return hospitals;
+    }
+
+    public String describeStats() {
+        return doctors.describeStats() + System.lineSeparator()
+                + pharmacies.describeStats() + System.lineSeparator()
+                + hospitals.describeStats();
+    }
+
+    public void close() {
+        doctors.close();
+        pharmacies.close();
+        hospitals.close();
+    }
+
+    /**
+     * Directories are the same for every user, so their datasets have no owner.
+     */
+    private static LocalReplica.Dataset dataset(LocalReplica replica, String collection) {
+        return replica == null ? null : replica.dataset("", StoreQuery.collection(collection), WATERMARK_FIELD);
+    }
+
+    private static String nameOrEmpty(String name) {
+        return name != null ? name : "";
+    }
+}
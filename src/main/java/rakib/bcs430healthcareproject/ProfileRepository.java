@@ -0,0 +1,467 @@
+package rakib.bcs430healthcareproject;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads and writes account profiles: patients, doctors, pharmacies, hospitals and the shared
+ * users directory.
+ *
+ * Every profile save also keeps the email index current: one document per normalized email
+ * naming the account's UID and role, so an email resolves to its account with a point read.
+ * The index entry is written in the same transaction as the profile, which also makes an email
+ * belong to at most one account.
+ */
+public class ProfileRepository extends StoreRepository {
+
+    public static final String PATIENTS_COLLECTION = "patients";
+    public static final String USERS_COLLECTION = "users";
+    public static final String DOCTORS_COLLECTION = "doctors";
+    public static final String PHARMACIES_COLLECTION = "pharmacies";
+    public static final String HOSPITALS_COLLECTION = "hospitals";
+    public static final String EMAIL_INDEX_COLLECTION = "emailIndex";
+
+    /** Roles in the order a legacy email search prefers them, with their profile collections. */
+    private static final Map<String, String> ROLE_COLLECTIONS = orderedRoleCollections();
+
+    public ProfileRepository(DocumentStore store) {
+        super(store);
+    }
+
+    /**
+     * Generates an account UID for stores that run without Firebase Authentication.
+     */
+    public String newAccountId() {
+        return store.newDocumentId(USERS_COLLECTION);
+    }
+
+    // ---- Patients ----
+
+    /**
+     * Completes with null when the patient does not exist.
+     */
+    public CompletableFuture<PatientProfile> findPatient(String uid) {
+        return store.get(PATIENTS_COLLECTION, uid)
+                .thenApply(doc -> toModel(doc, PatientProfile.class, ProfileRepository::fillPatientUid));
+    }
+
+    public CompletableFuture<List<PatientProfile>> findPatientsByIds(Collection<String> uids) {
+        return store.getAll(PATIENTS_COLLECTION, uids)
+                .thenApply(docs -> toModels(docs, PatientProfile.class, ProfileRepository::fillPatientUid));
+    }
+
+    public CompletableFuture<List<PatientProfile>> findPatientsByEmail(String email) {
+        return store.query(StoreQuery.collection(PATIENTS_COLLECTION).whereEqualTo("email", email))
+                .thenApply(docs -> toModels(docs, PatientProfile.class, ProfileRepository::fillPatientUid));
+    }
+
+    public CompletableFuture<Void> savePatient(String uid, PatientProfile profile) {
+        return saveProfile(PATIENTS_COLLECTION, "PATIENT", uid, profile.getEmail(), profile);
+    }
+
+    // ---- Doctors ----
+
+    /**
+     * Completes with null when the doctor does not exist.
+     */
+    public CompletableFuture<DoctorProfile> findDoctorProfile(String uid) {
+        return store.get(DOCTORS_COLLECTION, uid)
+                .thenApply(doc -> toModel(doc, DoctorProfile.class, null));
+    }
+
+    public CompletableFuture<List<DoctorProfile>> findDoctorProfilesByEmail(String email) {
+        return store.query(StoreQuery.collection(DOCTORS_COLLECTION).whereEqualTo("email", email))
+                .thenApply(docs -> toModels(docs, DoctorProfile.class, null));
+    }
+
+    /**
+     * Completes with null when the doctor does not exist.
+     */
+    public CompletableFuture<Doctor> findDoctor(String uid) {
+        return store.get(DOCTORS_COLLECTION, uid)
+                .thenApply(doc -> doc.exists() ? mapDoctorDocument(doc) : null);
+    }
+
+    public CompletableFuture<List<Doctor>> findAllDoctors() {
+        return store.query(StoreQuery.collection(DOCTORS_COLLECTION))
+                .thenApply(ProfileRepository::mapDoctorDocuments);
+    }
+
+    /**
+     * The hospital's doctors, only those in the department if one is given. Department names
+     * must match exactly.
+     */
+    public CompletableFuture<List<Doctor>> findDoctorsByHospital(String hospitalUid, String department) {
+        StoreQuery query = StoreQuery.collection(DOCTORS_COLLECTION).whereEqualTo("hospitalUid", hospitalUid);
+        if (department != null && !department.isBlank()) {
+            query = query.whereEqualTo("department", department);
+        }
+        return store.query(query).thenApply(ProfileRepository::mapDoctorDocuments);
+    }
+
+    public CompletableFuture<List<Doctor>> findDoctorsByIds(Collection<String> uids) {
+        return store.getAll(DOCTORS_COLLECTION, uids)
+                .thenApply(ProfileRepository::mapDoctorDocuments);
+    }
+
+    public CompletableFuture<Void> saveDoctor(String uid, DoctorProfile profile) {
+        return saveProfile(DOCTORS_COLLECTION, "DOCTOR", uid, profile.getEmail(), profile);
+    }
+
+    // ---- Pharmacies ----
+
+    /**
+     * Completes with null when the pharmacy does not exist.
+     */
+    public CompletableFuture<PharmacyProfile> findPharmacy(String uid) {
+        return store.get(PHARMACIES_COLLECTION, uid)
+                .thenApply(doc -> toModel(doc, PharmacyProfile.class, ProfileRepository::fillPharmacyUid));
+    }
+
+    public CompletableFuture<List<PharmacyProfile>> findAllPharmacies() {
+        return store.query(StoreQuery.collection(PHARMACIES_COLLECTION))
+                .thenApply(docs -> toModels(docs, PharmacyProfile.class, ProfileRepository::fillPharmacyUid));
+    }
+
+    public CompletableFuture<List<PharmacyProfile>> findPharmaciesByEmail(String email) {
+        return store.query(StoreQuery.collection(PHARMACIES_COLLECTION).whereEqualTo("email", email))
+                .thenApply(docs -> toModels(docs, PharmacyProfile.class, ProfileRepository::fillPharmacyUid));
+    }
+
+    public CompletableFuture<Boolean> isPharmacyAddressClaimed(String addressNormalized) {
+        return store.query(StoreQuery.collection(PHARMACIES_COLLECTION).whereEqualTo("addressNormalized", addressNormalized))
+                .thenApply(docs -> !docs.isEmpty());
+    }
+
+    public CompletableFuture<Void> savePharmacy(String uid, PharmacyProfile profile) {
+        return saveProfile(PHARMACIES_COLLECTION, "PHARMACY", uid, profile.getEmail(), profile);
+    }
+
+    // ---- Hospitals ----
+
+    /**
+     * Completes with null when the hospital does not exist.
+     */
+    public CompletableFuture<HospitalProfile> findHospital(String uid) {
+        return store.get(HOSPITALS_COLLECTION, uid)
+                .thenApply(doc -> toModel(doc, HospitalProfile.class, ProfileRepository::fillHospitalUid));
+    }
+
+    public CompletableFuture<List<HospitalProfile>> findAllHospitals() {
+        return store.query(StoreQuery.collection(HOSPITALS_COLLECTION))
+                .thenApply(docs -> toModels(docs, HospitalProfile.class, ProfileRepository::fillHospitalUid));
+    }
+
+    public CompletableFuture<List<HospitalProfile>> findHospitalsByEmail(String email) {
+        return store.query(StoreQuery.collection(HOSPITALS_COLLECTION).whereEqualTo("email", email))
+                .thenApply(docs -> toModels(docs, HospitalProfile.class, ProfileRepository::fillHospitalUid));
+    }
+
+    public CompletableFuture<Boolean> isHospitalAddressClaimed(String addressNormalized) {
+        return store.query(StoreQuery.collection(HOSPITALS_COLLECTION).whereEqualTo("addressNormalized", addressNormalized))
+                .thenApply(docs -> !docs.isEmpty());
+    }
+
+    public CompletableFuture<Void> saveHospital(String uid, HospitalProfile profile) {
+        return saveProfile(HOSPITALS_COLLECTION, "HOSPITAL", uid, profile.getEmail(), profile);
+    }
+
+    // ---- Users directory ----
+
+    public CompletableFuture<Void> saveUserAccount(String uid, String name, String email, String role) {
+        Map<String, Object> userDoc = new HashMap<>();
+        userDoc.put("uid", uid);
+        userDoc.put("name", name);
+        userDoc.put("email", email);
+        userDoc.put("role", role);
+        userDoc.put("createdAt", System.currentTimeMillis());
+
+        return store.set(USERS_COLLECTION, uid, userDoc);
+    }
+
+    /**
+     * True when any patient, doctor, pharmacy or hospital account already uses the email.
+     */
+    public CompletableFuture<Boolean> isEmailRegistered(String email) {
+        return findAccountByEmail(email).thenApply(account -> account != null);
+    }
+
+    // ---- Email index ----
+
+    /**
+     * The UID and role of the account with the email, or null if there is none. One point read
+     * for indexed accounts; an account saved before the index existed is searched for in every
+     * profile collection at once and indexed when found.
+     */
+    public CompletableFuture<LoginResult> findAccountByEmail(String email) {
+        String normalized = normalizeEmail(email);
+        if (normalized.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return store.get(EMAIL_INDEX_COLLECTION, emailIndexId(normalized)).thenCompose(doc -> {
+            if (doc.exists()) {
+                return CompletableFuture.completedFuture(new LoginResult(doc.getString("uid"), doc.getString("role")));
+            }
+            return searchAccountByEmail(normalized).thenCompose(account -> account == null
+                    ? CompletableFuture.completedFuture(null)
+                    : indexLegacyAccount(normalized, account).thenApply(ignored -> account));
+        });
+    }
+
+    /**
+     * Rewrites the email index from every profile, for accounts created before it was kept.
+     * When two accounts share an email the first role in patient, doctor, pharmacy, hospital
+     * order keeps it. Returns the number of entries written.
+     */
+    public CompletableFuture<Integer> rebuildEmailIndex() {
+        List<CompletableFuture<List<StoredDocument>>> reads = new ArrayList<>();
+        for (String collection : ROLE_COLLECTIONS.values()) {
+            reads.add(store.query(StoreQuery.collection(collection)));
+        }
+
+        return ApiFutureSupport.allOf(reads).thenCompose(results -> {
+            Map<String, WriteOperation> entries = new LinkedHashMap<>();
+            List<String> roles = new ArrayList<>(ROLE_COLLECTIONS.keySet());
+            for (int i = 0; i < roles.size(); i++) {
+                for (StoredDocument doc : results.get(i)) {
+                    String email = normalizeEmail(doc.getString("email"));
+                    if (email.isEmpty()) {
+                        continue;
+                    }
+                    if (entries.containsKey(email)) {
+                        System.err.println("Email " + email + " is used by more than one account; keeping the first.");
+                        continue;
+                    }
+                    entries.put(email, WriteOperation.set(EMAIL_INDEX_COLLECTION, emailIndexId(email),
+                            emailIndexEntry(email, doc.getId(), roles.get(i))));
+                }
+            }
+
+            return store.bulkWrite(new ArrayList<>(entries.values())).thenApply(result -> {
+                result.throwIfFailed("Some email index entries were not written");
+                return result.getSucceededCount();
+            });
+        });
+    }
+
+    /**
+     * Emails are compared trimmed and lower-cased.
+     */
+    public static String normalizeEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Document ID of a normalized email's index entry, escaped so any email is a valid ID.
+     */
+    static String emailIndexId(String normalizedEmail) {
+        return URLEncoder.encode(normalizedEmail, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Saves the profile and points its email's index entry at it in one transaction, removing
+     * the entry of the email it had before. Fails if another account has the email.
+     */
+    private CompletableFuture<Void> saveProfile(String collection, String role, String uid, String email, Object profile) {
+        String normalized = normalizeEmail(email);
+        if (normalized.isEmpty()) {
+            return store.set(collection, uid, profile);
+        }
+
+        return store.get(collection, uid).thenCompose(current -> {
+            String previous = current.exists() ? normalizeEmail(current.getString("email")) : "";
+            List<String> ids = new ArrayList<>(List.of(emailIndexId(normalized)));
+            if (!previous.isEmpty() && !previous.equals(normalized)) {
+                ids.add(emailIndexId(previous));
+            }
+
+            return store.commitAtomically(EMAIL_INDEX_COLLECTION, ids, entries -> {
+                StoredDocument entry = entries.get(0);
+                if (entry.exists() && !uid.equals(entry.getString("uid"))) {
+                    throw new RuntimeException("Email is already registered.");
+                }
+
+                List<WriteOperation> writes = new ArrayList<>();
+                writes.add(WriteOperation.set(collection, uid, profile));
+                writes.add(WriteOperation.set(EMAIL_INDEX_COLLECTION, entry.getId(), emailIndexEntry(normalized, uid, role)));
+                if (entries.size() > 1 && entries.get(1).exists() && uid.equals(entries.get(1).getString("uid"))) {
+                    writes.add(WriteOperation.delete(EMAIL_INDEX_COLLECTION, entries.get(1).getId()));
+                }
+                return writes;
+            });
+        });
+    }
+
+    private CompletableFuture<LoginResult> searchAccountByEmail(String normalizedEmail) {
+        List<CompletableFuture<List<StoredDocument>>> lookups = new ArrayList<>();
+        for (String collection : ROLE_COLLECTIONS.values()) {
+            lookups.add(store.query(StoreQuery.collection(collection).whereEqualTo("email", normalizedEmail).limit(1)));
+        }
+
+        return ApiFutureSupport.allOf(lookups).thenApply(results -> {
+            List<String> roles = new ArrayList<>(ROLE_COLLECTIONS.keySet());
+            for (int i = 0; i < roles.size(); i++) {
+                if (!results.get(i).isEmpty()) {
+                    return new LoginResult(results.get(i).get(0).getId(), roles.get(i));
+                }
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Indexes an account found by a search. A failure only costs the next lookup another search.
+     */
+    private CompletableFuture<Void> indexLegacyAccount(String normalizedEmail, LoginResult account) {
+        return store.commit(List.of(WriteOperation.create(EMAIL_INDEX_COLLECTION, emailIndexId(normalizedEmail),
+                        emailIndexEntry(normalizedEmail, account.getUid(), account.getRole()))))
+                .exceptionally(error -> {
+                    System.err.println("Could not index email " + normalizedEmail + ": "
+                            + ApiFutureSupport.unwrap(error).getMessage());
+                    return null;
+                });
+    }
+
+    static Map<String, Object> emailIndexEntry(String normalizedEmail, String uid, String role) {
+        Map<String, Object> entry = new HashMap<>();
+        entry.put("email", normalizedEmail);
+        entry.put("uid", uid);
+        entry.put("role", role);
+        entry.put("updatedAt", System.currentTimeMillis());
+        return entry;
+    }
+
+    private static Map<String, String> orderedRoleCollections() {
+        Map<String, String> collections = new LinkedHashMap<>();
+        collections.put("PATIENT", PATIENTS_COLLECTION);
+        collections.put("DOCTOR", DOCTORS_COLLECTION);
+        collections.put("PHARMACY", PHARMACIES_COLLECTION);
+        collections.put("HOSPITAL", HOSPITALS_COLLECTION);
+        return collections;
+    }
+
+    /**
+     * Maps a doctors document the way {@link #findDoctor} does, for {@link ProfileDirectory}.
+     */
+    static Doctor toDoctor(StoredDocument doc) {
+        return doc.exists() ? mapDoctorDocument(doc) : null;
+    }
+
+    /**
+     * Maps a pharmacies document and fills in the full and normalized address when an older
+     * document lacks them.
+     */
+    static PharmacyProfile toPharmacy(StoredDocument doc) {
+        PharmacyProfile profile = toModel(doc, PharmacyProfile.class, ProfileRepository::fillPharmacyUid);
+        if (profile == null) {
+            return null;
+        }
+        if (profile.getFullAddress() == null || profile.getFullAddress().isBlank()) {
+            profile.setFullAddress(PharmacyProfile.buildFullAddress(
+                    profile.getAddressLine(), profile.getCity(), profile.getState(), profile.getZip()));
+        }
+        if (profile.getAddressNormalized() == null || profile.getAddressNormalized().isBlank()) {
+            profile.setAddressNormalized(AddressNormalizer.normalize(profile.getFullAddress()));
+        }
+        return profile;
+    }
+
+    /**
+     * Maps a hospitals document and fills in the full and normalized address when an older
+     * document lacks them.
+     */
+    static HospitalProfile toHospital(StoredDocument doc) {
+        HospitalProfile profile = toModel(doc, HospitalProfile.class, ProfileRepository::fillHospitalUid);
+        if (profile == null) {
+            return null;
+        }
+        if (profile.getFullAddress() == null || profile.getFullAddress().isBlank()) {
+            profile.setFullAddress(HospitalProfile.buildFullAddress(
+                    profile.getAddressLine(), profile.getCity(), profile.getState(), profile.getZip()));
+        }
+        if (profile.getAddressNormalized() == null || profile.getAddressNormalized().isBlank()) {
+            profile.setAddressNormalized(AddressNormalizer.normalize(profile.getFullAddress()));
+        }
+        return profile;
+    }
+
+    private static List<Doctor> mapDoctorDocuments(List<StoredDocument> docs) {
+        List<Doctor> doctors = new ArrayList<>();
+        for (StoredDocument doc : docs) {
+            if (doc.exists()) {
+                doctors.add(mapDoctorDocument(doc));
+            }
+        }
+        return doctors;
+    }
+
+    private static Doctor mapDoctorDocument(StoredDocument doc) {
+        Doctor doctor = new Doctor();
+
+        doctor.setUid(doc.getId());
+        doctor.setName(doc.getString("name"));
+        doctor.setEmail(doc.getString("email"));
+        doctor.setSpecialty(doc.getString("specialty"));
+        doctor.setZip(doc.getString("zip"));
+        doctor.setClinicName(doc.getString("clinicName"));
+
+        doctor.setHospitalUid(doc.getString("hospitalUid"));
+        doctor.setHospitalName(doc.getString("hospitalName"));
+        doctor.setDepartment(doc.getString("department"));
+
+        doctor.setCity(doc.getString("city"));
+        doctor.setState(doc.getString("state"));
+        doctor.setAddress(doc.getString("address"));
+        doctor.setPhone(doc.getString("phone"));
+        doctor.setAcceptingNewPatients(doc.getBoolean("acceptingNewPatients"));
+
+        doctor.setHours(doc.getString("hours"));
+        doctor.setInsuranceInfo(doc.getString("insuranceInfo"));
+        doctor.setBio(doc.getString("bio"));
+        doctor.setLicenseNumber(doc.getString("licenseNumber"));
+        doctor.setVisitType(doc.getString("visitType"));
+        doctor.setNotes(doc.getString("notes"));
+
+        Object availabilityObj = doc.get("availability");
+        if (availabilityObj instanceof Map<?, ?> rawMap) {
+            Map<String, String> availability = new HashMap<>();
+
+            for (Map.Entry<?, ?> entry : rawMap.entrySet()) {
+                if (entry.getKey() != null && entry.getValue() != null) {
+                    availability.put(entry.getKey().toString(), entry.getValue().toString());
+                }
+            }
+
+            doctor.setAvailability(availability);
+        }
+
+        return doctor;
+    }
+
+    private static void fillPatientUid(PatientProfile profile, String documentId) {
+        if (profile.getUid() == null || profile.getUid().isBlank()) {
+            profile.setUid(documentId);
+        }
+    }
+
+    private static void fillPharmacyUid(PharmacyProfile profile, String documentId) {
+        if (profile.getUid() == null || profile.getUid().isBlank()) {
+            profile.setUid(documentId);
+        }
+    }
+
+    private static void fillHospitalUid(HospitalProfile profile, String documentId) {
+        if (profile.getUid() == null || profile.getUid().isBlank()) {
+            profile.setUid(documentId);
+        }
+    }
+}
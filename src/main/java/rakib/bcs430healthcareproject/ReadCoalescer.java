@@ -0,0 +1,120 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight reads: while a read is in flight, an identical read joins it instead of going
+ * to the backend again. Shared by every {@link CoalescingDocumentStore} on the same store, and
+ * counts the backend reads issued and the ones saved by joining or by a read scope.
+ *
+ * Reads and writes are ordered by a shared clock. A caller passes the {@link #mark()} taken
+ * when its last write completed, and only joins reads that started after it, so it always
+ * sees its own writes even when another caller's older read is still in flight.
+ */
+public final class ReadCoalescer {
+
+    private final Map<Object, InFlightRead> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AtomicLong backendReads = new AtomicLong();
+    private final AtomicLong joinedReads = new AtomicLong();
+    private final AtomicLong scopeHits = new AtomicLong();
+
+    /**
+     * Runs the read unless an identical one (same key) is in flight, in which case it
+     * completes with that read's result. The key must capture everything the read depends on.
+     */
+    public <T> CompletableFuture<T> read(Object key, Supplier<CompletableFuture<T>> read) {
+        return read(key, 0L, read);
+    }
+
+    /**
+     * Like {@link #read(Object, Supplier)}, but only joins a read that started after the
+     * given mark. An older read in flight is left to its own callers.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> read(Object key, long notBefore, Supplier<CompletableFuture<T>> read) {
+        CompletableFuture<T> started = new CompletableFuture<>();
+        InFlightRead entry = new InFlightRead(started, clock.incrementAndGet());
+        InFlightRead current = inFlight.compute(key, (ignored, existing) ->
+                existing != null && existing.startedAt > notBefore ? existing : entry);
+        if (current != entry) {
+            joinedReads.incrementAndGet();
+            return (CompletableFuture<T>) current.result;
+        }
+
+        backendReads.incrementAndGet();
+        CompletableFuture<T> result;
+        try {
+            result = read.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, error) -> {
+            inFlight.remove(key, entry);
+            if (error != null) {
+                started.completeExceptionally(error);
+            } else {
+                started.complete(value);
+            }
+        });
+        return started;
+    }
+
+    /**
+     * A point on the clock after everything that has completed so far. Taken when a write
+     * completes and passed to {@link #read(Object, long, Supplier)}.
+     */
+    public long mark() {
+        return clock.incrementAndGet();
+    }
+
+    void recordScopeHit() {
+        scopeHits.incrementAndGet();
+    }
+
+    public long getBackendReadCount() {
+        return backendReads.get();
+    }
+
+    /**
+     * Reads answered by joining an identical read already in flight.
+     */
+    public long getJoinedReadCount() {
+        return joinedReads.get();
+    }
+
+    /**
+     * Reads answered from a read scope without going to the backend.
+     */
+    public long getScopeHitCount() {
+        return scopeHits.get();
+    }
+
+    public long getSavedReadCount() {
+        return joinedReads.get() + scopeHits.get();
+    }
+
+    public String describeStats() {
+        long saved = getSavedReadCount();
+        long requested = backendReads.get() + saved;
+        return String.format("%d reads requested, %d sent to the backend, %d saved (%d joined in flight, "
+                        + "%d from read scopes, %.0f%%)",
+                requested, backendReads.get(), saved, joinedReads.get(), scopeHits.get(),
+                requested == 0 ? 0.0 : saved * 100.0 / requested);
+    }
+
+    private static final class InFlightRead {
+        private final CompletableFuture<?> result;
+        private final long startedAt;
+
+        private InFlightRead(CompletableFuture<?> result, long startedAt) {
+            this.result = result;
+            this.startedAt = startedAt;
+        }
+    }
+}
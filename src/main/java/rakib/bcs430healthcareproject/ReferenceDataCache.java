@@ -0,0 +1,275 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * In-memory copy of a small, rarely written collection such as the doctor directory.
+ *
+ * The first full read registers a {@link DocumentStore#listen} query on the collection, and
+ * every snapshot it delivers replaces the cached copy in place, so edits show up without a
+ * re-read. The TTL only bounds how stale the copy can get if the listener stops; after it
+ * expires the next read goes to the store again. A collection with more than the configured
+ * number of documents is not kept at all and every read goes to the store.
+ *
+ * With a {@link LocalReplica} dataset, the first read after start is answered from the copy
+ * saved by the last run while the dataset syncs in the background, reloads fetch only the
+ * documents changed since the replica's watermark, and the live query only covers documents
+ * at or after that watermark. A deletion older than the watermark is then only noticed by
+ * the sync's count check when the TTL runs out.
+ *
+ * Callers get their own list, but the model objects are shared and must not be modified.
+ */
+public final class ReferenceDataCache<T> {
+
+    private final String name;
+    private final DocumentStore store;
+    private final String collection;
+    private final Function<StoredDocument, T> mapper;
+    private final Comparator<T> order;
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final LocalReplica.Dataset replica;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong bypassed = new AtomicLong();
+    private final AtomicLong replicaServes = new AtomicLong();
+
+    private volatile Directory<T> directory;
+    private CompletableFuture<Directory<T>> loading;
+    private StoreSubscription subscription;
+    private boolean oversized;
+    private boolean seeded;
+    private boolean closed;
+
+    public ReferenceDataCache(String name, DocumentStore store, String collection, Function<StoredDocument, T> mapper,
+                              Comparator<T> order, long ttlMillis, int maxEntries) {
+        this(name, store, collection, mapper, order, ttlMillis, maxEntries, null);
+    }
+
+    /**
+     * The replica dataset, if any, must cover the whole collection and have a watermark field.
+     */
+    public ReferenceDataCache(String name, DocumentStore store, String collection, Function<StoredDocument, T> mapper,
+                              Comparator<T> order, long ttlMillis, int maxEntries, LocalReplica.Dataset replica) {
+        if (ttlMillis <= 0 || maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache TTL and size must be positive.");
+        }
+        this.name = name;
+        this.store = store;
+        this.collection = collection;
+        this.mapper = mapper;
+        this.order = order;
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.replica = replica;
+    }
+
+    /**
+     * Every document of the collection in the cache's order.
+     */
+    public CompletableFuture<List<T>> getAll() {
+        Directory<T> current = freshDirectory();
+        if (current != null) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(new ArrayList<>(current.items));
+        }
+
+        Directory<T> saved = seedFromReplica();
+        if (saved != null) {
+            hits.incrementAndGet();
+            replicaServes.incrementAndGet();
+            load();
+            return CompletableFuture.completedFuture(new ArrayList<>(saved.items));
+        }
+
+        misses.incrementAndGet();
+        return load().thenApply(loaded -> new ArrayList<>(loaded.items));
+    }
+
+    /**
+     * One document by ID, or null if it does not exist. Served from memory when the collection
+     * is cached; otherwise, or if the ID was created after the last snapshot, it is a point read.
+     */
+    public CompletableFuture<T> get(String id) {
+        Directory<T> current = freshDirectory();
+        if (current != null && current.byId.containsKey(id)) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(current.byId.get(id));
+        }
+
+        misses.incrementAndGet();
+        return store.get(collection, id).thenApply(doc -> doc.exists() ? mapper.apply(doc) : null);
+    }
+
+    /**
+     * Drops the cached copy so the next read goes to the store.
+     */
+    public void invalidate() {
+        directory = null;
+    }
+
+    public synchronized void close() {
+        closed = true;
+        directory = null;
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public double getHitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    public int getSize() {
+        Directory<T> current = directory;
+        return current == null ? 0 : current.items.size();
+    }
+
+    public String describeStats() {
+        return String.format("%s: %d hits, %d misses (%.0f%% hit ratio), %d cached, %d served from the replica, "
+                        + "%d %s, %d listener refreshes, %d reads too large to keep (over %d documents)",
+                name, hits.get(), misses.get(), getHitRatio() * 100, getSize(), replicaServes.get(),
+                loads.get(), replica != null ? "replica syncs" : "full reads",
+                refreshes.get(), bypassed.get(), maxEntries);
+    }
+
+    private Directory<T> freshDirectory() {
+        Directory<T> current = directory;
+        if (current == null || System.currentTimeMillis() - current.loadedAt > ttlMillis) {
+            return null;
+        }
+        return current;
+    }
+
+    /**
+     * The first time the cache is empty and the replica is not, answers from the replica.
+     */
+    private synchronized Directory<T> seedFromReplica() {
+        if (replica == null || seeded || directory != null || closed || replica.isEmpty()) {
+            return null;
+        }
+        seeded = true;
+        return replace(replica.getDocuments(), -1);
+    }
+
+    /**
+     * Concurrent misses share one read. The listener is started along with the first read (or
+     * once the replica has synced, so it starts from the new watermark), and if it delivers
+     * while the read is in flight, the read's older result is not kept.
+     */
+    private synchronized CompletableFuture<Directory<T>> load() {
+        if (loading != null) {
+            return loading;
+        }
+
+        loads.incrementAndGet();
+        long refreshesBefore = refreshes.get();
+        CompletableFuture<List<StoredDocument>> source = replica != null
+                ? replica.sync()
+                : store.query(StoreQuery.collection(collection));
+        CompletableFuture<Directory<T>> read = source.thenApply(docs -> replace(docs, refreshesBefore));
+        loading = read;
+        read.whenComplete((loaded, error) -> finishLoad(read));
+
+        if (replica == null) {
+            startListening(StoreQuery.collection(collection));
+        } else {
+            read.thenRun(() -> startListening(StoreQuery.collection(collection)
+                    .orderBy(replica.getWatermarkField(), false)
+                    .whereOrderFieldAtLeast(replica.getWatermark())));
+        }
+        return read;
+    }
+
+    private synchronized void startListening(StoreQuery query) {
+        if (subscription != null || oversized || closed) {
+            return;
+        }
+        subscription = store.listen(query, docs -> {
+            refreshes.incrementAndGet();
+            if (replica != null) {
+                replica.merge(docs);
+                replace(replica.getDocuments(), -1);
+            } else {
+                replace(docs, -1);
+            }
+        });
+    }
+
+    private synchronized void finishLoad(CompletableFuture<Directory<T>> read) {
+        if (loading == read) {
+            loading = null;
+        }
+    }
+
+    /**
+     * Builds a directory from the documents and keeps it, unless it comes from a read (refreshes
+     * at least 0) that a listener snapshot has overtaken since.
+     */
+    private Directory<T> replace(List<StoredDocument> docs, long refreshesBefore) {
+        Map<String, T> byId = new LinkedHashMap<>();
+        List<T> items = new ArrayList<>();
+        for (StoredDocument doc : docs) {
+            if (!doc.exists()) {
+                continue;
+            }
+            T item = mapper.apply(doc);
+            if (item != null) {
+                byId.put(doc.getId(), item);
+                items.add(item);
+            }
+        }
+        if (order != null) {
+            items.sort(order);
+        }
+
+        Directory<T> loaded = new Directory<>(Collections.unmodifiableList(items), byId, System.currentTimeMillis());
+        synchronized (this) {
+            oversized = items.size() > maxEntries;
+            if (oversized) {
+                bypassed.incrementAndGet();
+                directory = null;
+                if (subscription != null) {
+                    subscription.cancel();
+                    subscription = null;
+                }
+            } else if (!closed && (refreshesBefore < 0 || refreshes.get() == refreshesBefore)) {
+                directory = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    private static final class Directory<T> {
+        private final List<T> items;
+        private final Map<String, T> byId;
+        private final long loadedAt;
+
+        private Directory(List<T> items, Map<String, T> byId, long loadedAt) {
+            this.items = items;
+            this.byId = byId;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
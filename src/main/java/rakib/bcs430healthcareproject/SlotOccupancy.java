@@ -0,0 +1,192 @@
+package rakib.bcs430healthcareproject;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The booked slots of one doctor on one day, stored as a single small document so checking
+ * availability is one point read instead of a query over the day's appointments.
+ *
+ * Slots are bits on a five-minute grid (288 bits, five longs in the "bits" field), so a slot
+ * label such as "9:30 AM" maps to bit 114. A label that is not a time on the grid is kept as
+ * text in "otherSlots". Documents are only ever changed together with the slot reservations
+ * they mirror, see {@link AppointmentRepository}.
+ */
+public final class SlotOccupancy {
+
+    static final int SLOT_MINUTES = 5;
+
+    private static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+    private static final int WORDS = (SLOTS_PER_DAY + Long.SIZE - 1) / Long.SIZE;
+
+    private static final DateTimeFormatter PARSE_FORMAT = new DateTimeFormatterBuilder()
+            .parseCaseInsensitive()
+            .appendPattern("h:mm a")
+            .toFormatter(Locale.ENGLISH);
+    private static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("h:mm a", Locale.ENGLISH);
+
+    private final String doctorUid;
+    private final String appointmentDate;
+    private final long[] bits;
+    private final List<String> otherSlots;
+
+    private SlotOccupancy(String doctorUid, String appointmentDate, long[] bits, List<String> otherSlots) {
+        this.doctorUid = doctorUid;
+        this.appointmentDate = appointmentDate;
+        this.bits = bits;
+        this.otherSlots = otherSlots;
+    }
+
+    public static SlotOccupancy empty(String doctorUid, String appointmentDate) {
+        return new SlotOccupancy(doctorUid, appointmentDate, new long[WORDS], List.of());
+    }
+
+    /**
+     * Reads an occupancy document; a missing document is an empty day.
+     */
+    public static SlotOccupancy from(StoredDocument document, String doctorUid, String appointmentDate) {
+        if (document == null || !document.exists()) {
+            return empty(doctorUid, appointmentDate);
+        }
+
+        long[] bits = new long[WORDS];
+        Object stored = document.get("bits");
+        if (stored instanceof List<?> words) {
+            for (int i = 0; i < Math.min(words.size(), WORDS); i++) {
+                if (words.get(i) instanceof Number word) {
+                    bits[i] = word.longValue();
+                }
+            }
+        }
+
+        List<String> otherSlots = new ArrayList<>();
+        if (document.get("otherSlots") instanceof List<?> labels) {
+            for (Object label : labels) {
+                if (label != null) {
+                    otherSlots.add(label.toString());
+                }
+            }
+        }
+        return new SlotOccupancy(doctorUid, appointmentDate, bits, List.copyOf(otherSlots));
+    }
+
+    /**
+     * Document ID for a doctor's day.
+     */
+    public static String documentId(String doctorUid, String appointmentDate) {
+        if (doctorUid == null || doctorUid.isBlank() || appointmentDate == null || appointmentDate.isBlank()) {
+            throw new IllegalArgumentException("Doctor and date are required for slot occupancy.");
+        }
+        return doctorUid + "_" + appointmentDate.trim();
+    }
+
+    /**
+     * Grid position of a slot label, or -1 if it is not a time on the five-minute grid.
+     */
+    static int slotIndex(String appointmentSlot) {
+        if (appointmentSlot == null) {
+            return -1;
+        }
+        try {
+            LocalTime time = LocalTime.parse(appointmentSlot.trim(), PARSE_FORMAT);
+            int minute = time.getHour() * 60 + time.getMinute();
+            return minute % SLOT_MINUTES == 0 ? minute / SLOT_MINUTES : -1;
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+
+    public boolean isBooked(String appointmentSlot) {
+        int index = slotIndex(appointmentSlot);
+        if (index < 0) {
+            return otherSlots.contains(normalizeOther(appointmentSlot));
+        }
+        return (bits[index / Long.SIZE] & (1L << (index % Long.SIZE))) != 0;
+    }
+
+    /**
+     * A copy with the slot marked booked or free.
+     */
+    public SlotOccupancy with(String appointmentSlot, boolean booked) {
+        int index = slotIndex(appointmentSlot);
+        if (index < 0) {
+            String label = normalizeOther(appointmentSlot);
+            List<String> labels = new ArrayList<>(otherSlots);
+            labels.remove(label);
+            if (booked) {
+                labels.add(label);
+            }
+            return new SlotOccupancy(doctorUid, appointmentDate, bits, List.copyOf(labels));
+        }
+
+        long[] updated = Arrays.copyOf(bits, WORDS);
+        long mask = 1L << (index % Long.SIZE);
+        if (booked) {
+            updated[index / Long.SIZE] |= mask;
+        } else {
+            updated[index / Long.SIZE] &= ~mask;
+        }
+        return new SlotOccupancy(doctorUid, appointmentDate, updated, otherSlots);
+    }
+
+    public boolean isEmpty() {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return otherSlots.isEmpty();
+    }
+
+    /**
+     * Booked slot labels in time order, formatted like the booking screens ("9:30 AM").
+     */
+    public List<String> getBookedSlots() {
+        List<String> slots = new ArrayList<>();
+        for (int index = 0; index < SLOTS_PER_DAY; index++) {
+            if ((bits[index / Long.SIZE] & (1L << (index % Long.SIZE))) != 0) {
+                slots.add(LocalTime.of(0, 0).plusMinutes((long) index * SLOT_MINUTES)
+                        .format(DISPLAY_FORMAT).toUpperCase(Locale.ENGLISH));
+            }
+        }
+        slots.addAll(otherSlots);
+        return slots;
+    }
+
+    public String getDoctorUid() {
+        return doctorUid;
+    }
+
+    public String getAppointmentDate() {
+        return appointmentDate;
+    }
+
+    public Map<String, Object> toMap() {
+        List<Long> words = new ArrayList<>(WORDS);
+        for (long word : bits) {
+            words.add(word);
+        }
+
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("doctorUid", doctorUid);
+        document.put("appointmentDate", appointmentDate);
+        document.put("bits", words);
+        if (!otherSlots.isEmpty()) {
+            document.put("otherSlots", otherSlots);
+        }
+        document.put("updatedAt", System.currentTimeMillis());
+        return document;
+    }
+
+    private static String normalizeOther(String appointmentSlot) {
+        return appointmentSlot == null ? "" : appointmentSlot.trim();
+    }
+}
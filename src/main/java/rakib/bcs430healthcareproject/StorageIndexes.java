@@ -0,0 +1,67 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.List;
+
+/**
+ * Equality indexes the local stores keep, one per query shape issued by the repositories.
+ * When a repository gains a new query, declare its fields here as well.
+ */
+public final class StorageIndexes {
+
+    private StorageIndexes() {
+    }
+
+    public static List<IndexDefinition> defaults() {
+        return List.of(
+                // Logins and duplicate-location checks.
+                IndexDefinition.of(ProfileRepository.PATIENTS_COLLECTION, "email"),
+                IndexDefinition.of(ProfileRepository.DOCTORS_COLLECTION, "email"),
+                IndexDefinition.of(ProfileRepository.PHARMACIES_COLLECTION, "email"),
+                IndexDefinition.of(ProfileRepository.PHARMACIES_COLLECTION, "addressNormalized"),
+                IndexDefinition.of(ProfileRepository.HOSPITALS_COLLECTION, "email"),
+                IndexDefinition.of(ProfileRepository.HOSPITALS_COLLECTION, "addressNormalized"),
+
+                // A hospital's doctors, optionally by department.
+                IndexDefinition.of(ProfileRepository.DOCTORS_COLLECTION, "hospitalUid"),
+                IndexDefinition.of(ProfileRepository.DOCTORS_COLLECTION, "hospitalUid", "department"),
+
+                // Schedules, patient history and hospital views. Slot checks read the
+                // slotReservations and slotOccupancy documents directly and need no index.
+                IndexDefinition.of(AppointmentRepository.COLLECTION, "doctorUid"),
+                IndexDefinition.of(AppointmentRepository.COLLECTION, "doctorUid", "appointmentDate"),
+                IndexDefinition.of(AppointmentRepository.COLLECTION, "patientUid"),
+                IndexDefinition.of(AppointmentRepository.COLLECTION, "patientUid", "status"),
+                IndexDefinition.of(AppointmentRepository.COLLECTION, "hospitalUid"),
+                IndexDefinition.of(AppointmentRepository.COLLECTION, "hospitalUid", "status"),
+                IndexDefinition.of(AppointmentRepository.COLLECTION, "hospitalName"),
+                IndexDefinition.of(AppointmentRepository.HOSPITAL_PATIENTS_COLLECTION, "hospitalUid"),
+
+                IndexDefinition.of(PrescriptionRepository.COLLECTION, "patientUid"),
+                IndexDefinition.of(PrescriptionRepository.COLLECTION, "doctorUid"),
+                IndexDefinition.of(PrescriptionRepository.COLLECTION, "patientUid", "doctorUid"),
+                IndexDefinition.of(PrescriptionRepository.COLLECTION, "patientUid", "hospitalUid"),
+                IndexDefinition.of(PrescriptionRepository.COLLECTION, "patientUid", "status"),
+                IndexDefinition.of(PrescriptionRepository.COLLECTION, "pharmacyAddressNormalized"),
+
+                // Conversations are looked up by their two participants.
+                IndexDefinition.of(MessageRepository.COLLECTION, "doctorUid", "patientUid"),
+                IndexDefinition.of(MessageRepository.COLLECTION, "patientUid", "pharmacyUid"),
+                IndexDefinition.of(MessageRepository.COLLECTION, "doctorUid", "pharmacyUid"),
+                IndexDefinition.of(MessageRepository.COLLECTION, "recipientUid", "read"),
+
+                // Inboxes list a participant's conversation summaries.
+                IndexDefinition.of(ConversationRepository.COLLECTION, "doctorUid"),
+                IndexDefinition.of(ConversationRepository.COLLECTION, "patientUid"),
+                IndexDefinition.of(ConversationRepository.COLLECTION, "pharmacyUid"),
+
+                IndexDefinition.of(NotificationRepository.COLLECTION, "userUid"),
+                IndexDefinition.of(NotificationRepository.COLLECTION, "userUid", "read"),
+
+                IndexDefinition.of(DepartmentRepository.COLLECTION, "hospitalUid"),
+
+                IndexDefinition.of(DiagnosticReportRepository.COLLECTION, "patientUid"),
+                IndexDefinition.of(DiagnosticReportRepository.COLLECTION, "doctorUid"),
+                IndexDefinition.of(DiagnosticReportRepository.COLLECTION, "hospitalUid")
+        );
+    }
+}
@@ -0,0 +1,75 @@
+package rakib.bcs430healthcareproject;
+
+/**
+ * Command-line entry point for one-off data migrations against the configured storage backend
+ * (see {@link DocumentStores}). Every task can be run again safely.
+ *
+ * Usage: {@code StorageMaintenance <task>} where task is one of:
+ * backfill-message-recipients, backfill-slot-reservations, rebuild-slot-occupancy,
+ * rebuild-conversations, rebuild-email-index, migrate-appointment-hospitals, link-hospital-patients
+ */
+public final class StorageMaintenance {
+
+    private StorageMaintenance() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: StorageMaintenance backfill-message-recipients|backfill-slot-reservations"
+                    + "|rebuild-slot-occupancy|rebuild-conversations|rebuild-email-index|migrate-appointment-hospitals"
+                    + "|link-hospital-patients");
+            System.exit(2);
+        }
+
+        if (DocumentStores.BACKEND_FIRESTORE.equals(DocumentStores.getConfiguredBackend())) {
+            FirebaseInitializer.initialize();
+        }
+
+        FirebaseService service = new FirebaseService();
+        try {
+            switch (args[0]) {
+                case "backfill-message-recipients" -> {
+                    int updated = service.backfillMessageRecipients().get();
+                    System.out.println("Updated " + updated + " messages.");
+                }
+                case "backfill-slot-reservations" -> {
+                    int reserved = service.backfillSlotReservations().get();
+                    System.out.println("Reserved " + reserved + " appointment slots.");
+                }
+                case "rebuild-slot-occupancy" -> {
+                    int days = service.rebuildSlotOccupancy().get();
+                    System.out.println("Wrote slot occupancy for " + days + " doctor days.");
+                }
+                case "rebuild-conversations" -> {
+                    int conversations = service.rebuildConversations().get();
+                    System.out.println("Wrote " + conversations + " conversation summaries.");
+                }
+                case "rebuild-email-index" -> {
+                    int entries = service.rebuildEmailIndex().get();
+                    System.out.println("Wrote " + entries + " email index entries.");
+                }
+                case "migrate-appointment-hospitals" -> {
+                    HospitalUidMigration migration = service.migrateAppointmentHospitalUids().get();
+                    System.out.println("Scanned " + migration.getScanned() + " appointments, stamped "
+                            + migration.getStamped() + " with their hospital, " + migration.getUnresolved()
+                            + " unresolved.");
+                    if (!migration.getUnresolvedAppointmentIds().isEmpty()) {
+                        System.out.println("Unresolved appointments: "
+                                + String.join(", ", migration.getUnresolvedAppointmentIds()));
+                    }
+                }
+                case "link-hospital-patients" -> {
+                    int links = service.linkHospitalPatients().get();
+                    System.out.println("Wrote " + links + " hospital patient link writes.");
+                }
+                default -> {
+                    System.err.println("Unknown task: " + args[0]);
+                    System.exit(2);
+                }
+            }
+        } finally {
+            DocumentStores.closeDefault();
+            FirestoreExecutor.getInstance().shutdown();
+        }
+    }
+}
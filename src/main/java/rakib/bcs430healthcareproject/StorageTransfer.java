@@ -0,0 +1,376 @@
+package rakib.bcs430healthcareproject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Command-line entry point that copies collections of the configured storage backend (see
+ * {@link DocumentStores}) to and from NDJSON, to seed a staging project, take a production
+ * shaped snapshot for load tests or move data between backends.
+ *
+ * Every line is one document: {@code {"collection": ..., "id": ..., "data": {...}}}. Values are
+ * normalized like the local stores keep them (whole numbers as Long, fractions as Double), so
+ * Firestore-only types such as timestamps are exported as plain maps.
+ *
+ * Usage:
+ * {@code StorageTransfer export <file> [collection...]} pages through each collection (all of
+ * {@link #COLLECTIONS} by default) in document ID order, holding one page in memory at a time.
+ * The file is required because the storage backends log to standard output.
+ * {@code StorageTransfer import <file|-> [--parallelism n] [--rate docs/s] [--batch n] [--offset line]}
+ * writes the documents in bulk writes of a batch each, with up to parallelism of them in
+ * flight and at most rate documents per second (0, the default, is unthrottled); "-" reads
+ * standard input. Imports overwrite documents with the same ID and can be repeated; an
+ * interrupted import prints the line to resume from with --offset.
+ */
+public final class StorageTransfer {
+
+    /** Every collection the application keeps, in the order they are exported. */
+    public static final List<String> COLLECTIONS = List.of(
+            ProfileRepository.USERS_COLLECTION,
+            ProfileRepository.PATIENTS_COLLECTION,
+            ProfileRepository.DOCTORS_COLLECTION,
+            ProfileRepository.PHARMACIES_COLLECTION,
+            ProfileRepository.HOSPITALS_COLLECTION,
+            ProfileRepository.EMAIL_INDEX_COLLECTION,
+            DepartmentRepository.COLLECTION,
+            AppointmentRepository.COLLECTION,
+            AppointmentRepository.HOSPITAL_PATIENTS_COLLECTION,
+            AppointmentRepository.SLOT_RESERVATIONS_COLLECTION,
+            AppointmentRepository.SLOT_OCCUPANCY_COLLECTION,
+            PrescriptionRepository.COLLECTION,
+            DiagnosticReportRepository.COLLECTION,
+            MessageRepository.COLLECTION,
+            ConversationRepository.COLLECTION,
+            NotificationRepository.COLLECTION,
+            HospitalUidMigration.COLLECTION);
+
+    public static final int DEFAULT_PAGE_SIZE = 500;
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    private static final long REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private StorageTransfer() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || !("export".equals(args[0]) || "import".equals(args[0]))) {
+            System.err.println("Usage: StorageTransfer export <file> [collection...]");
+            System.err.println("       StorageTransfer import <file|-> [--parallelism n] [--rate docs/s] [--batch n] [--offset line]");
+            System.exit(2);
+        }
+
+        if (DocumentStores.BACKEND_FIRESTORE.equals(DocumentStores.getConfiguredBackend())) {
+            FirebaseInitializer.initialize();
+        }
+
+        boolean succeeded;
+        try {
+            DocumentStore store = DocumentStores.getDefault();
+            if ("export".equals(args[0])) {
+                List<String> collections = args.length > 2
+                        ? List.of(args).subList(2, args.length)
+                        : COLLECTIONS;
+                try (BufferedWriter out = Files.newBufferedWriter(Path.of(args[1]), StandardCharsets.UTF_8)) {
+                    exportCollections(store, collections, DEFAULT_PAGE_SIZE, out);
+                }
+                succeeded = true;
+            } else {
+                ImportOptions options = ImportOptions.parse(args, 2);
+                try (BufferedReader in = openInput(args[1])) {
+                    succeeded = importDocuments(store, in, options);
+                }
+            }
+        } finally {
+            DocumentStores.closeDefault();
+            FirestoreExecutor.getInstance().shutdown();
+        }
+
+        if (!succeeded) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Writes every document of the collections as NDJSON, one page per query. Returns the
+     * number of documents written.
+     */
+    public static long exportCollections(DocumentStore store, List<String> collections, int pageSize,
+                                         BufferedWriter out) throws Exception {
+        long total = 0;
+        long start = System.nanoTime();
+
+        for (String collection : collections) {
+            long exported = 0;
+            String lastId = null;
+            while (true) {
+                StoreQuery page = StoreQuery.collection(collection).limit(pageSize);
+                if (lastId != null) {
+                    page = page.startAfterDocument(lastId);
+                }
+
+                List<StoredDocument> docs = store.query(page).get();
+                for (StoredDocument doc : docs) {
+                    out.write(toLine(collection, doc.getId(), doc.getData()));
+                    out.newLine();
+                }
+                exported += docs.size();
+
+                if (docs.size() < pageSize) {
+                    break;
+                }
+                lastId = docs.get(docs.size() - 1).getId();
+            }
+
+            out.flush();
+            total += exported;
+            System.err.println("Exported " + exported + " documents from " + collection + ".");
+        }
+
+        System.err.println(describeThroughput("Exported", total, System.nanoTime() - start));
+        return total;
+    }
+
+    /**
+     * Writes the NDJSON documents to the store, skipping the first options.offset lines without
+     * parsing them, so a resumed import is not stopped by a bad line it already wrote. Returns
+     * false if a line could not be read or a write failed, after reporting the line to resume
+     * from.
+     */
+    public static boolean importDocuments(DocumentStore store, BufferedReader in, ImportOptions options)
+            throws Exception {
+        AtomicLong lineNumber = new AtomicLong();
+        Iterator<WriteOperation> operations = in.lines()
+                .map(line -> {
+                    long number = lineNumber.incrementAndGet();
+                    return number <= options.offset || line.isBlank() ? null : parseLine(line, number);
+                })
+                .iterator();
+        return importOperations(store, operations, options);
+    }
+
+    /**
+     * Writes the operations to the store the same way, skipping the first options.offset.
+     * Offsets count null elements too, which stand for lines without a document. Reading
+     * stops at the first element that cannot be produced.
+     */
+    public static boolean importOperations(DocumentStore store, Iterator<WriteOperation> operations,
+                                           ImportOptions options) throws Exception {
+        Semaphore inFlight = new Semaphore(options.parallelism);
+        ConcurrentSkipListSet<Long> pendingBatches = new ConcurrentSkipListSet<>();
+        AtomicLong written = new AtomicLong();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        long start = System.nanoTime();
+        long lastReport = start;
+        long position = 0;
+        long submitted = 0;
+        long batchStart = options.offset;
+        List<WriteOperation> batch = new ArrayList<>(options.batchSize);
+
+        while (failure.get() == null) {
+            WriteOperation operation;
+            try {
+                if (!operations.hasNext()) {
+                    break;
+                }
+                operation = operations.next();
+            } catch (RuntimeException e) {
+                failure.set(e.getMessage());
+                break;
+            }
+
+            position++;
+            if (position <= options.offset || operation == null) {
+                if (batch.isEmpty()) {
+                    batchStart = position;
+                }
+                continue;
+            }
+
+            batch.add(operation);
+            if (batch.size() < options.batchSize) {
+                continue;
+            }
+
+            submitted += batch.size();
+            pace(options.rate, submitted, start);
+            submit(store, batch, batchStart, inFlight, pendingBatches, written, failure);
+            batch = new ArrayList<>(options.batchSize);
+            batchStart = position;
+
+            if (System.nanoTime() - lastReport >= REPORT_INTERVAL_NANOS) {
+                lastReport = System.nanoTime();
+                System.err.println(describeThroughput("Imported", written.get(), lastReport - start)
+                        + ", resume offset " + resumeOffset(pendingBatches, batchStart));
+            }
+        }
+
+        if (failure.get() == null && !batch.isEmpty()) {
+            submitted += batch.size();
+            pace(options.rate, submitted, start);
+            submit(store, batch, batchStart, inFlight, pendingBatches, written, failure);
+            batchStart = position;
+        }
+
+        inFlight.acquire(options.parallelism);
+        inFlight.release(options.parallelism);
+
+        System.err.println(describeThroughput("Imported", written.get(), System.nanoTime() - start));
+        if (failure.get() != null) {
+            System.err.println("Import stopped: " + failure.get());
+            System.err.println("Resume with --offset " + resumeOffset(pendingBatches, batchStart));
+            return false;
+        }
+        return true;
+    }
+
+    private static void submit(DocumentStore store, List<WriteOperation> batch, long batchStart,
+                               Semaphore inFlight, ConcurrentSkipListSet<Long> pendingBatches,
+                               AtomicLong written, AtomicReference<String> failure) throws InterruptedException {
+        inFlight.acquire();
+        pendingBatches.add(batchStart);
+        store.bulkWrite(batch).whenComplete((result, error) -> {
+            if (error != null) {
+                failure.compareAndSet(null, ApiFutureSupport.unwrap(error).getMessage());
+            } else if (result.hasFailures()) {
+                failure.compareAndSet(null, result.getFailures().size() + " of " + batch.size()
+                        + " writes failed after offset " + batchStart + ".");
+                written.addAndGet(result.getSucceededCount());
+            } else {
+                written.addAndGet(result.getSucceededCount());
+                pendingBatches.remove(batchStart);
+            }
+            inFlight.release();
+        });
+    }
+
+    /**
+     * Sleeps until submitting documents up to the given total keeps within the rate.
+     */
+    private static void pace(int rate, long submitted, long startNanos) throws InterruptedException {
+        if (rate <= 0) {
+            return;
+        }
+        long dueNanos = startNanos + TimeUnit.SECONDS.toNanos(submitted) / rate;
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Positions before the oldest batch that has not been written are done.
+     */
+    private static long resumeOffset(ConcurrentSkipListSet<Long> pendingBatches, long nextBatchStart) {
+        Long oldest = pendingBatches.isEmpty() ? null : pendingBatches.first();
+        return oldest != null ? oldest : nextBatchStart;
+    }
+
+    /**
+     * One NDJSON line for the document, without the line break.
+     */
+    static String toLine(String collection, String id, Object data) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("collection", collection);
+        line.put("id", id);
+        line.put("data", DocumentMapper.toMap(data));
+        return DocumentMapper.toJson(line);
+    }
+
+    private static WriteOperation parseLine(String line, long lineNumber) {
+        Map<String, Object> document;
+        try {
+            document = DocumentMapper.fromJson(line);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Line " + lineNumber + " is not valid JSON: " + e.getMessage(), e);
+        }
+
+        if (!(document.get("collection") instanceof String collection) || collection.isBlank()
+                || !(document.get("id") instanceof String id) || id.isBlank()
+                || !(document.get("data") instanceof Map<?, ?> data)) {
+            throw new RuntimeException("Line " + lineNumber + " needs a collection, an id and a data object.");
+        }
+
+        Map<String, Object> fields = new LinkedHashMap<>();
+        data.forEach((key, value) -> fields.put(key.toString(), value));
+        return WriteOperation.set(collection, id, fields);
+    }
+
+    private static String describeThroughput(String verb, long documents, long elapsedNanos) {
+        double seconds = Math.max(elapsedNanos, 1) / 1_000_000_000.0;
+        return String.format("%s %d documents in %.1f s (%.0f docs/s)", verb, documents, seconds, documents / seconds);
+    }
+
+    private static BufferedReader openInput(String file) throws IOException {
+        if ("-".equals(file)) {
+            return new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Import settings; see the class description.
+     */
+    public static final class ImportOptions {
+        private final int parallelism;
+        private final int rate;
+        private final int batchSize;
+        private final long offset;
+
+        public ImportOptions(int parallelism, int rate, int batchSize, long offset) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("Parallelism must be positive.");
+            }
+            if (rate < 0) {
+                throw new IllegalArgumentException("Rate must not be negative.");
+            }
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("Batch size must be positive.");
+            }
+            if (offset < 0) {
+                throw new IllegalArgumentException("Offset must not be negative.");
+            }
+            this.parallelism = parallelism;
+            this.rate = rate;
+            this.batchSize = batchSize;
+            this.offset = offset;
+        }
+
+        static ImportOptions parse(String[] args, int from) {
+            int parallelism = DEFAULT_PARALLELISM;
+            int rate = 0;
+            int batchSize = DEFAULT_PAGE_SIZE;
+            long offset = 0;
+
+            for (int i = from; i < args.length; i += 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + args[i] + ".");
+                }
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--parallelism" -> parallelism = Integer.parseInt(value);
+                    case "--rate" -> rate = Integer.parseInt(value);
+                    case "--batch" -> batchSize = Integer.parseInt(value);
+                    case "--offset" -> offset = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            return new ImportOptions(parallelism, rate, batchSize, offset);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Backend-neutral description of a collection query. Like Firestore queries, instances are
+ * immutable and every filter call returns a new query.
+ *
+ * Besides equality filters, a query can be ordered by one field (ties broken by document ID),
+ * bounded by a range on that same field, resumed after a cursor and limited. As in Firestore,
+ * documents that lack the order field are left out of ordered results. Unordered results come
+ * in document ID order and can be resumed after a document ID.
+ */
+public final class StoreQuery {
+
+    private final String collection;
+    private final Map<String, Object> equalityFilters;
+
+    private final String orderField;
+    private final boolean descending;
+    private final Object lowerBound;
+    private final Object upperBound;
+    private final Object startAfterValue;
+    private final String startAfterId;
+    private final int limit;
+
+    private StoreQuery(String collection, Map<String, Object> equalityFilters, String orderField, boolean descending,
+                       Object lowerBound, Object upperBound, Object startAfterValue, String startAfterId, int limit) {
+        this.collection = collection;
+        this.equalityFilters = Collections.unmodifiableMap(equalityFilters);
+        this.orderField = orderField;
+        this.descending = descending;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+        this.startAfterValue = startAfterValue;
+        this.startAfterId = startAfterId;
+        this.limit = limit;
+    }
+
+    /**
+     * Starts a query that returns every document in the collection.
+     */
+    public static StoreQuery collection(String collection) {
+        if (collection == null || collection.isBlank()) {
+            throw new IllegalArgumentException("Collection name is required.");
+        }
+        return new StoreQuery(collection, new LinkedHashMap<>(), null, false, null, null, null, null, 0);
+    }
+
+    public StoreQuery whereEqualTo(String field, Object value) {
+        Map<String, Object> filters = new LinkedHashMap<>(equalityFilters);
+        filters.put(field, value);
+        return new StoreQuery(collection, filters, orderField, descending,
+                lowerBound, upperBound, startAfterValue, startAfterId, limit);
+    }
+
+    /**
+     * Orders results by the field, then by document ID in the same direction.
+     */
+    public StoreQuery orderBy(String field, boolean descending) {
+        if (field == null || field.isBlank()) {
+            throw new IllegalArgumentException("Order field is required.");
+        }
+        return new StoreQuery(collection, new LinkedHashMap<>(equalityFilters), field, descending,
+                lowerBound, upperBound, startAfterValue, startAfterId, limit);
+    }
+
+    /**
+     * Keeps documents whose order field is at least the value. Requires {@link #orderBy}.
+     */
+    public StoreQuery whereOrderFieldAtLeast(Object value) {
+        requireOrder();
+        return new StoreQuery(collection, new LinkedHashMap<>(equalityFilters), orderField, descending,
+                value, upperBound, startAfterValue, startAfterId, limit);
+    }
+
+    /**
+     * Keeps documents whose order field is below the value. Requires {@link #orderBy}.
+     */
+    public StoreQuery whereOrderFieldBelow(Object value) {
+        requireOrder();
+        return new StoreQuery(collection, new LinkedHashMap<>(equalityFilters), orderField, descending,
+                lowerBound, value, startAfterValue, startAfterId, limit);
+    }
+
+    /**
+     * Resumes after the document with this order value and ID. Requires {@link #orderBy}.
+     */
+    public StoreQuery startAfter(Object orderValue, String documentId) {
+        requireOrder();
+        if (orderValue == null || documentId == null) {
+            throw new IllegalArgumentException("Cursor value and document ID are required.");
+        }
+        return new StoreQuery(collection, new LinkedHashMap<>(equalityFilters), orderField, descending,
+                lowerBound, upperBound, orderValue, documentId, limit);
+    }
+
+    /**
+     * Resumes an unordered query after the document ID, for scanning a whole collection in
+     * pages. Use {@link #startAfter} for ordered queries.
+     */
+    public StoreQuery startAfterDocument(String documentId) {
+        if (orderField != null) {
+            throw new IllegalStateException("Ordered queries resume with startAfter.");
+        }
+        if (documentId == null || documentId.isBlank()) {
+            throw new IllegalArgumentException("Document ID is required.");
+        }
+        return new StoreQuery(collection, new LinkedHashMap<>(equalityFilters), null, false,
+                null, null, null, documentId, limit);
+    }
+
+    public StoreQuery limit(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive.");
+        }
+        return new StoreQuery(collection, new LinkedHashMap<>(equalityFilters), orderField, descending,
+                lowerBound, upperBound, startAfterValue, startAfterId, limit);
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    /**
+     * Field to value filters in the order they were added.
+     */
+    public Map<String, Object> getEqualityFilters() {
+        return equalityFilters;
+    }
+
+    /**
+     * Null when results are unordered.
+     */
+    public String getOrderField() {
+        return orderField;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * Inclusive lower bound on the order field, or null.
+     */
+    public Object getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * Exclusive upper bound on the order field, or null.
+     */
+    public Object getUpperBound() {
+        return upperBound;
+    }
+
+    public boolean hasCursor() {
+        return startAfterId != null;
+    }
+
+    public Object getStartAfterValue() {
+        return startAfterValue;
+    }
+
+    public String getStartAfterId() {
+        return startAfterId;
+    }
+
+    /**
+     * Maximum number of results, or 0 for no limit.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    private void requireOrder() {
+        if (orderField == null) {
+            throw new IllegalStateException("Call orderBy before adding a range or cursor.");
+        }
+    }
+
+    /**
+     * Queries are equal when they describe the same read, so they can key shared reads.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof StoreQuery query)) {
+            return false;
+        }
+        return descending == query.descending
+                && limit == query.limit
+                && collection.equals(query.collection)
+                && equalityFilters.equals(query.equalityFilters)
+                && Objects.equals(orderField, query.orderField)
+                && Objects.equals(lowerBound, query.lowerBound)
+                && Objects.equals(upperBound, query.upperBound)
+                && Objects.equals(startAfterValue, query.startAfterValue)
+                && Objects.equals(startAfterId, query.startAfterId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(collection, equalityFilters, orderField, descending,
+                lowerBound, upperBound, startAfterValue, startAfterId, limit);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(collection).append(equalityFilters);
+        if (orderField != null) {
+            text.append(" orderBy ").append(orderField).append(descending ? " desc" : " asc");
+        }
+        if (lowerBound != null) {
+            text.append(" >= ").append(lowerBound);
+        }
+        if (upperBound != null) {
+            text.append(" < ").append(upperBound);
+        }
+        if (startAfterId != null) {
+            text.append(" after ").append(startAfterValue).append('/').append(startAfterId);
+        }
+        if (limit > 0) {
+            text.append(" limit ").append(limit);
+        }
+        return text.toString();
+    }
+}
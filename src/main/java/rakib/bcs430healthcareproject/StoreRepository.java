@@ -0,0 +1,120 @@
+package rakib.bcs430healthcareproject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * Shared plumbing for the repositories that sit on top of a {@link DocumentStore}.
+ */
+abstract class StoreRepository {
+
+    protected final DocumentStore store;
+
+    protected StoreRepository(DocumentStore store) {
+        if (store == null) {
+            throw new IllegalArgumentException("Document store is required.");
+        }
+        this.store = store;
+    }
+
+    public DocumentStore getStore() {
+        return store;
+    }
+
+    /**
+     * Maps a document onto a model and copies the document ID onto it.
+     * Returns null when the document does not exist or cannot be mapped.
+     */
+    protected static <T> T toModel(StoredDocument doc, Class<T> type, BiConsumer<T, String> idSetter) {
+        if (doc == null || !doc.exists()) {
+            return null;
+        }
+
+        T model = doc.toObject(type);
+        if (model != null && idSetter != null) {
+            idSetter.accept(model, doc.getId());
+        }
+        return model;
+    }
+
+    /**
+     * Opaque keyset cursor for the last item of a page: its order field value and document ID.
+     */
+    protected static String encodeCursor(long orderValue, String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                (orderValue + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Continues an ordered query after the item a cursor from {@link #encodeCursor} points
+     * at. A null or blank cursor leaves the query as it is.
+     */
+    protected static StoreQuery startAfterCursor(StoreQuery query, String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return query;
+        }
+
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+            return query.startAfter(Long.parseLong(decoded.substring(0, separator)), decoded.substring(separator + 1));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid page cursor.", e);
+        }
+    }
+
+    /**
+     * Reads one page of an ordered query, continuing after the cursor of the previous page.
+     * See {@link #pageQuery} and {@link #toPage}.
+     */
+    protected <T> CompletableFuture<Page<T>> readPage(StoreQuery orderedQuery, int pageSize, String cursor,
+                                                    Class<T> type, BiConsumer<T, String> idSetter) {
+        StoreQuery query;
+        try {
+            query = pageQuery(orderedQuery, pageSize, cursor);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return store.query(query).thenApply(docs -> toPage(docs, pageSize, query.getOrderField(), type, idSetter));
+    }
+
+    /**
+     * The query for one page after the cursor: it reads one row more than the page size, only
+     * to tell whether another page follows. Throws on an invalid cursor.
+     */
+    protected static StoreQuery pageQuery(StoreQuery orderedQuery, int pageSize, String cursor) {
+        return startAfterCursor(orderedQuery.limit(pageSize + 1), cursor);
+    }
+
+    /**
+     * Trims documents read by a {@link #pageQuery} to the page size. The extra row only
+     * signals another page; the last document kept becomes the next cursor.
+     */
+    protected static <T> Page<T> toPage(List<StoredDocument> docs, int pageSize, String orderField,
+                                        Class<T> type, BiConsumer<T, String> idSetter) {
+        if (docs.size() <= pageSize) {
+            return new Page<>(toModels(docs, type, idSetter), null);
+        }
+
+        List<StoredDocument> kept = docs.subList(0, pageSize);
+        StoredDocument last = kept.get(kept.size() - 1);
+        return new Page<>(toModels(kept, type, idSetter),
+                encodeCursor(((Number) last.get(orderField)).longValue(), last.getId()));
+    }
+
+    protected static <T> List<T> toModels(List<StoredDocument> docs, Class<T> type, BiConsumer<T, String> idSetter) {
+        List<T> models = new ArrayList<>();
+        for (StoredDocument doc : docs) {
+            T model = toModel(doc, type, idSetter);
+            if (model != null) {
+                models.add(model);
+            }
+        }
+        return models;
+    }
+}
@@ -0,0 +1,10 @@
+package rakib.bcs430healthcareproject;
+
+/**
+ * Handle for a live query started with {@link DocumentStore#listen}. Cancelling stops further
+ * deliveries; a delivery already running may still finish.
+ */
+public interface StoreSubscription {
+
+    void cancel();
+}
@@ -0,0 +1,42 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.Map;
+
+/**
+ * A document read from a {@link DocumentStore}.
+ */
+public interface StoredDocument {
+
+    String getId();
+
+    boolean exists();
+
+    /**
+     * Returns the raw field values, or an empty map when the document does not exist.
+     */
+    Map<String, Object> getData();
+
+    /**
+     * Maps the document onto a model class. Returns null when the document does not exist.
+     */
+    <T> T toObject(Class<T> type);
+
+    default Object get(String field) {
+        return getData().get(field);
+    }
+
+    default String getString(String field) {
+        Object value = get(field);
+        return value instanceof String text ? text : null;
+    }
+
+    default Boolean getBoolean(String field) {
+        Object value = get(field);
+        return value instanceof Boolean flag ? flag : null;
+    }
+
+    default Long getLong(String field) {
+        Object value = get(field);
+        return value instanceof Number number ? number.longValue() : null;
+    }
+}
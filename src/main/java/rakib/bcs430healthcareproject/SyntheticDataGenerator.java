@@ -0,0 +1,881 @@
+package rakib.bcs430healthcareproject;
+
+import com.google.cloud.firestore.Firestore;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.TextStyle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates a large, internally consistent dataset for scale testing screens such as the
+ * hospital schedule or the pharmacy prescription queue: hospitals with departments,
+ * pharmacies, doctors with weekly availability, patients, and for every doctor a history of
+ * appointments, prescriptions, diagnostic reports, notifications and message threads.
+ *
+ * The documents are what the application itself would have written. Appointments are only
+ * booked into slots the doctor's availability offers, at most one per slot, each holding its
+ * slot reservation and the day's occupancy bit; cancelled ones hold neither. Prescriptions
+ * pass the checks of {@link FirebaseService#savePrescription(Prescription)} and go to the
+ * patient's preferred pharmacy. Conversation summaries, the email index and the
+ * hospital-patient links match the messages, profiles and appointments, and since every
+ * appointment carries its hospitalUid the {@link HospitalUidMigration} is marked complete.
+ * Every account's password is {@value #PASSWORD}.
+ *
+ * The output is deterministic for the same arguments, IDs included, so an interrupted import
+ * can be resumed with the offset it printed, or repeated without creating duplicates.
+ * Popularity is skewed with Zipf weights: --skew 0 spreads patients, hospitals, pharmacies and
+ * bookings evenly, larger values concentrate them on fewer of each.
+ *
+ * Writes through {@link StorageTransfer#importOperations} into the Firestore emulator at
+ * {@code FIRESTORE_EMULATOR_HOST}, or with --output to an NDJSON file that
+ * {@link StorageTransfer} can import into any backend. Options (defaults in brackets):
+ * --patients [100000] --doctors [5000] --hospitals [50] --pharmacies [500] --days [90]
+ * --start [today minus half the days] --fill [0.6] --skew [0.8] --conversations [20]
+ * --messages [12] --prescription-rate [0.35] --report-rate [0.1] --seed [430], and the
+ * import options --parallelism, --rate, --batch and --offset.
+ */
+public final class SyntheticDataGenerator {
+
+    public static final String PASSWORD = "Password123!";
+
+    private static final String PROJECT_ID = "demo-healthconnect";
+
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "Robert", "Patricia", "John", "Jennifer", "Michael", "Linda", "David", "Elizabeth",
+            "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Carlos", "Karen",
+            "Daniel", "Lisa", "Matthew", "Nancy", "Anthony", "Sandra", "Mark", "Ashley", "Rakib", "Priya",
+            "Wei", "Fatima", "Luis", "Aisha", "Kenji", "Olga", "Ahmed", "Sofia", "Mohammed", "Mei"
+    };
+    private static final String[] LAST_NAMES = {
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+            "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin",
+            "Lee", "Perez", "Thompson", "White", "Harris", "Clark", "Lewis", "Robinson", "Walker", "Young",
+            "Ahmed", "Khan", "Chen", "Wang", "Patel", "Nguyen", "Kim", "Singh", "Cohen", "Rossi"
+    };
+    private static final String[][] CITIES = {
+            {"Farmingdale", "NY", "11735"}, {"Brooklyn", "NY", "11201"}, {"Queens", "NY", "11375"},
+            {"Hempstead", "NY", "11550"}, {"Huntington", "NY", "11743"}, {"Yonkers", "NY", "10701"},
+            {"Newark", "NJ", "07102"}, {"Jersey City", "NJ", "07302"}, {"Stamford", "CT", "06901"},
+            {"White Plains", "NY", "10601"}
+    };
+    private static final String[] STREETS = {
+            "Main St", "Broadway", "Oak Ave", "Maple Ave", "Park Ave", "Elm St", "Route 110", "Hillside Ave",
+            "Jericho Tpke", "Sunrise Hwy"
+    };
+    private static final String[] DEPARTMENTS = {
+            "General Medicine", "Cardiology", "Pediatrics", "Orthopedics", "Dermatology", "Neurology",
+            "Radiology", "Oncology", "Emergency Medicine", "Obstetrics & Gynecology"
+    };
+    private static final String[] SPECIALTIES = {
+            "Family Medicine", "Internal Medicine", "Cardiology", "Pediatrics", "Orthopedic Surgery",
+            "Dermatology", "Neurology", "Psychiatry", "Endocrinology", "Gastroenterology"
+    };
+    private static final String[] INSURERS = {
+            "Aetna", "UnitedHealthcare", "Cigna", "Blue Cross Blue Shield", "Humana", "Medicare", "Medicaid"
+    };
+    private static final String[] REASONS = {
+            "Annual physical", "Follow-up visit", "Persistent cough", "Back pain", "Medication review",
+            "Blood pressure check", "Skin rash", "Headaches", "Lab results review", "Joint pain"
+    };
+    private static final String[][] MEDICATIONS = {
+            {"Lisinopril", "10 mg", "30 tablets", "Take one tablet by mouth once daily.", "ACE inhibitor for blood pressure."},
+            {"Metformin", "500 mg", "60 tablets", "Take one tablet by mouth twice daily with meals.", "Lowers blood sugar."},
+            {"Atorvastatin", "20 mg", "30 tablets", "Take one tablet by mouth at bedtime.", "Statin for cholesterol."},
+            {"Amoxicillin", "500 mg", "21 capsules", "Take one capsule by mouth three times daily for 7 days.", "Antibiotic."},
+            {"Albuterol", "90 mcg", "1 inhaler", "Inhale two puffs every 4 to 6 hours as needed.", "Rescue inhaler."},
+            {"Sertraline", "50 mg", "30 tablets", "Take one tablet by mouth once daily.", "SSRI antidepressant."},
+            {"Omeprazole", "20 mg", "30 capsules", "Take one capsule by mouth before breakfast.", "Reduces stomach acid."},
+            {"Levothyroxine", "75 mcg", "30 tablets", "Take one tablet by mouth every morning on an empty stomach.", "Thyroid hormone."}
+    };
+    private static final String[] PATIENT_LINES = {
+            "Hi doctor, I have a question about my medication.", "Is it normal to feel tired after the new dose?",
+            "Can I reschedule my next visit?", "My symptoms have improved, thank you.",
+            "The pharmacy said my refill is not ready yet.", "Should I continue the treatment after this week?"
+    };
+    private static final String[] DOCTOR_LINES = {
+            "Thanks for reaching out. Please keep taking it as prescribed.", "That can happen in the first week; let me know if it persists.",
+            "Sure, you can pick a new time on the booking screen.", "Glad to hear it. Let's review at your next visit.",
+            "I have resent the prescription to your pharmacy.", "Please finish the full course unless side effects appear."
+    };
+    private static final DateTimeFormatter SLOT_FORMAT = DateTimeFormatter.ofPattern("h:mm a", Locale.ENGLISH);
+
+    private final Options options;
+    private final String passwordSalt;
+    private final String passwordHash;
+
+    private final List<HospitalProfile> hospitals = new ArrayList<>();
+    private final List<List<String>> hospitalDepartments = new ArrayList<>();
+    private final List<PharmacyProfile> pharmacies = new ArrayList<>();
+    private final List<DoctorProfile> doctors = new ArrayList<>();
+    private final int[] doctorHospitals;
+    private final double[] doctorBookingRates;
+
+    private final String[] patientUids;
+    private final String[] patientNames;
+    private final String[] patientBirthDates;
+    private final int[] patientPharmacies;
+    private final Zipf patientPopularity;
+
+    private final Map<String, Long> counts = new TreeMap<>();
+
+    public SyntheticDataGenerator(Options options) {
+        this.options = options;
+        this.passwordSalt = salt(random(0, 0));
+        this.passwordHash = PasswordHasher.hashPassword(PASSWORD, passwordSalt);
+
+        for (int i = 0; i < options.hospitals; i++) {
+            Random random = random(1, i);
+            hospitals.add(hospital(random, i));
+            List<String> departments = new ArrayList<>(Arrays.asList(DEPARTMENTS));
+            shuffle(departments, random);
+            hospitalDepartments.add(List.copyOf(departments.subList(0, 4 + random.nextInt(DEPARTMENTS.length - 3))));
+        }
+        for (int i = 0; i < options.pharmacies; i++) {
+            pharmacies.add(pharmacy(random(2, i), i));
+        }
+
+        Zipf hospitalPopularity = new Zipf(options.hospitals, options.skew);
+        doctorHospitals = new int[options.doctors];
+        for (int i = 0; i < options.doctors; i++) {
+            Random random = random(3, i);
+            doctorHospitals[i] = hospitalPopularity.sample(random);
+            doctors.add(doctor(random, i, doctorHospitals[i]));
+        }
+
+        Zipf doctorLoad = new Zipf(options.doctors, options.skew);
+        doctorBookingRates = new double[options.doctors];
+        for (int i = 0; i < options.doctors; i++) {
+            doctorBookingRates[i] = Math.min(1.0, options.fill * options.doctors * doctorLoad.weight(i));
+        }
+
+        Zipf pharmacyPopularity = new Zipf(options.pharmacies, options.skew);
+        patientUids = new String[options.patients];
+        patientNames = new String[options.patients];
+        patientBirthDates = new String[options.patients];
+        patientPharmacies = new int[options.patients];
+        for (int i = 0; i < options.patients; i++) {
+            Random random = random(4, i);
+            patientUids[i] = id(random, 28);
+            patientNames[i] = name(random);
+            patientBirthDates[i] = LocalDate.of(1940, 1, 1).plusDays(random.nextInt(365 * 65)).toString();
+            patientPharmacies[i] = pharmacyPopularity.sample(random);
+        }
+        patientPopularity = new Zipf(options.patients, options.skew);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(options);
+        System.err.println("Generating with --seed " + options.seed + " --start " + options.start
+                + "; pass both again to resume or repeat this dataset.");
+
+        long start = System.nanoTime();
+        boolean succeeded = true;
+        try {
+            if (options.output != null) {
+                long written = 0;
+                try (BufferedWriter out = Files.newBufferedWriter(options.output, StandardCharsets.UTF_8)) {
+                    Iterator<WriteOperation> operations = generator.operations();
+                    while (operations.hasNext()) {
+                        WriteOperation operation = operations.next();
+                        out.write(StorageTransfer.toLine(operation.getCollection(), operation.getId(), operation.getData()));
+                        out.newLine();
+                        written++;
+                    }
+                }
+                System.err.println("Wrote " + written + " documents to " + options.output + " in "
+                        + TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) + " s.");
+            } else {
+                String emulatorHost = System.getenv("FIRESTORE_EMULATOR_HOST");
+                Firestore firestore = FirebaseInitializer.openEmulatorFirestore(emulatorHost, PROJECT_ID);
+                DocumentStore store = new FirestoreDocumentStore(firestore);
+                try {
+                    System.err.println("Importing into the Firestore emulator at " + emulatorHost);
+                    succeeded = StorageTransfer.importOperations(store, generator.operations(), options.importOptions);
+                } finally {
+                    store.close();
+                }
+            }
+        } finally {
+            FirestoreExecutor.getInstance().shutdown();
+        }
+
+        System.err.println("Generated documents per collection: " + generator.getCounts());
+        if (!succeeded) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Documents generated so far per collection.
+     */
+    public Map<String, Long> getCounts() {
+        return counts;
+    }
+
+    /**
+     * The whole dataset as set operations, generated one hospital, pharmacy, doctor or patient
+     * at a time so memory does not grow with the number of appointments or messages.
+     */
+    public Iterator<WriteOperation> operations() {
+        return new Iterator<>() {
+            private final ArrayDeque<WriteOperation> pending = new ArrayDeque<>();
+            private final BitSet linkedPatients = new BitSet();
+            private int stage;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                while (pending.isEmpty() && stage < 7) {
+                    if (!generateNext(stage, index, pending, linkedPatients)) {
+                        stage++;
+                        index = 0;
+                    } else {
+                        index++;
+                    }
+                }
+                return !pending.isEmpty();
+            }
+
+            @Override
+            public WriteOperation next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                WriteOperation operation = pending.poll();
+                counts.merge(operation.getCollection(), 1L, Long::sum);
+                return operation;
+            }
+        };
+    }
+
+    /**
+     * Adds the documents of one unit of a stage, or returns false once the stage is done.
+     */
+    private boolean generateNext(int stage, int index, ArrayDeque<WriteOperation> out, BitSet linkedPatients) {
+        switch (stage) {
+            case 0 -> {
+                if (index >= hospitals.size()) {
+                    return false;
+                }
+                HospitalProfile hospital = hospitals.get(index);
+                out.add(WriteOperation.set(ProfileRepository.HOSPITALS_COLLECTION, hospital.getUid(), DocumentMapper.toMap(hospital)));
+                addEmailIndex(out, hospital.getEmail(), hospital.getUid(), "HOSPITAL");
+                Random random = random(5, index);
+                for (String name : hospitalDepartments.get(index)) {
+                    HospitalDepartment department = new HospitalDepartment(id(random, 20), hospital.getUid(), name,
+                            name + " services at " + hospital.getHospitalName() + ".", phone(random),
+                            String.valueOf(1 + random.nextInt(6)), true);
+                    out.add(WriteOperation.set(DepartmentRepository.COLLECTION, department.getDepartmentId(),
+                            DocumentMapper.toMap(department)));
+                }
+            }
+            case 1 -> {
+                if (index >= pharmacies.size()) {
+                    return false;
+                }
+                PharmacyProfile pharmacy = pharmacies.get(index);
+                out.add(WriteOperation.set(ProfileRepository.PHARMACIES_COLLECTION, pharmacy.getUid(), DocumentMapper.toMap(pharmacy)));
+                addEmailIndex(out, pharmacy.getEmail(), pharmacy.getUid(), "PHARMACY");
+            }
+            case 2 -> {
+                if (index >= doctors.size()) {
+                    return false;
+                }
+                DoctorProfile doctor = doctors.get(index);
+                out.add(WriteOperation.set(ProfileRepository.DOCTORS_COLLECTION, doctor.getUid(), DocumentMapper.toMap(doctor)));
+                addEmailIndex(out, doctor.getEmail(), doctor.getUid(), "DOCTOR");
+            }
+            case 3 -> {
+                if (index >= patientUids.length) {
+                    return false;
+                }
+                PatientProfile patient = patient(index);
+                out.add(WriteOperation.set(ProfileRepository.PATIENTS_COLLECTION, patient.getUid(), DocumentMapper.toMap(patient)));
+                addEmailIndex(out, patient.getEmail(), patient.getUid(), "PATIENT");
+            }
+            case 4 -> {
+                if (index >= doctors.size()) {
+                    return false;
+                }
+                addSchedule(out, index, linkedPatients);
+            }
+            case 5 -> {
+                if (index >= doctors.size()) {
+                    return false;
+                }
+                addConversations(out, index);
+            }
+            default -> {
+                if (index > 0) {
+                    return false;
+                }
+                HospitalUidMigration complete = HospitalUidMigration.from(null).after(null, 0, 0, List.of(), true);
+                out.add(WriteOperation.set(HospitalUidMigration.COLLECTION, HospitalUidMigration.DOCUMENT_ID, complete.toMap()));
+            }
+        }
+        return true;
+    }
+
+    /**
+     * One doctor's appointments over the generated days, with everything they lead to. Links
+     * already written are marked in linkedPatients, one bit per hospital and patient; parse
+     * keeps hospitals times patients within an int index.
+     */
+    private void addSchedule(ArrayDeque<WriteOperation> out, int doctorIndex, BitSet linkedPatients) {
+        DoctorProfile doctor = doctors.get(doctorIndex);
+        Random random = random(6, doctorIndex);
+        long now = options.now();
+
+        for (int day = 0; day < options.days; day++) {
+            LocalDate date = options.start.plusDays(day);
+            String dayName = date.getDayOfWeek().getDisplayName(TextStyle.FULL, Locale.ENGLISH);
+            SlotOccupancy occupancy = SlotOccupancy.empty(doctor.getUid(), date.toString());
+
+            for (String slot : slotsFromAvailability(doctor.getAvailability().get(dayName))) {
+                if (random.nextDouble() >= doctorBookingRates[doctorIndex]) {
+                    continue;
+                }
+
+                int patientIndex = patientPopularity.sample(random);
+                Appointment appointment = appointment(random, doctor, patientIndex, date, slot, now);
+                if (appointment.getSlotReservationId() != null) {
+                    occupancy = occupancy.with(slot, true);
+                    out.add(WriteOperation.set(AppointmentRepository.SLOT_RESERVATIONS_COLLECTION,
+                            appointment.getSlotReservationId(), AppointmentRepository.reservation(appointment)));
+                }
+                int link = doctorHospitals[doctorIndex] * patientUids.length + patientIndex;
+                if (!linkedPatients.get(link)) {
+                    linkedPatients.set(link);
+                    out.add(AppointmentRepository.linkOperation(doctor.getHospitalUid(), appointment.getPatientUid()));
+                }
+
+                if ("COMPLETED".equals(appointment.getStatus())) {
+                    if (random.nextDouble() < options.prescriptionRate) {
+                        addPrescription(out, random, appointment, patientIndex, now);
+                    }
+                    if (random.nextDouble() < options.reportRate) {
+                        addDiagnosticReport(out, random, appointment);
+                    }
+                }
+
+                out.add(WriteOperation.set(AppointmentRepository.COLLECTION, appointment.getAppointmentId(),
+                        DocumentMapper.toMap(appointment)));
+                addNotification(out, random, appointment.getPatientUid(), "PATIENT", "Appointment Booked",
+                        "Your appointment with " + doctor.getName() + " is on " + appointment.getAppointmentTime() + ".",
+                        "APPOINTMENT", appointment.getAppointmentId(), appointment.getCreatedAt(), now);
+                if (appointment.getAppointmentDateTime() >= now) {
+                    addNotification(out, random, doctor.getUid(), "DOCTOR", "New Appointment",
+                            appointment.getPatientName() + " booked an appointment for " + appointment.getAppointmentTime(),
+                            "APPOINTMENT", appointment.getAppointmentId(), appointment.getCreatedAt(), now);
+                }
+            }
+
+            if (!occupancy.isEmpty()) {
+                out.add(WriteOperation.set(AppointmentRepository.SLOT_OCCUPANCY_COLLECTION,
+                        SlotOccupancy.documentId(doctor.getUid(), date.toString()), occupancy.toMap()));
+            }
+        }
+    }
+
+    private Appointment appointment(Random random, DoctorProfile doctor, int patientIndex, LocalDate date,
+                                    String slot, long now) {
+        long epoch = date.atTime(LocalTime.parse(slot, SLOT_FORMAT)).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        Appointment appointment = new Appointment(patientUids[patientIndex], doctor.getUid(),
+                patientNames[patientIndex], doctor.getName(), epoch);
+        appointment.setAppointmentId(id(random, 20));
+        appointment.setAppointmentTime(date + " " + slot);
+        appointment.setAppointmentDate(date.toString());
+        appointment.setAppointmentSlot(slot);
+        appointment.setHospitalUid(doctor.getHospitalUid());
+        appointment.setHospitalName(doctor.getHospitalName());
+        appointment.setDepartmentName(doctor.getDepartment());
+        appointment.setNewPatient(random.nextInt(5) == 0);
+        appointment.setReason(pick(random, REASONS));
+        appointment.setCreatedAt(epoch - TimeUnit.HOURS.toMillis(2 + random.nextInt(24 * 30)));
+
+        boolean cancelled = random.nextInt(100) < 6;
+        if (cancelled) {
+            appointment.setStatus("CANCELLED");
+        } else {
+            appointment.setSlotReservationId(AppointmentRepository.slotReservationId(doctor.getUid(), date.toString(), slot));
+            if (epoch < now) {
+                appointment.setStatus("COMPLETED");
+                appointment.setCompletedAt(epoch + TimeUnit.MINUTES.toMillis(30));
+                appointment.setVisitSummary("Seen for " + appointment.getReason().toLowerCase(Locale.ENGLISH)
+                        + ". Plan discussed with the patient.");
+            } else {
+                appointment.setStatus("SCHEDULED");
+            }
+        }
+        return appointment;
+    }
+
+    private void addPrescription(ArrayDeque<WriteOperation> out, Random random, Appointment appointment,
+                                 int patientIndex, long now) {
+        PharmacyProfile pharmacy = pharmacies.get(patientPharmacies[patientIndex]);
+        String[] medication = MEDICATIONS[random.nextInt(MEDICATIONS.length)];
+        int refills = random.nextInt(4);
+
+        Prescription prescription = new Prescription();
+        prescription.setPrescriptionId(id(random, 20));
+        prescription.setDoctorUid(appointment.getDoctorUid());
+        prescription.setDoctorName(appointment.getDoctorName());
+        prescription.setHospitalUid(appointment.getHospitalUid());
+        prescription.setHospitalName(appointment.getHospitalName());
+        prescription.setPatientUid(appointment.getPatientUid());
+        prescription.setPatientName(appointment.getPatientName());
+        prescription.setPatientDateOfBirth(patientBirthDates[patientIndex]);
+        prescription.setPharmacyName(pharmacy.getPharmacyName());
+        prescription.setPharmacyAddress(pharmacy.getFullAddress());
+        prescription.setPharmacyAddressNormalized(AddressNormalizer.normalize(pharmacy.getFullAddress()));
+        prescription.setPharmacyPhoneNumber(pharmacy.getPhoneNumber());
+        prescription.setMedicationName(medication[0]);
+        prescription.setDosage(medication[1]);
+        prescription.setQuantity(medication[2]);
+        prescription.setInstructions(medication[3]);
+        prescription.setMedicationInformation(medication[4]);
+        prescription.setRefillDetails(PrescriptionRefillSupport.formatRemainingRefills(refills));
+        prescription.setRefillIntervalDays(30);
+        prescription.setRefillRequested(false);
+        prescription.setCreatedAt(appointment.getCompletedAt());
+        FirebaseService.validatePrescription(prescription);
+
+        long age = now - prescription.getCreatedAt();
+        if (age > TimeUnit.DAYS.toMillis(3) && random.nextInt(10) < 8) {
+            long filledAt = prescription.getCreatedAt() + TimeUnit.HOURS.toMillis(4 + random.nextInt(44));
+            prescription.setFilledBy(pharmacy.getPharmacyName());
+            prescription.setFilledAt(filledAt);
+            prescription.setStatus(Prescription.STATUS_FILLED);
+            if (age > TimeUnit.DAYS.toMillis(7) && random.nextInt(10) < 9) {
+                long pickedUpAt = filledAt + TimeUnit.HOURS.toMillis(2 + random.nextInt(72));
+                prescription.setStatus(Prescription.STATUS_PICKED_UP);
+                prescription.setPickedUpAt(pickedUpAt);
+                prescription.setPickedUpByPatientName(appointment.getPatientName());
+                prescription.setPickedUpPatientDateOfBirth(patientBirthDates[patientIndex]);
+                prescription.setPickupConfirmedBy(pharmacy.getPharmacyName());
+                prescription.setNextRefillEligibleAt(pickedUpAt + TimeUnit.DAYS.toMillis(30));
+            }
+        } else {
+            prescription.setStatus(Prescription.STATUS_SENT);
+        }
+
+        appointment.setPrescribedMedications(medication[0] + " " + medication[1]);
+        appointment.setPrescribedPrescriptionId(prescription.getPrescriptionId());
+        out.add(WriteOperation.set(PrescriptionRepository.COLLECTION, prescription.getPrescriptionId(),
+                DocumentMapper.toMap(prescription)));
+        addNotification(out, random, appointment.getPatientUid(), "PATIENT", "New Prescription",
+                medication[0] + " was sent to " + pharmacy.getPharmacyName() + ".",
+                "PRESCRIPTION", prescription.getPrescriptionId(), prescription.getCreatedAt(), now);
+    }
+
+    private void addDiagnosticReport(ArrayDeque<WriteOperation> out, Random random, Appointment appointment) {
+        long uploadedAt = appointment.getCompletedAt() + TimeUnit.HOURS.toMillis(1 + random.nextInt(48));
+        String findings = "No acute findings.";
+        String results = "Results within normal limits.";
+
+        DiagnosticReport report = new DiagnosticReport();
+        report.setReportId(id(random, 20));
+        report.setAppointmentId(appointment.getAppointmentId());
+        report.setPatientUid(appointment.getPatientUid());
+        report.setPatientName(appointment.getPatientName());
+        report.setDoctorUid(appointment.getDoctorUid());
+        report.setDoctorName(appointment.getDoctorName());
+        report.setHospitalUid(appointment.getHospitalUid());
+        report.setHospitalName(appointment.getHospitalName());
+        report.setReportTitle("Hospital Diagnostic Report");
+        report.setReportType(random.nextBoolean() ? "Lab Result" : "Imaging");
+        report.setHospitalFindings(findings);
+        report.setDiagnosticResults(results);
+        report.setUploadedByUid(appointment.getHospitalUid());
+        report.setUploadedByRole("HOSPITAL");
+        report.setUploadedAt(uploadedAt);
+        report.setStatus("NEW");
+
+        appointment.setHospitalFindings(findings);
+        appointment.setDiagnosticResults(results);
+        appointment.setDiagnosticResultsUploadedAt(uploadedAt);
+        out.add(WriteOperation.set(DiagnosticReportRepository.COLLECTION, report.getReportId(), DocumentMapper.toMap(report)));
+        addNotification(out, random, appointment.getPatientUid(), "PATIENT", "Diagnostic Results Available",
+                "New results from " + appointment.getHospitalName() + " are ready.",
+                "DIAGNOSTIC_RESULT", report.getReportId(), uploadedAt, options.now());
+    }
+
+    /**
+     * Message threads between one doctor and some of the patients, each with its summary.
+     */
+    private void addConversations(ArrayDeque<WriteOperation> out, int doctorIndex) {
+        DoctorProfile doctor = doctors.get(doctorIndex);
+        Random random = random(7, doctorIndex);
+        long now = options.now();
+        Set<Integer> patients = new HashSet<>();
+
+        for (int attempt = 0; patients.size() < options.conversations && attempt < options.conversations * 4; attempt++) {
+            int patientIndex = patientPopularity.sample(random);
+            if (!patients.add(patientIndex)) {
+                continue;
+            }
+
+            Map<String, String> participants = new LinkedHashMap<>();
+            participants.put("doctorUid", doctor.getUid());
+            participants.put("patientUid", patientUids[patientIndex]);
+            Map<String, Object> summary = null;
+
+            long sentAt = now - TimeUnit.DAYS.toMillis(1 + random.nextInt(Math.max(1, options.days)));
+            for (int i = 0; i < options.messages; i++) {
+                boolean fromPatient = i % 2 == 0;
+                sentAt += TimeUnit.MINUTES.toMillis(5 + random.nextInt(600));
+
+                Message message = new Message();
+                message.setMessageId(id(random, 20));
+                message.setDoctorUid(doctor.getUid());
+                message.setDoctorName(doctor.getName());
+                message.setPatientUid(patientUids[patientIndex]);
+                message.setPatientName(patientNames[patientIndex]);
+                message.setSenderUid(fromPatient ? patientUids[patientIndex] : doctor.getUid());
+                message.setSenderName(fromPatient ? patientNames[patientIndex] : doctor.getName());
+                message.setSenderRole(fromPatient ? "PATIENT" : "DOCTOR");
+                message.setMessageText(pick(random, fromPatient ? PATIENT_LINES : DOCTOR_LINES));
+                message.setCreatedAt(Math.min(sentAt, now));
+                message.setRead(i < options.messages - 1 || random.nextBoolean());
+                message.setRecipientUid(message.resolveRecipientUid());
+
+                out.add(WriteOperation.set(MessageRepository.COLLECTION, message.getMessageId(), DocumentMapper.toMap(message)));
+                summary = ConversationRepository.withMessage(summary, message);
+            }
+
+            if (summary != null) {
+                out.add(WriteOperation.set(ConversationRepository.COLLECTION,
+                        ConversationRepository.conversationId(participants), summary));
+            }
+        }
+    }
+
+    private void addNotification(ArrayDeque<WriteOperation> out, Random random, String userUid, String userRole,
+                                 String title, String message, String type, String relatedId, long createdAt, long now) {
+        boolean read = createdAt < now - TimeUnit.DAYS.toMillis(7) || random.nextBoolean();
+        AppNotification notification = new AppNotification(id(random, 20), userUid, userRole, title, message, type,
+                relatedId, read, Math.min(createdAt, now));
+        out.add(WriteOperation.set(NotificationRepository.COLLECTION, notification.getNotificationId(),
+                DocumentMapper.toMap(notification)));
+    }
+
+    private void addEmailIndex(ArrayDeque<WriteOperation> out, String email, String uid, String role) {
+        String normalized = ProfileRepository.normalizeEmail(email);
+        out.add(WriteOperation.set(ProfileRepository.EMAIL_INDEX_COLLECTION, ProfileRepository.emailIndexId(normalized),
+                ProfileRepository.emailIndexEntry(normalized, uid, role)));
+    }
+
+    private HospitalProfile hospital(Random random, int index) {
+        String[] city = CITIES[random.nextInt(CITIES.length)];
+        HospitalProfile hospital = new HospitalProfile(id(random, 28), city[0] + " " + LAST_NAMES[index % LAST_NAMES.length]
+                + " Hospital " + (index + 1), "hospital" + (index + 1) + "@synthetic.test", phone(random),
+                street(random), city[0], city[1], city[2]);
+        hospital.setRole("HOSPITAL");
+        hospital.setPasswordHash(passwordHash);
+        hospital.setPasswordSalt(passwordSalt);
+        hospital.setCreatedAt(options.startMillis());
+        hospital.setUpdatedAt(options.startMillis());
+        return hospital;
+    }
+
+    private PharmacyProfile pharmacy(Random random, int index) {
+        String[] city = CITIES[random.nextInt(CITIES.length)];
+        PharmacyProfile pharmacy = new PharmacyProfile(id(random, 28), LAST_NAMES[random.nextInt(LAST_NAMES.length)]
+                + " Pharmacy " + (index + 1), "pharmacy" + (index + 1) + "@synthetic.test", phone(random),
+                street(random), city[0], city[1], city[2]);
+        pharmacy.setRole("PHARMACY");
+        pharmacy.setPasswordHash(passwordHash);
+        pharmacy.setPasswordSalt(passwordSalt);
+        pharmacy.setCreatedAt(options.startMillis());
+        pharmacy.setUpdatedAt(options.startMillis());
+        return pharmacy;
+    }
+
+    private DoctorProfile doctor(Random random, int index, int hospitalIndex) {
+        HospitalProfile hospital = hospitals.get(hospitalIndex);
+        List<String> departments = hospitalDepartments.get(hospitalIndex);
+
+        DoctorProfile doctor = new DoctorProfile(id(random, 28), "Dr. " + name(random),
+                "doctor" + (index + 1) + "@synthetic.test", pick(random, SPECIALTIES), hospital.getHospitalName(),
+                hospital.getAddressLine(), hospital.getCity(), hospital.getState(), hospital.getZip(),
+                random.nextInt(10) < 8, availability(random));
+        doctor.setHospitalUid(hospital.getUid());
+        doctor.setHospitalName(hospital.getHospitalName());
+        doctor.setDepartment(departments.get(random.nextInt(departments.size())));
+        doctor.setPhone(hospital.getPhoneNumber());
+        doctor.setLicenseNumber("NY" + (100000 + random.nextInt(900000)));
+        doctor.setInsuranceInfo(pick(random, INSURERS) + ", " + pick(random, INSURERS));
+        doctor.setVisitType(random.nextBoolean() ? "In-person" : "In-person & Telehealth");
+        doctor.setPasswordHash(passwordHash);
+        doctor.setPasswordSalt(passwordSalt);
+        doctor.setCreatedAt(options.startMillis());
+        doctor.setUpdatedAt(options.startMillis());
+        return doctor;
+    }
+
+    /**
+     * A weekly schedule in the format the profile screen saves: weekdays mostly full days,
+     * some split or half days, a day off now and then and the odd Saturday morning.
+     */
+    private static Map<String, String> availability(Random random) {
+        Map<String, String> availability = new LinkedHashMap<>();
+        int dayOff = random.nextInt(3) == 0 ? 1 + random.nextInt(5) : -1;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            String value;
+            if (day.getValue() <= 5) {
+                if (day.getValue() == dayOff) {
+                    value = "Closed";
+                } else {
+                    value = switch (random.nextInt(4)) {
+                        case 0 -> "8:00 AM - 12:00 PM, 1:00 PM - 4:00 PM";
+                        case 1 -> "10:00 AM - 6:00 PM";
+                        default -> "9:00 AM - 5:00 PM";
+                    };
+                }
+            } else {
+                value = day == DayOfWeek.SATURDAY && random.nextInt(5) == 0 ? "9:00 AM - 1:00 PM" : "Closed";
+            }
+            availability.put(day.getDisplayName(TextStyle.FULL, Locale.ENGLISH), value);
+        }
+        return availability;
+    }
+
+    /**
+     * Half-hour slots in the availability ranges, as the booking screen offers them (see
+     * BookAppointmentController). "Closed" and blank days have none.
+     */
+    static List<String> slotsFromAvailability(String availability) {
+        List<String> slots = new ArrayList<>();
+        if (availability == null || availability.isBlank() || "Closed".equalsIgnoreCase(availability.trim())) {
+            return slots;
+        }
+
+        for (String range : availability.split(",")) {
+            String[] parts = range.trim().split("\\s*-\\s*");
+            if (parts.length != 2) {
+                continue;
+            }
+            LocalTime current = LocalTime.parse(parts[0].trim().toUpperCase(Locale.ENGLISH), SLOT_FORMAT);
+            LocalTime end = LocalTime.parse(parts[1].trim().toUpperCase(Locale.ENGLISH), SLOT_FORMAT);
+            while (current.isBefore(end)) {
+                slots.add(current.format(SLOT_FORMAT).toUpperCase(Locale.ENGLISH));
+                current = current.plusMinutes(30);
+            }
+        }
+        return slots;
+    }
+
+    private PatientProfile patient(int index) {
+        Random random = random(8, index);
+        String[] city = CITIES[random.nextInt(CITIES.length)];
+        PharmacyProfile pharmacy = pharmacies.get(patientPharmacies[index]);
+
+        PatientProfile patient = new PatientProfile(patientUids[index], patientNames[index],
+                "patient" + (index + 1) + "@synthetic.test", city[2]);
+        LocalDate birthDate = LocalDate.parse(patientBirthDates[index]);
+        patient.setDateOfBirth(patientBirthDates[index]);
+        patient.setAge(options.start.getYear() - birthDate.getYear());
+        patient.setGender(random.nextBoolean() ? "Female" : "Male");
+        patient.setPhoneNumber(phone(random));
+        patient.setInsuranceCompany(pick(random, INSURERS));
+        patient.setInsuranceNumber("INS" + (10_000_000 + random.nextInt(90_000_000)));
+        patient.setInsurancePlanType(random.nextBoolean() ? "PPO" : "HMO");
+        patient.setPreferredPharmacyUid(pharmacy.getUid());
+        patient.setPreferredPharmacyName(pharmacy.getPharmacyName());
+        patient.setPreferredPharmacyAddress(pharmacy.getFullAddress());
+        patient.setPreferredPharmacyPhoneNumber(pharmacy.getPhoneNumber());
+        patient.setBloodType(pick(random, new String[] {"A+", "A-", "B+", "B-", "AB+", "O+", "O-"}));
+        patient.setAllergies(random.nextInt(4) == 0 ? "Penicillin" : "None");
+        patient.setPasswordHash(passwordHash);
+        patient.setPasswordSalt(passwordSalt);
+        patient.setCreatedAt(options.startMillis());
+        patient.setUpdatedAt(options.startMillis());
+        return patient;
+    }
+
+    /**
+     * A random stream for one entity, so the same arguments always produce the same data. The
+     * seed is scrambled (SplitMix64) because Random streams from nearby seeds start alike.
+     */
+    private Random random(int kind, int index) {
+        long z = options.seed * 0x9E3779B97F4A7C15L + ((long) kind << 32) + index;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return new Random(z ^ (z >>> 31));
+    }
+
+    private static String salt(Random random) {
+        byte[] salt = new byte[16];
+        random.nextBytes(salt);
+        return Base64.getEncoder().encodeToString(salt);
+    }
+
+    private static String id(Random random, int length) {
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+        StringBuilder id = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            id.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return id.toString();
+    }
+
+    private static String name(Random random) {
+        return pick(random, FIRST_NAMES) + " " + pick(random, LAST_NAMES);
+    }
+
+    private static String phone(Random random) {
+        return String.format("(%03d) %03d-%04d", 200 + random.nextInt(800), 200 + random.nextInt(800), random.nextInt(10_000));
+    }
+
+    private static String street(Random random) {
+        return (1 + random.nextInt(2_000)) + " " + pick(random, STREETS);
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static void shuffle(List<String> values, Random random) {
+        for (int i = values.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String swap = values.get(i);
+            values.set(i, values.get(j));
+            values.set(j, swap);
+        }
+    }
+
+    /**
+     * Zipf weights over n items: item i is picked with probability proportional to
+     * 1 / (i + 1)^skew. A skew of 0 is uniform.
+     */
+    private static final class Zipf {
+        private final double[] cumulative;
+
+        private Zipf(int n, double skew) {
+            cumulative = new double[n];
+            double total = 0;
+            for (int i = 0; i < n; i++) {
+                total += Math.pow(i + 1, -skew);
+                cumulative[i] = total;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= total;
+            }
+        }
+
+        private double weight(int i) {
+            return cumulative[i] - (i == 0 ? 0 : cumulative[i - 1]);
+        }
+
+        private int sample(Random random) {
+            int found = Arrays.binarySearch(cumulative, random.nextDouble());
+            int index = found >= 0 ? found : -found - 1;
+            return Math.min(index, cumulative.length - 1);
+        }
+    }
+
+    /**
+     * Dataset sizes and shape; see the class description for the options.
+     */
+    public static final class Options {
+        private int patients = 100_000;
+        private int doctors = 5_000;
+        private int hospitals = 50;
+        private int pharmacies = 500;
+        private int days = 90;
+        private LocalDate start;
+        private double fill = 0.6;
+        private double skew = 0.8;
+        private int conversations = 20;
+        private int messages = 12;
+        private double prescriptionRate = 0.35;
+        private double reportRate = 0.1;
+        private long seed = 430L;
+        private Path output;
+        private StorageTransfer.ImportOptions importOptions;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            List<String> importArgs = new ArrayList<>();
+            for (int i = 0; i < args.length; i += 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + args[i] + ".");
+                }
+                String value = args[i + 1];
+                switch (args[i]) {
+                    case "--patients" -> options.patients = Integer.parseInt(value);
+                    case "--doctors" -> options.doctors = Integer.parseInt(value);
+                    case "--hospitals" -> options.hospitals = Integer.parseInt(value);
+                    case "--pharmacies" -> options.pharmacies = Integer.parseInt(value);
+                    case "--days" -> options.days = Integer.parseInt(value);
+                    case "--start" -> options.start = LocalDate.parse(value);
+                    case "--fill" -> options.fill = Double.parseDouble(value);
+                    case "--skew" -> options.skew = Double.parseDouble(value);
+                    case "--conversations" -> options.conversations = Integer.parseInt(value);
+                    case "--messages" -> options.messages = Integer.parseInt(value);
+                    case "--prescription-rate" -> options.prescriptionRate = Double.parseDouble(value);
+                    case "--report-rate" -> options.reportRate = Double.parseDouble(value);
+                    case "--seed" -> options.seed = Long.parseLong(value);
+                    case "--output" -> options.output = Path.of(value);
+                    case "--parallelism", "--rate", "--batch", "--offset" -> {
+                        importArgs.add(args[i]);
+                        importArgs.add(value);
+                    }
+                    default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+
+            if (options.patients <= 0 || options.doctors <= 0 || options.hospitals <= 0 || options.pharmacies <= 0
+                    || options.days <= 0) {
+                throw new IllegalArgumentException("Patients, doctors, hospitals, pharmacies and days must be positive.");
+            }
+            if ((long) options.hospitals * options.patients > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Hospitals times patients must not exceed " + Integer.MAX_VALUE + ".");
+            }
+            if (options.fill < 0 || options.fill > 1 || options.skew < 0) {
+                throw new IllegalArgumentException("Fill must be between 0 and 1 and skew must not be negative.");
+            }
+            if (options.start == null) {
+                options.start = LocalDate.now().minusDays(options.days / 2);
+            }
+            options.importOptions = StorageTransfer.ImportOptions.parse(importArgs.toArray(new String[0]), 0);
+            return options;
+        }
+
+        long startMillis() {
+            return start.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+
+        /**
+         * The moment the dataset is generated as of: the middle of the days, so there are
+         * both past and upcoming appointments, whenever it is generated.
+         */
+        long now() {
+            return start.plusDays(days / 2).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        }
+    }
+}
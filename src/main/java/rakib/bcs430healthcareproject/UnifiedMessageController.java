@@ -15,7 +15,6 @@ import javafx.scene.layout.VBox;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -24,6 +23,9 @@ import java.util.concurrent.CompletableFuture;
 
 public class UnifiedMessageController {
 
+    /** Messages loaded when a conversation opens and each time the user scrolls to the top. */
+    private static final int MESSAGE_PAGE_SIZE = 30;
+
     @FXML private Label currentUserNameLabel;
     @FXML private Label conversationTitleLabel;
     @FXML private Label conversationSubtitleLabel;
@@ -39,6 +41,11 @@ public class UnifiedMessageController {
     private UserContext userContext;
     private ContactOption selectedContact;
 
+    /** Cursor for the messages before the oldest one shown, or null when all are shown. */
+    private String olderMessagesCursor;
+    private boolean loadingOlderMessages;
+    private Button loadOlderButton;
+
     private final SimpleDateFormat timeFormat = new SimpleDateFormat("MMM d, yyyy h:mm a");
 
     @FXML
@@ -54,9 +61,20 @@ public class UnifiedMessageController {
         currentUserNameLabel.setText(formatCurrentUserName());
         contactHelpLabel.setText(contactHelpText());
         setupContactList();
+        setupMessageHistory();
         loadContacts();
     }
 
+    private void setupMessageHistory() {
+        loadOlderButton = new Button("Load earlier messages");
+        loadOlderButton.setOnAction(event -> loadOlderMessages());
+        messagesScrollPane.vvalueProperty().addListener((observable, oldValue, newValue) -> {
+            if (newValue.doubleValue() <= messagesScrollPane.getVmin() && oldValue.doubleValue() > newValue.doubleValue()) {
+                loadOlderMessages();
+            }
+        });
+    }
+
     private void setupContactList() {
         contactListView.setCellFactory(list -> new ListCell<>() {
             @Override
@@ -65,7 +83,7 @@ public class UnifiedMessageController {
                 if (empty || contact == null) {
                     setText(null);
                 } else {
-                    setText(contact.displayName + " | " + contact.roleLabel());
+                    setText(formatContact(contact));
                 }
             }
         });
@@ -77,6 +95,10 @@ public class UnifiedMessageController {
         });
     }
 
+    /**
+     * Shows the conversation summaries first, most recent activity on top, then appends the
+     * contacts the user has not written to yet once they are loaded.
+     */
     private void loadContacts() {
         showStatus("Loading conversations...", false);
         CompletableFuture<List<ContactOption>> future;
@@ -92,22 +114,106 @@ public class UnifiedMessageController {
             return;
         }
 
-        future.thenAccept(contacts -> Platform.runLater(() -> {
-                    contactListView.getItems().setAll(contacts);
-                    if (contacts.isEmpty()) {
-                        showStatus("No message contacts are available yet.", false);
-                        updateHeader();
-                    } else {
-                        hideStatus();
-                        contactListView.getSelectionModel().selectFirst();
-                    }
-                }))
+        firebaseService.getConversations(userContext.getUid(), userContext.getRole())
+                .thenAccept(conversations -> Platform.runLater(() -> showConversations(conversations)))
+                .exceptionally(e -> {
+                    System.err.println("Failed to load conversation summaries: " + cleanErrorMessage(e));
+                    return null;
+                })
+                .thenCompose(ignored -> future)
+                .thenAccept(contacts -> Platform.runLater(() -> addContacts(contacts)))
                 .exceptionally(e -> {
                     Platform.runLater(() -> showStatus(cleanErrorMessage(e), true));
                     return null;
                 });
     }
 
+    private void showConversations(List<Conversation> conversations) {
+        List<ContactOption> contacts = new ArrayList<>();
+        for (Conversation conversation : conversations) {
+            ContactOption contact = toContact(conversation);
+            if (contact != null) {
+                contacts.add(contact);
+            }
+        }
+
+        contactListView.getItems().setAll(contacts);
+        if (!contacts.isEmpty()) {
+            hideStatus();
+            contactListView.getSelectionModel().selectFirst();
+        }
+    }
+
+    private void addContacts(List<ContactOption> contacts) {
+        Map<String, ContactOption> shown = new LinkedHashMap<>();
+        for (ContactOption contact : contactListView.getItems()) {
+            shown.put(contact.key(), contact);
+        }
+
+        List<ContactOption> added = new ArrayList<>();
+        for (ContactOption contact : contacts) {
+            ContactOption existing = shown.get(contact.key());
+            if (existing == null) {
+                added.add(contact);
+            } else {
+                existing.detail = contact.detail;
+            }
+        }
+        contactListView.getItems().addAll(added);
+        contactListView.refresh();
+
+        if (contactListView.getItems().isEmpty()) {
+            showStatus("No message contacts are available yet.", false);
+            updateHeader();
+        } else {
+            hideStatus();
+            if (selectedContact == null) {
+                contactListView.getSelectionModel().selectFirst();
+            } else {
+                updateHeader();
+            }
+        }
+    }
+
+    /**
+     * The other participant of a conversation as a contact, with the conversation's summary.
+     */
+    private ContactOption toContact(Conversation conversation) {
+        String role = userContext.getRole();
+        ContactOption contact = null;
+        if (!"DOCTOR".equalsIgnoreCase(role) && hasText(conversation.getDoctorUid())) {
+            contact = new ContactOption("DOCTOR", conversation.getDoctorUid(),
+                    valueOrDefault(conversation.getDoctorName(), "Doctor"), "");
+        } else if (!"PATIENT".equalsIgnoreCase(role) && hasText(conversation.getPatientUid())) {
+            contact = new ContactOption("PATIENT", conversation.getPatientUid(),
+                    valueOrDefault(conversation.getPatientName(), "Patient"), "");
+        } else if (!"PHARMACY".equalsIgnoreCase(role) && hasText(conversation.getPharmacyUid())) {
+            contact = new ContactOption("PHARMACY", conversation.getPharmacyUid(),
+                    valueOrDefault(conversation.getPharmacyName(), "Pharmacy"), "");
+        }
+
+        if (contact != null) {
+            contact.lastMessageText = conversation.getLastMessageText();
+            contact.lastMessageAt = conversation.getLastMessageAt();
+            contact.unreadCount = conversation.unreadCountFor(userContext.getUid());
+        }
+        return contact;
+    }
+
+    private String formatContact(ContactOption contact) {
+        StringBuilder text = new StringBuilder(contact.displayName + " | " + contact.roleLabel());
+        if (contact.unreadCount > 0) {
+            text.append(" | ").append(contact.unreadCount).append(" unread");
+        }
+        if (hasText(contact.lastMessageText)) {
+            text.append(System.lineSeparator()).append(contact.lastMessageText);
+            if (contact.lastMessageAt != null) {
+                text.append(" (").append(formatTime(contact.lastMessageAt)).append(")");
+            }
+        }
+        return text.toString();
+    }
+
     private CompletableFuture<List<ContactOption>> loadPatientContacts() {
         CompletableFuture<List<Doctor>> doctorsFuture = firebaseService.getDoctorsForPatient(userContext.getUid());
         CompletableFuture<List<PharmacyProfile>> pharmaciesFuture = firebaseService.getAllPharmacies();
@@ -225,18 +331,28 @@ public class UnifiedMessageController {
 
     private void loadMessages() {
         messagesVBox.getChildren().clear();
+        olderMessagesCursor = null;
+        loadingOlderMessages = false;
         if (selectedContact == null) {
             return;
         }
 
-        firebaseService.getMessagesBetweenParticipants(
+        ContactOption contact = selectedContact;
+        firebaseService.getRecentMessagesBetweenParticipants(
                         userContext.getRole(),
                         userContext.getUid(),
-                        selectedContact.role,
-                        selectedContact.uid
+                        contact.role,
+                        contact.uid,
+                        MESSAGE_PAGE_SIZE,
+                        null
                 )
-                .thenAccept(messages -> Platform.runLater(() -> {
-                    renderMessages(messages);
+                .thenAccept(page -> Platform.runLater(() -> {
+                    if (contact != selectedContact) {
+                        return;
+                    }
+                    olderMessagesCursor = page.getNextCursor();
+                    prependMessages(page.getItems());
+                    Platform.runLater(() -> messagesScrollPane.setVvalue(messagesScrollPane.getVmax()));
                     markAsRead();
                 }))
                 .exceptionally(e -> {
@@ -245,6 +361,54 @@ public class UnifiedMessageController {
                 });
     }
 
+    /**
+     * Loads the page before the oldest message shown and adds it above, keeping the messages
+     * the user was looking at in place.
+     */
+    private void loadOlderMessages() {
+        if (selectedContact == null || olderMessagesCursor == null || loadingOlderMessages) {
+            return;
+        }
+
+        ContactOption contact = selectedContact;
+        loadingOlderMessages = true;
+        loadOlderButton.setDisable(true);
+        firebaseService.getRecentMessagesBetweenParticipants(
+                        userContext.getRole(),
+                        userContext.getUid(),
+                        contact.role,
+                        contact.uid,
+                        MESSAGE_PAGE_SIZE,
+                        olderMessagesCursor
+                )
+                .thenAccept(page -> Platform.runLater(() -> {
+                    if (contact != selectedContact) {
+                        return;
+                    }
+                    double heightBefore = messagesVBox.getHeight();
+                    olderMessagesCursor = page.getNextCursor();
+                    prependMessages(page.getItems());
+                    loadingOlderMessages = false;
+                    loadOlderButton.setDisable(false);
+
+                    messagesScrollPane.applyCss();
+                    messagesScrollPane.layout();
+                    double added = messagesVBox.getHeight() - heightBefore;
+                    double scrollable = messagesVBox.getHeight() - messagesScrollPane.getViewportBounds().getHeight();
+                    if (scrollable > 0) {
+                        messagesScrollPane.setVvalue(Math.min(1.0, added / scrollable));
+                    }
+                }))
+                .exceptionally(e -> {
+                    Platform.runLater(() -> {
+                        loadingOlderMessages = false;
+                        loadOlderButton.setDisable(false);
+                        showStatus("Failed to load messages: " + cleanErrorMessage(e), true);
+                    });
+                    return null;
+                });
+    }
+
     @FXML
     private void onSendMessage() {
         if (selectedContact == null) {
@@ -266,12 +430,19 @@ public class UnifiedMessageController {
         message.setCreatedAt(System.currentTimeMillis());
         message.setRead(false);
 
+        ContactOption contact = selectedContact;
         sendButton.setDisable(true);
         firebaseService.saveMessage(message)
                 .thenRun(() -> Platform.runLater(() -> {
+                    contact.lastMessageText = message.getMessageText();
+                    contact.lastMessageAt = message.getCreatedAt();
+                    contactListView.refresh();
                     messageInputArea.clear();
                     sendButton.setDisable(false);
-                    loadMessages();
+                    if (contact == selectedContact) {
+                        messagesVBox.getChildren().add(createBubble(message));
+                        Platform.runLater(() -> messagesScrollPane.setVvalue(messagesScrollPane.getVmax()));
+                    }
                 }))
                 .exceptionally(e -> {
                     Platform.runLater(() -> {
@@ -283,27 +454,35 @@ public class UnifiedMessageController {
     }
 
     private void markAsRead() {
+        ContactOption contact = selectedContact;
         firebaseService.markMessagesAsReadBetweenParticipants(
                 userContext.getRole(),
                 userContext.getUid(),
-                selectedContact.role,
-                selectedContact.uid,
+                contact.role,
+                contact.uid,
                 userContext.getRole()
-        );
+        ).thenRun(() -> Platform.runLater(() -> {
+            contact.unreadCount = 0;
+            contactListView.refresh();
+        }));
     }
 
-    private void renderMessages(List<Message> messages) {
-        messagesVBox.getChildren().clear();
-        if (messages == null) {
-            messages = new ArrayList<>();
-        }
+    /**
+     * Adds a page of messages, oldest first, above the ones already shown, with the "Load
+     * earlier messages" button on top while there are more.
+     */
+    private void prependMessages(List<Message> messages) {
+        messagesVBox.getChildren().remove(loadOlderButton);
 
-        messages.sort(Comparator.comparingLong(m -> m.getCreatedAt() != null ? m.getCreatedAt() : 0));
+        List<VBox> bubbles = new ArrayList<>();
         for (Message message : messages) {
-            messagesVBox.getChildren().add(createBubble(message));
+            bubbles.add(createBubble(message));
         }
+        messagesVBox.getChildren().addAll(0, bubbles);
 
-        Platform.runLater(() -> messagesScrollPane.setVvalue(1.0));
+        if (olderMessagesCursor != null) {
+            messagesVBox.getChildren().add(0, loadOlderButton);
+        }
     }
 
     private VBox createBubble(Message message) {
@@ -421,7 +600,10 @@ public class UnifiedMessageController {
         private final String role;
         private final String uid;
         private final String displayName;
-        private final String detail;
+        private String detail;
+        private String lastMessageText;
+        private Long lastMessageAt;
+        private long unreadCount;
 
         private ContactOption(String role, String uid, String displayName, String detail) {
             this.role = role;
@@ -430,6 +612,10 @@ public class UnifiedMessageController {
             this.detail = detail;
         }
 
+        private String key() {
+            return role + ":" + uid;
+        }
+
         private String roleLabel() {
             if ("DOCTOR".equalsIgnoreCase(role)) {
                 return "Doctor";
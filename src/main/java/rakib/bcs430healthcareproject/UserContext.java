@@ -21,6 +21,9 @@ public class UserContext {
     // For passing selected appointments between screens
     private Appointment selectedAppointment;
 
+    // Live updates for the logged-in user; opened on first use, closed at logout
+    private UserEventStream eventStream;
+
     private UserContext() {
     }
 
@@ -32,6 +35,7 @@ public class UserContext {
     }
 
     public void setUserData(String uid, PatientProfile profile) {
+        closeEventStreamUnlessOwnedBy(uid, "PATIENT");
         this.uid = uid;
         this.role = "PATIENT";
         this.patientProfile = profile;
@@ -41,6 +45,7 @@ public class UserContext {
     }
 
     public void setDoctorUserData(String uid, DoctorProfile profile) {
+        closeEventStreamUnlessOwnedBy(uid, "DOCTOR");
         this.uid = uid;
         this.role = "DOCTOR";
         this.doctorProfile = profile;
@@ -50,6 +55,7 @@ public class UserContext {
     }
 
     public void setPharmacyUserData(String uid, PharmacyProfile profile) {
+        closeEventStreamUnlessOwnedBy(uid, "PHARMACY");
         this.uid = uid;
         this.role = "PHARMACY";
         this.pharmacyProfile = profile;
@@ -59,6 +65,7 @@ public class UserContext {
     }
 
     public void setHospitalUserData(String uid, HospitalProfile profile) {
+        closeEventStreamUnlessOwnedBy(uid, "HOSPITAL");
         this.uid = uid;
         this.role = "HOSPITAL";
         this.hospitalProfile = profile;
@@ -68,6 +75,7 @@ public class UserContext {
     }
 
     public void clearUserData() {
+        closeEventStreamUnlessOwnedBy(null, null);
         this.uid = null;
         this.role = null;
         this.patientProfile = null;
@@ -84,6 +92,31 @@ public class UserContext {
         return uid;
     }
 
+    /**
+     * The logged-in user's live event stream, shared by every screen of the session.
+     */
+    public synchronized UserEventStream getEventStream() {
+        if (!isLoggedIn()) {
+            throw new IllegalStateException("No user is logged in.");
+        }
+        if (eventStream == null) {
+            String pharmacyAddress = pharmacyProfile != null ? pharmacyProfile.getAddressNormalized() : null;
+            LocalReplica replica = DocumentStores.getDefaultReplica();
+            if (replica != null) {
+                replica.retainOwner(uid);
+            }
+            eventStream = new UserEventStream(DocumentStores.getDefault(), uid, role, pharmacyAddress, replica);
+        }
+        return eventStream;
+    }
+
+    private synchronized void closeEventStreamUnlessOwnedBy(String uid, String role) {
+        if (eventStream != null && !(eventStream.getUid().equals(uid) && eventStream.getRole().equals(role))) {
+            eventStream.close();
+            eventStream = null;
+        }
+    }
+
     public String getRole() {
         return role;
     }
@@ -0,0 +1,301 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Live view of the logged-in user's messages, notifications, appointments and prescriptions,
+ * kept for the whole session by {@link UserContext#getEventStream()}.
+ *
+ * Each topic opens one {@link DocumentStore#listen} query the first time a screen subscribes
+ * and keeps it until the stream is closed at logout, so screens that come and go share it and
+ * a new subscriber gets the latest value immediately instead of querying again. Subscribers
+ * are called on a background thread; JavaFX screens hop to the FX thread themselves.
+ *
+ * With a {@link LocalReplica}, appointments and prescriptions are also saved to disk with
+ * every snapshot, and the next session's first subscriber gets the saved list right away
+ * while the live query catches up.
+ *
+ * If a store listener fails, subscribers that passed an error callback are told, keep the last
+ * value they got, and the next subscribe to that topic opens the listener again.
+ */
+public final class UserEventStream {
+
+    private final String uid;
+    private final String role;
+
+    private final Topic<Boolean> unreadMessages;
+    private final Topic<Long> unreadNotificationCount;
+    private final Topic<List<Appointment>> appointments;
+    private final Topic<List<Prescription>> prescriptions;
+
+    public UserEventStream(DocumentStore store, String uid, String role, String pharmacyAddressNormalized) {
+        this(store, uid, role, pharmacyAddressNormalized, null);
+    }
+
+    public UserEventStream(DocumentStore store, String uid, String role, String pharmacyAddressNormalized,
+                           LocalReplica replica) {
+        if (uid == null || uid.isBlank()) {
+            throw new IllegalArgumentException("User identifier is required.");
+        }
+        this.uid = uid;
+        this.role = role;
+
+        MessageRepository messageRepository = new MessageRepository(store);
+        NotificationRepository notificationRepository = new NotificationRepository(store);
+        AppointmentRepository appointmentRepository = new AppointmentRepository(store);
+        PrescriptionRepository prescriptionRepository = new PrescriptionRepository(store);
+
+        unreadMessages = new Topic<>((listener, onError) ->
+                messageRepository.listenUnreadForRecipient(uid, listener, onError));
+        unreadNotificationCount = new Topic<>((listener, onError) -> notificationRepository.listenUnreadByUser(uid,
+                notifications -> listener.accept((long) notifications.size()), onError));
+
+        String appointmentField = appointmentField(role);
+        LocalReplica.Dataset savedAppointments = replica == null || appointmentField == null ? null
+                : AppointmentRepository.replicaByParticipant(replica, appointmentField, uid);
+        appointments = new Topic<>(appointmentField == null ? null
+                : (listener, onError) -> appointmentRepository.listenByParticipant(appointmentField, uid,
+                        savedAppointments, found -> listener.accept(sortedAppointments(found)), onError));
+        if (savedAppointments != null && !savedAppointments.isEmpty()) {
+            appointments.seed(sortedAppointments(AppointmentRepository.toAppointments(savedAppointments.getDocuments())));
+        }
+
+        String prescriptionField = prescriptionField(role);
+        String prescriptionValue = "PHARMACY".equals(role) ? pharmacyAddressNormalized : uid;
+        LocalReplica.Dataset savedPrescriptions = replica == null || prescriptionField == null || prescriptionValue == null
+                ? null
+                : PrescriptionRepository.replicaBy(replica, uid, prescriptionField, prescriptionValue);
+        prescriptions = new Topic<>(prescriptionField == null || prescriptionValue == null ? null
+                : (listener, onError) -> prescriptionRepository.listenBy(prescriptionField, prescriptionValue,
+                        savedPrescriptions, found -> listener.accept(sortedPrescriptions(found)), onError));
+        if (savedPrescriptions != null && !savedPrescriptions.isEmpty()) {
+            prescriptions.seed(sortedPrescriptions(PrescriptionRepository.toPrescriptions(savedPrescriptions.getDocuments())));
+        }
+    }
+
+    public String getUid() {
+        return uid;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    /**
+     * True while at least one message addressed to the user is unread.
+     */
+    public StoreSubscription subscribeUnreadMessages(Consumer<Boolean> subscriber) {
+        return unreadMessages.subscribe(subscriber, null);
+    }
+
+    public StoreSubscription subscribeUnreadNotificationCount(Consumer<Long> subscriber) {
+        return unreadNotificationCount.subscribe(subscriber, null);
+    }
+
+    /**
+     * The user's appointments ordered by appointment time. Roles without appointments get an
+     * empty list once.
+     */
+    public StoreSubscription subscribeAppointments(Consumer<List<Appointment>> subscriber) {
+        return appointments.subscribe(subscriber, null);
+    }
+
+    /**
+     * Same as above; onError is called if the live query stops.
+     */
+    public StoreSubscription subscribeAppointments(Consumer<List<Appointment>> subscriber,
+                                                   Consumer<Throwable> onError) {
+        return appointments.subscribe(subscriber, onError);
+    }
+
+    /**
+     * The user's prescriptions, newest first. Roles without prescriptions get an empty list once.
+     */
+    public StoreSubscription subscribePrescriptions(Consumer<List<Prescription>> subscriber) {
+        return prescriptions.subscribe(subscriber, null);
+    }
+
+    /**
+     * Cancels every store listener and drops all subscribers.
+     */
+    public void close() {
+        unreadMessages.close();
+        unreadNotificationCount.close();
+        appointments.close();
+        prescriptions.close();
+    }
+
+    private static String appointmentField(String role) {
+        if ("PATIENT".equals(role)) {
+            return "patientUid";
+        }
+        if ("DOCTOR".equals(role)) {
+            return "doctorUid";
+        }
+        if ("HOSPITAL".equals(role)) {
+            return "hospitalUid";
+        }
+        return null;
+    }
+
+    private static String prescriptionField(String role) {
+        if ("PATIENT".equals(role)) {
+            return "patientUid";
+        }
+        if ("DOCTOR".equals(role)) {
+            return "doctorUid";
+        }
+        if ("PHARMACY".equals(role)) {
+            return "pharmacyAddressNormalized";
+        }
+        return null;
+    }
+
+    private static List<Appointment> sortedAppointments(List<Appointment> found) {
+        List<Appointment> sorted = new ArrayList<>(found);
+        sorted.sort(Comparator.comparing(Appointment::resolveAppointmentEpochMillis,
+                Comparator.nullsLast(Long::compareTo)));
+        return sorted;
+    }
+
+    private static List<Prescription> sortedPrescriptions(List<Prescription> found) {
+        List<Prescription> sorted = new ArrayList<>(found);
+        sorted.sort((left, right) -> Long.compare(
+                right.getCreatedAt() != null ? right.getCreatedAt() : 0L,
+                left.getCreatedAt() != null ? left.getCreatedAt() : 0L));
+        return sorted;
+    }
+
+    /**
+     * One shared store listener plus the subscribers it fans out to. A null opener means the
+     * topic does not apply to the user's role.
+     */
+    private static final class Topic<T> {
+        private final BiFunction<Consumer<T>, Consumer<Throwable>, StoreSubscription> opener;
+        private final List<Subscriber<T>> subscribers = new CopyOnWriteArrayList<>();
+        private StoreSubscription storeSubscription;
+        // Identifies the open store listener, so an error from an earlier one is ignored.
+        private Object listenerToken;
+        private T latest;
+        private boolean closed;
+
+        private Topic(BiFunction<Consumer<T>, Consumer<Throwable>, StoreSubscription> opener) {
+            this.opener = opener;
+        }
+
+        /**
+         * Deliveries happen under the topic's lock, so a new subscriber never sees an older
+         * value after a newer one. A null onError leaves the failure to the log.
+         */
+        private synchronized StoreSubscription subscribe(Consumer<T> onValue, Consumer<Throwable> onError) {
+            if (closed) {
+                return () -> { };
+            }
+
+            Subscriber<T> subscriber = new Subscriber<>(onValue, onError);
+            subscribers.add(subscriber);
+            if (opener == null) {
+                deliver(subscriber, empty());
+            } else if (storeSubscription == null) {
+                T saved = latest;
+                open();
+                if (saved != null && latest == saved) {
+                    deliver(subscriber, saved);
+                }
+            } else if (latest != null) {
+                deliver(subscriber, latest);
+            }
+            return () -> subscribers.remove(subscriber);
+        }
+
+        private void open() {
+            Object token = new Object();
+            listenerToken = token;
+            StoreSubscription opened = opener.apply(this::publish, error -> fail(token, error));
+            if (listenerToken == token) {
+                storeSubscription = opened;
+            } else {
+                opened.cancel();
+            }
+        }
+
+        /**
+         * The store listener has ended; the next subscribe opens a new one.
+         */
+        private synchronized void fail(Object token, Throwable error) {
+            if (closed || listenerToken != token) {
+                return;
+            }
+            listenerToken = null;
+            storeSubscription = null;
+            System.err.println("Event stream listener stopped: " + error.getMessage());
+            for (Subscriber<T> subscriber : subscribers) {
+                if (subscriber.onError == null) {
+                    continue;
+                }
+                try {
+                    subscriber.onError.accept(error);
+                } catch (RuntimeException e) {
+                    System.err.println("Event stream subscriber failed: " + e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * A value from the replica, delivered until the store listener reports.
+         */
+        private synchronized void seed(T value) {
+            if (latest == null) {
+                latest = value;
+            }
+        }
+
+        private synchronized void publish(T value) {
+            if (closed) {
+                return;
+            }
+            latest = value;
+            for (Subscriber<T> subscriber : subscribers) {
+                deliver(subscriber, value);
+            }
+        }
+
+        private synchronized void close() {
+            closed = true;
+            listenerToken = null;
+            subscribers.clear();
+            if (storeSubscription != null) {
+                storeSubscription.cancel();
+                storeSubscription = null;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private T empty() {
+            return (T) List.of();
+        }
+
+        private void deliver(Subscriber<T> subscriber, T value) {
+            try {
+                subscriber.onValue.accept(value);
+            } catch (RuntimeException e) {
+                System.err.println("Event stream subscriber failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private static final class Subscriber<T> {
+        private final Consumer<T> onValue;
+        private final Consumer<Throwable> onError;
+
+        private Subscriber(Consumer<T> onValue, Consumer<Throwable> onError) {
+            this.onValue = onValue;
+            this.onError = onError;
+        }
+    }
+}
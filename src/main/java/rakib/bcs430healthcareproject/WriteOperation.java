@@ -0,0 +1,86 @@
+package rakib.bcs430healthcareproject;
+
+import java.util.Map;
+
+/**
+ * One document write in a {@link DocumentStore#bulkWrite(java.util.List)} or
+ * {@link DocumentStore#commit(java.util.List)} call.
+ */
+public final class WriteOperation {
+
+    public enum Type {
+        CREATE,
+        SET,
+        UPDATE,
+        DELETE
+    }
+
+    private final Type type;
+    private final String collection;
+    private final String id;
+    private final Object data;
+
+    private WriteOperation(Type type, String collection, String id, Object data) {
+        if (collection == null || collection.isBlank() || id == null || id.isBlank()) {
+            throw new IllegalArgumentException("Collection and document ID are required.");
+        }
+        this.type = type;
+        this.collection = collection;
+        this.id = id;
+        this.data = data;
+    }
+
+    /**
+     * Creates the document; fails with {@link DocumentAlreadyExistsException} if it exists.
+     */
+    public static WriteOperation create(String collection, String id, Object data) {
+        return new WriteOperation(Type.CREATE, collection, id, data);
+    }
+
+    /**
+     * Creates or fully replaces the document.
+     */
+    public static WriteOperation set(String collection, String id, Object data) {
+        return new WriteOperation(Type.SET, collection, id, data);
+    }
+
+    /**
+     * Updates fields of an existing document; fails for that document if it is missing.
+     */
+    public static WriteOperation update(String collection, String id, Map<String, Object> fields) {
+        return new WriteOperation(Type.UPDATE, collection, id, Map.copyOf(fields));
+    }
+
+    public static WriteOperation delete(String collection, String id) {
+        return new WriteOperation(Type.DELETE, collection, id, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getCollection() {
+        return collection;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * The document for CREATE and SET, or the field map for UPDATE. Null for DELETE.
+     */
+    public Object getData() {
+        return data;
+    }
+
+    @SuppressWarnings("unchecked")
+    Map<String, Object> getFields() {
+        return (Map<String, Object>) data;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + collection + "/" + id;
+    }
+}
@@ -0,0 +1,167 @@
+package rakib.bcs430healthcareproject;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recovery of {@link FileDocumentStore} after a crash. Closing the store checkpoints it, so a
+ * crash is simulated by copying the data files of a store that is still open and opening the
+ * copy.
+ */
+class FileDocumentStoreTest {
+
+    private static final String COLLECTION = "records";
+
+    @TempDir
+    Path root;
+
+    private final List<FileDocumentStore> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeStores() {
+        for (FileDocumentStore store : opened) {
+            store.close();
+        }
+    }
+
+    @Test
+    void recoversWritesFromTheLog() throws Exception {
+        FileDocumentStore store = open(root.resolve("live"));
+        store.set(COLLECTION, "a", Map.of("value", 1)).get();
+        store.set(COLLECTION, "b", Map.of("value", 2)).get();
+        store.update(COLLECTION, "a", Map.of("value", 3)).get();
+        store.delete(COLLECTION, "b").get();
+        store.commit(List.of(
+                WriteOperation.set(COLLECTION, "c", Map.of("value", 4)),
+                WriteOperation.set(COLLECTION, "d", Map.of("value", 5)))).get();
+
+        FileDocumentStore recovered = open(crashImage(store, "image"));
+
+        assertValue(recovered, "a", 3);
+        assertMissing(recovered, "b");
+        assertValue(recovered, "c", 4);
+        assertValue(recovered, "d", 5);
+    }
+
+    @Test
+    void recoversFromSnapshotAndLogTail() throws Exception {
+        FileDocumentStore store = open(root.resolve("live"));
+        store.set(COLLECTION, "a", Map.of("value", 1)).get();
+        store.set(COLLECTION, "b", Map.of("value", 2)).get();
+        store.checkpoint();
+        store.set(COLLECTION, "c", Map.of("value", 3)).get();
+        store.delete(COLLECTION, "a").get();
+
+        FileDocumentStore recovered = open(crashImage(store, "image"));
+
+        assertMissing(recovered, "a");
+        assertValue(recovered, "b", 2);
+        assertValue(recovered, "c", 3);
+    }
+
+    @Test
+    void discardsTornRecordAtEndOfLog() throws Exception {
+        FileDocumentStore store = open(root.resolve("live"));
+        store.set(COLLECTION, "a", Map.of("value", 1)).get();
+        long validBytes = Files.size(store.getDirectory().resolve("wal.log"));
+        store.set(COLLECTION, "b", Map.of("value", 2)).get();
+
+        Path image = crashImage(store, "image");
+        truncateLog(image, 3);
+
+        FileDocumentStore recovered = open(image);
+        assertValue(recovered, "a", 1);
+        assertMissing(recovered, "b");
+        assertEquals(validBytes, Files.size(image.resolve("wal.log")));
+
+        // New writes append after the valid records, so they survive the next crash.
+        recovered.set(COLLECTION, "c", Map.of("value", 3)).get();
+        FileDocumentStore recoveredAgain = open(crashImage(recovered, "image-again"));
+        assertValue(recoveredAgain, "a", 1);
+        assertValue(recoveredAgain, "c", 3);
+    }
+
+    @Test
+    void discardsRecordWithBadChecksum() throws Exception {
+        FileDocumentStore store = open(root.resolve("live"));
+        store.set(COLLECTION, "a", Map.of("value", 1)).get();
+        store.set(COLLECTION, "b", Map.of("value", 2)).get();
+
+        Path image = crashImage(store, "image");
+        Path log = image.resolve("wal.log");
+        byte[] bytes = Files.readAllBytes(log);
+        bytes[bytes.length - 1] ^= 0x5A;
+        Files.write(log, bytes);
+
+        FileDocumentStore recovered = open(image);
+        assertValue(recovered, "a", 1);
+        assertMissing(recovered, "b");
+    }
+
+    @Test
+    void recoversCommitAllOrNothing() throws Exception {
+        FileDocumentStore store = open(root.resolve("live"));
+        store.set(COLLECTION, "a", Map.of("value", 1)).get();
+        store.commit(List.of(
+                WriteOperation.set(COLLECTION, "b", Map.of("value", 2)),
+                WriteOperation.set(COLLECTION, "c", Map.of("value", 3)))).get();
+
+        Path image = crashImage(store, "image");
+        truncateLog(image, 1);
+
+        FileDocumentStore recovered = open(image);
+        assertValue(recovered, "a", 1);
+        assertMissing(recovered, "b");
+        assertMissing(recovered, "c");
+    }
+
+    private FileDocumentStore open(Path directory) {
+        FileDocumentStore store = new FileDocumentStore(directory);
+        opened.add(store);
+        return store;
+    }
+
+    /**
+     * Copies the data files of the open store, as a crash would leave them.
+     */
+    private Path crashImage(FileDocumentStore store, String name) throws IOException {
+        Path image = Files.createDirectories(root.resolve(name));
+        for (String file : List.of("snapshot.dat", "wal.log", "wal.old")) {
+            Path source = store.getDirectory().resolve(file);
+            if (Files.exists(source)) {
+                Files.copy(source, image.resolve(file));
+            }
+        }
+        return image;
+    }
+
+    private static void truncateLog(Path directory, int bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve("wal.log"), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - bytes);
+        }
+    }
+
+    private static void assertValue(DocumentStore store, String id, long expected) throws Exception {
+        StoredDocument document = store.get(COLLECTION, id).get();
+        assertTrue(document.exists(), id + " should exist");
+        assertEquals(expected, document.getLong("value").longValue());
+    }
+
+    private static void assertMissing(DocumentStore store, String id) throws Exception {
+        assertFalse(store.get(COLLECTION, id).get().exists(), id + " should not exist");
+    }
+}
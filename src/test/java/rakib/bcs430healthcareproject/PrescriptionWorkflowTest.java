@@ -0,0 +1,253 @@
+package rakib.bcs430healthcareproject;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The prescription transition table and the checks each transition runs, on an
+ * {@link InMemoryDocumentStore}.
+ */
+class PrescriptionWorkflowTest {
+
+    private static final String PHARMACY_ADDRESS = "1 Main St, Farmingdale, NY 11735";
+    private static final String OTHER_PHARMACY_ADDRESS = "9 Elm St, Huntington, NY 11743";
+    private static final String PATIENT_NAME = "Jane Doe";
+    private static final String PATIENT_DOB = "1990-04-12";
+
+    private InMemoryDocumentStore store;
+    private FirebaseService service;
+    private PrescriptionWorkflow workflow;
+    private PharmacyProfile pharmacy;
+
+    @BeforeEach
+    void setUp() {
+        store = new InMemoryDocumentStore();
+        service = new FirebaseService(store, null);
+        workflow = service.getPrescriptionWorkflow();
+        pharmacy = pharmacy(PHARMACY_ADDRESS);
+    }
+
+    @Test
+    void transitionTableAllowsOnlyTheLifecycleMoves() {
+        assertAllowedFrom(PrescriptionWorkflow.Transition.FILL,
+                Prescription.STATUS_SENT, Prescription.STATUS_FILLED, Prescription.STATUS_REFILL_REQUESTED);
+        assertAllowedFrom(PrescriptionWorkflow.Transition.CONFIRM_PICKUP,
+                Prescription.STATUS_FILLED);
+        assertAllowedFrom(PrescriptionWorkflow.Transition.REFILL,
+                Prescription.STATUS_FILLED, Prescription.STATUS_PICKED_UP, Prescription.STATUS_REFILL_REQUESTED);
+        assertAllowedFrom(PrescriptionWorkflow.Transition.REQUEST_REFILL,
+                Prescription.STATUS_SENT, Prescription.STATUS_FILLED, Prescription.STATUS_PICKED_UP);
+    }
+
+    @Test
+    void missingStatusCountsAsSent() {
+        assertTrue(PrescriptionWorkflow.Transition.FILL.allowsFrom(null));
+        assertTrue(PrescriptionWorkflow.Transition.FILL.allowsFrom(" "));
+        assertTrue(PrescriptionWorkflow.Transition.FILL.allowsFrom("sent"));
+        assertFalse(PrescriptionWorkflow.Transition.CONFIRM_PICKUP.allowsFrom(null));
+    }
+
+    @Test
+    void fillMovesSentToFilledAndRejectsPickedUp() throws Exception {
+        String id = save(prescription(PATIENT_DOB));
+
+        Prescription filled = workflow.fill(id, pharmacy).get();
+        assertEquals(Prescription.STATUS_FILLED, filled.getStatus());
+        assertEquals(Prescription.STATUS_FILLED, stored(id).getStatus());
+
+        setStatus(id, Prescription.STATUS_PICKED_UP);
+        assertRejected(workflow.fill(id, pharmacy),
+                "This prescription has already been picked up and cannot be marked filled again.");
+        assertEquals(Prescription.STATUS_PICKED_UP, stored(id).getStatus());
+    }
+
+    @Test
+    void confirmPickupChecksStatusThenPharmacyThenIdentity() throws Exception {
+        String id = save(prescription(PATIENT_DOB));
+        PharmacyProfile otherPharmacy = pharmacy(OTHER_PHARMACY_ADDRESS);
+
+        assertRejected(workflow.confirmPickup(id, otherPharmacy, "Someone Else", "2000-01-01", null),
+                "Only filled prescriptions can be confirmed for pickup.");
+
+        setStatus(id, Prescription.STATUS_FILLED);
+        assertRejected(workflow.confirmPickup(id, otherPharmacy, "Someone Else", "2000-01-01", null),
+                "This prescription is not assigned to your pharmacy.");
+        assertRejected(workflow.confirmPickup(id, pharmacy, "Someone Else", PATIENT_DOB, null),
+                "Patient name does not match the prescription profile.");
+        assertRejected(workflow.confirmPickup(id, pharmacy, PATIENT_NAME, "2000-01-01", null),
+                "Patient date of birth does not match the prescription profile.");
+
+        Prescription pickedUp = workflow.confirmPickup(id, pharmacy, "  jane   DOE ", PATIENT_DOB, null).get();
+        assertEquals(Prescription.STATUS_PICKED_UP, pickedUp.getStatus());
+        assertEquals(Prescription.STATUS_PICKED_UP, stored(id).getStatus());
+    }
+
+    @Test
+    void confirmPickupWithoutStoredBirthDateNeedsTheProfile() throws Exception {
+        String id = save(prescription(null));
+        setStatus(id, Prescription.STATUS_FILLED);
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> workflow.confirmPickup(id, pharmacy, PATIENT_NAME, PATIENT_DOB, null).get());
+        PrescriptionWorkflow.PatientProfileRequiredException required = assertInstanceOf(
+                PrescriptionWorkflow.PatientProfileRequiredException.class, error.getCause());
+        assertEquals("patient-1", required.getPatientUid());
+
+        PatientProfile profile = new PatientProfile();
+        profile.setName(PATIENT_NAME);
+        profile.setDateOfBirth(PATIENT_DOB);
+        workflow.confirmPickup(id, pharmacy, PATIENT_NAME, PATIENT_DOB, profile).get();
+
+        Prescription stored = stored(id);
+        assertEquals(Prescription.STATUS_PICKED_UP, stored.getStatus());
+        assertEquals(PATIENT_DOB, stored.getPatientDateOfBirth());
+    }
+
+    @Test
+    void concurrentRefillRequestsCommitOnce() throws Exception {
+        String id = save(prescription(PATIENT_DOB));
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger committed = new AtomicInteger();
+        List<CompletableFuture<Void>> attempts = new ArrayList<>();
+
+        try {
+            for (int t = 0; t < threads; t++) {
+                attempts.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        start.await();
+                        workflow.requestRefill(id, PATIENT_NAME).get();
+                        committed.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (ExecutionException ignored) {
+                        // Every request after the first is rejected.
+                    }
+                }, pool));
+            }
+            start.countDown();
+            CompletableFuture.allOf(attempts.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        PrescriptionWorkflow.TransitionStats stats = workflow.getStats(PrescriptionWorkflow.Transition.REQUEST_REFILL);
+        assertEquals(1, committed.get());
+        assertEquals(threads, stats.getCalls());
+        assertEquals(1, stats.getCommitted());
+        assertEquals(threads - 1, stats.getRejected());
+        assertEquals(Prescription.STATUS_REFILL_REQUESTED, stored(id).getStatus());
+    }
+
+    @Test
+    void concurrentTransitionsEndCommittedOrRejected() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            ids.add(save(prescription(PATIENT_DOB)));
+        }
+
+        int threads = 8;
+        int operationsPerThread = 200;
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            workers.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < operationsPerThread; i++) {
+                    String id = ids.get((offset + i) % ids.size());
+                    CompletableFuture<Prescription> transition = i % 5 == 0
+                            ? workflow.requestRefill(id, PATIENT_NAME)
+                            : workflow.fill(id, pharmacy);
+                    try {
+                        transition.join();
+                    } catch (RuntimeException ignored) {
+                        // Rejections are counted by the workflow.
+                    }
+                }
+            }, service.getExecutor()));
+        }
+        CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0])).join();
+
+        long calls = 0;
+        for (PrescriptionWorkflow.Transition transition : PrescriptionWorkflow.Transition.values()) {
+            PrescriptionWorkflow.TransitionStats stats = workflow.getStats(transition);
+            assertEquals(stats.getCalls(), stats.getCommitted() + stats.getRejected(), transition.name());
+            calls += stats.getCalls();
+        }
+        assertEquals((long) threads * operationsPerThread, calls);
+        for (String id : ids) {
+            assertTrue(Set.of(Prescription.STATUS_FILLED, Prescription.STATUS_REFILL_REQUESTED)
+                    .contains(stored(id).getStatus()));
+        }
+    }
+
+    private static void assertAllowedFrom(PrescriptionWorkflow.Transition transition, String... allowed) {
+        Set<String> expected = Set.of(allowed);
+        assertEquals(expected, transition.getFromStatuses(), transition.name());
+        for (String status : List.of(Prescription.STATUS_SENT, Prescription.STATUS_FILLED,
+                Prescription.STATUS_PICKED_UP, Prescription.STATUS_REFILL_REQUESTED)) {
+            assertEquals(expected.contains(status), transition.allowsFrom(status), transition + " from " + status);
+        }
+    }
+
+    private static void assertRejected(CompletableFuture<Prescription> transition, String message) {
+        ExecutionException error = assertThrows(ExecutionException.class, transition::get);
+        assertEquals(message, error.getCause().getMessage());
+    }
+
+    private String save(Prescription prescription) throws Exception {
+        return service.savePrescription(prescription).get();
+    }
+
+    private void setStatus(String id, String status) throws Exception {
+        store.update(PrescriptionRepository.COLLECTION, id, Map.of("status", status)).get();
+    }
+
+    private Prescription stored(String id) throws Exception {
+        return new PrescriptionRepository(store).findById(id).get();
+    }
+
+    private static PharmacyProfile pharmacy(String address) {
+        PharmacyProfile pharmacy = new PharmacyProfile();
+        pharmacy.setPharmacyName("Test Pharmacy");
+        pharmacy.setAddressNormalized(AddressNormalizer.normalize(address));
+        return pharmacy;
+    }
+
+    private static Prescription prescription(String patientDateOfBirth) {
+        Prescription prescription = new Prescription();
+        prescription.setDoctorUid("doctor-1");
+        prescription.setPatientUid("patient-1");
+        prescription.setPatientName(PATIENT_NAME);
+        prescription.setPatientDateOfBirth(patientDateOfBirth);
+        prescription.setPharmacyName("Test Pharmacy");
+        prescription.setPharmacyAddress(PHARMACY_ADDRESS);
+        prescription.setPharmacyPhoneNumber("555-0100");
+        prescription.setMedicationName("Amoxicillin");
+        prescription.setMedicationInformation("Antibiotic");
+        prescription.setDosage("500 mg");
+        prescription.setQuantity("30");
+        prescription.setRefillDetails("5 refills remaining");
+        prescription.setRemainingRefills(5);
+        prescription.setRefillIntervalDays(30);
+        prescription.setInstructions("Take twice daily");
+        return prescription;
+    }
+}
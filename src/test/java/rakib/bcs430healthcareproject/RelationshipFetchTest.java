@@ -0,0 +1,96 @@
+package rakib.bcs430healthcareproject;
+
+import com.google.cloud.firestore.Firestore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Resolves a doctor's patients through their appointments with
+ * {@link FirebaseService#getDoctorPatients(String)}, across more patients than one batched
+ * read returns. The emulator test runs only with {@code FIRESTORE_EMULATOR_HOST} set, e.g.
+ * after {@code firebase emulators:start}.
+ */
+class RelationshipFetchTest {
+
+    private static final String PROJECT_ID = "demo-healthconnect";
+    private static final int[] SIZES = {10, 250};
+
+    @Test
+    void resolvesDoctorPatientsFromTheInMemoryStore() throws Exception {
+        for (int size : SIZES) {
+            assertResolvesPatients(new InMemoryDocumentStore(), "test-doctor-" + size, size);
+        }
+    }
+
+    @Test
+    @EnabledIfEnvironmentVariable(named = "FIRESTORE_EMULATOR_HOST", matches = ".+")
+    void resolvesDoctorPatientsFromTheFirestoreEmulator() throws Exception {
+        Firestore firestore = FirebaseInitializer.openEmulatorFirestore(
+                System.getenv("FIRESTORE_EMULATOR_HOST"), PROJECT_ID);
+        try {
+            for (int size : SIZES) {
+                assertResolvesPatients(new FirestoreDocumentStore(firestore), "test-doctor-" + size, size);
+            }
+        } finally {
+            firestore.close();
+        }
+    }
+
+    /**
+     * Each patient has two appointments with the doctor. One more appointment points at a
+     * patient without a profile and one belongs to another doctor; neither may show up.
+     */
+    private static void assertResolvesPatients(DocumentStore store, String doctorUid, int size) throws Exception {
+        List<WriteOperation> seeded = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            String patientUid = doctorUid + "-patient-" + i;
+
+            Map<String, Object> patient = new HashMap<>();
+            patient.put("uid", patientUid);
+            patient.put("name", String.format("Patient %04d", i));
+            patient.put("email", patientUid + "@example.com");
+            seeded.add(WriteOperation.set(ProfileRepository.PATIENTS_COLLECTION, patientUid, patient));
+
+            for (int visit = 0; visit < 2; visit++) {
+                seeded.add(WriteOperation.set(AppointmentRepository.COLLECTION, patientUid + "-visit-" + visit,
+                        appointment(doctorUid, patientUid)));
+            }
+        }
+        seeded.add(WriteOperation.set(AppointmentRepository.COLLECTION, doctorUid + "-orphan",
+                appointment(doctorUid, doctorUid + "-missing-patient")));
+        seeded.add(WriteOperation.set(AppointmentRepository.COLLECTION, doctorUid + "-other",
+                appointment(doctorUid + "-other", doctorUid + "-patient-0")));
+        store.bulkWrite(seeded).get().throwIfFailed("Seeding test data");
+
+        try {
+            List<PatientProfile> patients = new FirebaseService(store, null).getDoctorPatients(doctorUid).get();
+
+            assertEquals(size, patients.size());
+            for (int i = 0; i < size; i++) {
+                assertEquals(String.format("Patient %04d", i), patients.get(i).getName());
+            }
+        } finally {
+            List<WriteOperation> cleanup = new ArrayList<>();
+            for (WriteOperation operation : seeded) {
+                cleanup.add(WriteOperation.delete(operation.getCollection(), operation.getId()));
+            }
+            store.bulkWrite(cleanup).get().throwIfFailed("Deleting test data");
+        }
+    }
+
+    private static Map<String, Object> appointment(String doctorUid, String patientUid) {
+        Map<String, Object> appointment = new HashMap<>();
+        appointment.put("doctorUid", doctorUid);
+        appointment.put("patientUid", patientUid);
+        appointment.put("appointmentDate", "2026-01-01");
+        appointment.put("status", "SCHEDULED");
+        return appointment;
+    }
+}
@@ -0,0 +1,150 @@
+package rakib.bcs430healthcareproject;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Books the same doctor slot from many threads at once: exactly one booking wins, the day's
+ * slot occupancy follows a reschedule, and cancelling frees the slot again. Cancelling a stale
+ * copy of an appointment must not free the slot for whoever booked it since.
+ */
+class SlotContentionTest {
+
+    private static final String DOCTOR_UID = "doctor-contention";
+    private static final String SLOT = "09:30 AM";
+    private static final String RESCHEDULED_SLOT = "10:00 AM";
+    private static final int THREADS = 16;
+    private static final int ROUNDS = 10;
+
+    @Test
+    void inMemoryStoreBooksEachSlotOnce() throws Exception {
+        run(new InMemoryDocumentStore());
+    }
+
+    @Test
+    void fileStoreBooksEachSlotOnce(@TempDir Path directory) throws Exception {
+        FileDocumentStore store = new FileDocumentStore(directory);
+        try {
+            run(store);
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    void staleCancellationKeepsTheNextBooking() throws Exception {
+        FirebaseService service = new FirebaseService(new InMemoryDocumentStore(), null);
+        LocalDate date = LocalDate.of(2026, 4, 6);
+
+        Appointment first = appointment("patient-a", date);
+        service.bookAppointment(first).get();
+        Appointment staleCopy = appointment("patient-a", date);
+        staleCopy.setAppointmentId(first.getAppointmentId());
+        staleCopy.setSlotReservationId(first.getSlotReservationId());
+
+        first.setStatus("CANCELLED");
+        service.updateAppointment(first).get();
+        Appointment second = appointment("patient-b", date);
+        service.bookAppointment(second).get();
+
+        staleCopy.setStatus("CANCELLED");
+        service.updateAppointment(staleCopy).get();
+        service.deleteAppointment(first.getAppointmentId()).get();
+
+        assertBooked(service, date, List.of("9:30 AM"));
+        assertFalse(service.isSlotStillAvailable(DOCTOR_UID, date.toString(), SLOT).get());
+        assertThrows(ExecutionException.class,
+                () -> service.bookAppointment(appointment("patient-c", date)).get());
+
+        service.deleteAppointment(second.getAppointmentId()).get();
+        assertBooked(service, date, List.of());
+    }
+
+    private static void run(DocumentStore store) throws Exception {
+        FirebaseService service = new FirebaseService(store, null);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        LocalDate firstDay = LocalDate.of(2026, 3, 2);
+
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                LocalDate date = firstDay.plusDays(round);
+                CountDownLatch start = new CountDownLatch(1);
+                AtomicInteger rejected = new AtomicInteger();
+                List<Appointment> winners = new ArrayList<>();
+                List<CompletableFuture<Void>> attempts = new ArrayList<>();
+
+                for (int t = 0; t < THREADS; t++) {
+                    Appointment appointment = appointment("patient-" + t, date);
+                    attempts.add(CompletableFuture.runAsync(() -> {
+                        try {
+                            start.await();
+                            service.bookAppointment(appointment).get();
+                            synchronized (winners) {
+                                winners.add(appointment);
+                            }
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } catch (Exception e) {
+                            rejected.incrementAndGet();
+                        }
+                    }, pool));
+                }
+
+                start.countDown();
+                CompletableFuture.allOf(attempts.toArray(new CompletableFuture<?>[0])).join();
+
+                assertEquals(1, winners.size(), "round " + round + ": bookings that succeeded");
+                assertEquals(THREADS - 1, rejected.get(), "round " + round + ": bookings rejected");
+
+                Appointment winner = winners.get(0);
+                assertBooked(service, date, List.of("9:30 AM"));
+
+                winner.setAppointmentSlot(RESCHEDULED_SLOT);
+                winner.setAppointmentDateTime(null);
+                service.updateAppointment(winner).get();
+                assertBooked(service, date, List.of("10:00 AM"));
+
+                service.deleteAppointment(winner.getAppointmentId()).get();
+                assertTrue(service.isSlotStillAvailable(DOCTOR_UID, date.toString(), RESCHEDULED_SLOT).get(),
+                        "round " + round + ": slot still reserved after cancellation");
+                assertBooked(service, date, List.of());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static void assertBooked(FirebaseService service, LocalDate date, List<String> expected)
+            throws Exception {
+        assertEquals(expected, service.getBookedTimesForDoctorAndDate(DOCTOR_UID, date.toString()).get());
+    }
+
+    private static Appointment appointment(String patientUid, LocalDate date) {
+        Appointment appointment = new Appointment();
+        appointment.setDoctorUid(DOCTOR_UID);
+        appointment.setDoctorName("Contention Doctor");
+        appointment.setPatientUid(patientUid);
+        appointment.setPatientName(patientUid);
+        appointment.setAppointmentDate(date.toString());
+        appointment.setAppointmentSlot(SLOT);
+        appointment.setAppointmentDateTime(date.atTime(9, 30).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        return appointment;
+    }
+}
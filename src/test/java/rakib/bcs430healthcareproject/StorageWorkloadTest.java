@@ -0,0 +1,147 @@
+package rakib.bcs430healthcareproject;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs a fixed, seeded mix of FirebaseService reads and bookings from several threads against
+ * an {@link InMemoryDocumentStore}. Reads never fail, no slot ends up booked twice, and every
+ * query is answered from an index.
+ */
+class StorageWorkloadTest {
+
+    private static final String[] SLOTS = {
+            "09:00 AM", "09:30 AM", "10:00 AM", "10:30 AM", "11:00 AM", "11:30 AM",
+            "01:00 PM", "01:30 PM", "02:00 PM", "02:30 PM", "03:00 PM", "03:30 PM"
+    };
+    private static final int DAYS = 5;
+    private static final int DOCTORS = 5;
+    private static final int PATIENTS = 20;
+    private static final int THREADS = 4;
+    private static final int OPERATIONS_PER_THREAD = 500;
+    private static final long SEED = 430L;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2026, 1, 5);
+
+    @Test
+    void seededWorkloadKeepsSlotsAndIndexesConsistent() throws Exception {
+        InMemoryDocumentStore store = new InMemoryDocumentStore();
+        FirebaseService service = new FirebaseService(store, null);
+        seed(service, new Random(SEED));
+
+        AtomicLong readFailures = new AtomicLong();
+        AtomicLong rejectedBookings = new AtomicLong();
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            Random random = new Random(SEED + t + 1);
+            workers.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                    try {
+                        runOperation(service, random);
+                    } catch (BookingRejected e) {
+                        rejectedBookings.incrementAndGet();
+                    } catch (Exception e) {
+                        readFailures.incrementAndGet();
+                    }
+                }
+            }, service.getExecutor()));
+        }
+        CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0])).join();
+
+        assertEquals(0, readFailures.get(), "failed reads");
+        assertTrue(rejectedBookings.get() > 0, "the workload should contend for booked slots");
+
+        for (int d = 0; d < DOCTORS; d++) {
+            for (int day = 0; day < DAYS; day++) {
+                LocalDate date = FIRST_DAY.plusDays(day);
+                List<String> booked = service.getBookedTimesForDoctorAndDate(doctorUid(d), date.toString()).get();
+                List<Appointment> appointments = service.getDoctorAppointmentsForDate(doctorUid(d), date).get();
+                assertEquals(booked.size(), new HashSet<>(booked).size(), doctorUid(d) + " " + date + ": " + booked);
+                assertEquals(appointments.size(), booked.size(), doctorUid(d) + " " + date);
+            }
+        }
+
+        assertTrue(store.getIndexedQueryCount() > 0);
+        assertEquals(0, store.getScannedQueryCount(), "queries answered by a full scan");
+    }
+
+    private static void seed(FirebaseService service, Random random) throws Exception {
+        for (int p = 0; p < PATIENTS; p++) {
+            service.createPatient("patient" + p + "@example.com", "password" + p, "Patient " + p, "10001").get();
+        }
+
+        for (int d = 0; d < DOCTORS; d++) {
+            for (int day = 0; day < DAYS; day++) {
+                LocalDate date = FIRST_DAY.plusDays(day);
+                for (String slot : SLOTS) {
+                    if (random.nextInt(100) < 40) {
+                        service.bookAppointment(appointment(d, random.nextInt(PATIENTS), date, slot)).get();
+                    }
+                }
+            }
+        }
+    }
+
+    private static void runOperation(FirebaseService service, Random random) throws Exception {
+        int choice = random.nextInt(100);
+        String doctorUid = doctorUid(random.nextInt(DOCTORS));
+        LocalDate date = FIRST_DAY.plusDays(random.nextInt(DAYS));
+
+        if (choice < 35) {
+            service.getBookedTimesForDoctorAndDate(doctorUid, date.toString()).get();
+        } else if (choice < 60) {
+            service.getDoctorAppointmentsForDate(doctorUid, date).get();
+        } else if (choice < 80) {
+            service.getPatientAppointments(patientUid(random.nextInt(PATIENTS))).get();
+        } else if (choice < 90) {
+            service.getUnreadNotificationCount(patientUid(random.nextInt(PATIENTS)));
+        } else {
+            String slot = SLOTS[random.nextInt(SLOTS.length)];
+            try {
+                service.bookAppointment(appointment(random.nextInt(DOCTORS), random.nextInt(PATIENTS), date, slot)).get();
+            } catch (ExecutionException e) {
+                throw new BookingRejected();
+            }
+        }
+    }
+
+    private static Appointment appointment(int doctor, int patient, LocalDate date, String slot) {
+        Appointment appointment = new Appointment();
+        appointment.setDoctorUid(doctorUid(doctor));
+        appointment.setDoctorName("Doctor " + doctor);
+        appointment.setPatientUid(patientUid(patient));
+        appointment.setPatientName("Patient " + patient);
+        appointment.setAppointmentDate(date.toString());
+        appointment.setAppointmentSlot(slot);
+        appointment.setAppointmentDateTime(date.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        return appointment;
+    }
+
+    private static String doctorUid(int index) {
+        return "doctor-" + index;
+    }
+
+    /**
+     * Seeded patients get generated UIDs, so appointments reference a stable synthetic UID
+     * instead; the reads only need the references to be consistent.
+     */
+    private static String patientUid(int index) {
+        return "patient-" + index;
+    }
+
+    private static final class BookingRejected extends Exception {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,44 @@
+package rakib.bcs430healthcareproject;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Failure reporting of {@link UserEventStream} topics when the store listener stops.
+ */
+class UserEventStreamTest {
+
+    @Test
+    void failedListenerReachesSubscribersAndReopens() throws Exception {
+        AtomicBoolean offline = new AtomicBoolean(true);
+        InMemoryDocumentStore store = new InMemoryDocumentStore() {
+            @Override
+            public CompletableFuture<List<StoredDocument>> query(StoreQuery query) {
+                if (offline.get()) {
+                    return CompletableFuture.failedFuture(new RuntimeException("offline"));
+                }
+                return super.query(query);
+            }
+        };
+        UserEventStream events = new UserEventStream(store, "patient-1", "PATIENT", null);
+        try {
+            CompletableFuture<Throwable> failure = new CompletableFuture<>();
+            events.subscribeAppointments(appointments -> { }, failure::complete);
+            assertEquals("offline", failure.get(5, TimeUnit.SECONDS).getMessage());
+
+            offline.set(false);
+            CompletableFuture<List<Appointment>> appointments = new CompletableFuture<>();
+            events.subscribeAppointments(appointments::complete, error -> appointments.completeExceptionally(error));
+            assertTrue(appointments.get(5, TimeUnit.SECONDS).isEmpty());
+        } finally {
+            events.close();
+        }
+    }
+}